@@ -96,6 +96,12 @@ public class Parameters {
         public static final String TURN_COSTS = "turn_costs";
         public static final String U_TURN_COSTS = "u_turn_costs";
         public static final String MAX_VISITED_NODES = "max_visited_nodes";
+        /**
+         * true or false. If the unidirectional algorithms (dijkstra and astar) should store their shortest path tree
+         * in primitive arrays that are reused per thread instead of allocating objects per visited node. This needs
+         * memory proportional to the number of visited nodes per routing thread.
+         */
+        public static final String PRIMITIVE_SPT = "primitive_spt";
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
         /**
          * if true the response will contain turn instructions
@@ -153,6 +159,17 @@ public class Parameters {
         public static final String DISABLE = "ch.disable";
     }
 
+    /**
+     * Properties for routing with customizable contraction hierarchies
+     */
+    public static final class CCH {
+        public static final String PREPARE = "prepare.cch.";
+        /**
+         * This property name in HintsMap configures at runtime if customizable CH routing should be ignored.
+         */
+        public static final String DISABLE = "cch.disable";
+    }
+
     /**
      * Properties for routing with landmark speedup
      */
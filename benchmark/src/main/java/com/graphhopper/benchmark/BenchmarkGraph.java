@@ -0,0 +1,74 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.Profile;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.storage.DAType;
+
+import java.io.File;
+import java.util.Collections;
+
+/**
+ * Imports the OSM file used by the benchmarks once and loads the resulting graph with the requested DataAccess
+ * type. The OSM file defaults to the small Andorra file bundled with core and can be changed via the osmFile
+ * parameter of the benchmarks.
+ */
+final class BenchmarkGraph {
+    static final String PROFILE = "car";
+    private static final String GRAPH_LOCATION = "benchmark/target/benchmark-gh";
+
+    private BenchmarkGraph() {
+    }
+
+    /**
+     * @param dataAccess the DataAccess type used to load the graph, e.g. RAM_STORE or MMAP_RO, see DAType
+     * @return a GraphHopper instance with the graph of the given OSM file
+     */
+    static GraphHopper load(String osmFile, String dataAccess) {
+        if (!new File(osmFile).exists())
+            throw new IllegalArgumentException("OSM file " + osmFile + " does not exist, run the benchmarks from " +
+                    "the root folder of the repository or specify the file via -p osmFile=<file>");
+
+        String location = GRAPH_LOCATION + "-" + new File(osmFile).getName();
+        // the graph is always imported into the RAM_STORE format, all other types can read these files
+        GraphHopper hopper = new GraphHopperOSM().init(createConfig(osmFile, location, "RAM_STORE"));
+        hopper.importOrLoad();
+        hopper.close();
+
+        hopper = new GraphHopperOSM().init(createConfig(osmFile, location, dataAccess));
+        if (!DAType.fromString(dataAccess).isAllowWrites())
+            hopper.setAllowWrites(false);
+        if (!hopper.load(location))
+            throw new IllegalStateException("Could not load graph from " + location);
+        return hopper;
+    }
+
+    private static GraphHopperConfig createConfig(String osmFile, String location, String dataAccess) {
+        GraphHopperConfig config = new GraphHopperConfig();
+        config.putObject("datareader.file", osmFile);
+        config.putObject("graph.location", location);
+        config.putObject("graph.flag_encoders", "car");
+        config.putObject("graph.dataaccess", dataAccess);
+        config.putObject("prepare.min_network_size", 0);
+        config.setProfiles(Collections.singletonList(new Profile(PROFILE).setVehicle("car").setWeighting("fastest")));
+        return config;
+    }
+}
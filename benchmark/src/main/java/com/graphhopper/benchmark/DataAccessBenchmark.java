@@ -0,0 +1,87 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the DataAccess implementations for a full iteration over the adjacency lists of all nodes, which is
+ * the access pattern of the routing algorithms.
+ * <p>
+ * Run it via: mvn -pl benchmark -am package -DskipTests && java -jar benchmark/target/benchmarks.jar DataAccessBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataAccessBenchmark {
+    @Param({"RAM_STORE", "MMAP", "MMAP_RO"})
+    public String dataAccess;
+
+    @Param("core/files/andorra.osm.pbf")
+    public String osmFile;
+
+    private GraphHopper hopper;
+    private Graph graph;
+    private EdgeExplorer explorer;
+
+    @Setup
+    public void setup() {
+        hopper = BenchmarkGraph.load(osmFile, dataAccess);
+        graph = hopper.getGraphHopperStorage();
+        explorer = graph.createEdgeExplorer(EdgeFilter.ALL_EDGES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        hopper.close();
+    }
+
+    @Benchmark
+    public long iterateEdges() {
+        long sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                sum += iter.getAdjNode();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double iterateEdgesWithDistance() {
+        double sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                sum += iter.getAdjNode() + iter.getDistance();
+            }
+        }
+        return sum;
+    }
+}
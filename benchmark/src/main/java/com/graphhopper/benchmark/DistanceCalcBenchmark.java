@@ -0,0 +1,82 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.DistanceCalcEarth;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the distance calculations of DistanceCalcEarth that are used for the import and the location lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistanceCalcBenchmark {
+    private static final int POINTS = 10_000;
+    private final DistanceCalc distCalc = DistanceCalcEarth.DIST_EARTH;
+    private double[] lats;
+    private double[] lons;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(123);
+        lats = new double[POINTS];
+        lons = new double[POINTS];
+        // short distances similar to the edges of a road network
+        double lat = 42.5, lon = 1.5;
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = lat + rnd.nextDouble() * 0.01;
+            lons[i] = lon + rnd.nextDouble() * 0.01;
+        }
+    }
+
+    @Benchmark
+    public double calcDist() {
+        double sum = 0;
+        for (int i = 1; i < POINTS; i++) {
+            sum += distCalc.calcDist(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double calcNormalizedDist() {
+        double sum = 0;
+        for (int i = 1; i < POINTS; i++) {
+            sum += distCalc.calcNormalizedDist(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double calcNormalizedEdgeDistance() {
+        double sum = 0;
+        for (int i = 2; i < POINTS; i++) {
+            if (distCalc.validEdgeDistance(lats[i], lons[i], lats[i - 2], lons[i - 2], lats[i - 1], lons[i - 1]))
+                sum += distCalc.calcNormalizedEdgeDistance(lats[i], lons[i], lats[i - 2], lons[i - 2], lats[i - 1], lons[i - 1]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.FetchMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the iteration over the edges of the graph, once via the adjacency lists of all nodes and once via the
+ * AllEdgesIterator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EdgeIteratorBenchmark {
+    @Param("core/files/andorra.osm.pbf")
+    public String osmFile;
+
+    private GraphHopper hopper;
+    private Graph graph;
+    private EdgeExplorer explorer;
+    private DecimalEncodedValue speedEnc;
+
+    @Setup
+    public void setup() {
+        hopper = BenchmarkGraph.load(osmFile, "RAM_STORE");
+        graph = hopper.getGraphHopperStorage();
+        explorer = graph.createEdgeExplorer(EdgeFilter.ALL_EDGES);
+        FlagEncoder encoder = hopper.getEncodingManager().getEncoder("car");
+        speedEnc = encoder.getAverageSpeedEnc();
+    }
+
+    @TearDown
+    public void tearDown() {
+        hopper.close();
+    }
+
+    @Benchmark
+    public long adjacentNodes() {
+        long sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                sum += iter.getAdjNode();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double adjacentEdgesWithSpeed() {
+        double sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                sum += iter.getDistance() / Math.max(1, iter.get(speedEnc));
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double allEdges() {
+        double sum = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            sum += iter.getDistance() + iter.getAdjNode();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long allEdgesWithGeometry() {
+        long sum = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            sum += iter.fetchWayGeometry(FetchMode.ALL).size();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.IntsRef;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decoding and encoding of the edge flags via the different EncodedValue types. The flags of all edges
+ * are copied to the heap before, so only the bit operations are measured and not the graph storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodedValueBenchmark {
+    @Param("core/files/andorra.osm.pbf")
+    public String osmFile;
+
+    private IntsRef[] flags;
+    private BooleanEncodedValue accessEnc;
+    private DecimalEncodedValue speedEnc;
+    private EnumEncodedValue<RoadClass> roadClassEnc;
+    private IntsRef tmpFlags;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.load(osmFile, "RAM_STORE");
+        EncodingManager em = hopper.getEncodingManager();
+        FlagEncoder encoder = em.getEncoder("car");
+        accessEnc = encoder.getAccessEnc();
+        speedEnc = encoder.getAverageSpeedEnc();
+        roadClassEnc = em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+
+        List<IntsRef> list = new ArrayList<>();
+        AllEdgesIterator iter = hopper.getGraphHopperStorage().getAllEdges();
+        while (iter.next()) {
+            list.add(IntsRef.deepCopyOf(iter.getFlags()));
+        }
+        flags = list.toArray(new IntsRef[0]);
+        tmpFlags = em.createEdgeFlags();
+        hopper.close();
+    }
+
+    @Benchmark
+    public int decodeBoolean() {
+        int count = 0;
+        for (IntsRef ref : flags) {
+            if (accessEnc.getBool(false, ref))
+                count++;
+            if (accessEnc.getBool(true, ref))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public double decodeDecimal() {
+        double sum = 0;
+        for (IntsRef ref : flags) {
+            sum += speedEnc.getDecimal(false, ref) + speedEnc.getDecimal(true, ref);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int decodeEnum() {
+        int sum = 0;
+        for (IntsRef ref : flags) {
+            sum += roadClassEnc.getEnum(false, ref).ordinal();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public IntsRef encode() {
+        for (IntsRef ref : flags) {
+            accessEnc.setBool(false, tmpFlags, accessEnc.getBool(false, ref));
+            speedEnc.setDecimal(false, tmpFlags, speedEnc.getDecimal(false, ref));
+            roadClassEnc.setEnum(false, tmpFlags, roadClassEnc.getEnum(false, ref));
+        }
+        return tmpFlags;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.shapes.BBox;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures LocationIndexTree.findClosest for random points within the bounds of the graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationIndexBenchmark {
+    private static final int POINTS = 1000;
+
+    @Param("core/files/andorra.osm.pbf")
+    public String osmFile;
+
+    private GraphHopper hopper;
+    private LocationIndex locationIndex;
+    private double[] lats;
+    private double[] lons;
+
+    @Setup
+    public void setup() {
+        hopper = BenchmarkGraph.load(osmFile, "RAM_STORE");
+        locationIndex = hopper.getLocationIndex();
+        BBox bounds = hopper.getGraphHopperStorage().getBounds();
+        Random rnd = new Random(123);
+        lats = new double[POINTS];
+        lons = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat);
+            lons[i] = bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        hopper.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int findClosest() {
+        int sum = 0;
+        for (int i = 0; i < POINTS; i++) {
+            Snap snap = locationIndex.findClosest(lats[i], lons[i], EdgeFilter.ALL_EDGES);
+            sum += snap.getClosestNode();
+        }
+        return sum;
+    }
+}
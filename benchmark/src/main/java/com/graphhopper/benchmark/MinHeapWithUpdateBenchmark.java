@@ -0,0 +1,83 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.coll.MinHeapWithUpdate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the priority queue used by the node contraction with a sequence of push, update and poll operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinHeapWithUpdateBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private MinHeapWithUpdate heap;
+    private float[] values;
+    private float[] updates;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(123);
+        heap = new MinHeapWithUpdate(size);
+        values = new float[size];
+        updates = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = rnd.nextFloat() * 1000;
+            updates[i] = rnd.nextFloat() * 1000;
+        }
+    }
+
+    @Benchmark
+    public int pushAndPoll() {
+        heap.clear();
+        for (int i = 0; i < size; i++) {
+            heap.push(i, values[i]);
+        }
+        int sum = 0;
+        while (!heap.isEmpty()) {
+            sum += heap.poll();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int pushUpdateAndPoll() {
+        heap.clear();
+        for (int i = 0; i < size; i++) {
+            heap.push(i, values[i]);
+        }
+        for (int i = 0; i < size; i += 2) {
+            heap.update(i, updates[i]);
+        }
+        int sum = 0;
+        while (!heap.isEmpty()) {
+            sum += heap.poll();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.shapes.BBox;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of the QueryGraph for route requests with the given number of snapped points. Run with
+ * -prof gc to see the allocated bytes per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryGraphBenchmark {
+    private static final int REQUESTS = 100;
+
+    @Param("core/files/andorra.osm.pbf")
+    public String osmFile;
+
+    @Param({"2", "10", "100"})
+    public int pointsPerRequest;
+
+    private GraphHopper hopper;
+    private Graph graph;
+    private LocationIndex locationIndex;
+    private List<Snap> snaps;
+    // the QueryGraph modifies the Snaps, so we store the original values to restore them before every invocation
+    private EdgeIteratorState[] closestEdges;
+    private int[] closestNodes;
+    private int[] wayIndices;
+
+    @Setup
+    public void setup() {
+        hopper = BenchmarkGraph.load(osmFile, "RAM_STORE");
+        graph = hopper.getGraphHopperStorage();
+        locationIndex = hopper.getLocationIndex();
+        BBox bounds = graph.getBounds();
+        Random rnd = new Random(123);
+        int points = pointsPerRequest * REQUESTS;
+        snaps = new ArrayList<>(points);
+        closestEdges = new EdgeIteratorState[points];
+        closestNodes = new int[points];
+        wayIndices = new int[points];
+        while (snaps.size() < points) {
+            double lat = bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat);
+            double lon = bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon);
+            Snap snap = locationIndex.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            if (!snap.isValid())
+                continue;
+            closestEdges[snaps.size()] = snap.getClosestEdge();
+            closestNodes[snaps.size()] = snap.getClosestNode();
+            wayIndices[snaps.size()] = snap.getWayIndex();
+            snaps.add(snap);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void resetSnaps() {
+        for (int i = 0; i < snaps.size(); i++) {
+            Snap snap = snaps.get(i);
+            snap.setClosestEdge(closestEdges[i]);
+            snap.setClosestNode(closestNodes[i]);
+            snap.setWayIndex(wayIndices[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        hopper.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int createQueryGraph() {
+        int sum = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps.subList(i * pointsPerRequest, (i + 1) * pointsPerRequest));
+            sum += queryGraph.getNodes();
+        }
+        return sum;
+    }
+}
@@ -103,6 +103,8 @@ public abstract class GHMatrixAbstractRequester {
         putStrings(requestJson, "snap_preventions", ghRequest.getSnapPreventions());
         putStrings(requestJson, "out_arrays", outArraysList);
         requestJson.put("vehicle", ghRequest.getHints().getString("vehicle", ""));
+        if (!Helper.isEmpty(ghRequest.getProfile()))
+            requestJson.put("profile", ghRequest.getProfile());
         // requestJson.put("elevation", ghRequest.getHints().getBool("elevation", false));
         requestJson.put("fail_fast", ghRequest.getFailFast());
 
@@ -18,6 +18,7 @@
 package com.graphhopper.api;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -27,9 +28,12 @@ import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.ResponsePathDeserializer;
+import com.graphhopper.jackson.ResponsePathProtobufDeserializer;
+import com.graphhopper.jackson.ResponsePathProtobufSerializer;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -37,6 +41,8 @@ import okhttp3.ResponseBody;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -66,6 +72,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
     private boolean elevation = false;
     private String optimize = "false";
     private boolean postRequest = true;
+    private boolean protobufResponse = false;
     private int maxUnzippedLength = 1000;
     private final Set<String> ignoreSet;
     private final Set<String> ignoreSetForPost;
@@ -93,6 +100,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
         ignoreSetForPost.add("elevation");
         ignoreSetForPost.add("optimize");
         ignoreSetForPost.add("points_encoded");
+        ignoreSetForPost.add("type");
 
         ignoreSet = new HashSet<>();
         ignoreSet.add(KEY);
@@ -152,6 +160,15 @@ public class GraphHopperWeb implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Request the compact binary response (protocol buffers) instead of JSON. This reduces the response size and the
+     * decoding time for routes with many points or instructions. The default is false.
+     */
+    public GraphHopperWeb setProtobufResponse(boolean protobufResponse) {
+        this.protobufResponse = protobufResponse;
+        return this;
+    }
+
     /**
      * Enable or disable calculating points for the way. The default is true.
      */
@@ -201,6 +218,11 @@ public class GraphHopperWeb implements GraphHopperAPI {
 
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
             rspBody = getClientForRequest(ghRequest).newCall(okRequest).execute().body();
+            // errors are always returned as JSON
+            MediaType contentType = rspBody.contentType();
+            if (contentType != null && ResponsePathProtobufSerializer.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype()))
+                return ResponsePathProtobufDeserializer.read(rspBody.byteStream(), tmpTurnDescription);
+
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
@@ -224,6 +246,65 @@ public class GraphHopperWeb implements GraphHopperAPI {
         }
     }
 
+    /**
+     * Calculates many routes with a single HTTP request to the /route/batch endpoint. The server calculates the
+     * requests concurrently and this method returns the responses in the order of the requests. A failing request
+     * does not fail the others, instead its GHResponse contains the errors. Note that the timeout applies to the
+     * whole batch and that the responses are always transferred as JSON.
+     */
+    public List<GHResponse> routeBatch(List<GHRequest> ghRequests) {
+        if (ghRequests.isEmpty())
+            return new ArrayList<>();
+        ResponseBody rspBody = null;
+        try {
+            boolean[] tmpElevation = new boolean[ghRequests.size()];
+            boolean[] tmpTurnDescription = new boolean[ghRequests.size()];
+            ArrayNode requestsJson = objectMapper.createArrayNode();
+            for (int i = 0; i < ghRequests.size(); i++) {
+                GHRequest ghRequest = ghRequests.get(i);
+                tmpElevation[i] = ghRequest.getHints().getBool("elevation", elevation);
+                tmpTurnDescription[i] = ghRequest.getHints().getBool("turn_description", true);
+                ghRequest.getHints().remove("turn_description"); // do not include in request
+                ObjectNode requestJson = requestToJson(ghRequest);
+                requestJson.remove("type");
+                requestsJson.add(requestJson);
+            }
+
+            Request okRequest = createPostRequest(routeServiceUrl + "/batch", requestsJson.toString());
+            rspBody = getClientForRequest(ghRequests.get(0)).newCall(okRequest).execute().body();
+            GHResponse[] responses = new GHResponse[ghRequests.size()];
+            MappingIterator<JsonNode> iter = objectMapper.readerFor(JsonNode.class).readValues(rspBody.byteStream());
+            while (iter.hasNext()) {
+                JsonNode json = iter.next();
+                if (!json.has("index")) {
+                    // the whole batch failed, e.g. because of too many requests
+                    GHResponse res = new GHResponse();
+                    res.addErrors(ResponsePathDeserializer.readErrors(objectMapper, json));
+                    Arrays.fill(responses, res);
+                    break;
+                }
+                int index = json.get("index").asInt();
+                GHResponse res = new GHResponse();
+                res.addErrors(ResponsePathDeserializer.readErrors(objectMapper, json));
+                if (!res.hasErrors()) {
+                    for (JsonNode path : json.get("paths")) {
+                        res.add(ResponsePathDeserializer.createResponsePath(objectMapper, path, tmpElevation[index], tmpTurnDescription[index]));
+                    }
+                }
+                responses[index] = res;
+            }
+            for (int i = 0; i < responses.length; i++) {
+                if (responses[i] == null)
+                    throw new IllegalStateException("No response for request " + i);
+            }
+            return Arrays.asList(responses);
+        } catch (Exception ex) {
+            throw new RuntimeException("Problem while fetching batch of " + ghRequests.size() + " paths: " + ex.getMessage(), ex);
+        } finally {
+            Helper.close(rspBody);
+        }
+    }
+
     OkHttpClient getClientForRequest(GHRequest request) {
         OkHttpClient client = this.downloader;
         if (request.getHints().has(TIMEOUT)) {
@@ -239,10 +320,22 @@ public class GraphHopperWeb implements GraphHopperAPI {
 
     private Request createPostRequest(GHRequest ghRequest) {
         String tmpServiceURL = ghRequest.getHints().getString(SERVICE_URL, routeServiceUrl);
-        String url = tmpServiceURL + "?";
+        return createPostRequest(tmpServiceURL, requestToJson(ghRequest).toString());
+    }
+
+    private Request createPostRequest(String serviceUrl, String stringData) {
+        String url = serviceUrl + "?";
         if (!Helper.isEmpty(key))
             url += "key=" + key;
 
+        Request.Builder builder = new Request.Builder().url(url).post(RequestBody.create(MT_JSON, stringData));
+        // force avoiding our GzipRequestInterceptor for smaller requests ~30 locations
+        if (stringData.length() < maxUnzippedLength)
+            builder.header("Content-Encoding", "identity");
+        return builder.build();
+    }
+
+    private ObjectNode requestToJson(GHRequest ghRequest) {
         ObjectNode requestJson = objectMapper.createObjectNode();
         requestJson.putArray("points").addAll(createPointList(ghRequest.getPoints()));
         if (!ghRequest.getPointHints().isEmpty())
@@ -265,6 +358,9 @@ public class GraphHopperWeb implements GraphHopperAPI {
         requestJson.put(CALC_POINTS, ghRequest.getHints().getBool(CALC_POINTS, calcPoints));
         requestJson.put("elevation", ghRequest.getHints().getBool("elevation", elevation));
         requestJson.put("optimize", ghRequest.getHints().getString("optimize", optimize));
+        String type = ghRequest.getHints().getString("type", getDefaultType());
+        if (!"json".equals(type))
+            requestJson.put("type", type);
 
         Map<String, Object> hintsMap = ghRequest.getHints().toMap();
         for (Map.Entry<String, Object> entry : hintsMap.entrySet()) {
@@ -278,12 +374,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
             else
                 requestJson.putPOJO(hintKey, entry.getValue());
         }
-        String stringData = requestJson.toString();
-        Request.Builder builder = new Request.Builder().url(url).post(RequestBody.create(MT_JSON, stringData));
-        // force avoiding our GzipRequestInterceptor for smaller requests ~30 locations
-        if (stringData.length() < maxUnzippedLength)
-            builder.header("Content-Encoding", "identity");
-        return builder.build();
+        return requestJson;
     }
 
     private Request createGetRequest(GHRequest ghRequest) {
@@ -303,7 +394,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
             places += "point=" + round6(p.lat) + "," + round6(p.lon) + "&";
         }
 
-        String type = ghRequest.getHints().getString("type", "json");
+        String type = ghRequest.getHints().getString("type", getDefaultType());
 
         String url = routeServiceUrl
                 + "?"
@@ -371,6 +462,10 @@ public class GraphHopperWeb implements GraphHopperAPI {
         return new Request.Builder().url(url).build();
     }
 
+    private String getDefaultType() {
+        return protobufResponse ? "protobuf" : "json";
+    }
+
     public String export(GHRequest ghRequest) {
         String str = "Creating request failed";
         try {
@@ -24,10 +24,14 @@ import com.graphhopper.reader.DataReader;
 import com.graphhopper.reader.dem.*;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.DefaultWeightingFactory;
+import com.graphhopper.routing.PrecomputedWeightingFactory;
 import com.graphhopper.routing.Router;
 import com.graphhopper.routing.RouterConfig;
 import com.graphhopper.routing.WeightingFactory;
 import com.graphhopper.routing.ch.CHPreparationHandler;
+import com.graphhopper.routing.ch.CustomizableCH;
+import com.graphhopper.routing.ch.CustomizedMetricCache;
+import com.graphhopper.routing.ch.OneToAllCH;
 import com.graphhopper.routing.ev.DefaultEncodedValueFactory;
 import com.graphhopper.routing.ev.EncodedValueFactory;
 import com.graphhopper.routing.ev.EnumEncodedValue;
@@ -44,6 +48,7 @@ import com.graphhopper.routing.util.FlagEncoderFactory;
 import com.graphhopper.routing.util.parsers.DefaultTagParserFactory;
 import com.graphhopper.routing.util.parsers.TagParserFactory;
 import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
+import com.graphhopper.routing.weighting.EdgeWeightTable;
 import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
@@ -51,7 +56,9 @@ import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.SnapCache;
 import com.graphhopper.util.*;
+import com.graphhopper.util.Parameters.CCH;
 import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
@@ -63,6 +70,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.graphhopper.util.Helper.*;
 import static com.graphhopper.util.Parameters.Algorithms.RoundTrip;
@@ -87,6 +95,8 @@ public class GraphHopper implements GraphHopperAPI {
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
     private boolean sortGraph = false;
+    private String sortOrder = "dfs";
+    private boolean csrAdjacency = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -99,17 +109,29 @@ public class GraphHopper implements GraphHopperAPI {
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private int snapCacheSize = 0;
+    private double snapCacheCellSize = 1;
+    private SnapCache snapCache;
     // for prepare
     private int minNetworkSize = 200;
 
     // preparation handlers
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
+    private final Map<String, OneToAllCH.SweepOrder> chSweepOrders = new ConcurrentHashMap<>();
+    // customizable CH
+    private boolean cchEnabled = false;
+    private int cchCacheSize = 16;
+    private CustomizedMetricCache cchMetricCache;
+    // precomputed edge weights
+    private List<String> edgeWeightProfiles = Collections.emptyList();
+    private final Map<String, EdgeWeightTable> edgeWeightTables = new LinkedHashMap<>();
 
     // for data reader
     private String dataReaderFile;
     private double dataReaderWayPointMaxDistance = 1;
     private int dataReaderWorkerThreads = 2;
+    private int dataReaderWayThreads = 1;
     private ElevationProvider eleProvider = ElevationProvider.NOOP;
     private FlagEncoderFactory flagEncoderFactory = new DefaultFlagEncoderFactory();
     private EncodedValueFactory encodedValueFactory = new DefaultEncodedValueFactory();
@@ -367,12 +389,48 @@ public class GraphHopper implements GraphHopperAPI {
         return locationIndex;
     }
 
+    /**
+     * Enables a cache for the snapping of the route request points, see {@link SnapCache}.
+     *
+     * @param size            the maximum number of cached snaps, 0 disables the cache
+     * @param cellSizeInMeter queries within cells of this size are snapped to the same edge and position
+     */
+    public GraphHopper setSnapCache(int size, double cellSizeInMeter) {
+        ensureNotLoaded();
+        if (size < 0)
+            throw new IllegalArgumentException("snap cache size must not be negative but was " + size);
+        this.snapCacheSize = size;
+        this.snapCacheCellSize = cellSizeInMeter;
+        return this;
+    }
+
+    /**
+     * @return the snap cache or null if it is disabled
+     */
+    public SnapCache getSnapCache() {
+        return snapCache;
+    }
+
+    /**
+     * @return the sweep order for {@link OneToAllCH} of the given node-based CH graph. It is created on the first call
+     * (which sorts all nodes) and reused afterwards.
+     */
+    public OneToAllCH.SweepOrder getCHSweepOrder(String chGraphName) {
+        return chSweepOrders.computeIfAbsent(chGraphName, name -> {
+            RoutingCHGraph chGraph = ghStorage.getRoutingCHGraph(name);
+            if (chGraph == null)
+                throw new IllegalArgumentException("There is no CH graph '" + name + "'");
+            return new OneToAllCH.SweepOrder(chGraph);
+        });
+    }
+
     protected void setLocationIndex(LocationIndex locationIndex) {
         this.locationIndex = locationIndex;
     }
 
     /**
-     * Sorts the graph which requires more RAM while import. See #12
+     * Sorts the graph in place after the import. This only needs a few bytes per node and edge and a temporary copy
+     * of the way geometry. Not supported with turn costs. See #12
      */
     public GraphHopper setSortGraph(boolean sortGraph) {
         ensureNotLoaded();
@@ -380,6 +438,61 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Sets how the nodes and edges are ordered when sorting the graph: "dfs" orders them by a depth-first traversal,
+     * "hilbert" orders the nodes along a Hilbert curve through their coordinates, which keeps nodes that are close to
+     * each other on the same pages.
+     */
+    public GraphHopper setSortOrder(String sortOrder) {
+        ensureNotLoaded();
+        if (!"dfs".equals(sortOrder) && !"hilbert".equals(sortOrder))
+            throw new IllegalArgumentException("Unknown sort order: " + sortOrder + ", use dfs or hilbert");
+        this.sortOrder = sortOrder;
+        return this;
+    }
+
+    /**
+     * Enables customizable CH, which speeds up requests for custom profiles that are not covered by a CH preparation.
+     * The node order is calculated after the import or when loading the graph and the metrics of the most recently
+     * used custom models are cached.
+     */
+    public GraphHopper setCCHEnabled(boolean cchEnabled) {
+        ensureNotLoaded();
+        this.cchEnabled = cchEnabled;
+        return this;
+    }
+
+    /**
+     * Sets how many customized metrics are kept in memory, each of them requires about 16 bytes per arc.
+     */
+    public GraphHopper setCCHCacheSize(int cchCacheSize) {
+        if (cchCacheSize < 1)
+            throw new IllegalArgumentException("CCH cache size must be positive but was " + cchCacheSize);
+        this.cchCacheSize = cchCacheSize;
+        return this;
+    }
+
+    /**
+     * Sets the profiles for which the weights of all edges are calculated after the import or when loading the graph.
+     * The weights are stored off-heap (8 bytes per edge and profile) and make flexible and LM queries faster, unless
+     * the request changes the weighting, e.g. with a custom model.
+     */
+    public GraphHopper setEdgeWeightProfiles(List<String> edgeWeightProfiles) {
+        ensureNotLoaded();
+        this.edgeWeightProfiles = edgeWeightProfiles;
+        return this;
+    }
+
+    /**
+     * Stores the adjacency lists of the frozen graph in a compressed-sparse-row layout, which makes edge iteration
+     * faster but requires roughly 16 bytes of additional heap memory per edge plus 4 bytes per node.
+     */
+    public GraphHopper setCSRAdjacency(boolean csrAdjacency) {
+        ensureNotLoaded();
+        this.csrAdjacency = csrAdjacency;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -448,6 +561,8 @@ public class GraphHopper implements GraphHopperAPI {
         dataAccessType = DAType.fromString(graphDATypeStr);
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        setSortOrder(ghConfig.getString("graph.sort_order", sortOrder));
+        csrAdjacency = ghConfig.getBool("graph.csr_adjacency", csrAdjacency);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
         EncodingManager encodingManager = createEncodingManager(ghConfig);
         if (encodingManager != null) {
@@ -479,15 +594,23 @@ public class GraphHopper implements GraphHopperAPI {
         // prepare CH&LM
         chPreparationHandler.init(ghConfig);
         lmPreparationHandler.init(ghConfig);
+        cchEnabled = ghConfig.getBool(CCH.PREPARE + "enabled", cchEnabled);
+        setCCHCacheSize(ghConfig.getInt("routing.cch.cache_size", cchCacheSize));
+        String edgeWeightProfilesStr = ghConfig.getString("prepare.edge_weights.profiles", "");
+        if (!edgeWeightProfilesStr.isEmpty())
+            setEdgeWeightProfiles(Arrays.asList(edgeWeightProfilesStr.split(",")));
 
         // osm import
         dataReaderWayPointMaxDistance = ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, dataReaderWayPointMaxDistance);
 
         dataReaderWorkerThreads = ghConfig.getInt("datareader.worker_threads", dataReaderWorkerThreads);
+        dataReaderWayThreads = ghConfig.getInt("datareader.way_threads", dataReaderWayThreads);
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = ghConfig.getInt("index.max_region_search", maxRegionSearch);
+        setSnapCache(ghConfig.getInt("index.snap_cache.size", snapCacheSize),
+                ghConfig.getDouble("index.snap_cache.cell_size", snapCacheCellSize));
 
         // routing
         routerConfig.setMaxVisitedNodes(ghConfig.getInt(Routing.INIT_MAX_VISITED_NODES, routerConfig.getMaxVisitedNodes()));
@@ -666,6 +789,7 @@ public class GraphHopper implements GraphHopperAPI {
         return reader.setFile(new File(dataReaderFile)).
                 setElevationProvider(eleProvider).
                 setWorkerThreads(dataReaderWorkerThreads).
+                setWayThreads(dataReaderWayThreads).
                 setWayPointMaxDistance(dataReaderWayPointMaxDistance).
                 setWayPointElevationMaxDistance(routerConfig.getElevationWayPointMaxDistance()).
                 setSmoothElevation(smoothElevation).
@@ -712,6 +836,7 @@ public class GraphHopper implements GraphHopperAPI {
 
         GHDirectory dir = new GHDirectory(ghLocation, dataAccessType);
         ghStorage = new GraphHopperStorage(dir, encodingManager, hasElevation(), encodingManager.needsTurnCostsSupport(), defaultSegmentSize);
+        ghStorage.setCSRAdjacency(csrAdjacency);
 
         checkProfilesConsistency();
 
@@ -877,10 +1002,11 @@ public class GraphHopper implements GraphHopperAPI {
             if (ghStorage.isCHPossible() && isCHPrepared())
                 throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
 
-            GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
-            GHUtility.sortDFS(ghStorage, newGraph);
-            logger.info("graph sorted (" + getMemInfo() + ")");
-            ghStorage = newGraph;
+            if ("hilbert".equals(sortOrder))
+                GHUtility.sortHilbert(ghStorage);
+            else
+                GHUtility.sortDFS(ghStorage);
+            logger.info("graph sorted by " + sortOrder + " (" + getMemInfo() + ")");
         }
 
         if (!hasInterpolated() && hasElevation()) {
@@ -888,9 +1014,13 @@ public class GraphHopper implements GraphHopperAPI {
         }
 
         initLocationIndex();
+        if (snapCacheSize > 0)
+            snapCache = new SnapCache(ghStorage, locationIndex, snapCacheSize, snapCacheCellSize);
 
         importPublicTransit();
 
+        createEdgeWeightTables();
+
         if (lmPreparationHandler.isEnabled())
             lmPreparationHandler.createPreparations(ghStorage, locationIndex);
         loadOrPrepareLM(closeEarly);
@@ -906,6 +1036,33 @@ public class GraphHopper implements GraphHopperAPI {
         } else {
             prepareCH(closeEarly);
         }
+
+        if (cchEnabled)
+            prepareCCH();
+    }
+
+    private void createEdgeWeightTables() {
+        for (String profileName : edgeWeightProfiles) {
+            profileName = profileName.trim();
+            Profile profile = profilesByName.get(profileName);
+            if (profile == null)
+                throw new IllegalArgumentException("Cannot precompute edge weights for unknown profile '" + profileName + "'");
+            StopWatch sw = new StopWatch().start();
+            // the edge weights do not depend on the turn costs
+            Weighting weighting = new DefaultWeightingFactory(ghStorage, encodingManager).createWeighting(profile, new PMap(), true);
+            EdgeWeightTable table = EdgeWeightTable.create(ghStorage, ghStorage.getDirectory(), profileName, weighting);
+            edgeWeightTables.put(profileName, table);
+            logger.info("precomputed edge weights for profile " + profileName + ", " + table.getCapacity() / Helper.MB
+                    + "MB, took: " + sw.stop().getSeconds() + "s");
+        }
+    }
+
+    private void prepareCCH() {
+        StopWatch sw = new StopWatch().start();
+        CustomizableCH cch = new CustomizableCH(ghStorage);
+        cchMetricCache = new CustomizedMetricCache(cch, cchCacheSize);
+        logger.info("calculated customizable CH node order with " + cch.getArcs() + " arcs for " + ghStorage.getEdges()
+                + " edges, took: " + sw.stop().getSeconds() + "s, " + getMemInfo());
     }
 
     protected void registerCustomEncodedValues(EncodingManager.Builder emBuilder) {
@@ -947,7 +1104,8 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     protected WeightingFactory createWeightingFactory() {
-        return new DefaultWeightingFactory(ghStorage, encodingManager);
+        DefaultWeightingFactory weightingFactory = new DefaultWeightingFactory(ghStorage, encodingManager);
+        return edgeWeightTables.isEmpty() ? weightingFactory : new PrecomputedWeightingFactory(weightingFactory, edgeWeightTables);
     }
 
     @Override
@@ -977,7 +1135,7 @@ public class GraphHopper implements GraphHopperAPI {
                             : lmPreparationHandler.getPreparation(lmp.getProfile()).getLandmarkStorage());
         }
         return new Router(ghStorage, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks
+                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks, cchMetricCache, snapCache
         );
     }
 
@@ -1105,6 +1263,12 @@ public class GraphHopper implements GraphHopperAPI {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        for (EdgeWeightTable table : edgeWeightTables.values()) {
+            table.close();
+        }
+        edgeWeightTables.clear();
+        chSweepOrders.clear();
+
         if (ghStorage != null)
             ghStorage.close();
 
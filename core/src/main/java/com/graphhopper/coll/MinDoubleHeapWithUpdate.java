@@ -0,0 +1,200 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.coll;
+
+import java.util.Arrays;
+
+/**
+ * The same indexed minimum heap as {@link MinHeapWithUpdate}, but with double values and the possibility to increase
+ * the range of legal ids after creation. Using double values means that the elements are polled in exactly the same
+ * order as when comparing their double weights directly, e.g. like a PriorityQueue of SPTEntry does. This is
+ * important for shortest path trees where weights that differ only slightly must not be considered equal.
+ */
+public class MinDoubleHeapWithUpdate {
+    private static final int NOT_PRESENT = -1;
+    private int[] tree;
+    private int[] positions;
+    private double[] vals;
+    private int max;
+    private int size;
+
+    /**
+     * @param elements the number of elements that can be stored in this heap, elements-1 is the maximum id that can
+     *                 be stored in this heap. Use {@link #ensureCapacity} to increase it later.
+     */
+    public MinDoubleHeapWithUpdate(int elements) {
+        // we use an offset of one to make the arithmetic a bit simpler/more efficient, the 0th elements are not used!
+        tree = new int[elements + 1];
+        positions = new int[elements + 1];
+        Arrays.fill(positions, NOT_PRESENT);
+        vals = new double[elements + 1];
+        vals[0] = Double.NEGATIVE_INFINITY;
+        this.max = elements;
+    }
+
+    /**
+     * Makes sure that ids up to elements-1 can be stored in this heap. The elements already contained in the heap are
+     * kept.
+     */
+    public void ensureCapacity(int elements) {
+        if (elements <= max)
+            return;
+        tree = Arrays.copyOf(tree, elements + 1);
+        positions = Arrays.copyOf(positions, elements + 1);
+        Arrays.fill(positions, max + 1, elements + 1, NOT_PRESENT);
+        vals = Arrays.copyOf(vals, elements + 1);
+        max = elements;
+    }
+
+    public int getCapacity() {
+        return max;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds an element to the heap. Its illegal to push the same id twice (unless it was polled/removed before). To
+     * update the value of an id contained in the heap use the {@link #update} method.
+     */
+    public void push(int id, double value) {
+        checkIdInRange(id);
+        if (size == max)
+            throw new IllegalStateException("Cannot push anymore, the heap is already full. size: " + size);
+        if (contains(id))
+            throw new IllegalStateException("Element with id: " + id + " was pushed already, you need to use the update method if you want to change its value");
+        size++;
+        tree[size] = id;
+        positions[id] = size;
+        vals[size] = value;
+        percolateUp(size);
+    }
+
+    /**
+     * @return true if the heap contains an element with the given id
+     */
+    public boolean contains(int id) {
+        checkIdInRange(id);
+        return positions[id] != NOT_PRESENT;
+    }
+
+    /**
+     * Updates the element with the given id. Its illegal to update elements that are not contained in the heap.
+     */
+    public void update(int id, double value) {
+        checkIdInRange(id);
+        int index = positions[id];
+        if (index < 0)
+            throw new IllegalStateException("The heap does not contain: " + id + ". Use the contains method to check this before calling update");
+        double prev = vals[index];
+        vals[index] = value;
+        if (value > prev)
+            percolateDown(index);
+        else if (value < prev)
+            percolateUp(index);
+    }
+
+    /**
+     * @return the id of the next element to be polled, i.e. the same as calling poll() without removing the element
+     */
+    public int peekId() {
+        return tree[1];
+    }
+
+    /**
+     * @return the value of the next element to be polled
+     */
+    public double peekValue() {
+        return vals[1];
+    }
+
+    /**
+     * Extracts the element with minimum value from the heap
+     */
+    public int poll() {
+        int id = peekId();
+        tree[1] = tree[size];
+        vals[1] = vals[size];
+        positions[tree[1]] = 1;
+        positions[id] = NOT_PRESENT;
+        size--;
+        percolateDown(1);
+        return id;
+    }
+
+    public void clear() {
+        for (int i = 1; i <= size; i++)
+            positions[tree[i]] = NOT_PRESENT;
+        size = 0;
+    }
+
+    private void percolateUp(int index) {
+        assert index != 0;
+        if (index == 1)
+            return;
+        final int el = tree[index];
+        final double val = vals[index];
+        // the finish condition (index==0) is covered here automatically because we set vals[0]=-inf
+        while (val < vals[index >> 1]) {
+            int parent = index >> 1;
+            tree[index] = tree[parent];
+            vals[index] = vals[parent];
+            positions[tree[index]] = index;
+            index = parent;
+        }
+        tree[index] = el;
+        vals[index] = val;
+        positions[tree[index]] = index;
+    }
+
+    private void percolateDown(int index) {
+        if (size == 0)
+            return;
+        assert index > 0;
+        assert index <= size;
+        final int el = tree[index];
+        final double val = vals[index];
+        while (index << 1 <= size) {
+            int child = index << 1;
+            if (child != size && vals[child + 1] < vals[child])
+                // use the second child if it exists and has a smaller value
+                child++;
+            if (vals[child] >= val)
+                break;
+            tree[index] = tree[child];
+            vals[index] = vals[child];
+            positions[tree[index]] = index;
+            index = child;
+        }
+        tree[index] = el;
+        vals[index] = val;
+        positions[tree[index]] = index;
+    }
+
+    private void checkIdInRange(int id) {
+        if (id < 0 || id >= max)
+            throw new IllegalArgumentException("Illegal id: " + id + ", legal range: [0, " + max + "[");
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.geohash;
+
+import com.graphhopper.util.shapes.BBox;
+
+/**
+ * Maps coordinates to their position along a Hilbert curve through a grid over the given bounds. Unlike the Z-order
+ * curve used by {@link SpatialKeyAlgo} two consecutive cells of a Hilbert curve are always neighbours, so sorting
+ * points by this index keeps points that are close to each other close together in the sorted order.
+ */
+public class HilbertCurve {
+    private final int parts;
+    private final BBox bbox;
+    private final double deltaY;
+    private final double deltaX;
+
+    /**
+     * @param bitsPerAxis the number of bits used for the x and y coordinates of the cells, the index uses twice as
+     *                    many bits
+     */
+    public HilbertCurve(int bitsPerAxis, BBox bounds) {
+        if (bitsPerAxis <= 0 || bitsPerAxis > 31)
+            throw new IllegalArgumentException("bitsPerAxis must be in [1, 31], but was: " + bitsPerAxis);
+
+        parts = 1 << bitsPerAxis;
+        bbox = bounds;
+        deltaY = (bbox.maxLat - bbox.minLat) / parts;
+        deltaX = (bbox.maxLon - bbox.minLon) / parts;
+    }
+
+    public final long encodeLatLon(double lat, double lon) {
+        return encode(x(lon), y(lat));
+    }
+
+    int y(double lat) {
+        if (!(deltaY > 0))
+            return 0;
+        return Math.max(0, Math.min((int) ((lat - bbox.minLat) / deltaY), parts - 1));
+    }
+
+    int x(double lon) {
+        if (!(deltaX > 0))
+            return 0;
+        return Math.max(0, Math.min((int) ((lon - bbox.minLon) / deltaX), parts - 1));
+    }
+
+    /**
+     * @return the position of the cell (x, y) along the curve
+     */
+    public final long encode(int x, int y) {
+        long index = 0;
+        for (int s = parts >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant so that the curve continues at the right corner
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return index;
+    }
+}
@@ -34,6 +34,11 @@ public interface DataReader {
 
     DataReader setWorkerThreads(int workerThreads);
 
+    /**
+     * Sets the number of threads used to process the ways while creating the graph.
+     */
+    DataReader setWayThreads(int wayThreads);
+
     DataReader setWayPointMaxDistance(double wayPointMaxDistance);
 
     DataReader setWayPointElevationMaxDistance(double elevationWayPointMaxDistance);
@@ -37,6 +37,11 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -71,6 +76,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     // tower node is <= -3
     protected static final int TOWER_NODE = -2;
     private static final Logger LOGGER = LoggerFactory.getLogger(OSMReader.class);
+    private static final int WAY_BATCH_SIZE = 10_000;
     private final GraphStorage ghStorage;
     private final Graph graph;
     private final NodeAccess nodeAccess;
@@ -84,6 +90,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     private long locations;
     private final EncodingManager encodingManager;
     private int workerThreads = 2;
+    private int wayThreads = 1;
     // Choosing the best Map<Long, Integer> is hard. We need a memory efficient and fast solution for big data sets!
     //
     // very slow: new SparseLongLongArray
@@ -237,7 +244,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         if (!item.hasTags())
             return false;
 
-        return encodingManager.acceptWay(item, new EncodingManager.AcceptWay());
+        return acceptWay(item, new EncodingManager.AcceptWay());
     }
 
     /**
@@ -251,11 +258,15 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
+        WayPipeline wayPipeline = wayThreads > 1 ? new WayPipeline(wayThreads) : null;
         try (OSMInput in = openOsmInputFile(osmFile)) {
             LongIntMap nodeFilter = getNodeMap();
 
             ReaderElement item;
             while ((item = in.getNext()) != null) {
+                if (wayPipeline != null && item.getType() != ReaderElement.WAY)
+                    wayPipeline.flush();
+
                 switch (item.getType()) {
                     case ReaderElement.NODE:
                         if (nodeFilter.get(item.getId()) != EMPTY_NODE) {
@@ -268,7 +279,10 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                             LOGGER.info(nf(counter) + ", now parsing ways");
                             wayStart = counter;
                         }
-                        processWay((ReaderWay) item);
+                        if (wayPipeline != null)
+                            wayPipeline.add((ReaderWay) item);
+                        else
+                            processWay((ReaderWay) item);
                         break;
                     case ReaderElement.RELATION:
                         if (relationStart < 0) {
@@ -287,12 +301,18 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                 }
             }
 
+            if (wayPipeline != null)
+                wayPipeline.flush();
+
             if (in.getUnprocessedElements() > 0)
                 throw new IllegalStateException("Still unprocessed elements in reader queue " + in.getUnprocessedElements());
 
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            if (wayPipeline != null)
+                wayPipeline.close();
         }
 
         finishedReading();
@@ -308,21 +328,34 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
      * Process properties, encode flags and create edges for the way.
      */
     protected void processWay(ReaderWay way) {
-        if (way.getNodes().size() < 2)
+        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
+        if (!acceptWay(way, acceptWay))
             return;
 
-        // ignore multipolygon geometry
-        if (!way.hasTags())
+        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        setArtificialWayTags(way);
+        IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
+        if (edgeFlags.isEmpty())
             return;
 
-        long wayOsmId = way.getId();
+        addEdges(way, edgeFlags);
+    }
 
-        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
-        if (!encodingManager.acceptWay(way, acceptWay))
-            return;
+    private boolean acceptWay(ReaderWay way, EncodingManager.AcceptWay acceptWay) {
+        if (way.getNodes().size() < 2)
+            return false;
 
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        // ignore multipolygon geometry
+        if (!way.hasTags())
+            return false;
+
+        return encodingManager.acceptWay(way, acceptWay);
+    }
 
+    /**
+     * Adds the artificial tags that are derived from the node coordinates or need some parsing
+     */
+    private void setArtificialWayTags(ReaderWay way) {
         // TODO move this after we have created the edge and know the coordinates => encodingManager.applyWayTags
         LongArrayList osmNodeIds = way.getNodes();
         // Estimate length of ways containing a route tag e.g. for ferry speed calculation
@@ -346,11 +379,14 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                 LOGGER.warn("Parsing error in way with OSMID=" + way.getId() + " : " + ex.getMessage());
             }
         }
+    }
 
-        IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
-        if (edgeFlags.isEmpty())
-            return;
-
+    /**
+     * Creates the edges for the given way. Barriers split the way into several edges.
+     */
+    private void addEdges(ReaderWay way, IntsRef edgeFlags) {
+        long wayOsmId = way.getId();
+        LongArrayList osmNodeIds = way.getNodes();
         List<EdgeIteratorState> createdEdges = new ArrayList<>();
         // look for barriers along the way
         final int size = osmNodeIds.size();
@@ -907,10 +943,14 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     }
 
     IntsRef getRelFlagsMap(long osmId) {
+        return getRelFlagsMap(osmId, tempRelFlags);
+    }
+
+    private IntsRef getRelFlagsMap(long osmId, IntsRef relFlags) {
         long relFlagsAsLong = osmWayIdToRouteWeightMap.get(osmId);
-        tempRelFlags.ints[0] = (int) relFlagsAsLong;
-        tempRelFlags.ints[1] = (int) (relFlagsAsLong >> 32);
-        return tempRelFlags;
+        relFlags.ints[0] = (int) relFlagsAsLong;
+        relFlags.ints[1] = (int) (relFlagsAsLong >> 32);
+        return relFlags;
     }
 
     void putRelFlagsMap(long osmId, IntsRef relFlags) {
@@ -949,6 +989,18 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return this;
     }
 
+    /**
+     * Sets the number of threads used to parse the tags of the ways when creating the graph. For more than one
+     * thread the ways are processed in batches and {@link #processWay(ReaderWay)} is not called.
+     */
+    @Override
+    public OSMReader setWayThreads(int wayThreads) {
+        if (wayThreads < 1)
+            throw new IllegalArgumentException("way threads must be positive, but was: " + wayThreads);
+        this.wayThreads = wayThreads;
+        return this;
+    }
+
     @Override
     public OSMReader setElevationProvider(ElevationProvider eleProvider) {
         if (eleProvider == null)
@@ -984,4 +1036,109 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     public String toString() {
         return getClass().getSimpleName();
     }
+
+    /**
+     * Processes the ways in batches: while the edges of one batch are written to the graph the ways of the next
+     * batch are accepted and their tags are parsed in parallel. Everything that reads or writes the graph and the
+     * node maps, including the geometry and elevation of the edges, stays on the calling thread and is done in the
+     * same order as for {@link #processWay(ReaderWay)}.
+     */
+    private class WayPipeline {
+        private final ExecutorService executor;
+        private final int threads;
+        private List<ReaderWay> ways = new ArrayList<>(WAY_BATCH_SIZE);
+        // the batch whose edge flags are being calculated and that will be written next
+        private List<ReaderWay> pendingWays = Collections.emptyList();
+        private IntsRef[] pendingEdgeFlags = new IntsRef[0];
+        private List<Future<?>> pendingFutures = Collections.emptyList();
+
+        WayPipeline(int threads) {
+            this.threads = threads;
+            this.executor = Executors.newFixedThreadPool(threads);
+        }
+
+        void add(ReaderWay way) {
+            ways.add(way);
+            if (ways.size() >= WAY_BATCH_SIZE)
+                processBatch();
+        }
+
+        void flush() {
+            if (!ways.isEmpty())
+                processBatch();
+            writePendingWays();
+        }
+
+        void close() {
+            executor.shutdownNow();
+        }
+
+        private void processBatch() {
+            final List<ReaderWay> batch = ways;
+            ways = new ArrayList<>(WAY_BATCH_SIZE);
+            final EncodingManager.AcceptWay[] acceptWays = new EncodingManager.AcceptWay[batch.size()];
+            List<Future<?>> acceptFutures = submit(batch.size(), i -> {
+                EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
+                if (acceptWay(batch.get(i), acceptWay))
+                    acceptWays[i] = acceptWay;
+            });
+
+            writePendingWays();
+            waitFor(acceptFutures);
+
+            // the artificial tags need the node coordinates, so they are set here and not in parallel
+            for (int i = 0; i < batch.size(); i++) {
+                if (acceptWays[i] != null)
+                    setArtificialWayTags(batch.get(i));
+            }
+
+            final IntsRef[] edgeFlags = new IntsRef[batch.size()];
+            pendingFutures = submit(batch.size(), i -> {
+                if (acceptWays[i] == null)
+                    return;
+                ReaderWay way = batch.get(i);
+                IntsRef relationFlags = getRelFlagsMap(way.getId(), encodingManager.createRelationFlags());
+                edgeFlags[i] = encodingManager.handleWayTags(way, acceptWays[i], relationFlags);
+            });
+            pendingWays = batch;
+            pendingEdgeFlags = edgeFlags;
+        }
+
+        private void writePendingWays() {
+            waitFor(pendingFutures);
+            for (int i = 0; i < pendingWays.size(); i++) {
+                IntsRef edgeFlags = pendingEdgeFlags[i];
+                if (edgeFlags != null && !edgeFlags.isEmpty())
+                    addEdges(pendingWays.get(i), edgeFlags);
+            }
+            pendingWays = Collections.emptyList();
+            pendingEdgeFlags = new IntsRef[0];
+            pendingFutures = Collections.emptyList();
+        }
+
+        private List<Future<?>> submit(int count, IntConsumer task) {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            int chunkSize = (count + threads - 1) / threads;
+            for (int start = 0; start < count; start += chunkSize) {
+                final int from = start, to = Math.min(count, start + chunkSize);
+                futures.add(executor.submit(() -> {
+                    for (int i = from; i < to; i++)
+                        task.accept(i);
+                }));
+            }
+            return futures;
+        }
+
+        private void waitFor(List<Future<?>> futures) {
+            try {
+                for (Future<?> future : futures)
+                    future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted while processing ways", ex);
+            } catch (ExecutionException ex) {
+                throw new RuntimeException(ex.getCause());
+            }
+        }
+    }
 }
@@ -51,6 +51,9 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
     int visitedCountFrom;
     int visitedCountTo;
     private boolean alreadyRun;
+    private int collectionSize;
+    private boolean useWorkspace;
+    private RoutingWorkspace workspace;
 
     public AbstractBidirAlgo(TraversalMode traversalMode) {
         this.traversalMode = traversalMode;
@@ -58,12 +61,39 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
         toInEdge = ANY_EDGE;
     }
 
+    /**
+     * Sets the initial size of the collections. They are only created when the search is initialized, so they can be
+     * taken from the workspace instead, see {@link #setUseWorkspace}.
+     */
     protected void initCollections(int size) {
-        pqOpenSetFrom = new PriorityQueue<>(size);
-        bestWeightMapFrom = new GHIntObjectHashMap<>(size);
+        collectionSize = size;
+    }
+
+    private void ensureCollections() {
+        if (pqOpenSetFrom != null)
+            return;
+        if (workspace != null) {
+            pqOpenSetFrom = workspace.getQueue(false, collectionSize);
+            bestWeightMapFrom = workspace.getBestWeightMap(false, collectionSize);
+            pqOpenSetTo = workspace.getQueue(true, collectionSize);
+            bestWeightMapTo = workspace.getBestWeightMap(true, collectionSize);
+        } else {
+            pqOpenSetFrom = new PriorityQueue<>(collectionSize);
+            bestWeightMapFrom = new GHIntObjectHashMap<>(collectionSize);
+            pqOpenSetTo = new PriorityQueue<>(collectionSize);
+            bestWeightMapTo = new GHIntObjectHashMap<>(collectionSize);
+        }
+    }
 
-        pqOpenSetTo = new PriorityQueue<>(size);
-        bestWeightMapTo = new GHIntObjectHashMap<>(size);
+    /**
+     * Uses the collections of a workspace borrowed from the pool of the current thread instead of creating new ones.
+     * The workspace is borrowed when {@link #calcPath} starts and given back at its end, so this must only be used if
+     * the shortest path trees are not accessed afterwards.
+     */
+    public void setUseWorkspace(boolean useWorkspace) {
+        if (pqOpenSetFrom != null)
+            throw new IllegalStateException("The workspace has to be enabled before the search is initialized");
+        this.useWorkspace = useWorkspace;
     }
 
     /**
@@ -89,9 +119,16 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
         this.fromOutEdge = fromOutEdge;
         this.toInEdge = toInEdge;
         checkAlreadyRun();
-        init(from, 0, to, 0);
-        runAlgo();
-        return extractPath();
+        if (useWorkspace)
+            workspace = RoutingWorkspace.borrow();
+        try {
+            init(from, 0, to, 0);
+            runAlgo();
+            return extractPath();
+        } finally {
+            if (workspace != null)
+                workspace.giveBack();
+        }
     }
 
     void init(int from, double fromWeight, int to, double toWeight) {
@@ -101,6 +138,7 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
     }
 
     protected void initFrom(int from, double weight) {
+        ensureCollections();
         this.from = from;
         currFrom = createStartEntry(from, weight, false);
         pqOpenSetFrom.add(currFrom);
@@ -110,6 +148,7 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
     }
 
     protected void initTo(int to, double weight) {
+        ensureCollections();
         this.to = to;
         currTo = createStartEntry(to, weight, true);
         pqOpenSetTo.add(currTo);
@@ -0,0 +1,64 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.config.Profile;
+import com.graphhopper.routing.weighting.EdgeWeightTable;
+import com.graphhopper.routing.weighting.PrecomputedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.PMap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wraps the weightings of the profiles that have an {@link EdgeWeightTable} into a {@link PrecomputedWeighting}.
+ * The tables are created from the weightings of the {@link DefaultWeightingFactory} without any request hints, so a
+ * table is only used if the request hints contain none of the keys that change the edge weights of these weightings.
+ * All other requests, e.g. with a custom model, use the weighting of the wrapped factory directly.
+ */
+public class PrecomputedWeightingFactory implements WeightingFactory {
+    // the request hints read by the weightings of the DefaultWeightingFactory that change the weights of the edges of
+    // the base graph. the heading penalty and the turn costs are only applied by the wrapped weighting.
+    private static final Set<String> WEIGHTING_HINTS = new HashSet<>(Arrays.asList(CustomModel.KEY,
+            "road_access_destination_factor", "road_access_private_factor",
+            "short_fastest.time_factor", "short_fastest.distance_factor"));
+    private final DefaultWeightingFactory weightingFactory;
+    private final Map<String, EdgeWeightTable> tables;
+
+    public PrecomputedWeightingFactory(DefaultWeightingFactory weightingFactory, Map<String, EdgeWeightTable> tables) {
+        this.weightingFactory = weightingFactory;
+        this.tables = tables;
+    }
+
+    @Override
+    public Weighting createWeighting(Profile profile, PMap hints, boolean disableTurnCosts) {
+        Weighting weighting = weightingFactory.createWeighting(profile, hints, disableTurnCosts);
+        EdgeWeightTable table = tables.get(profile.getName());
+        if (table == null)
+            return weighting;
+        for (String key : WEIGHTING_HINTS) {
+            if (hints.has(key))
+                return weighting;
+        }
+        return new PrecomputedWeighting(weighting, table);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.*;
+
+/**
+ * A unidirectional Dijkstra or A* (if an approximation is set) that stores its shortest path tree in a
+ * {@link PrimitiveSPT} instead of SPTEntry objects. It finds paths with the same weight as {@link Dijkstra} and
+ * {@link AStar}, but does not allocate objects per visited node and reuses the arrays of a {@link RoutingWorkspace}
+ * that is borrowed from the pool of the current thread while calcPath runs. Use it via the
+ * {@link Parameters.Routing#PRIMITIVE_SPT} hint.
+ */
+public class PrimitiveAStar extends AbstractRoutingAlgorithm {
+    private WeightApproximator weightApprox;
+    private PrimitiveSPT spt;
+    private int currEntry;
+    private int currNode;
+    private int currEdge;
+    private double currWeight;
+    private int visitedNodes;
+    private int to = -1;
+
+    public PrimitiveAStar(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+    }
+
+    /**
+     * @param approx defines how the weight to the goal node is approximated, or null to run a plain Dijkstra
+     */
+    public PrimitiveAStar setApproximation(WeightApproximator approx) {
+        weightApprox = approx;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        this.to = to;
+        if (weightApprox != null)
+            weightApprox.setTo(to);
+        RoutingWorkspace workspace = RoutingWorkspace.borrow();
+        spt = workspace.getPrimitiveSPT();
+        try {
+            currNode = from;
+            currEdge = EdgeIterator.NO_EDGE;
+            currWeight = 0;
+            currEntry = PrimitiveSPT.ROOT;
+            if (!traversalMode.isEdgeBased())
+                currEntry = spt.addEntry(from, EdgeIterator.NO_EDGE, from, 0, PrimitiveSPT.ROOT);
+            runAlgo();
+            return extractPath();
+        } finally {
+            workspace.giveBack();
+        }
+    }
+
+    private void runAlgo() {
+        while (true) {
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished())
+                break;
+
+            EdgeIterator iter = edgeExplorer.setBaseNode(currNode);
+            while (iter.next()) {
+                if (!accept(iter, currEdge))
+                    continue;
+
+                // todo: for #1835 move the access check into weighting
+                double tmpWeight = !outEdgeFilter.accept(iter)
+                        ? Double.POSITIVE_INFINITY
+                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge) + currWeight);
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+
+                int traversalId = traversalMode.createTraversalId(iter, false);
+                int entry = spt.getEntry(traversalId);
+                if (entry != PrimitiveSPT.NOT_FOUND && spt.getWeight(entry) <= tmpWeight)
+                    continue;
+
+                int adjNode = iter.getAdjNode();
+                if (entry == PrimitiveSPT.NOT_FOUND)
+                    entry = spt.addEntry(traversalId, iter.getEdge(), adjNode, tmpWeight, currEntry);
+                else
+                    spt.setEntry(entry, iter.getEdge(), adjNode, tmpWeight, currEntry);
+                double key = weightApprox == null ? tmpWeight : tmpWeight + weightApprox.approximate(adjNode);
+                spt.pushOrUpdate(entry, key);
+            }
+
+            if (spt.isHeapEmpty())
+                break;
+
+            currEntry = spt.poll();
+            currNode = spt.getAdjNode(currEntry);
+            currEdge = spt.getEdge(currEntry);
+            currWeight = spt.getWeight(currEntry);
+        }
+    }
+
+    @Override
+    protected boolean finished() {
+        return currNode == to;
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (!finished())
+            return createEmptyPath();
+
+        StopWatch sw = new StopWatch().start();
+        Path path = new Path(graph);
+        int entry = currEntry;
+        int fromNode = currNode;
+        while (entry != PrimitiveSPT.ROOT && EdgeIterator.Edge.isValid(spt.getEdge(entry))) {
+            int parent = spt.getParent(entry);
+            int prevEdge = parent == PrimitiveSPT.ROOT ? EdgeIterator.NO_EDGE : spt.getEdge(parent);
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(spt.getEdge(entry), spt.getAdjNode(entry));
+            path.addDistance(edgeState.getDistance());
+            path.addTime(GHUtility.calcMillisWithTurnMillis(weighting, edgeState, false, prevEdge));
+            path.addEdge(spt.getEdge(entry));
+            fromNode = edgeState.getBaseNode();
+            entry = parent;
+        }
+        ArrayUtil.reverse(path.getEdges());
+        path.setFromNode(fromNode);
+        path.setEndNode(currNode);
+        path.setFound(true);
+        path.setWeight(currWeight);
+        path.setDebugInfo("path extraction: " + sw.stop().getNanos() / 1000 + " μs");
+        return path;
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        if (weightApprox == null)
+            return Parameters.Algorithms.DIJKSTRA;
+        return Parameters.Algorithms.ASTAR + "|" + weightApprox;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.coll.MinDoubleHeapWithUpdate;
+
+import java.util.Arrays;
+
+/**
+ * A shortest path tree stored in primitive arrays instead of SPTEntry objects in a hash map. Every reached traversal
+ * id (the node id for node-based and the edge key for edge-based traversal) gets an entry index, and the entries and
+ * the indexed heap are stored in arrays indexed by this entry index. This avoids any allocation per visited node once
+ * the arrays are large enough. The arrays grow with the number of visited entries, not with the size of the graph,
+ * so they can be reused for many searches, see {@link RoutingWorkspace}. The memory needed is roughly 60 bytes per
+ * entry: 24 bytes for the entry arrays, 16 bytes for the heap and up to 20 bytes for the hash map.
+ */
+public final class PrimitiveSPT {
+    /**
+     * The parent of entries that were reached directly from the start node
+     */
+    public static final int ROOT = -1;
+    /**
+     * The entry index returned for traversal ids that were not reached yet
+     */
+    public static final int NOT_FOUND = -1;
+    private static final int INITIAL_CAPACITY = 1000;
+    private final IntIntHashMap entries = new IntIntHashMap(INITIAL_CAPACITY);
+    private int size;
+    private double[] weights = new double[INITIAL_CAPACITY];
+    private int[] edges = new int[INITIAL_CAPACITY];
+    private int[] adjNodes = new int[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private final MinDoubleHeapWithUpdate heap = new MinDoubleHeapWithUpdate(INITIAL_CAPACITY);
+
+    /**
+     * Removes all entries
+     */
+    public void reset() {
+        entries.clear();
+        size = 0;
+        heap.clear();
+    }
+
+    /**
+     * @return the number of entries added since the last {@link #reset}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the entry index of the given traversal id or {@link #NOT_FOUND} if it was not added in the current search
+     */
+    public int getEntry(int traversalId) {
+        return entries.getOrDefault(traversalId, NOT_FOUND);
+    }
+
+    /**
+     * Adds a new entry for the given traversal id, which must not be contained yet.
+     *
+     * @param weight the weight of the path from the start to the adjacent node
+     * @param parent the entry index of the parent entry or {@link #ROOT}
+     * @return the entry index of the new entry
+     */
+    public int addEntry(int traversalId, int edge, int adjNode, double weight, int parent) {
+        if (size == weights.length) {
+            int capacity = size * 2;
+            weights = Arrays.copyOf(weights, capacity);
+            edges = Arrays.copyOf(edges, capacity);
+            adjNodes = Arrays.copyOf(adjNodes, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            heap.ensureCapacity(capacity);
+        }
+        int entry = size++;
+        entries.put(traversalId, entry);
+        setEntry(entry, edge, adjNode, weight, parent);
+        return entry;
+    }
+
+    /**
+     * Replaces the values of the given entry
+     */
+    public void setEntry(int entry, int edge, int adjNode, double weight, int parent) {
+        edges[entry] = edge;
+        adjNodes[entry] = adjNode;
+        weights[entry] = weight;
+        parents[entry] = parent;
+    }
+
+    public double getWeight(int entry) {
+        return weights[entry];
+    }
+
+    public int getEdge(int entry) {
+        return edges[entry];
+    }
+
+    public int getAdjNode(int entry) {
+        return adjNodes[entry];
+    }
+
+    public int getParent(int entry) {
+        return parents[entry];
+    }
+
+    /**
+     * Adds the given entry to the heap or updates its key if it is already contained.
+     */
+    public void pushOrUpdate(int entry, double key) {
+        if (heap.contains(entry))
+            heap.update(entry, key);
+        else
+            heap.push(entry, key);
+    }
+
+    public boolean isHeapEmpty() {
+        return heap.isEmpty();
+    }
+
+    /**
+     * @return the entry with the smallest key and removes it from the heap
+     */
+    public int poll() {
+        return heap.poll();
+    }
+}
@@ -24,6 +24,7 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.CustomizedMetricCache;
 import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.querygraph.QueryGraph;
@@ -33,9 +34,11 @@ import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
+import com.graphhopper.storage.index.SnapCache;
 import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
@@ -67,11 +70,27 @@ public class Router {
     private final Map<String, LandmarkStorage> landmarks;
     private final boolean chEnabled;
     private final boolean lmEnabled;
+    private final CustomizedMetricCache cchMetricCache;
+    private final SnapCache snapCache;
 
     public Router(GraphHopperStorage ghStorage, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
                   TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
                   Map<String, CHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+        this(ghStorage, locationIndex, profilesByName, pathDetailsBuilderFactory, translationMap, routerConfig,
+                weightingFactory, chGraphs, landmarks, null, null);
+    }
+
+    /**
+     * @param cchMetricCache the customizable CH used to speed up requests for custom profiles that cannot use the
+     *                       CH preparations, or null
+     * @param snapCache      the cache used to snap the points of via and alternative route requests, or null
+     */
+    public Router(GraphHopperStorage ghStorage, LocationIndex locationIndex,
+                  Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
+                  TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
+                  Map<String, CHGraph> chGraphs, Map<String, LandmarkStorage> landmarks, CustomizedMetricCache cchMetricCache,
+                  SnapCache snapCache) {
         this.ghStorage = ghStorage;
         this.encodingManager = ghStorage.getEncodingManager();
         this.locationIndex = locationIndex;
@@ -89,6 +108,8 @@ public class Router {
         // CHGraphs that were not built yet (and possibly no CH profiles were configured).
         this.chEnabled = !chGraphs.isEmpty();
         this.lmEnabled = !landmarks.isEmpty();
+        this.cchMetricCache = cchMetricCache;
+        this.snapCache = snapCache;
     }
 
     public GHResponse route(GHRequest request) {
@@ -116,6 +137,7 @@ public class Router {
                 throw new IllegalArgumentException("The max_visited_nodes parameter has to be below or equal to:" + routerConfig.getMaxVisitedNodes());
 
             Weighting weighting = createWeighting(profile, request.getHints(), request.getPoints(), disableCH);
+            final boolean useCCH = canUseCCH(request, profile, passThrough, disableCH);
             AlgorithmOptions algoOpts = AlgorithmOptions.start().
                     algorithm(request.getAlgorithm()).
                     traversalMode(traversalMode).
@@ -127,9 +149,9 @@ public class Router {
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
                 return routeRoundTrip(request, algoOpts, weighting, profile, disableLM);
             } else if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())) {
-                return routeAlt(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM);
+                return routeAlt(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM, useCCH);
             } else {
-                return routeVia(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM);
+                return routeVia(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM, useCCH);
             }
         } catch (MultiplePointsNotFoundException ex) {
             GHResponse ghRsp = new GHResponse();
@@ -170,15 +192,16 @@ public class Router {
         return ghRsp;
     }
 
-    protected GHResponse routeAlt(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM) {
+    protected GHResponse routeAlt(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM, boolean useCCH) {
         if (request.getPoints().size() > 2)
             throw new IllegalArgumentException("Currently alternative routes work only with start and end point. You tried to use: " + request.getPoints().size() + " points");
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
-        List<Snap> qResults = ViaRouting.lookup(encodingManager, request.getPoints(), weighting, locationIndex, request.getSnapPreventions(), request.getPointHints());
+        List<Snap> qResults = ViaRouting.lookup(encodingManager, request.getPoints(), weighting, locationIndex, request.getSnapPreventions(), request.getPointHints(),
+                snapCache, getSnapCacheKey(request, profile));
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
         QueryGraph queryGraph = QueryGraph.create(ghStorage, qResults);
-        PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM);
+        PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM, useCCH);
 
         if (passThrough)
             throw new IllegalArgumentException("Alternative paths and " + PASS_THROUGH + " at the same time is currently not supported");
@@ -201,15 +224,16 @@ public class Router {
         return ghRsp;
     }
 
-    protected GHResponse routeVia(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM) {
+    protected GHResponse routeVia(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM, boolean useCCH) {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
-        List<Snap> qResults = ViaRouting.lookup(encodingManager, request.getPoints(), weighting, locationIndex, request.getSnapPreventions(), request.getPointHints());
+        List<Snap> qResults = ViaRouting.lookup(encodingManager, request.getPoints(), weighting, locationIndex, request.getSnapPreventions(), request.getPointHints(),
+                snapCache, getSnapCacheKey(request, profile));
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
         QueryGraph queryGraph = QueryGraph.create(ghStorage, qResults);
-        PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM);
+        PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM, useCCH);
         ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, qResults, weighting.getFlagEncoder().getAccessEnc(), pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
 
         if (request.getPoints().size() != result.paths.size() + 1)
@@ -245,21 +269,71 @@ public class Router {
         }
     }
 
-    private PathCalculator createPathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, boolean disableCH, boolean disableLM) {
+    /**
+     * @return the key of the edge filter used for snapping in the snap cache or null if the snap cache cannot be used
+     */
+    private String getSnapCacheKey(GHRequest request, Profile profile) {
+        // block_area makes the edge filter depend on the request points
+        if (snapCache == null || request.getHints().has(Parameters.Routing.BLOCK_AREA))
+            return null;
+        // the edge filter only accepts edges with a finite weight, so it depends on the custom model
+        return createCustomModelKey(profile, request.getHints().getObject(CustomModel.KEY, null));
+    }
+
+    private PathCalculator createPathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, boolean disableCH, boolean disableLM, boolean useCCH) {
         if (chEnabled && !disableCH) {
-            PMap opts = new PMap(algoOpts.getHints());
-            opts.putObject(ALGORITHM, algoOpts.getAlgorithm());
-            opts.putObject(MAX_VISITED_NODES, algoOpts.getMaxVisitedNodes());
-            return createCHPathCalculator(queryGraph, profile, opts);
+            return createCHPathCalculator(queryGraph, profile, createCHOpts(algoOpts));
+        } else if (useCCH) {
+            return createCCHPathCalculator(queryGraph, profile, algoOpts);
         } else {
             return createFlexiblePathCalculator(queryGraph, profile, algoOpts, disableLM);
         }
     }
 
+    private PMap createCHOpts(AlgorithmOptions algoOpts) {
+        PMap opts = new PMap(algoOpts.getHints());
+        opts.putObject(ALGORITHM, algoOpts.getAlgorithm());
+        opts.putObject(MAX_VISITED_NODES, algoOpts.getMaxVisitedNodes());
+        return opts;
+    }
+
     private PathCalculator createCHPathCalculator(QueryGraph queryGraph, Profile profile, PMap opts) {
         return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
     }
 
+    private PathCalculator createCCHPathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts) {
+        // the weighting is fully determined by the custom model of the profile and the one of the request
+        String key = createCustomModelKey(profile, algoOpts.getHints().getObject(CustomModel.KEY, null));
+        RoutingCHGraph chGraph = cchMetricCache.getRoutingCHGraph(key, algoOpts.getWeighting());
+        return new CHPathCalculator(new CHRoutingAlgorithmFactory(chGraph, queryGraph), createCHOpts(algoOpts));
+    }
+
+    /**
+     * @return a key that identifies the weighting of the given profile and query custom model. CustomModel#toString
+     * only prints the ids of the areas, so their geometries are appended to distinguish areas that share an id.
+     */
+    static String createCustomModelKey(Profile profile, CustomModel queryCustomModel) {
+        if (queryCustomModel == null)
+            return profile.getName();
+        StringBuilder key = new StringBuilder(profile.getName()).append('|').append(queryCustomModel);
+        new TreeMap<>(queryCustomModel.getAreas()).forEach((id, area) ->
+                key.append('|').append(id).append('=').append(area.getGeometry()));
+        return key.toString();
+    }
+
+    /**
+     * Customizable CH is used for node-based requests of custom profiles that do not use the CH preparations and
+     * do not need any of the features that are not supported by CH.
+     */
+    private boolean canUseCCH(GHRequest request, Profile profile, boolean passThrough, boolean disableCH) {
+        return cchMetricCache != null && (!chEnabled || disableCH)
+                && !request.getHints().getBool(Parameters.CCH.DISABLE, false)
+                && CustomWeighting.NAME.equalsIgnoreCase(profile.getWeighting())
+                && !profile.isTurnCosts()
+                && request.getHeadings().isEmpty() && !passThrough
+                && !request.getHints().has(Parameters.Routing.BLOCK_AREA);
+    }
+
     private FlexiblePathCalculator createFlexiblePathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, boolean disableLM) {
         RoutingAlgorithmFactory algorithmFactory;
         // for now do not allow mixing CH&LM #1082,#1889
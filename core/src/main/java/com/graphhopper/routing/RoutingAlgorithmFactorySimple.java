@@ -26,6 +26,7 @@ import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.DistancePlaneProjection;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
@@ -42,24 +43,36 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
         Weighting weighting = g.wrapWeighting(opts.getWeighting());
+        boolean primitiveSPT = opts.getHints().getBool(Parameters.Routing.PRIMITIVE_SPT, false);
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            DijkstraBidirectionRef dijkstraBi = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            dijkstraBi.setUseWorkspace(true);
+            ra = dijkstraBi;
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
-            ra = new Dijkstra(g, weighting, opts.getTraversalMode());
+            if (primitiveSPT)
+                ra = new PrimitiveAStar(g, weighting, opts.getTraversalMode());
+            else
+                ra = new Dijkstra(g, weighting, opts.getTraversalMode());
 
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
                     opts.getTraversalMode());
             aStarBi.setApproximation(getApproximation(ASTAR_BI, opts.getHints(), weighting, g.getNodeAccess()));
+            aStarBi.setUseWorkspace(true);
             ra = aStarBi;
 
         } else if (DIJKSTRA_ONE_TO_MANY.equalsIgnoreCase(algoStr)) {
             ra = new DijkstraOneToMany(g, weighting, opts.getTraversalMode());
 
         } else if (ASTAR.equalsIgnoreCase(algoStr)) {
-            AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
-            aStar.setApproximation(getApproximation(ASTAR, opts.getHints(), opts.getWeighting(), g.getNodeAccess()));
-            ra = aStar;
+            WeightApproximator approx = getApproximation(ASTAR, opts.getHints(), opts.getWeighting(), g.getNodeAccess());
+            if (primitiveSPT) {
+                ra = new PrimitiveAStar(g, weighting, opts.getTraversalMode()).setApproximation(approx);
+            } else {
+                AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
+                aStar.setApproximation(approx);
+                ra = aStar;
+            }
 
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
             AlternativeRoute altRouteAlgo = new AlternativeRoute(g, weighting, opts.getTraversalMode());
@@ -0,0 +1,144 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+
+/**
+ * The reusable data structures of a routing algorithm: the shortest path tree maps and heaps of the bidirectional
+ * algorithms and the {@link PrimitiveSPT} of {@link PrimitiveAStar}. The algorithms created by the routing algorithm
+ * factories borrow a workspace when calcPath starts and give it back when calcPath is finished. The given back
+ * workspaces are kept per thread, so in steady state the same thread reuses the same collections for every request
+ * instead of creating (and growing) them again.
+ * <p>
+ * All collections grow with the number of visited entries, not with the size of the graph. Collections that contain
+ * more than {@link #MAX_RETAINED_SIZE} entries when they are given back are not kept to limit the memory held per
+ * thread. A map and queue pair needs roughly 30 bytes per entry (without the SPTEntry objects) and the
+ * {@link PrimitiveSPT} roughly 60 bytes, so a pooled workspace holds at most about 18MB and usually much less. Up to
+ * {@link #MAX_POOLED_PER_THREAD} workspaces are pooled per thread, but more than one is only needed if algorithms are
+ * nested.
+ */
+public final class RoutingWorkspace {
+    static final int MAX_RETAINED_SIZE = 150_000;
+    private static final int MAX_POOLED_PER_THREAD = 4;
+    private static final ThreadLocal<ArrayDeque<RoutingWorkspace>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+    private GHIntObjectHashMap<SPTEntry> mapFrom;
+    private GHIntObjectHashMap<SPTEntry> mapTo;
+    private PriorityQueue<SPTEntry> queueFrom;
+    private PriorityQueue<SPTEntry> queueTo;
+    private PrimitiveSPT spt;
+    private boolean borrowed;
+
+    private RoutingWorkspace() {
+    }
+
+    /**
+     * @return a workspace from the pool of the current thread or a new one if the pool is empty
+     */
+    public static RoutingWorkspace borrow() {
+        RoutingWorkspace workspace = POOL.get().poll();
+        if (workspace == null)
+            workspace = new RoutingWorkspace();
+        workspace.borrowed = true;
+        return workspace;
+    }
+
+    /**
+     * Clears the collections of this workspace and puts it into the pool of the current thread. The workspace and
+     * the collections obtained from it must not be used afterwards.
+     */
+    public void giveBack() {
+        if (!borrowed)
+            throw new IllegalStateException("The workspace was already given back");
+        borrowed = false;
+        if (mapFrom != null && mapFrom.size() > MAX_RETAINED_SIZE) {
+            mapFrom = null;
+            queueFrom = null;
+        }
+        if (mapTo != null && mapTo.size() > MAX_RETAINED_SIZE) {
+            mapTo = null;
+            queueTo = null;
+        }
+        if (spt != null && spt.size() > MAX_RETAINED_SIZE)
+            spt = null;
+        if (mapFrom != null)
+            mapFrom.clear();
+        if (mapTo != null)
+            mapTo.clear();
+        // every entry of the queues is also contained in the maps, so they cannot be larger
+        if (queueFrom != null)
+            queueFrom.clear();
+        if (queueTo != null)
+            queueTo.clear();
+
+        ArrayDeque<RoutingWorkspace> pool = POOL.get();
+        if (pool.size() < MAX_POOLED_PER_THREAD)
+            pool.push(this);
+    }
+
+    /**
+     * @param initialSize the expected number of entries, only used if the map is created
+     * @return the empty map of the forward (reverse=false) or backward (reverse=true) search
+     */
+    public GHIntObjectHashMap<SPTEntry> getBestWeightMap(boolean reverse, int initialSize) {
+        checkBorrowed();
+        if (reverse) {
+            if (mapTo == null)
+                mapTo = new GHIntObjectHashMap<>(initialSize);
+            return mapTo;
+        }
+        if (mapFrom == null)
+            mapFrom = new GHIntObjectHashMap<>(initialSize);
+        return mapFrom;
+    }
+
+    /**
+     * @param initialSize the expected number of entries, only used if the queue is created
+     * @return the empty priority queue of the forward (reverse=false) or backward (reverse=true) search
+     */
+    public PriorityQueue<SPTEntry> getQueue(boolean reverse, int initialSize) {
+        checkBorrowed();
+        if (reverse) {
+            if (queueTo == null)
+                queueTo = new PriorityQueue<>(initialSize);
+            return queueTo;
+        }
+        if (queueFrom == null)
+            queueFrom = new PriorityQueue<>(initialSize);
+        return queueFrom;
+    }
+
+    /**
+     * @return an empty shortest path tree
+     */
+    public PrimitiveSPT getPrimitiveSPT() {
+        checkBorrowed();
+        if (spt == null)
+            spt = new PrimitiveSPT();
+        spt.reset();
+        return spt;
+    }
+
+    private void checkBorrowed() {
+        if (!borrowed)
+            throw new IllegalStateException("The workspace has to be borrowed before usage");
+    }
+}
@@ -26,6 +26,7 @@ import com.graphhopper.routing.util.SnapPreventionEdgeFilter;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
+import com.graphhopper.storage.index.SnapCache;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
@@ -51,6 +52,16 @@ public class ViaRouting {
      * @throws MultiplePointsNotFoundException in case one or more points could not be resolved
      */
     public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, Weighting weighting, LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints) {
+        return lookup(lookup, points, weighting, locationIndex, snapPreventions, pointHints, null, null);
+    }
+
+    /**
+     * @param snapCache    is used for the points that are snapped without snap preventions and point hints, can be null
+     * @param snapCacheKey identifies the weighting in the snap cache, the snap cache is not used if this is null
+     * @throws MultiplePointsNotFoundException in case one or more points could not be resolved
+     */
+    public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, Weighting weighting, LocationIndex locationIndex,
+                                    List<String> snapPreventions, List<String> pointHints, SnapCache snapCache, String snapCacheKey) {
         if (points.size() < 2)
             throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + points.size());
 
@@ -60,6 +71,10 @@ public class ViaRouting {
         EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
                 ? edgeFilter
                 : new SnapPreventionEdgeFilter(edgeFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+        // without point specific filters all points can be snapped at once
+        List<Snap> batchSnaps = pointHints.isEmpty() && snapPreventions.isEmpty() && (snapCache == null || snapCacheKey == null)
+                ? locationIndex.findClosestBatch(points, edgeFilter)
+                : null;
         List<Snap> snaps = new ArrayList<>(points.size());
         IntArrayList pointsNotFound = new IntArrayList();
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
@@ -70,8 +85,12 @@ public class ViaRouting {
                         pointHints.get(placeIndex), point, 100));
             else if (!snapPreventions.isEmpty())
                 snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
-            if (snap == null || !snap.isValid())
-                snap = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            if (batchSnaps != null)
+                snap = batchSnaps.get(placeIndex);
+            else if (snap == null || !snap.isValid())
+                snap = snapCache == null || snapCacheKey == null
+                        ? locationIndex.findClosest(point.lat, point.lon, edgeFilter)
+                        : snapCache.findClosest(point.lat, point.lon, edgeFilter, snapCacheKey);
             if (!snap.isValid())
                 pointsNotFound.add(placeIndex);
 
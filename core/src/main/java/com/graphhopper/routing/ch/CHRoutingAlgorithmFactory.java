@@ -60,10 +60,10 @@ public class CHRoutingAlgorithmFactory {
         if (Helper.isEmpty(algo))
             algo = defaultAlgo;
         if (ASTAR_BI.equals(algo)) {
-            return new AStarBidirectionEdgeCHNoSOD(g)
-                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+            return withWorkspace(new AStarBidirectionEdgeCHNoSOD(g)
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess())));
         } else if (DIJKSTRA_BI.equals(algo)) {
-            return new DijkstraBidirectionEdgeCHNoSOD(g);
+            return withWorkspace(new DijkstraBidirectionEdgeCHNoSOD(g));
         } else if (ALT_ROUTE.equalsIgnoreCase(algo)) {
             return new AlternativeRouteEdgeCH(g, opts);
         } else {
@@ -78,13 +78,13 @@ public class CHRoutingAlgorithmFactory {
         if (Helper.isEmpty(algo))
             algo = defaultAlgo;
         if (ASTAR_BI.equals(algo)) {
-            return new AStarBidirectionCH(g)
-                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+            return withWorkspace(new AStarBidirectionCH(g)
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess())));
         } else if (DIJKSTRA_BI.equals(algo) || Helper.isEmpty(algo)) {
             if (opts.getBool("stall_on_demand", true)) {
-                return new DijkstraBidirectionCH(g);
+                return withWorkspace(new DijkstraBidirectionCH(g));
             } else {
-                return new DijkstraBidirectionCHNoSOD(g);
+                return withWorkspace(new DijkstraBidirectionCHNoSOD(g));
             }
         } else if (ALT_ROUTE.equalsIgnoreCase(algo)) {
             return new AlternativeRouteCH(g, opts);
@@ -93,6 +93,11 @@ public class CHRoutingAlgorithmFactory {
         }
     }
 
+    private static AbstractBidirAlgo withWorkspace(AbstractBidirAlgo algo) {
+        algo.setUseWorkspace(true);
+        return algo;
+    }
+
     private Weighting getWeighting() {
         return routingCHGraph.getWeighting();
     }
@@ -0,0 +1,283 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Customizable contraction hierarchies (CCH) split the CH preparation into a metric-independent part that is done
+ * once and a customization that calculates the shortcut weights for a given {@link Weighting} and is much faster than
+ * a full CH preparation. This allows CH queries for weightings that are only known at request time, like custom
+ * models.
+ * <p>
+ * The node order only depends on the graph topology: the nodes are eliminated by minimum degree and every pair of
+ * neighbours of an eliminated node is connected by an arc, no matter if there is a witness path or not. Each arc
+ * between two nodes is stored once at its lower node. The customization then calculates the weights of the arcs in
+ * both directions by enumerating the lower triangles of each arc, see {@link #customize(Weighting)}.
+ * <p>
+ * Only node-based routing is supported. The minimum degree ordering produces more arcs than the nested dissection
+ * orders usually used for CCH, so this is best suited for city or region sized graphs.
+ */
+public class CustomizableCH {
+    private final Graph graph;
+    private final int nodes;
+    private final int edges;
+    private final int[] ranks;
+    private final int[] nodesByRank;
+    // the up arcs of the node with rank r are arcStart[r] until arcStart[r + 1], sorted by their head node
+    private final int[] arcStart;
+    private final int[] arcHeads;
+    private final int[] arcTails;
+    // the arc for every edge of the base graph or -1 for loops
+    private final int[] edgeArcs;
+
+    public CustomizableCH(Graph graph) {
+        this.graph = graph;
+        this.nodes = graph.getNodes();
+        this.edges = graph.getEdges();
+        ranks = new int[nodes];
+        nodesByRank = new int[nodes];
+        arcStart = new int[nodes + 1];
+
+        GHIntHashSet[] neighbors = new GHIntHashSet[nodes];
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(nodes);
+        for (int node = 0; node < nodes; node++) {
+            neighbors[node] = new GHIntHashSet();
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (iter.getAdjNode() != node)
+                    neighbors[node].add(iter.getAdjNode());
+            }
+            heap.push(node, neighbors[node].size());
+        }
+
+        IntArrayList heads = new IntArrayList(edges);
+        IntArrayList tails = new IntArrayList(edges);
+        int rank = 0;
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            ranks[node] = rank;
+            nodesByRank[rank] = node;
+            int[] upNodes = neighbors[node].toArray();
+            neighbors[node] = null;
+            Arrays.sort(upNodes);
+            for (int upNode : upNodes) {
+                heads.add(upNode);
+                tails.add(node);
+                neighbors[upNode].remove(node);
+            }
+            // connect all remaining neighbours, these are the shortcuts (fill-in) of the eliminated node
+            for (int i = 0; i < upNodes.length; i++) {
+                for (int j = i + 1; j < upNodes.length; j++) {
+                    if (neighbors[upNodes[i]].add(upNodes[j]))
+                        neighbors[upNodes[j]].add(upNodes[i]);
+                }
+            }
+            for (int upNode : upNodes) {
+                heap.update(upNode, neighbors[upNode].size());
+            }
+            rank++;
+            arcStart[rank] = heads.size();
+        }
+        arcHeads = heads.toArray();
+        arcTails = tails.toArray();
+
+        edgeArcs = new int[edges];
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int base = iter.getBaseNode(), adj = iter.getAdjNode();
+            edgeArcs[iter.getEdge()] = base == adj ? -1 : findArc(base, adj);
+        }
+    }
+
+    /**
+     * @return the arc between the two given nodes, every pair of adjacent nodes of the base graph has an arc
+     */
+    int findArc(int nodeA, int nodeB) {
+        int tail = nodeA, head = nodeB;
+        if (ranks[nodeA] > ranks[nodeB]) {
+            tail = nodeB;
+            head = nodeA;
+        }
+        int rank = ranks[tail];
+        int arc = Arrays.binarySearch(arcHeads, arcStart[rank], arcStart[rank + 1], head);
+        if (arc < 0)
+            throw new IllegalStateException("There is no arc between " + nodeA + " and " + nodeB);
+        return arc;
+    }
+
+    /**
+     * Calculates the weights of all arcs for the given weighting. Every arc is stored in two slots, 2 * arc for the
+     * direction from the lower to the higher node (tail to head) and 2 * arc + 1 for the opposite direction. The
+     * nodes are processed in the order of their rank, and for every pair of up arcs of a node the arc between the two
+     * upper nodes is relaxed. As all triangles below an arc have been processed once we reach its tail node, the
+     * weights of an arc are final when it is used for relaxing other arcs.
+     */
+    public Metric customize(Weighting weighting) {
+        if (weighting.hasTurnCosts())
+            throw new IllegalArgumentException("Customizable CH does not support turn costs, weighting: " + weighting);
+        int slots = 2 * arcHeads.length;
+        double[] weights = new double[slots];
+        int[] skippedEdges1 = new int[slots];
+        int[] skippedEdges2 = new int[slots];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        Arrays.fill(skippedEdges1, NO_EDGE);
+        Arrays.fill(skippedEdges2, NO_EDGE);
+
+        // the original edges, for slots that are reached via an original edge skippedEdges2 stores the edge
+        BooleanEncodedValue accessEnc = weighting.getFlagEncoder().getAccessEnc();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int arc = edgeArcs[iter.getEdge()];
+            if (arc < 0)
+                continue;
+            int fwdSlot = arcTails[arc] == iter.getBaseNode() ? 2 * arc : 2 * arc + 1;
+            int bwdSlot = fwdSlot ^ 1;
+            double fwdWeight = iter.get(accessEnc) ? weighting.calcEdgeWeight(iter, false) : Double.POSITIVE_INFINITY;
+            double bwdWeight = iter.getReverse(accessEnc) ? weighting.calcEdgeWeight(iter, true) : Double.POSITIVE_INFINITY;
+            if (fwdWeight < weights[fwdSlot]) {
+                weights[fwdSlot] = fwdWeight;
+                skippedEdges2[fwdSlot] = iter.getEdge();
+            }
+            if (bwdWeight < weights[bwdSlot]) {
+                weights[bwdSlot] = bwdWeight;
+                skippedEdges2[bwdSlot] = iter.getEdge();
+            }
+        }
+
+        // the lower triangles
+        for (int rank = 0; rank < nodes; rank++) {
+            int end = arcStart[rank + 1];
+            for (int i = arcStart[rank]; i < end; i++) {
+                for (int j = i + 1; j < end; j++) {
+                    int lowerArc = i, upperArc = j;
+                    if (ranks[arcHeads[i]] > ranks[arcHeads[j]]) {
+                        lowerArc = j;
+                        upperArc = i;
+                    }
+                    int arc = findArc(arcHeads[lowerArc], arcHeads[upperArc]);
+                    // from the lower to the upper neighbour and back
+                    relax(2 * arc, 2 * lowerArc + 1, 2 * upperArc, weights, skippedEdges1, skippedEdges2);
+                    relax(2 * arc + 1, 2 * upperArc + 1, 2 * lowerArc, weights, skippedEdges1, skippedEdges2);
+                }
+            }
+        }
+        return new Metric(weights, skippedEdges1, skippedEdges2);
+    }
+
+    private void relax(int slot, int firstSlot, int secondSlot, double[] weights, int[] skippedEdges1, int[] skippedEdges2) {
+        double weight = weights[firstSlot] + weights[secondSlot];
+        if (weight < weights[slot]) {
+            weights[slot] = weight;
+            skippedEdges1[slot] = getCHEdge(firstSlot, skippedEdges1, skippedEdges2);
+            skippedEdges2[slot] = getCHEdge(secondSlot, skippedEdges1, skippedEdges2);
+        }
+    }
+
+    private int getCHEdge(int slot, int[] skippedEdges1, int[] skippedEdges2) {
+        return skippedEdges1[slot] == NO_EDGE ? skippedEdges2[slot] : getShortcutEdge(slot);
+    }
+
+    /**
+     * Creates a {@link RoutingCHGraph} for the given metric that can be used with the usual CH algorithms. The
+     * weighting must be the one (or an equivalent instance of the one) that was used for the customization.
+     */
+    public RoutingCHGraph createRoutingCHGraph(Metric metric, Weighting weighting) {
+        return new CustomizedRoutingCHGraph(this, metric, weighting);
+    }
+
+    Graph getGraph() {
+        return graph;
+    }
+
+    int getNodes() {
+        return nodes;
+    }
+
+    int getRank(int node) {
+        return ranks[node];
+    }
+
+    /**
+     * @return the number of arcs, i.e. the number of node pairs that are connected by an edge or a shortcut
+     */
+    public int getArcs() {
+        return arcHeads.length;
+    }
+
+    int getArcStart(int node) {
+        return arcStart[ranks[node]];
+    }
+
+    int getArcEnd(int node) {
+        return arcStart[ranks[node] + 1];
+    }
+
+    int getArcHead(int arc) {
+        return arcHeads[arc];
+    }
+
+    int getArcTail(int arc) {
+        return arcTails[arc];
+    }
+
+    /**
+     * @return the CH edge id of the shortcut of the given slot, shortcut ids start after the edges of the base graph
+     */
+    int getShortcutEdge(int slot) {
+        return edges + slot;
+    }
+
+    int getSlot(int shortcutEdge) {
+        return shortcutEdge - edges;
+    }
+
+    /**
+     * The result of a customization, i.e. the weights and skipped edges of all arc slots.
+     */
+    public static class Metric {
+        final double[] weights;
+        // NO_EDGE for slots that are not shortcuts
+        final int[] skippedEdges1;
+        final int[] skippedEdges2;
+
+        Metric(double[] weights, int[] skippedEdges1, int[] skippedEdges2) {
+            this.weights = weights;
+            this.skippedEdges1 = skippedEdges1;
+            this.skippedEdges2 = skippedEdges2;
+        }
+
+        boolean isShortcut(int slot) {
+            return skippedEdges1[slot] != NO_EDGE;
+        }
+    }
+}
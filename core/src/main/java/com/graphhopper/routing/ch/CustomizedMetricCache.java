@@ -0,0 +1,69 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the metrics of the most recently used weightings of a {@link CustomizableCH}, so that repeated requests with
+ * the same custom model do not have to run the customization again. The cache is thread-safe, if two threads request
+ * the same missing metric at the same time it might be calculated twice.
+ */
+public class CustomizedMetricCache {
+    private final CustomizableCH cch;
+    private final Map<String, CustomizableCH.Metric> cache;
+
+    public CustomizedMetricCache(CustomizableCH cch, final int size) {
+        if (size < 1)
+            throw new IllegalArgumentException("cache size must be positive but was " + size);
+        this.cch = cch;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, CustomizableCH.Metric>(size, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CustomizableCH.Metric> eldest) {
+                return size() > size;
+            }
+        });
+    }
+
+    /**
+     * @param key       identifies the weighting, two weightings with the same key must calculate the same weights
+     * @param weighting is used for the customization if the metric is not cached yet and for the weights of the
+     *                  original edges
+     */
+    public RoutingCHGraph getRoutingCHGraph(String key, Weighting weighting) {
+        CustomizableCH.Metric metric = cache.get(key);
+        if (metric == null) {
+            metric = cch.customize(weighting);
+            cache.put(key, metric);
+        }
+        return cch.createRoutingCHGraph(metric, weighting);
+    }
+
+    public CustomizableCH getCustomizableCH() {
+        return cch;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
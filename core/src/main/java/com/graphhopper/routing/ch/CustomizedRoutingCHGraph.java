@@ -0,0 +1,291 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * A {@link RoutingCHGraph} that uses the weights of a {@link CustomizableCH.Metric}. Just like for the usual CH graph
+ * the CH edge ids of the original edges are the edge ids of the base graph, the shortcuts follow after them. Every
+ * arc slot that is a shortcut is a separate CH edge that can only be traversed in one direction, because the two
+ * directions of an arc generally skip different edges. Shortcuts are only attached to their lower node.
+ */
+class CustomizedRoutingCHGraph implements RoutingCHGraph {
+    private final CustomizableCH cch;
+    private final CustomizableCH.Metric metric;
+    private final Weighting weighting;
+    private final Graph baseGraph;
+    private final BooleanEncodedValue accessEnc;
+
+    CustomizedRoutingCHGraph(CustomizableCH cch, CustomizableCH.Metric metric, Weighting weighting) {
+        if (weighting.hasTurnCosts())
+            throw new IllegalArgumentException("Customizable CH does not support turn costs, weighting: " + weighting);
+        this.cch = cch;
+        this.metric = metric;
+        this.weighting = weighting;
+        this.baseGraph = cch.getGraph();
+        this.accessEnc = weighting.getFlagEncoder().getAccessEnc();
+    }
+
+    @Override
+    public int getNodes() {
+        return cch.getNodes();
+    }
+
+    @Override
+    public int getEdges() {
+        return baseGraph.getEdges() + 2 * cch.getArcs();
+    }
+
+    private boolean isShortcut(int chEdge) {
+        return chEdge >= baseGraph.getEdges();
+    }
+
+    @Override
+    public int getOtherNode(int chEdge, int node) {
+        if (!isShortcut(chEdge))
+            return baseGraph.getOtherNode(chEdge, node);
+        int arc = cch.getSlot(chEdge) >> 1;
+        return node == cch.getArcTail(arc) ? cch.getArcHead(arc) : cch.getArcTail(arc);
+    }
+
+    @Override
+    public boolean isAdjacentToNode(int chEdge, int node) {
+        if (!isShortcut(chEdge))
+            return baseGraph.isAdjacentToNode(chEdge, node);
+        int arc = cch.getSlot(chEdge) >> 1;
+        return cch.getArcTail(arc) == node || cch.getArcHead(arc) == node;
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createInEdgeExplorer() {
+        return new CustomizedEdgeIterator(true);
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createOutEdgeExplorer() {
+        return new CustomizedEdgeIterator(false);
+    }
+
+    @Override
+    public RoutingCHEdgeIteratorState getEdgeIteratorState(int chEdge, int adjNode) {
+        if (!isShortcut(chEdge)) {
+            EdgeIteratorState edgeState = baseGraph.getEdgeIteratorState(chEdge, adjNode);
+            if (edgeState == null)
+                return null;
+            EdgeState state = new EdgeState();
+            state.setOriginal(edgeState);
+            return state;
+        }
+        int slot = cch.getSlot(chEdge);
+        if (slot >= 2 * cch.getArcs() || !metric.isShortcut(slot))
+            throw new IllegalStateException("shortcut " + chEdge + " does not exist");
+        int arc = slot >> 1;
+        int tail = cch.getArcTail(arc), head = cch.getArcHead(arc);
+        EdgeState state = new EdgeState();
+        if (adjNode == head || adjNode == Integer.MIN_VALUE)
+            state.setShortcut(slot, tail, head);
+        else if (adjNode == tail)
+            state.setShortcut(slot, head, tail);
+        else
+            return null;
+        return state;
+    }
+
+    @Override
+    public int getLevel(int node) {
+        return cch.getRank(node);
+    }
+
+    @Override
+    public double getTurnWeight(int inEdge, int viaNode, int outEdge) {
+        return 0;
+    }
+
+    @Override
+    public Graph getBaseGraph() {
+        return baseGraph;
+    }
+
+    @Override
+    public boolean hasTurnCosts() {
+        return false;
+    }
+
+    @Override
+    public boolean isEdgeBased() {
+        return false;
+    }
+
+    @Override
+    public Weighting getWeighting() {
+        return weighting;
+    }
+
+    private double getOrigEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        boolean access = reverse ? edgeState.getReverse(accessEnc) : edgeState.get(accessEnc);
+        if (edgeState.getBaseNode() != edgeState.getAdjNode() && !access)
+            return Double.POSITIVE_INFINITY;
+        return weighting.calcEdgeWeight(edgeState, reverse);
+    }
+
+    private class EdgeState implements RoutingCHEdgeIteratorState {
+        EdgeIteratorState origEdge;
+        int slot;
+        int baseNode;
+        int adjNode;
+
+        void setOriginal(EdgeIteratorState origEdge) {
+            this.origEdge = origEdge;
+            this.baseNode = origEdge.getBaseNode();
+            this.adjNode = origEdge.getAdjNode();
+        }
+
+        void setShortcut(int slot, int baseNode, int adjNode) {
+            this.origEdge = null;
+            this.slot = slot;
+            this.baseNode = baseNode;
+            this.adjNode = adjNode;
+        }
+
+        @Override
+        public int getEdge() {
+            return origEdge == null ? cch.getShortcutEdge(slot) : origEdge.getEdge();
+        }
+
+        @Override
+        public int getOrigEdge() {
+            return origEdge == null ? NO_EDGE : origEdge.getEdge();
+        }
+
+        @Override
+        public int getOrigEdgeFirst() {
+            return getEdge();
+        }
+
+        @Override
+        public int getOrigEdgeLast() {
+            return getEdge();
+        }
+
+        @Override
+        public int getBaseNode() {
+            return baseNode;
+        }
+
+        @Override
+        public int getAdjNode() {
+            return adjNode;
+        }
+
+        @Override
+        public boolean isShortcut() {
+            return origEdge == null;
+        }
+
+        @Override
+        public int getSkippedEdge1() {
+            return metric.skippedEdges1[slot];
+        }
+
+        @Override
+        public int getSkippedEdge2() {
+            return metric.skippedEdges2[slot];
+        }
+
+        @Override
+        public double getWeight(boolean reverse) {
+            if (origEdge != null)
+                return getOrigEdgeWeight(origEdge, reverse);
+            // even slots go from the tail to the head of the arc
+            int from = reverse ? adjNode : baseNode;
+            boolean fromTail = from == cch.getArcTail(slot >> 1);
+            return fromTail == ((slot & 1) == 0) ? metric.weights[slot] : Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public String toString() {
+            return getEdge() + " " + baseNode + "-" + adjNode + (isShortcut() ? " (shortcut)" : "");
+        }
+    }
+
+    /**
+     * Iterates the original edges of a node and then the shortcuts that start (or end for the in-explorer) at it.
+     */
+    private class CustomizedEdgeIterator extends EdgeState implements RoutingCHEdgeExplorer, RoutingCHEdgeIterator {
+        private final boolean reverse;
+        private final EdgeExplorer baseExplorer = baseGraph.createEdgeExplorer();
+        private EdgeIterator baseIterator;
+        private int node;
+        private int nextArc;
+        private int arcEnd;
+
+        CustomizedEdgeIterator(boolean reverse) {
+            this.reverse = reverse;
+        }
+
+        @Override
+        public RoutingCHEdgeIterator setBaseNode(int baseNode) {
+            node = baseNode;
+            baseIterator = baseExplorer.setBaseNode(baseNode);
+            nextArc = cch.getArcStart(baseNode);
+            arcEnd = cch.getArcEnd(baseNode);
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            if (baseIterator != null) {
+                while (baseIterator.next()) {
+                    if (hasFiniteWeight(baseIterator)) {
+                        setOriginal(baseIterator);
+                        return true;
+                    }
+                }
+                baseIterator = null;
+            }
+            while (nextArc < arcEnd) {
+                int slot = 2 * nextArc + (reverse ? 1 : 0);
+                int head = cch.getArcHead(nextArc);
+                nextArc++;
+                if (metric.isShortcut(slot)) {
+                    setShortcut(slot, node, head);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean hasFiniteWeight(EdgeIteratorState edge) {
+            if (edge.getBaseNode() == edge.getAdjNode())
+                return edge.get(accessEnc) || edge.getReverse(accessEnc);
+            return reverse ? edge.getReverse(accessEnc) : edge.get(accessEnc);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.BidirPathExtractor;
+import com.graphhopper.routing.Path;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Calculates the shortest path weights (and optionally the distances and times) between many sources and many
+ * targets on a {@link RoutingCHGraph}. This uses the bucket-based approach: first an upward backward search is run
+ * for every target and every settled entry is stored in a bucket at its node. Afterwards an upward forward search is
+ * run for every source and the buckets of all nodes it settles are scanned for the best meeting points. This way we
+ * need only one search per source and target instead of one bidirectional search per source/target pair.
+ * <p>
+ * Works for node- and edge-based CH. For edge-based CH the turn costs at the meeting node are taken into account.
+ */
+public class ManyToManyCH {
+    private final RoutingCHGraph graph;
+    private final boolean edgeBased;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final int maxNodes;
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private int visitedNodes;
+
+    // the buckets are filled by the backward searches and scanned by the forward searches
+    private final IntObjectMap<Bucket> buckets = new GHIntObjectHashMap<>();
+    private IntObjectMap<CHEntry> bestWeightMap;
+    private PriorityQueue<CHEntry> pq;
+
+    public ManyToManyCH(RoutingCHGraph graph) {
+        this.graph = graph;
+        this.edgeBased = graph.isEdgeBased();
+        inEdgeExplorer = graph.createInEdgeExplorer();
+        outEdgeExplorer = graph.createOutEdgeExplorer();
+        maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+    }
+
+    /**
+     * Limits the number of nodes that can be visited by each single forward or backward search.
+     */
+    public ManyToManyCH setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+        return this;
+    }
+
+    /**
+     * @param sources           the source nodes, negative values are interpreted as invalid points and the
+     *                          corresponding rows of the result remain empty
+     * @param targets           the target nodes, negative values are interpreted as invalid points and the
+     *                          corresponding columns of the result remain empty
+     * @param calcTimeDistances if true the shortest paths are unpacked to also calculate times and distances, this
+     *                          is considerably slower than calculating only the weights
+     */
+    public Result calcMatrix(int[] sources, int[] targets, boolean calcTimeDistances) {
+        Result result = new Result(sources.length, targets.length, calcTimeDistances);
+        visitedNodes = 0;
+        buckets.clear();
+        int initSize = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        for (int t = 0; t < targets.length; t++) {
+            if (targets[t] < 0)
+                continue;
+            bestWeightMap = new GHIntObjectHashMap<>(initSize);
+            pq = new PriorityQueue<>(initSize);
+            runSearch(targets[t], t, true, null, null, null);
+        }
+
+        CHEntry[] bestFwdEntries = new CHEntry[targets.length];
+        CHEntry[] bestBwdEntries = new CHEntry[targets.length];
+        for (int s = 0; s < sources.length; s++) {
+            if (sources[s] < 0)
+                continue;
+            Arrays.fill(bestFwdEntries, null);
+            Arrays.fill(bestBwdEntries, null);
+            bestWeightMap = new GHIntObjectHashMap<>(initSize);
+            pq = new PriorityQueue<>(initSize);
+            runSearch(sources[s], s, false, result.weights[s], bestFwdEntries, bestBwdEntries);
+            if (!calcTimeDistances)
+                continue;
+            for (int t = 0; t < targets.length; t++) {
+                if (bestFwdEntries[t] == null)
+                    continue;
+                Path path = createPathExtractor().extract(bestFwdEntries[t], bestBwdEntries[t], result.weights[s][t]);
+                result.times[s][t] = path.getTime();
+                result.distances[s][t] = path.getDistance();
+            }
+        }
+        buckets.clear();
+        bestWeightMap = null;
+        pq = null;
+        result.visitedNodes = visitedNodes;
+        return result;
+    }
+
+    private void runSearch(int node, int index, boolean reverse, double[] weightRow,
+                           CHEntry[] bestFwdEntries, CHEntry[] bestBwdEntries) {
+        CHEntry startEntry = new CHEntry(node, 0);
+        if (!edgeBased)
+            bestWeightMap.put(node, startEntry);
+        pq.add(startEntry);
+        int visitedNodesOfSearch = 0;
+        while (!pq.isEmpty()) {
+            if (visitedNodesOfSearch >= maxVisitedNodes)
+                break;
+            CHEntry curr = pq.poll();
+            visitedNodesOfSearch++;
+            if (!edgeBased && curr != startEntry && entryIsStallable(curr, reverse))
+                continue;
+
+            if (reverse) {
+                Bucket bucket = buckets.get(curr.adjNode);
+                if (bucket == null) {
+                    bucket = new Bucket();
+                    buckets.put(curr.adjNode, bucket);
+                }
+                bucket.targets.add(index);
+                bucket.entries.add(curr);
+            } else {
+                scanBucket(curr, weightRow, bestFwdEntries, bestBwdEntries);
+            }
+            // for edge-based CH we need to consider all edges in the first step, see AbstractBidirectionEdgeCHNoSOD
+            fillEdges(curr, reverse, !edgeBased || curr != startEntry);
+        }
+        visitedNodes += visitedNodesOfSearch;
+    }
+
+    private void scanBucket(CHEntry fwdEntry, double[] weightRow, CHEntry[] bestFwdEntries, CHEntry[] bestBwdEntries) {
+        Bucket bucket = buckets.get(fwdEntry.adjNode);
+        if (bucket == null)
+            return;
+        for (int i = 0; i < bucket.targets.size(); i++) {
+            int target = bucket.targets.get(i);
+            CHEntry bwdEntry = bucket.entries.get(i);
+            double weight = fwdEntry.weight + bwdEntry.weight;
+            if (edgeBased)
+                weight += graph.getTurnWeight(fwdEntry.incEdge, fwdEntry.adjNode, bwdEntry.incEdge);
+            if (weight < weightRow[target]) {
+                weightRow[target] = weight;
+                bestFwdEntries[target] = fwdEntry;
+                bestBwdEntries[target] = bwdEntry;
+            }
+        }
+    }
+
+    private void fillEdges(CHEntry curr, boolean reverse, boolean useLevelFilter) {
+        RoutingCHEdgeIterator iter = (reverse ? inEdgeExplorer : outEdgeExplorer).setBaseNode(curr.adjNode);
+        while (iter.next()) {
+            if (useLevelFilter && !acceptLevel(iter))
+                continue;
+            // for edge-based traversal we leave it to the turn costs to decide whether or not a u-turn is acceptable
+            if (!edgeBased && iter.getEdge() == curr.edge)
+                continue;
+
+            final int origEdge = edgeBased ? (reverse ? iter.getOrigEdgeFirst() : iter.getOrigEdgeLast()) : iter.getEdge();
+            double weight = iter.getWeight(reverse);
+            if (edgeBased)
+                weight += reverse
+                        ? graph.getTurnWeight(iter.getOrigEdgeLast(), iter.getBaseNode(), curr.incEdge)
+                        : graph.getTurnWeight(curr.incEdge, iter.getBaseNode(), iter.getOrigEdgeFirst());
+            if (Double.isInfinite(weight))
+                continue;
+            weight += curr.weight;
+
+            final int traversalId = edgeBased
+                    ? GHUtility.createEdgeKey(graph.getBaseGraph().getOtherNode(origEdge, iter.getAdjNode()), iter.getAdjNode(), origEdge, reverse)
+                    : iter.getAdjNode();
+            CHEntry entry = bestWeightMap.get(traversalId);
+            if (entry == null) {
+                entry = new CHEntry(iter.getEdge(), origEdge, iter.getAdjNode(), weight);
+                entry.parent = curr;
+                bestWeightMap.put(traversalId, entry);
+                pq.add(entry);
+            } else if (entry.weight > weight) {
+                pq.remove(entry);
+                entry.edge = iter.getEdge();
+                entry.incEdge = origEdge;
+                entry.weight = weight;
+                entry.parent = curr;
+                pq.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Stall-on-demand for node-based CH, see {@link com.graphhopper.routing.DijkstraBidirectionCH}
+     */
+    private boolean entryIsStallable(CHEntry entry, boolean reverse) {
+        RoutingCHEdgeIterator iter = (reverse ? outEdgeExplorer : inEdgeExplorer).setBaseNode(entry.adjNode);
+        while (iter.next()) {
+            if (iter.getEdge() == entry.edge)
+                continue;
+            CHEntry adjEntry = bestWeightMap.get(iter.getAdjNode());
+            // we have to be careful because of rounded shortcut weights in combination with virtual via nodes, see #1574
+            final double precision = 0.001;
+            if (adjEntry != null && adjEntry.weight + iter.getWeight(!reverse) - entry.weight < -precision)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean acceptLevel(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in wrong direction are disconnected, so no need to exclude them
+        if (edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    private BidirPathExtractor createPathExtractor() {
+        return edgeBased ? new EdgeBasedCHBidirPathExtractor(graph) : new NodeBasedCHBidirPathExtractor(graph);
+    }
+
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private static class Bucket {
+        final IntArrayList targets = new IntArrayList(2);
+        final List<CHEntry> entries = new ArrayList<>(2);
+    }
+
+    public static class Result {
+        /**
+         * The weights of the shortest paths, or {@link Double#POSITIVE_INFINITY} if there is no path
+         */
+        public final double[][] weights;
+        /**
+         * The times of the shortest paths in milliseconds, or {@link Long#MAX_VALUE} if there is no path. Only
+         * filled if times and distances were requested.
+         */
+        public final long[][] times;
+        /**
+         * The distances of the shortest paths in meters, or {@link Double#POSITIVE_INFINITY} if there is no path.
+         * Only filled if times and distances were requested.
+         */
+        public final double[][] distances;
+        public int visitedNodes;
+
+        Result(int sources, int targets, boolean calcTimeDistances) {
+            weights = new double[sources][targets];
+            times = calcTimeDistances ? new long[sources][targets] : null;
+            distances = calcTimeDistances ? new double[sources][targets] : null;
+            for (int s = 0; s < sources; s++) {
+                Arrays.fill(weights[s], Double.POSITIVE_INFINITY);
+                if (calcTimeDistances) {
+                    Arrays.fill(times[s], Long.MAX_VALUE);
+                    Arrays.fill(distances[s], Double.POSITIVE_INFINITY);
+                }
+            }
+        }
+
+        public boolean isConnected(int source, int target) {
+            return !Double.isInfinite(weights[source][target]);
+        }
+    }
+}
@@ -17,7 +17,10 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
 
@@ -119,12 +122,56 @@ class NodeBasedNodeContractor implements NodeContractor {
     @Override
     public IntContainer contractNode(int node) {
         long degree = findAndHandleShortcuts(node, this::addOrUpdateShortcut);
+        return finishContractingNode(node, degree);
+    }
+
+    /**
+     * Searches the shortcuts required to contract the given node and stores them in the given container, but unlike
+     * {@link #contractNode(int)} the graph is not changed. Different contractors (each with their own witness path
+     * searcher) can therefore call this method concurrently as long as nobody modifies the graph meanwhile.
+     *
+     * @return the degree of the node, see {@link #findAndHandleShortcuts}
+     */
+    long findShortcuts(int node, Shortcuts shortcuts) {
+        shortcuts.clear();
+        return findAndHandleShortcuts(node, shortcuts);
+    }
+
+    /**
+     * Contracts the given node using the shortcuts found by an earlier call of {@link #findShortcuts}.
+     */
+    IntContainer contractNode(int node, Shortcuts shortcuts, long degree) {
+        for (int i = 0; i < shortcuts.size(); i++) {
+            int offset = i * Shortcuts.INTS;
+            IntArrayList ints = shortcuts.ints;
+            addOrUpdateShortcut(ints.get(offset), ints.get(offset + 1), shortcuts.weights.get(i),
+                    ints.get(offset + 2), ints.get(offset + 3), ints.get(offset + 4), ints.get(offset + 5));
+        }
+        return finishContractingNode(node, degree);
+    }
+
+    private IntContainer finishContractingNode(int node, long degree) {
         insertShortcuts(node);
         // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
         meanDegree = (meanDegree * 2 + degree) / 3;
         return prepareGraph.disconnect(node);
     }
 
+    double getMeanDegree() {
+        return meanDegree;
+    }
+
+    void setMeanDegree(double meanDegree) {
+        this.meanDegree = meanDegree;
+    }
+
+    /**
+     * The witness searches of this contractor will not visit any of the given nodes
+     */
+    void ignoreNodes(GHBitSet nodes) {
+        witnessPathSearcher.ignoreNodes(nodes);
+    }
+
     /**
      * Calls the shortcut handler for all edges and shortcuts adjacent to the given node. After this method is called
      * these edges and shortcuts will be removed from the prepare graph, so this method offers the last chance to deal
@@ -280,6 +327,34 @@ class NodeBasedNodeContractor implements NodeContractor {
                             int incomingEdge, int inOrigEdgeCount);
     }
 
+    /**
+     * The shortcuts found for a single node, see {@link #findShortcuts}
+     */
+    static class Shortcuts implements PrepareShortcutHandler {
+        private static final int INTS = 6;
+        private final IntArrayList ints = new IntArrayList();
+        private final DoubleArrayList weights = new DoubleArrayList();
+
+        @Override
+        public void handleShortcut(int fromNode, int toNode, double existingDirectWeight,
+                                   int outgoingEdge, int outOrigEdgeCount,
+                                   int incomingEdge, int inOrigEdgeCount) {
+            ints.add(fromNode, toNode);
+            ints.add(outgoingEdge, outOrigEdgeCount);
+            ints.add(incomingEdge, inOrigEdgeCount);
+            weights.add(existingDirectWeight);
+        }
+
+        int size() {
+            return weights.size();
+        }
+
+        void clear() {
+            ints.elementsCount = 0;
+            weights.elementsCount = 0;
+        }
+    }
+
     public static class Params {
         // default values were optimized for Unterfranken
         private float edgeDifferenceWeight = 10;
@@ -19,6 +19,7 @@ package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.routing.DijkstraOneToMany;
 import com.graphhopper.util.Helper;
 
@@ -40,6 +41,7 @@ public class NodeBasedWitnessPathSearcher {
     protected double[] weights;
     private IntFloatBinaryHeap heap;
     private int ignoreNode = -1;
+    private GHBitSet ignoreNodes;
     private int visitedNodes;
     private boolean doClear = true;
     private int currNode, to;
@@ -187,8 +189,17 @@ public class NodeBasedWitnessPathSearcher {
         ignoreNode = node;
     }
 
+    /**
+     * Additionally ignores all nodes contained in the given set, e.g. all nodes that are contracted at the same time.
+     * The set is only read, so it can be shared between searchers running in different threads.
+     */
+    public void ignoreNodes(GHBitSet nodes) {
+        ignoreNodes = nodes;
+    }
+
     private boolean accept(PrepareGraphEdgeIterator iter) {
-        return ignoreNode < 0 || iter.getAdjNode() != ignoreNode;
+        int adjNode = iter.getAdjNode();
+        return (ignoreNode < 0 || adjNode != ignoreNode) && (ignoreNodes == null || !ignoreNodes.contains(adjNode));
     }
 
     private boolean isMaxVisitedNodesExceeded() {
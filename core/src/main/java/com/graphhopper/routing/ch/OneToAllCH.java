@@ -0,0 +1,452 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntCollection;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.LongObjectMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Calculates the shortest path weights, times and distances from one node to all other nodes on a node-based
+ * {@link RoutingCHGraph} using PHAST: an upward search from the start node is followed by a linear sweep over the
+ * nodes in descending level order, which relaxes every node from its incoming edges that come from higher nodes. So
+ * apart from the small upward search there is no priority queue involved. If only the shortest paths to some target
+ * nodes are needed (RPHAST) only these targets and the nodes that can be reached from them by going upwards in the
+ * hierarchy are swept, for example all nodes within some radius around the start node.
+ * <p>
+ * The order of the sweep only depends on the CH preparation. Calculating it requires sorting all nodes, so it should
+ * be created once per CH graph, see {@link SweepOrder}, and shared by all calculations.
+ * <p>
+ * The times and distances are calculated by unpacking the shortcut of the last step of every shortest path, the
+ * results are cached per shortcut, so every shortcut is unpacked at most once per calculation.
+ * <p>
+ * {@link com.graphhopper.routing.querygraph.QueryRoutingCHGraph} assigns the highest level to the virtual nodes, so
+ * the only virtual node this class can deal with is the start node, i.e. the query graph must not contain other snaps.
+ */
+public class OneToAllCH {
+    private final RoutingCHGraph graph;
+    private final Graph baseGraph;
+    private final Weighting weighting;
+    private final boolean reverseFlow;
+    private final RoutingCHEdgeExplorer upwardExplorer;
+    private final RoutingCHEdgeExplorer downwardExplorer;
+    private final int maxNodes;
+    private SweepOrder sweepOrder;
+    private final LongObjectMap<EdgeCost> shortcutCosts = new LongObjectHashMap<>();
+
+    // the state of the current calculation, the arrays are indexed by the node ids if all nodes are swept and by the
+    // position in sweepNodes (followed by the nodes that were only settled by the upward search) otherwise
+    private IntIntHashMap indices;
+    private double[] weights;
+    private int[] parentEdges;
+    private int[] parentNodes;
+    private long[] times;
+    private double[] distances;
+    private int[] lastEdges;
+
+    /**
+     * @param reverseFlow if true the shortest paths from all nodes to the start node are calculated
+     */
+    public OneToAllCH(RoutingCHGraph graph, boolean reverseFlow) {
+        this(graph, null, reverseFlow);
+    }
+
+    /**
+     * @param sweepOrder  the sweep order of the CH graph, or null to create it on the first call of {@link #calcAll}
+     *                    and to sort the nodes by their level for {@link #calcTargets}
+     * @param reverseFlow if true the shortest paths from all nodes to the start node are calculated
+     */
+    public OneToAllCH(RoutingCHGraph graph, SweepOrder sweepOrder, boolean reverseFlow) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("One-to-all searches are only supported for node-based CH");
+        this.graph = graph;
+        this.baseGraph = graph.getBaseGraph();
+        this.weighting = graph.getWeighting();
+        this.reverseFlow = reverseFlow;
+        upwardExplorer = reverseFlow ? graph.createInEdgeExplorer() : graph.createOutEdgeExplorer();
+        downwardExplorer = reverseFlow ? graph.createOutEdgeExplorer() : graph.createInEdgeExplorer();
+        maxNodes = baseGraph.getBaseGraph().getNodes();
+        if (sweepOrder != null && sweepOrder.nodes.length != maxNodes)
+            throw new IllegalArgumentException("The sweep order was created for a graph with " + sweepOrder.nodes.length
+                    + " nodes, but this graph has " + maxNodes + " nodes");
+        this.sweepOrder = sweepOrder;
+    }
+
+    /**
+     * Calculates the shortest paths from the given node to all nodes of the graph.
+     */
+    public Result calcAll(int source) {
+        return calc(source, null);
+    }
+
+    /**
+     * Calculates the shortest paths from the given node to the given target nodes. The result can contain a few more
+     * nodes, but it never contains nodes with a wrong weight.
+     */
+    public Result calcTargets(int source, IntCollection targets) {
+        return calc(source, targets);
+    }
+
+    private Result calc(int source, IntCollection targets) {
+        if (graph.getNodes() > maxNodes + (source >= maxNodes ? 1 : 0))
+            throw new IllegalArgumentException("The start node must be the only virtual node, but there are "
+                    + (graph.getNodes() - maxNodes) + " virtual nodes");
+        shortcutCosts.clear();
+        List<CHEntry> upwardEntries = runUpwardSearch(source);
+        int visitedNodes = upwardEntries.size();
+
+        int[] sweepNodes;
+        if (targets == null) {
+            indices = null;
+            if (sweepOrder == null)
+                sweepOrder = new SweepOrder(graph);
+            sweepNodes = sweepOrder.nodes;
+            initArrays(graph.getNodes());
+        } else {
+            IntArrayList closure = findUpwardClosure(targets, source);
+            sweepNodes = sweepOrder == null ? sortByLevelDescending(graph, closure) : sweepOrder.sort(closure);
+            indices = new IntIntHashMap(sweepNodes.length + upwardEntries.size());
+            for (int i = 0; i < sweepNodes.length; i++)
+                indices.put(sweepNodes[i], i);
+            for (CHEntry entry : upwardEntries)
+                if (!indices.containsKey(entry.adjNode))
+                    indices.put(entry.adjNode, indices.size());
+            initArrays(indices.size());
+        }
+
+        // the upward search yields upper bounds for the weights, parents are always settled before their children
+        for (CHEntry entry : upwardEntries) {
+            int index = index(entry.adjNode);
+            weights[index] = entry.weight;
+            if (entry.parent == null) {
+                times[index] = 0;
+                distances[index] = 0;
+            } else {
+                parentEdges[index] = entry.edge;
+                parentNodes[index] = entry.parent.adjNode;
+                updateTimeAndDistance(index, entry.adjNode);
+            }
+        }
+
+        for (int node : sweepNodes) {
+            int index = index(node);
+            int level = graph.getLevel(node);
+            boolean improved = false;
+            RoutingCHEdgeIterator iter = downwardExplorer.setBaseNode(node);
+            while (iter.next()) {
+                if (graph.getLevel(iter.getAdjNode()) <= level)
+                    continue;
+                int adjIndex = index(iter.getAdjNode());
+                if (adjIndex < 0 || Double.isInfinite(weights[adjIndex]))
+                    continue;
+                double weight = weights[adjIndex] + iter.getWeight(!reverseFlow);
+                if (weight < weights[index]) {
+                    weights[index] = weight;
+                    parentEdges[index] = iter.getEdge();
+                    parentNodes[index] = iter.getAdjNode();
+                    improved = true;
+                }
+            }
+            // the parent is higher than this node, so its weight and time are already final
+            if (improved)
+                updateTimeAndDistance(index, node);
+        }
+        visitedNodes += sweepNodes.length;
+
+        Result result = createResult(source, sweepNodes);
+        result.visitedNodes = visitedNodes;
+        shortcutCosts.clear();
+        indices = null;
+        weights = null;
+        parentEdges = null;
+        parentNodes = null;
+        times = null;
+        distances = null;
+        lastEdges = null;
+        return result;
+    }
+
+    private List<CHEntry> runUpwardSearch(int source) {
+        List<CHEntry> settled = new ArrayList<>();
+        IntObjectMap<CHEntry> bestWeightMap = new GHIntObjectHashMap<>();
+        PriorityQueue<CHEntry> pq = new PriorityQueue<>();
+        CHEntry startEntry = new CHEntry(source, 0);
+        bestWeightMap.put(source, startEntry);
+        pq.add(startEntry);
+        while (!pq.isEmpty()) {
+            CHEntry curr = pq.poll();
+            settled.add(curr);
+            RoutingCHEdgeIterator iter = upwardExplorer.setBaseNode(curr.adjNode);
+            while (iter.next()) {
+                if (!acceptLevel(iter) || iter.getEdge() == curr.edge)
+                    continue;
+                double weight = iter.getWeight(reverseFlow);
+                if (Double.isInfinite(weight))
+                    continue;
+                weight += curr.weight;
+                CHEntry entry = bestWeightMap.get(iter.getAdjNode());
+                if (entry == null) {
+                    entry = new CHEntry(iter.getEdge(), iter.getEdge(), iter.getAdjNode(), weight);
+                    entry.parent = curr;
+                    bestWeightMap.put(iter.getAdjNode(), entry);
+                    pq.add(entry);
+                } else if (entry.weight > weight) {
+                    pq.remove(entry);
+                    entry.edge = iter.getEdge();
+                    entry.incEdge = iter.getEdge();
+                    entry.weight = weight;
+                    entry.parent = curr;
+                    pq.add(entry);
+                }
+            }
+        }
+        return settled;
+    }
+
+    /**
+     * Collects the given targets and all nodes the shortest paths to the targets can come from in the downward part
+     * of the hierarchy, i.e. all nodes that can be reached from the targets by following the incoming edges (or the
+     * outgoing edges for the reverse flow) to higher nodes.
+     */
+    private IntArrayList findUpwardClosure(IntCollection targets, int source) {
+        IntHashSet found = new IntHashSet(targets.size() * 2);
+        IntArrayList stack = new IntArrayList(targets.size() + 1);
+        for (IntCursor target : targets) {
+            if (target.value < maxNodes && found.add(target.value))
+                stack.add(target.value);
+        }
+        if (source < maxNodes && found.add(source))
+            stack.add(source);
+        IntArrayList result = new IntArrayList(stack.size() * 2);
+        while (!stack.isEmpty()) {
+            int node = stack.remove(stack.size() - 1);
+            result.add(node);
+            int level = graph.getLevel(node);
+            RoutingCHEdgeIterator iter = downwardExplorer.setBaseNode(node);
+            while (iter.next()) {
+                int adjNode = iter.getAdjNode();
+                if (adjNode < maxNodes && graph.getLevel(adjNode) > level && found.add(adjNode))
+                    stack.add(adjNode);
+            }
+        }
+        return result;
+    }
+
+    private static int[] sortByLevelDescending(RoutingCHGraph graph, IntArrayList nodes) {
+        long[] keys = new long[nodes.size()];
+        for (int i = 0; i < keys.length; i++) {
+            int node = nodes.get(i);
+            keys[i] = ((long) graph.getLevel(node) << 32) | node;
+        }
+        Arrays.sort(keys);
+        int[] result = new int[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            result[keys.length - 1 - i] = (int) keys[i];
+        return result;
+    }
+
+    private void initArrays(int size) {
+        weights = new double[size];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        parentEdges = new int[size];
+        Arrays.fill(parentEdges, EdgeIterator.NO_EDGE);
+        parentNodes = new int[size];
+        Arrays.fill(parentNodes, -1);
+        times = new long[size];
+        distances = new double[size];
+        lastEdges = new int[size];
+        Arrays.fill(lastEdges, EdgeIterator.NO_EDGE);
+    }
+
+    private int index(int node) {
+        return indices == null ? node : indices.getOrDefault(node, -1);
+    }
+
+    private void updateTimeAndDistance(int index, int node) {
+        int parentIndex = index(parentNodes[index]);
+        EdgeCost cost = calcEdgeCost(parentEdges[index], node);
+        times[index] = times[parentIndex] + cost.time;
+        distances[index] = distances[parentIndex] + cost.distance;
+        lastEdges[index] = cost.lastEdge;
+    }
+
+    /**
+     * Calculates the time and distance of the given edge or shortcut towards the given adjacent node, see
+     * {@link ShortcutUnpacker}.
+     */
+    private EdgeCost calcEdgeCost(int chEdge, int adjNode) {
+        RoutingCHEdgeIteratorState edge = graph.getEdgeIteratorState(chEdge, adjNode);
+        if (!edge.isShortcut()) {
+            EdgeIteratorState origEdge = baseGraph.getEdgeIteratorState(edge.getOrigEdge(), adjNode);
+            return new EdgeCost(weighting.calcEdgeMillis(origEdge, reverseFlow), origEdge.getDistance(), origEdge.getEdge());
+        }
+        long key = ((long) chEdge << 32) | adjNode;
+        EdgeCost cost = shortcutCosts.get(key);
+        if (cost != null)
+            return cost;
+        int skippedEdge1 = edge.getSkippedEdge1();
+        int skippedEdge2 = edge.getSkippedEdge2();
+        RoutingCHEdgeIteratorState sk2 = graph.getEdgeIteratorState(skippedEdge2, adjNode);
+        if (sk2 == null) {
+            skippedEdge2 = skippedEdge1;
+            skippedEdge1 = edge.getSkippedEdge2();
+            sk2 = graph.getEdgeIteratorState(skippedEdge2, adjNode);
+        }
+        EdgeCost first = calcEdgeCost(skippedEdge1, sk2.getBaseNode());
+        EdgeCost second = calcEdgeCost(skippedEdge2, adjNode);
+        cost = new EdgeCost(first.time + second.time, first.distance + second.distance, second.lastEdge);
+        shortcutCosts.put(key, cost);
+        return cost;
+    }
+
+    private boolean acceptLevel(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in wrong direction are disconnected, so no need to exclude them
+        if (edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    private Result createResult(int source, int[] sweepNodes) {
+        IntArrayList nodes = new IntArrayList();
+        nodes.add(source);
+        for (int node : sweepNodes) {
+            if (node != source && !Double.isInfinite(weights[index(node)]))
+                nodes.add(node);
+        }
+        Result result = new Result(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            int node = nodes.get(i);
+            int index = index(node);
+            result.nodes[i] = node;
+            result.weights[i] = weights[index];
+            result.times[i] = times[index];
+            result.distances[i] = distances[index];
+            result.edges[i] = lastEdges[index];
+            result.parents[i] = lastEdges[index] == EdgeIterator.NO_EDGE ? -1 : baseGraph.getOtherNode(lastEdges[index], node);
+        }
+        return result;
+    }
+
+    private static class EdgeCost {
+        final long time;
+        final double distance;
+        final int lastEdge;
+
+        EdgeCost(long time, double distance, int lastEdge) {
+            this.time = time;
+            this.distance = distance;
+            this.lastEdge = lastEdge;
+        }
+    }
+
+    /**
+     * The nodes of a CH graph in descending level order, i.e. the order in which all nodes are swept. It only depends
+     * on the CH preparation and can be shared by all {@link OneToAllCH} instances for the same CH graph (also if
+     * they use a query graph). It requires 8 bytes per node.
+     */
+    public static class SweepOrder {
+        private final int[] nodes;
+        // the position of every node in nodes
+        private final int[] ranks;
+
+        public SweepOrder(RoutingCHGraph graph) {
+            if (graph.isEdgeBased())
+                throw new IllegalArgumentException("One-to-all searches are only supported for node-based CH");
+            int nodeCount = graph.getBaseGraph().getBaseGraph().getNodes();
+            IntArrayList allNodes = new IntArrayList(nodeCount);
+            for (int node = 0; node < nodeCount; node++)
+                allNodes.add(node);
+            nodes = sortByLevelDescending(graph, allNodes);
+            ranks = new int[nodeCount];
+            for (int i = 0; i < nodes.length; i++)
+                ranks[nodes[i]] = i;
+        }
+
+        /**
+         * @return the given (non-virtual) nodes in sweep order
+         */
+        int[] sort(IntArrayList subset) {
+            int[] result = new int[subset.size()];
+            for (int i = 0; i < result.length; i++)
+                result[i] = ranks[subset.get(i)];
+            Arrays.sort(result);
+            for (int i = 0; i < result.length; i++)
+                result[i] = nodes[result[i]];
+            return result;
+        }
+    }
+
+    /**
+     * The shortest paths to all reached nodes. The start node comes first, the other nodes are in descending level
+     * order.
+     */
+    public static class Result {
+        public final int[] nodes;
+        public final double[] weights;
+        /**
+         * The times of the shortest paths in milliseconds
+         */
+        public final long[] times;
+        /**
+         * The distances of the shortest paths in meters
+         */
+        public final double[] distances;
+        /**
+         * The last original edge of the shortest paths, or {@link EdgeIterator#NO_EDGE} for the start node
+         */
+        public final int[] edges;
+        /**
+         * The node before the last original edge of the shortest paths, or -1 for the start node
+         */
+        public final int[] parents;
+        public int visitedNodes;
+
+        Result(int size) {
+            nodes = new int[size];
+            weights = new double[size];
+            times = new long[size];
+            distances = new double[size];
+            edges = new int[size];
+            parents = new int[size];
+        }
+
+        public int size() {
+            return nodes.length;
+        }
+    }
+}
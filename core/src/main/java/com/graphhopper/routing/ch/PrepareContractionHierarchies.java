@@ -17,8 +17,11 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.AbstractAlgoPreparation;
 import com.graphhopper.routing.util.TraversalMode;
@@ -30,8 +33,16 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -54,7 +65,8 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final CHConfig chConfig;
     private final CHGraph chGraph;
-    private final Random rand = new Random(123);
+    private long randomSeed = 123;
+    private Random rand = new Random(randomSeed);
     private final StopWatch allSW = new StopWatch();
     private final StopWatch periodicUpdateSW = new StopWatch();
     private final StopWatch lazyUpdateSW = new StopWatch();
@@ -62,6 +74,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private final StopWatch contractionSW = new StopWatch();
     private final Params params;
     private final Graph graph;
+    private CHPreparationGraph prepareGraph;
     private NodeContractor nodeContractor;
     private final int nodes;
     private NodeOrderingProvider nodeOrderingProvider;
@@ -70,6 +83,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private MinHeapWithUpdate sortedNodes;
     private PMap pMap = new PMap();
     private int checkCounter;
+    private int contractionThreads = 1;
+    // only used for parallel contraction
+    private Worker[] workers;
+    private ExecutorService executor;
+    private long workerDijkstraCount;
 
     public static PrepareContractionHierarchies fromGraphHopperStorage(GraphHopperStorage ghStorage, CHConfig chConfig) {
         return new PrepareContractionHierarchies(ghStorage, chConfig);
@@ -98,6 +116,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         params.setNeighborUpdatePercentage(pMap.getInt(NEIGHBOR_UPDATES, params.getNeighborUpdatePercentage()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        contractionThreads = pMap.getInt(CONTRACTION_THREADS, contractionThreads);
+        if (contractionThreads < 1)
+            throw new IllegalArgumentException(CONTRACTION_THREADS + " must be at least 1, was: " + contractionThreads);
+        randomSeed = pMap.getLong(RANDOM_SEED, randomSeed);
+        rand = new Random(randomSeed);
         return this;
     }
 
@@ -143,7 +166,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (contractionThreads > 1 && !isEdgeBased()) {
+            contractNodesInParallel();
         } else {
+            if (contractionThreads > 1)
+                logger.warn("Parallel contraction is not supported for edge-based CH, using a single thread");
             contractNodesUsingHeuristicNodeOrdering();
         }
     }
@@ -157,7 +184,6 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         // not simply prepare contraction hierarchies, but instead it also serves as some kind of 'container' to give
         // access to the preparations in the GraphHopper class. If this was not so we could make this a lot cleaner here,
         // declare variables final and would not need all these close() methods...
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = chGraph.getBaseGraph().getTurnCostStorage();
             if (turnCostStorage == null) {
@@ -329,6 +355,190 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         nodeContractor.finishContraction();
     }
 
+    /**
+     * Contracts the nodes in rounds using multiple threads. In every round we pick all nodes whose priority is lower
+     * than the priority of every other node that can be reached via one or two edges. These nodes are neither adjacent
+     * nor do they share a neighbor, so their witness searches can run concurrently. The witness searches ignore all
+     * nodes of the current round, which is why it is fine to contract them all at once. The shortcuts are inserted
+     * sequentially afterwards and then the priorities of all neighbors are updated, again in parallel.
+     * <p>
+     * Ties between equal priorities are broken using random numbers derived from the random seed. The result only
+     * depends on this seed and not on the number of threads. The periodic, lazy and neighbor update settings are
+     * not used in this mode.
+     */
+    private void contractNodesInParallel() {
+        logger.info("Contracting nodes using {} threads, {}", contractionThreads, getMemInfo());
+        NodeBasedNodeContractor contractor = (NodeBasedNodeContractor) nodeContractor;
+        // every worker needs its own witness path searcher, which uses (8 + 4) bytes per node
+        GHBitSet currentNodes = new GHBitSetImpl(nodes);
+        workers = new Worker[contractionThreads];
+        for (int i = 0; i < workers.length; i++)
+            workers[i] = new Worker(prepareGraph, pMap, currentNodes);
+        executor = Executors.newFixedThreadPool(contractionThreads);
+        try {
+            float[] priorities = new float[nodes];
+            int[] tieBreakers = new int[nodes];
+            Random random = new Random(randomSeed);
+            IntArrayList remainingNodes = new IntArrayList(nodes);
+            for (int node = 0; node < nodes; node++) {
+                tieBreakers[node] = random.nextInt();
+                remainingNodes.add(node);
+            }
+
+            // just like for the sequential contraction the initial priorities are calculated before preparing the
+            // node contractor
+            periodicUpdateSW.start();
+            updatePriorities(remainingNodes, priorities, contractor.getMeanDegree());
+            periodicUpdateSW.stop();
+            nodeContractor.prepareContraction();
+
+            final int initSize = remainingNodes.size();
+            final long nodesToAvoidContract = Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
+            final long logSize = params.getLogMessagesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
+            NodeBasedNodeContractor.Shortcuts[] shortcuts = new NodeBasedNodeContractor.Shortcuts[0];
+            long[] degrees = new long[0];
+            IntArrayList neighbors = new IntArrayList();
+            int level = 0;
+            int rounds = 0;
+            long nextLog = 0;
+            while (remainingNodes.size() > nodesToAvoidContract) {
+                stopIfInterrupted();
+                if (level >= nextLog) {
+                    logParallelStats(remainingNodes.size(), rounds);
+                    nextLog += logSize;
+                }
+                rounds++;
+                IntArrayList batch = findIndependentNodes(remainingNodes, priorities, tieBreakers);
+                if (shortcuts.length < batch.size()) {
+                    int oldSize = shortcuts.length;
+                    shortcuts = Arrays.copyOf(shortcuts, Math.max(batch.size(), oldSize * 2));
+                    for (int i = oldSize; i < shortcuts.length; i++)
+                        shortcuts[i] = new NodeBasedNodeContractor.Shortcuts();
+                    degrees = new long[shortcuts.length];
+                }
+
+                contractionSW.start();
+                for (int i = 0; i < batch.size(); i++)
+                    currentNodes.add(batch.get(i));
+                final NodeBasedNodeContractor.Shortcuts[] batchShortcuts = shortcuts;
+                final long[] batchDegrees = degrees;
+                runInParallel(batch.size(), (worker, i) ->
+                        batchDegrees[i] = worker.contractor.findShortcuts(batch.get(i), batchShortcuts[i]));
+                for (int i = 0; i < batch.size(); i++)
+                    currentNodes.remove(batch.get(i));
+
+                // the nodes of the batch do not share any neighbors, so the order we use here does not matter for the
+                // resulting graph
+                neighbors.elementsCount = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    int node = batch.get(i);
+                    chGraph.setLevel(node, level++);
+                    neighbors.addAll(contractor.contractNode(node, shortcuts[i], degrees[i]));
+                }
+                contractionSW.stop();
+                removeContracted(remainingNodes);
+
+                neighborUpdateSW.start();
+                updatePriorities(neighbors, priorities, contractor.getMeanDegree());
+                neighborUpdateSW.stop();
+            }
+
+            nodeContractor.finishContraction();
+            logParallelStats(remainingNodes.size(), rounds);
+            logger.info("new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                    + ", initSize:" + nf(initSize)
+                    + ", " + chConfig.getWeighting()
+                    + ", threads:" + contractionThreads
+                    + ", rounds:" + nf(rounds)
+                    + ", " + getTimesAsString()
+                    + ", " + Helper.getMemInfo());
+        } finally {
+            executor.shutdownNow();
+            executor = null;
+            for (Worker worker : workers)
+                workerDijkstraCount += worker.contractor.getDijkstraCount();
+            // release the memory of the witness path searchers
+            workers = null;
+        }
+        _close();
+    }
+
+    private void updatePriorities(IntArrayList nodesToUpdate, float[] priorities, double meanDegree) {
+        for (Worker worker : workers)
+            worker.contractor.setMeanDegree(meanDegree);
+        runInParallel(nodesToUpdate.size(), (worker, i) -> {
+            int node = nodesToUpdate.get(i);
+            priorities[node] = worker.contractor.calculatePriority(node);
+        });
+    }
+
+    /**
+     * Selects all nodes that have a lower priority than all the other nodes that are at most two edges away. The
+     * returned nodes are sorted by node id, just like the given list of remaining nodes.
+     */
+    private IntArrayList findIndependentNodes(IntArrayList remainingNodes, float[] priorities, int[] tieBreakers) {
+        boolean[] selected = new boolean[remainingNodes.size()];
+        runInParallel(remainingNodes.size(), (worker, i) ->
+                selected[i] = worker.isLocalMinimum(remainingNodes.get(i), priorities, tieBreakers));
+        IntArrayList batch = new IntArrayList();
+        for (int i = 0; i < selected.length; i++)
+            if (selected[i])
+                batch.add(remainingNodes.get(i));
+        return batch;
+    }
+
+    private void removeContracted(IntArrayList remainingNodes) {
+        int size = 0;
+        for (int i = 0; i < remainingNodes.size(); i++) {
+            int node = remainingNodes.get(i);
+            if (!isContracted(node))
+                remainingNodes.buffer[size++] = node;
+        }
+        remainingNodes.elementsCount = size;
+    }
+
+    /**
+     * Calls the given task for every index in [0, count). Every worker is used by a single thread at a time. Small
+     * tasks are run in the current thread.
+     */
+    private void runInParallel(int count, WorkerTask task) {
+        if (count < 100) {
+            for (int i = 0; i < count; i++)
+                task.run(workers[0], i);
+            return;
+        }
+        AtomicInteger nextIndex = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(workers.length);
+        for (Worker worker : workers) {
+            futures.add(executor.submit(() -> {
+                for (int i = nextIndex.getAndIncrement(); i < count; i = nextIndex.getAndIncrement())
+                    task.run(worker, i);
+            }));
+        }
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void logParallelStats(int remainingNodes, int rounds) {
+        logger.info(String.format(Locale.ROOT,
+                "node, nodes: %10s, shortcuts: %10s, rounds: %6d, %s, %s, %s",
+                nf(remainingNodes),
+                nf(nodeContractor.getAddedShortcutsCount()),
+                rounds,
+                getTimesAsString(),
+                nodeContractor.getStatisticsString(),
+                Helper.getMemInfo()));
+    }
+
     private void stopIfInterrupted() {
         if (Thread.currentThread().isInterrupted()) {
             throw new RuntimeException("Thread was interrupted");
@@ -376,7 +586,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     }
 
     public long getDijkstraCount() {
-        return nodeContractor.getDijkstraCount();
+        return nodeContractor.getDijkstraCount() + workerDijkstraCount;
     }
 
     public long getShortcuts() {
@@ -437,6 +647,61 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         sortedNodes = null;
     }
 
+    @FunctionalInterface
+    private interface WorkerTask {
+        void run(Worker worker, int index);
+    }
+
+    /**
+     * The state needed by a single thread during parallel contraction
+     */
+    private static class Worker {
+        private final NodeBasedNodeContractor contractor;
+        private final PrepareGraphEdgeExplorer outExplorer;
+        private final PrepareGraphEdgeExplorer inExplorer;
+        private final PrepareGraphEdgeExplorer secondOutExplorer;
+        private final PrepareGraphEdgeExplorer secondInExplorer;
+
+        Worker(CHPreparationGraph prepareGraph, PMap pMap, GHBitSet currentNodes) {
+            contractor = new NodeBasedNodeContractor(prepareGraph, null, pMap);
+            contractor.initFromGraph();
+            contractor.ignoreNodes(currentNodes);
+            outExplorer = prepareGraph.createOutEdgeExplorer();
+            inExplorer = prepareGraph.createInEdgeExplorer();
+            secondOutExplorer = prepareGraph.createOutEdgeExplorer();
+            secondInExplorer = prepareGraph.createInEdgeExplorer();
+        }
+
+        boolean isLocalMinimum(int node, float[] priorities, int[] tieBreakers) {
+            return isLocalMinimum(node, node, outExplorer, priorities, tieBreakers, true)
+                    && isLocalMinimum(node, node, inExplorer, priorities, tieBreakers, true);
+        }
+
+        private boolean isLocalMinimum(int node, int baseNode, PrepareGraphEdgeExplorer explorer,
+                                       float[] priorities, int[] tieBreakers, boolean recurse) {
+            PrepareGraphEdgeIterator iter = explorer.setBaseNode(baseNode);
+            while (iter.next()) {
+                int adjNode = iter.getAdjNode();
+                if (adjNode == node)
+                    continue;
+                if (isLess(adjNode, node, priorities, tieBreakers))
+                    return false;
+                if (recurse && !(isLocalMinimum(node, adjNode, secondOutExplorer, priorities, tieBreakers, false)
+                        && isLocalMinimum(node, adjNode, secondInExplorer, priorities, tieBreakers, false)))
+                    return false;
+            }
+            return true;
+        }
+
+        private static boolean isLess(int a, int b, float[] priorities, int[] tieBreakers) {
+            if (priorities[a] != priorities[b])
+                return priorities[a] < priorities[b];
+            if (tieBreakers[a] != tieBreakers[b])
+                return tieBreakers[a] < tieBreakers[b];
+            return a < b;
+        }
+    }
+
     void close() {
         CHGraphImpl cg = (CHGraphImpl) chGraph;
         cg.flush();
@@ -47,6 +47,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -92,6 +96,8 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private SpatialRuleLookup ruleLookup;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
+    private ExecutorService executor;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -166,6 +172,18 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         this.logDetails = logDetails;
     }
 
+    /**
+     * Sets the number of threads used to calculate the weights of the different landmarks of a subnetwork. Every thread
+     * needs memory for a full shortest path tree, so make sure you have enough memory when increasing this number.
+     * Default is 1.
+     */
+    public LandmarkStorage setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads must be at least 1, was: " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -277,33 +295,16 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         if (logDetails)
             LOGGER.info("init landmarks for subnetworks with node count greater than " + minimumNodes + " with factor:" + factor + additionalInfo);
 
-        int nodes = 0;
-        for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
-            nodes += subnetworkIds.size();
-            if (subnetworkIds.size() < minimumNodes)
-                continue;
-            if (factor <= 0)
-                throw new IllegalStateException("factor wasn't initialized " + factor + ", subnetworks:"
-                        + graphComponents.getComponents().size() + ", minimumNodes:" + minimumNodes + ", current size:" + subnetworkIds.size());
-
-            int index = subnetworkIds.size() - 1;
-            // ensure start node is reachable from both sides and no subnetwork is associated
-            for (; index >= 0; index--) {
-                int nextStartNode = subnetworkIds.get(index);
-                if (subnetworks[nextStartNode] == UNSET_SUBNETWORK
-                        && GHUtility.count(tmpExplorer.setBaseNode(nextStartNode)) > 0) {
-
-                    GHPoint p = createPoint(graph, nextStartNode);
-                    if (logDetails)
-                        LOGGER.info("start node: " + nextStartNode + " (" + p + ") subnetwork size: " + subnetworkIds.size()
-                                + ", " + Helper.getMemInfo() + ((ruleLookup == null) ? "" : " area:" + ruleLookup.lookupRules(p.lat, p.lon).getRules()));
-
-                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, blockedEdges))
-                        break;
-                }
+        if (landmarkThreads > 1)
+            executor = Executors.newFixedThreadPool(landmarkThreads);
+        int nodes;
+        try {
+            nodes = createLandmarksForSubnetworks(graphComponents, subnetworks, blockedEdges, tmpExplorer);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
             }
-            if (index < 0)
-                LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
         }
 
         int subnetworkCount = landmarkIDs.size();
@@ -337,6 +338,44 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         initialized = true;
     }
 
+    /**
+     * Creates the landmarks for every subnetwork that is big enough.
+     *
+     * @return the number of nodes of all subnetworks
+     */
+    private int createLandmarksForSubnetworks(ConnectedComponents graphComponents, byte[] subnetworks,
+                                              IntHashSet blockedEdges, EdgeExplorer tmpExplorer) {
+        int nodes = 0;
+        for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
+            nodes += subnetworkIds.size();
+            if (subnetworkIds.size() < minimumNodes)
+                continue;
+            if (factor <= 0)
+                throw new IllegalStateException("factor wasn't initialized " + factor + ", subnetworks:"
+                        + graphComponents.getComponents().size() + ", minimumNodes:" + minimumNodes + ", current size:" + subnetworkIds.size());
+
+            int index = subnetworkIds.size() - 1;
+            // ensure start node is reachable from both sides and no subnetwork is associated
+            for (; index >= 0; index--) {
+                int nextStartNode = subnetworkIds.get(index);
+                if (subnetworks[nextStartNode] == UNSET_SUBNETWORK
+                        && GHUtility.count(tmpExplorer.setBaseNode(nextStartNode)) > 0) {
+
+                    GHPoint p = createPoint(graph, nextStartNode);
+                    if (logDetails)
+                        LOGGER.info("start node: " + nextStartNode + " (" + p + ") subnetwork size: " + subnetworkIds.size()
+                                + ", " + Helper.getMemInfo() + ((ruleLookup == null) ? "" : " area:" + ruleLookup.lookupRules(p.lat, p.lon).getRules()));
+
+                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, blockedEdges))
+                        break;
+                }
+            }
+            if (index < 0)
+                LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
+        }
+        return nodes;
+    }
+
     /**
      * This method returns the maximum weight for the graph starting from the landmarks
      */
@@ -430,37 +469,20 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, false, true);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, true, false);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        // the searches of the first landmark also determine the subnetwork
+        if (!calcLandmarkWeights(0, tmpLandmarkNodeIds[0], subnetworks, subnetworkId, blockedEdges))
+            return false;
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        if (executor != null) {
+            // the searches of the other landmarks are independent and write different columns of the landmark weights
+            calcLandmarkWeightsInParallel(tmpLandmarkNodeIds, blockedEdges);
+        } else {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                if (logDetails && lmIdx % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+                calcLandmarkWeights(lmIdx, tmpLandmarkNodeIds[lmIdx], subnetworks, subnetworkId, blockedEdges);
             }
-
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -468,6 +490,71 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         return true;
     }
 
+    /**
+     * Runs the forward and the backward search from the given landmark and stores the resulting weights. Only for the
+     * first landmark (lmIdx == 0) the subnetwork of all explored nodes is set as well, so for all other landmarks this
+     * method only writes the columns of the landmark weights that belong to lmIdx.
+     *
+     * @return false if the subnetwork could not be set
+     */
+    private boolean calcLandmarkWeights(int lmIdx, int lmNodeId, byte[] subnetworks, int subnetworkId, IntHashSet blockedEdges) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+        }
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, true);
+        explorer.setStartNode(lmNodeId);
+        explorer.setFilter(blockedEdges, false, true);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
+
+        // set subnetwork id to all explored nodes, but do this only for the first landmark
+        if (lmIdx == 0) {
+            if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                return false;
+        }
+
+        explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, false);
+        explorer.setStartNode(lmNodeId);
+        explorer.setFilter(blockedEdges, true, false);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+
+        if (lmIdx == 0) {
+            if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the weights of all but the first landmark using the thread pool.
+     */
+    private void calcLandmarkWeightsInParallel(int[] lmNodeIds, IntHashSet blockedEdges) {
+        List<Future<?>> futures = new ArrayList<>(lmNodeIds.length);
+        for (int lmIdx = 1; lmIdx < lmNodeIds.length; lmIdx++) {
+            final int idx = lmIdx;
+            futures.add(executor.submit(() -> calcLandmarkWeights(idx, lmNodeIds[idx], null, UNSET_SUBNETWORK, blockedEdges)));
+        }
+        try {
+            int finished = 1;
+            for (Future<?> future : futures) {
+                future.get();
+                finished++;
+                if (logDetails)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * finished / lmNodeIds.length) + "%");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted while calculating landmark weights", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            for (Future<?> future : futures)
+                future.cancel(true);
+        }
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
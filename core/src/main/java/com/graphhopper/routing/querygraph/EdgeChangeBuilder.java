@@ -20,8 +20,7 @@ package com.graphhopper.routing.querygraph;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntObjectMap;
-import com.carrotsearch.hppc.procedures.IntProcedure;
-import com.graphhopper.coll.GHIntHashSet;
+import com.carrotsearch.hppc.procedures.IntObjectProcedure;
 import com.graphhopper.util.EdgeIteratorState;
 
 import java.util.List;
@@ -60,35 +59,24 @@ class EdgeChangeBuilder {
     }
 
     private void build() {
-        final GHIntHashSet towerNodesToChange = new GHIntHashSet(getNumVirtualNodes());
-
-        // 1. for every real node adjacent to a virtual one we collect the virtual edges, also build a set of
-        //    these adjacent real nodes so we can use them in the next step
+        // 1. for every real node adjacent to a virtual one we collect the virtual edges
         for (int i = 0; i < getNumVirtualNodes(); i++) {
             // base node
             EdgeIteratorState baseRevEdge = getVirtualEdge(i * 4 + SNAP_BASE);
             int towerNode = baseRevEdge.getAdjNode();
-            if (!isVirtualNode(towerNode)) {
-                towerNodesToChange.add(towerNode);
+            if (!isVirtualNode(towerNode))
                 addVirtualEdges(true, towerNode, i);
-            }
 
             // adj node
             EdgeIteratorState adjEdge = getVirtualEdge(i * 4 + SNAP_ADJ);
             towerNode = adjEdge.getAdjNode();
-            if (!isVirtualNode(towerNode)) {
-                towerNodesToChange.add(towerNode);
+            if (!isVirtualNode(towerNode))
                 addVirtualEdges(false, towerNode, i);
-            }
         }
 
-        // 2. build the list of removed edges for all real nodes adjacent to virtual ones
-        towerNodesToChange.forEach(new IntProcedure() {
-            @Override
-            public void apply(int value) {
-                addRemovedEdges(value);
-            }
-        });
+        // 2. build the list of removed edges for all real nodes adjacent to virtual ones, these are exactly the keys
+        //    of the map we filled in the previous step
+        edgeChangesAtRealNodes.forEach((IntObjectProcedure<QueryOverlay.EdgeChanges>) (towerNode, edgeChanges) -> addRemovedEdges(towerNode));
     }
 
     /**
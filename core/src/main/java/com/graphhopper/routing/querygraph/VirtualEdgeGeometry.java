@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.querygraph;
+
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.GHPoint3D;
+
+import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
+
+/**
+ * The geometry of a virtual edge: the start point, followed by the points [fromIndex, toIndex) of the geometry of
+ * the original edge and (optionally) the end point. The points are only copied into a PointList when the geometry
+ * of the virtual edge is requested, which for most virtual edges never happens.
+ */
+final class VirtualEdgeGeometry {
+    // the full geometry of the original edge, it is shared by all virtual edges of this edge and must not be modified
+    private final PointList fullPL;
+    private final GHPoint3D start;
+    private final int fromIndex;
+    private final int toIndex;
+    // null if the virtual edge ends at a point of fullPL
+    private final GHPoint3D end;
+
+    VirtualEdgeGeometry(PointList fullPL, GHPoint3D start, int fromIndex, int toIndex, GHPoint3D end) {
+        this.fullPL = fullPL;
+        this.start = start;
+        this.fromIndex = fromIndex;
+        // the range is empty if the start and end point are on the same segment of fullPL
+        this.toIndex = Math.max(fromIndex, toIndex);
+        this.end = end;
+    }
+
+    int size() {
+        return 1 + toIndex - fromIndex + (end == null ? 0 : 1);
+    }
+
+    private double getLat(int index) {
+        if (index == 0)
+            return start.lat;
+        return index <= toIndex - fromIndex ? fullPL.getLat(fromIndex + index - 1) : end.lat;
+    }
+
+    private double getLon(int index) {
+        if (index == 0)
+            return start.lon;
+        return index <= toIndex - fromIndex ? fullPL.getLon(fromIndex + index - 1) : end.lon;
+    }
+
+    private double getEle(int index) {
+        if (index == 0)
+            return start.ele;
+        return index <= toIndex - fromIndex ? fullPL.getEle(fromIndex + index - 1) : end.ele;
+    }
+
+    /**
+     * Calculates the same distance as {@link com.graphhopper.util.DistanceCalc#calcDistance(PointList)} would do
+     * for the PointList returned by {@link #toPointList(boolean)}.
+     */
+    double calcDistance() {
+        boolean is3D = fullPL.is3D();
+        double dist = 0;
+        for (int i = 1; i < size(); i++) {
+            if (is3D)
+                dist += DIST_PLANE.calcDist3D(getLat(i - 1), getLon(i - 1), getEle(i - 1), getLat(i), getLon(i), getEle(i));
+            else
+                dist += DIST_PLANE.calcDist(getLat(i - 1), getLon(i - 1), getLat(i), getLon(i));
+        }
+        return dist;
+    }
+
+    PointList toPointList(boolean reverse) {
+        int size = size();
+        PointList pointList = new PointList(size, fullPL.is3D());
+        for (int i = 0; i < size; i++) {
+            int index = reverse ? size - i - 1 : i;
+            if (fullPL.is3D())
+                pointList.add(getLat(index), getLon(index), getEle(index));
+            else
+                pointList.add(getLat(index), getLon(index));
+        }
+        return pointList;
+    }
+}
@@ -35,7 +35,10 @@ import com.graphhopper.util.PointList;
  * even gets removed.
  */
 public class VirtualEdgeIteratorState implements EdgeIteratorState {
-    private final PointList pointList;
+    private PointList pointList;
+    // used to create the pointList lazily, null if the pointList was specified
+    private final VirtualEdgeGeometry geometry;
+    private final boolean reverseGeometry;
     private final int edgeKey;
     private final int baseNode;
     private final int adjNode;
@@ -58,6 +61,27 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
         this.edgeFlags = edgeFlags;
         this.name = name;
         this.pointList = pointList;
+        this.geometry = null;
+        this.reverseGeometry = false;
+        this.reverse = reverse;
+    }
+
+    /**
+     * Creates a virtual edge whose geometry is only copied into a PointList when it is requested the first time.
+     *
+     * @param reverseGeometry true if the points of the geometry should be used in reverse order
+     */
+    VirtualEdgeIteratorState(int originalEdgeKey, int edgeKey, int baseNode, int adjNode, double distance,
+                             IntsRef edgeFlags, String name, VirtualEdgeGeometry geometry, boolean reverseGeometry, boolean reverse) {
+        this.originalEdgeKey = originalEdgeKey;
+        this.edgeKey = edgeKey;
+        this.baseNode = baseNode;
+        this.adjNode = adjNode;
+        this.distance = distance;
+        this.edgeFlags = edgeFlags;
+        this.name = name;
+        this.geometry = geometry;
+        this.reverseGeometry = reverseGeometry;
         this.reverse = reverse;
     }
 
@@ -93,6 +117,8 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public PointList fetchWayGeometry(FetchMode mode) {
+        if (pointList == null)
+            pointList = geometry.toPointList(reverseGeometry);
         if (pointList.getSize() == 0)
             return PointList.EMPTY;
         // due to API we need to create a new instance per call!
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+
+/**
+ * Stores the weights of all edges of a graph for one weighting, so they do not have to be calculated from the edge
+ * flags on every edge relaxation, see {@link PrecomputedWeighting}. The weights are stored as floats for both
+ * directions of an edge, i.e. 8 bytes per edge, off-heap and are not persisted.
+ */
+public class EdgeWeightTable {
+    private static final int BYTES_PER_EDGE = 8;
+    private final DataAccess da;
+    private final int edges;
+
+    private EdgeWeightTable(DataAccess da, int edges) {
+        this.da = da;
+        this.edges = edges;
+    }
+
+    /**
+     * Calculates the weights of all edges of the given (frozen) graph
+     */
+    public static EdgeWeightTable create(Graph graph, Directory dir, String name, Weighting weighting) {
+        int edges = graph.getEdges();
+        DataAccess da = dir.find("edge_weights_" + name, DAType.OFF_HEAP);
+        da.create((long) edges * BYTES_PER_EDGE);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            // the edges are iterated in storage direction, so reverse=false is the forward direction of the edge
+            long pointer = (long) iter.getEdge() * BYTES_PER_EDGE;
+            da.setInt(pointer, Float.floatToRawIntBits((float) weighting.calcEdgeWeight(iter, false)));
+            da.setInt(pointer + 4, Float.floatToRawIntBits((float) weighting.calcEdgeWeight(iter, true)));
+        }
+        return new EdgeWeightTable(da, edges);
+    }
+
+    /**
+     * @return the number of edges of the table, edges with larger ids (like virtual edges) are not contained
+     */
+    public int getEdges() {
+        return edges;
+    }
+
+    /**
+     * @param reverse true if the weight for traversing the edge against its storage direction is requested
+     */
+    public double getWeight(int edge, boolean reverse) {
+        return Float.intBitsToFloat(da.getInt((long) edge * BYTES_PER_EDGE + (reverse ? 4 : 0)));
+    }
+
+    public long getCapacity() {
+        return da.getCapacity();
+    }
+
+    public void close() {
+        da.close();
+    }
+}
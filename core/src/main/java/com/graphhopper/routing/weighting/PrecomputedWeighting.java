@@ -0,0 +1,47 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * Reads the edge weights from an {@link EdgeWeightTable} instead of calculating them from the edge flags. The table
+ * must have been created for an equivalent weighting, the wrapped weighting is only used for edges that are not
+ * contained in the table (e.g. virtual edges) and for the times and turn costs.
+ */
+public class PrecomputedWeighting extends AbstractAdjustedWeighting {
+    private final EdgeWeightTable table;
+
+    public PrecomputedWeighting(Weighting superWeighting, EdgeWeightTable table) {
+        super(superWeighting);
+        this.table = table;
+    }
+
+    @Override
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        int edge = edgeState.getEdge();
+        if (edge >= table.getEdges())
+            return superWeighting.calcEdgeWeight(edgeState, reverse);
+        return table.getWeight(edge, reverse != edgeState.get(EdgeIteratorState.REVERSE_STATE));
+    }
+
+    @Override
+    public String getName() {
+        return "precomputed";
+    }
+}
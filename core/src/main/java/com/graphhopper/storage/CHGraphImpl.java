@@ -515,8 +515,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         public final CHEdgeIterator setBaseNode(int baseNode) {
             assert baseIterator.baseGraph.isFrozen() : "Traversing CHGraph is only possible if BaseGraph is frozen";
 
-            baseIterator.nextEdgeId = baseIterator.edgeId = baseGraph.getEdgeRef(baseNode);
-            baseIterator.baseNode = baseNode;
+            baseIterator.setBaseNode(baseNode);
 
             nextEdgeId = edgeId = CHGraphImpl.this.getEdgeRef(baseNode);
             return this;
@@ -0,0 +1,97 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.util.EdgeFilter;
+
+/**
+ * A compressed-sparse-row (CSR) copy of the adjacency lists of a frozen {@link BaseGraph}. The edges of every node
+ * are stored contiguously together with their adjacent node and their direction, so iterating the edges of a node
+ * no longer requires following the per-node linked lists in the edges DataAccess, which is a dependent random read
+ * for every edge. The order of the edges of a node is the same as in the linked lists.
+ */
+final class CSRAdjacency {
+    // the edges of node n are stored at the positions [offsets[n], offsets[n + 1])
+    private final int[] offsets;
+    // the edge ids, or ~edgeId if the base node is not nodeA of the edge (i.e. the edge is traversed in reverse)
+    private final int[] edges;
+    private final int[] adjNodes;
+
+    private CSRAdjacency(int[] offsets, int[] edges, int[] adjNodes) {
+        this.offsets = offsets;
+        this.edges = edges;
+        this.adjNodes = adjNodes;
+    }
+
+    static CSRAdjacency fromBaseGraph(BaseGraph baseGraph) {
+        if (!baseGraph.isFrozen())
+            throw new IllegalStateException("The CSR adjacency can only be created for a frozen graph");
+        int nodes = baseGraph.getNodes();
+        // we use the linked lists here, so the explorer must not use the CSR adjacency itself
+        BaseGraph.EdgeIteratorImpl iter = new BaseGraph.EdgeIteratorImpl(baseGraph, EdgeFilter.ALL_EDGES, false);
+        int[] offsets = new int[nodes + 1];
+        long entries = 0;
+        for (int node = 0; node < nodes; node++) {
+            offsets[node] = (int) entries;
+            iter.setBaseNode(node);
+            while (iter.next())
+                entries++;
+            if (entries > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("Too many edges for the CSR adjacency: " + entries);
+        }
+        offsets[nodes] = (int) entries;
+
+        int[] edges = new int[(int) entries];
+        int[] adjNodes = new int[(int) entries];
+        int index = 0;
+        for (int node = 0; node < nodes; node++) {
+            iter.setBaseNode(node);
+            while (iter.next()) {
+                edges[index] = iter.reverse ? ~iter.edgeId : iter.edgeId;
+                adjNodes[index] = iter.adjNode;
+                index++;
+            }
+        }
+        return new CSRAdjacency(offsets, edges, adjNodes);
+    }
+
+    int getStart(int node) {
+        return offsets[node];
+    }
+
+    int getEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    int getEdge(int index) {
+        int edge = edges[index];
+        return edge < 0 ? ~edge : edge;
+    }
+
+    boolean isReverse(int index) {
+        return edges[index] < 0;
+    }
+
+    int getAdjNode(int index) {
+        return adjNodes[index];
+    }
+
+    long getCapacity() {
+        return 4L * (offsets.length + edges.length + adjNodes.length);
+    }
+}
@@ -50,9 +50,20 @@ public class DAType {
 
     /**
      * Read-only memory mapped DA object. To avoid write access useful for reading on mobile or
-     * embedded data stores.
+     * embedded data stores. Faster than MMAP as it maps the files in a few large regions, see
+     * MMapReadOnlyDataAccess.
      */
     public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false);
+    /**
+     * The DA object is hold entirely in memory but outside of the JVM heap. Loading and flushing is a no-op. See
+     * OffHeapDataAccess.
+     */
+    public static final DAType OFF_HEAP = new DAType(MemRef.OFF_HEAP, false, false, true);
+    /**
+     * The DA object is hold entirely in memory but outside of the JVM heap. It will load from and flush to disc using
+     * the same format as RAM_STORE. See OffHeapDataAccess.
+     */
+    public static final DAType OFF_HEAP_STORE = new DAType(MemRef.OFF_HEAP, true, false, true);
     private final MemRef memRef;
     private final boolean storing;
     private final boolean integ;
@@ -78,6 +89,10 @@ public class DAType {
             type = DAType.MMAP_RO;
         else if (dataAccess.contains("MMAP"))
             type = DAType.MMAP;
+        else if (dataAccess.contains("OFF_HEAP_STORE"))
+            type = DAType.OFF_HEAP_STORE;
+        else if (dataAccess.contains("OFF_HEAP"))
+            type = DAType.OFF_HEAP;
         else if (dataAccess.contains("UNSAFE"))
             throw new IllegalArgumentException("UNSAFE option is no longer supported, see #1620");
         else if (dataAccess.contains("RAM_STORE"))
@@ -118,6 +133,13 @@ public class DAType {
         return memRef == MemRef.MMAP;
     }
 
+    /**
+     * @return true if data resides in memory outside of the JVM heap.
+     */
+    public boolean isOffHeap() {
+        return memRef == MemRef.OFF_HEAP;
+    }
+
     /**
      * Temporary data or store (with loading and storing)? default is false
      */
@@ -137,6 +159,8 @@ public class DAType {
         String str;
         if (getMemRef() == MemRef.MMAP)
             str = "MMAP";
+        else if (getMemRef() == MemRef.OFF_HEAP)
+            str = "OFF_HEAP";
         else
             str = "RAM";
 
@@ -173,6 +197,6 @@ public class DAType {
     }
 
     public enum MemRef {
-        HEAP, MMAP
+        HEAP, MMAP, OFF_HEAP
     }
 }
@@ -97,7 +97,12 @@ public class GHDirectory implements Directory {
             else
                 da = new RAMDataAccess(name, location, false, byteOrder);
         } else if (type.isMMap()) {
-            da = new MMapDataAccess(name, location, byteOrder, type.isAllowWrites());
+            if (type.isAllowWrites())
+                da = new MMapDataAccess(name, location, byteOrder, true);
+            else
+                da = new MMapReadOnlyDataAccess(name, location, byteOrder);
+        } else if (type.isOffHeap()) {
+            da = new OffHeapDataAccess(name, location, type.isStoring(), byteOrder);
         } else {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
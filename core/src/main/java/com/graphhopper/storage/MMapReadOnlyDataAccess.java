@@ -0,0 +1,196 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only DataAccess implementation using memory-mapped files, used for {@link DAType#MMAP_RO}. Instead of
+ * mapping every segment separately like {@link MMapDataAccess} the file is mapped in a few large regions of 1GB, so
+ * usually there is only a single region. Consecutive regions overlap by a few bytes, which means that an int or a
+ * short can always be read from a single region and the accessors need no segment-straddling checks. As the buffers
+ * are never written and only their absolute get methods are used no synchronization is required either.
+ * <p>
+ * The data must be written with a segment size that is not larger than the region size, which is always the case
+ * for the files written by the other DataAccess implementations.
+ */
+public final class MMapReadOnlyDataAccess extends AbstractDataAccess {
+    private static final int REGION_POWER = 30;
+    private static final long REGION_MASK = (1L << REGION_POWER) - 1;
+    // the number of bytes a region extends into the next one
+    private static final int REGION_OVERLAP = 8;
+    private RandomAccessFile raFile;
+    private MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    private long capacity;
+
+    MMapReadOnlyDataAccess(String name, String location, ByteOrder order) {
+        super(name, location, order);
+    }
+
+    @Override
+    public MMapReadOnlyDataAccess create(long bytes) {
+        throw new IllegalStateException("Cannot create read-only DataAccess " + getFullName());
+    }
+
+    @Override
+    public boolean ensureCapacity(long bytes) {
+        if (bytes <= getCapacity())
+            return false;
+        throw new IllegalStateException("Cannot increase capacity of read-only DataAccess " + getFullName()
+                + " from " + getCapacity() + " to " + bytes);
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (regions.length > 0)
+            throw new IllegalStateException("already initialized");
+
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        File file = new File(getFullName());
+        if (!file.exists() || file.length() == 0)
+            return false;
+
+        try {
+            raFile = new RandomAccessFile(file, "r");
+            long byteCount = readHeader(raFile) - HEADER_OFFSET;
+            if (byteCount < 0)
+                return false;
+            if (segmentSizeInBytes > 1 << REGION_POWER)
+                throw new IllegalStateException("Segment size " + segmentSizeInBytes + " of " + getFullName()
+                        + " is larger than the region size");
+
+            // the capacity is always a multiple of the segment size, see MMapDataAccess and RAMDataAccess
+            long segments = byteCount / segmentSizeInBytes;
+            if (byteCount % segmentSizeInBytes != 0)
+                segments++;
+            capacity = Math.min(segments * segmentSizeInBytes, raFile.length() - HEADER_OFFSET);
+
+            int regionCount = (int) (capacity >>> REGION_POWER);
+            if ((capacity & REGION_MASK) != 0)
+                regionCount++;
+            regions = new MappedByteBuffer[regionCount];
+            FileChannel channel = raFile.getChannel();
+            for (int r = 0; r < regionCount; r++) {
+                long start = (long) r << REGION_POWER;
+                long length = Math.min((1L << REGION_POWER) + REGION_OVERLAP, capacity - start);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_OFFSET + start, length);
+                region.order(byteOrder);
+                regions[r] = region;
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Problem while loading " + getFullName(), ex);
+        }
+    }
+
+    @Override
+    public void flush() {
+        throw new IllegalStateException("Cannot flush read-only DataAccess " + getFullName());
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        for (MappedByteBuffer region : regions) {
+            MMapDataAccess.cleanMappedByteBuffer(region);
+        }
+        regions = new MappedByteBuffer[0];
+        capacity = 0;
+        Helper.close(raFile);
+    }
+
+    @Override
+    public void setInt(long bytePos, int value) {
+        throw new IllegalStateException("Cannot write to read-only DataAccess " + getFullName());
+    }
+
+    @Override
+    public int getInt(long bytePos) {
+        return regions[(int) (bytePos >>> REGION_POWER)].getInt((int) (bytePos & REGION_MASK));
+    }
+
+    @Override
+    public void setShort(long bytePos, short value) {
+        throw new IllegalStateException("Cannot write to read-only DataAccess " + getFullName());
+    }
+
+    @Override
+    public short getShort(long bytePos) {
+        return regions[(int) (bytePos >>> REGION_POWER)].getShort((int) (bytePos & REGION_MASK));
+    }
+
+    @Override
+    public void setBytes(long bytePos, byte[] values, int length) {
+        throw new IllegalStateException("Cannot write to read-only DataAccess " + getFullName());
+    }
+
+    @Override
+    public void getBytes(long bytePos, byte[] values, int length) {
+        int offset = 0;
+        while (offset < length) {
+            long pos = bytePos + offset;
+            // we use duplicates to not modify the position of the shared buffers
+            ByteBuffer region = regions[(int) (pos >>> REGION_POWER)].duplicate();
+            int index = (int) (pos & REGION_MASK);
+            int count = (int) Math.min(length - offset, (1L << REGION_POWER) - index);
+            region.position(index);
+            region.get(values, offset, count);
+            offset += count;
+        }
+    }
+
+    @Override
+    public void setByte(long bytePos, byte value) {
+        throw new IllegalStateException("Cannot write to read-only DataAccess " + getFullName());
+    }
+
+    @Override
+    public byte getByte(long bytePos) {
+        return regions[(int) (bytePos >>> REGION_POWER)].get((int) (bytePos & REGION_MASK));
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getSegments() {
+        return (int) (capacity / segmentSizeInBytes);
+    }
+
+    @Override
+    public void rename(String newName) {
+        throw new IllegalStateException("Cannot rename read-only DataAccess " + getFullName());
+    }
+
+    @Override
+    public DAType getType() {
+        return DAType.MMAP_RO;
+    }
+}
@@ -20,6 +20,10 @@ package com.graphhopper.storage.index;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.Storable;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Provides a way to map real world data "lat,lon" to internal ids/indices of a memory efficient graph
@@ -47,6 +51,20 @@ public interface LocationIndex extends Storable<LocationIndex> {
      */
     Snap findClosest(double lat, double lon, EdgeFilter edgeFilter);
 
+    /**
+     * Snaps all the specified points, see {@link #findClosest(double, double, EdgeFilter)}. Implementations can
+     * override this to share work between nearby points.
+     *
+     * @return the Snaps in the order of the specified points
+     */
+    default List<Snap> findClosestBatch(List<GHPoint> points, EdgeFilter edgeFilter) {
+        List<Snap> snaps = new ArrayList<>(points.size());
+        for (GHPoint point : points) {
+            snaps.add(findClosest(point.lat, point.lon, edgeFilter));
+        }
+        return snaps;
+    }
+
     /**
      * This method explores the LocationIndex with the specified Visitor. It visits only the stored edges (and only once)
      * and limited by the queryBBox. Also (a few) more edges slightly outside of queryBBox could be
@@ -19,12 +19,14 @@ package com.graphhopper.storage.index;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
 import org.locationtech.jts.geom.Coordinate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +35,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.IntConsumer;
 
 import static com.graphhopper.util.DistanceCalcEarth.C;
@@ -524,6 +530,139 @@ public class LocationIndexTree implements LocationIndex {
         return closestMatch;
     }
 
+    @Override
+    public List<Snap> findClosestBatch(List<GHPoint> points, EdgeFilter edgeFilter) {
+        return findClosestBatch(points, edgeFilter, 1);
+    }
+
+    /**
+     * Snaps all the specified points and returns the same Snaps as {@link #findClosest} would do. The points are
+     * sorted by their spatial key and all points falling into the same tile are snapped together, so the
+     * neighborhood of this tile is read from the index and every edge of it is loaded and filtered only once.
+     *
+     * @param threads the number of threads used to snap the points. If this is larger than one the edgeFilter
+     *                must be thread safe.
+     * @return the Snaps in the order of the specified points
+     */
+    public List<Snap> findClosestBatch(List<GHPoint> points, EdgeFilter edgeFilter, int threads) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive but was " + threads);
+
+        final long[] keys = new long[points.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyAlgo.encodeLatLon(points.get(i).lat, points.get(i).lon);
+        }
+        final int[] order = IndirectSort.mergesort(0, keys.length, (indexA, indexB) -> Long.compare(keys[indexA], keys[indexB]));
+        // groupStarts contains the position (in order) of the first point of every tile and the total point count
+        final IntArrayList groupStarts = new IntArrayList();
+        for (int i = 0; i < order.length; i++) {
+            if (i == 0 || keys[order[i]] != keys[order[i - 1]])
+                groupStarts.add(i);
+        }
+        groupStarts.add(order.length);
+        final int groups = groupStarts.size() - 1;
+
+        final Snap[] snaps = new Snap[points.size()];
+        if (threads == 1 || groups < 2) {
+            findClosestInTiles(points, edgeFilter, order, groupStarts, 0, groups, snaps);
+            return Arrays.asList(snaps);
+        }
+
+        int chunks = Math.min(threads, groups);
+        ExecutorService executor = Executors.newFixedThreadPool(chunks);
+        List<Future<?>> futures = new ArrayList<>(chunks);
+        try {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                final int fromGroup = (int) ((long) groups * chunk / chunks);
+                final int toGroup = (int) ((long) groups * (chunk + 1) / chunks);
+                futures.add(executor.submit(() -> findClosestInTiles(points, edgeFilter, order, groupStarts, fromGroup, toGroup, snaps)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted while snapping points", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            for (Future<?> future : futures)
+                future.cancel(true);
+            executor.shutdownNow();
+        }
+        return Arrays.asList(snaps);
+    }
+
+    /**
+     * Snaps the points of the groups [fromGroup, toGroup). All points of one group are in the same tile, which means
+     * that findEdgeIdsInNeighborhood yields the same edges for them. The stop criterion is still checked per point.
+     */
+    private void findClosestInTiles(List<GHPoint> points, EdgeFilter edgeFilter, int[] order, IntArrayList groupStarts,
+                                    int fromGroup, int toGroup, Snap[] snaps) {
+        IntHashSet seenEdges = new IntHashSet();
+        List<EdgeIteratorState> acceptedEdges = new ArrayList<>();
+        for (int group = fromGroup; group < toGroup; group++) {
+            int start = groupStarts.get(group);
+            int end = groupStarts.get(group + 1);
+            boolean[] finished = new boolean[end - start];
+            int open = end - start;
+            for (int i = start; i < end; i++) {
+                GHPoint point = points.get(order[i]);
+                snaps[order[i]] = new Snap(point.lat, point.lon);
+            }
+
+            GHPoint tilePoint = points.get(order[start]);
+            seenEdges.clear();
+            for (int iteration = 0; iteration < maxRegionSearch && open > 0; iteration++) {
+                acceptedEdges.clear();
+                findEdgeIdsInNeighborhood(tilePoint.lat, tilePoint.lon, iteration, edgeId -> {
+                    if (seenEdges.add(edgeId)) {
+                        EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
+                        if (edgeFilter.accept(edgeIteratorState))
+                            acceptedEdges.add(edgeIteratorState);
+                    }
+                });
+
+                for (int i = start; i < end; i++) {
+                    if (finished[i - start])
+                        continue;
+                    final Snap closestMatch = snaps[order[i]];
+                    final double queryLat = closestMatch.getQueryPoint().lat;
+                    final double queryLon = closestMatch.getQueryPoint().lon;
+                    for (EdgeIteratorState edgeIteratorState : acceptedEdges) {
+                        traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) -> {
+                            if (normedDist < closestMatch.getQueryDistance()) {
+                                closestMatch.setQueryDistance(normedDist);
+                                closestMatch.setClosestNode(node);
+                                closestMatch.setClosestEdge(edgeIteratorState.detach(false));
+                                closestMatch.setWayIndex(wayIndex);
+                                closestMatch.setSnappedPosition(pos);
+                            }
+                        });
+                    }
+                    if (closestMatch.isValid()) {
+                        double rMin = calculateRMin(queryLat, queryLon, iteration);
+                        double minDistance = DIST_PLANE.calcDenormalizedDist(closestMatch.getQueryDistance());
+                        if (minDistance < rMin) {
+                            finished[i - start] = true;
+                            open--;
+                        }
+                    }
+                }
+            }
+
+            for (int i = start; i < end; i++) {
+                Snap closestMatch = snaps[order[i]];
+                if (closestMatch.isValid()) {
+                    closestMatch.setQueryDistance(DIST_PLANE.calcDenormalizedDist(closestMatch.getQueryDistance()));
+                    closestMatch.calcSnappedPoint(DIST_PLANE);
+                }
+            }
+        }
+    }
+
     // make entries static as otherwise we get an additional reference to this class (memory waste)
     interface InMemEntry {
         boolean isLeaf();
@@ -0,0 +1,121 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.DistanceCalcEarth;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
+
+/**
+ * Caches the results of {@link LocationIndex#findClosest} for frequently requested locations like depots or
+ * stations. The query coordinates are quantized to cells of the given size, i.e. all queries within the same cell
+ * and with the same filter key are snapped to the same edge and position. Every call returns a new {@link Snap} for
+ * the actual query coordinates, because the snaps are modified when creating a QueryGraph.
+ * <p>
+ * The cache is thread-safe and evicts the least recently used entries. Only valid snaps are cached.
+ */
+public class SnapCache {
+    private final Graph graph;
+    private final LocationIndex locationIndex;
+    private final double cellSizeInDegree;
+    private final Map<String, Entry> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param size            the maximum number of cached snaps
+     * @param cellSizeInMeter the size of the cells the query coordinates are quantized to
+     */
+    public SnapCache(Graph graph, LocationIndex locationIndex, final int size, double cellSizeInMeter) {
+        if (size < 1)
+            throw new IllegalArgumentException("snap cache size must be positive but was " + size);
+        if (cellSizeInMeter <= 0)
+            throw new IllegalArgumentException("snap cache cell size must be positive but was " + cellSizeInMeter);
+        this.graph = graph;
+        this.locationIndex = locationIndex;
+        this.cellSizeInDegree = cellSizeInMeter / DistanceCalcEarth.METERS_PER_DEGREE;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(size, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > size;
+            }
+        });
+    }
+
+    /**
+     * @param filterKey identifies the edge filter, two filters with the same key must accept the same edges
+     */
+    public Snap findClosest(double lat, double lon, EdgeFilter edgeFilter, String filterKey) {
+        String key = filterKey + "|" + (long) Math.floor(lat / cellSizeInDegree) + "|" + (long) Math.floor(lon / cellSizeInDegree);
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            Snap snap = locationIndex.findClosest(lat, lon, edgeFilter);
+            if (snap.isValid())
+                cache.put(key, new Entry(snap));
+            return snap;
+        }
+        hits.incrementAndGet();
+        Snap snap = new Snap(lat, lon);
+        snap.setClosestNode(entry.closestNode);
+        snap.setClosestEdge(graph.getEdgeIteratorStateForKey(entry.edge * 2));
+        snap.setWayIndex(entry.wayIndex);
+        snap.setSnappedPosition(entry.position);
+        snap.calcSnappedPoint(DIST_PLANE);
+        snap.setQueryDistance(DIST_PLANE.calcDist(lat, lon, snap.getSnappedPoint().lat, snap.getSnappedPoint().lon));
+        return snap;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private static class Entry {
+        final int edge;
+        final int closestNode;
+        final int wayIndex;
+        final Snap.Position position;
+
+        Entry(Snap snap) {
+            // the closest edge of a snap found by the LocationIndex always has the storage direction
+            this.edge = snap.getClosestEdge().getEdge();
+            this.closestNode = snap.getClosestNode();
+            this.wayIndex = snap.getWayIndex();
+            this.position = snap.getSnappedPosition();
+        }
+    }
+}
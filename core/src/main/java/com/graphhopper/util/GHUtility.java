@@ -22,6 +22,7 @@ import com.carrotsearch.hppc.IntIndexedContainer;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.GHTBitSet;
+import com.graphhopper.geohash.HilbertCurve;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
@@ -349,13 +350,29 @@ public class GHUtility {
         if (g.getTurnCostStorage() != null) {
             throw new IllegalArgumentException("Sorting the graph is currently not supported in the presence of turn costs");
         }
+        IntArrayList nodeList = ArrayUtil.constant(g.getNodes(), -1);
+        IntArrayList edgeList = ArrayUtil.constant(g.getEdges(), -1);
+        fillDFSOrder(g, nodeList, edgeList);
+        return createSortedGraph(g, sortedGraph, nodeList, edgeList);
+    }
+
+    /**
+     * Sorts the graph in place according to depth-first search traversal, see {@link #sortDFS(Graph, Graph)}. Unlike
+     * the copying version this does not need a second graph.
+     */
+    public static void sortDFS(GraphHopperStorage graph) {
+        IntArrayList nodeList = ArrayUtil.constant(graph.getNodes(), -1);
+        IntArrayList edgeList = ArrayUtil.constant(graph.getEdges(), -1);
+        fillDFSOrder(graph, nodeList, edgeList);
+        graph.sort(nodeList::get, edgeList::get);
+    }
+
+    private static void fillDFSOrder(Graph g, IntArrayList nodeList, IntArrayList edgeList) {
         int nodes = g.getNodes();
-        final IntArrayList nodeList = ArrayUtil.constant(nodes, -1);
         final GHBitSetImpl nodeBitset = new GHBitSetImpl(nodes);
         final AtomicInteger nodeRef = new AtomicInteger(-1);
 
         int edges = g.getEdges();
-        final IntArrayList edgeList = ArrayUtil.constant(edges, -1);
         final GHBitSetImpl edgeBitset = new GHBitSetImpl(edges);
         final AtomicInteger edgeRef = new AtomicInteger(-1);
 
@@ -385,7 +402,38 @@ public class GHUtility {
                 }
             }.start(explorer, startNode);
         }
-        return createSortedGraph(g, sortedGraph, nodeList, edgeList);
+    }
+
+    /**
+     * Sorts the graph in place along a Hilbert curve through the node coordinates, so nodes that are close to each
+     * other usually get similar ids and end up on the same pages of the storage. The edges are sorted by their smaller
+     * node id, which keeps the edges of a node and their geometry close together as well.
+     */
+    public static void sortHilbert(GraphHopperStorage graph) {
+        int nodes = graph.getNodes();
+        HilbertCurve curve = new HilbertCurve(16, graph.getBounds());
+        NodeAccess na = graph.getNodeAccess();
+        // the curve index uses 32 bits and the node id 31 bits, so both fit into a single long that we can sort
+        long[] keys = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            keys[node] = curve.encodeLatLon(na.getLat(node), na.getLon(node)) << 31 | node;
+        }
+        Arrays.sort(keys);
+        int[] oldToNewNodes = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            oldToNewNodes[(int) (keys[i] & Integer.MAX_VALUE)] = i;
+        }
+
+        int edges = graph.getEdges();
+        keys = new long[edges];
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            long minNode = Math.min(oldToNewNodes[iter.getBaseNode()], oldToNewNodes[iter.getAdjNode()]);
+            keys[iter.getEdge()] = minNode << 31 | iter.getEdge();
+        }
+        Arrays.sort(keys);
+        final long[] edgeKeys = keys;
+        graph.sort(node -> oldToNewNodes[node], edge -> (int) (edgeKeys[edge] & Integer.MAX_VALUE));
     }
 
     static Graph createSortedGraph(Graph fromGraph, Graph toSortedGraph, final IntIndexedContainer oldToNewNodeList, final IntIndexedContainer newToOldEdgeList) {
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.coll;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MinDoubleHeapWithUpdateTest implements BinaryHeapTestInterface {
+
+    private MinDoubleHeapWithUpdate heap;
+
+    @Override
+    public void create(int capacity) {
+        heap = new MinDoubleHeapWithUpdate(capacity);
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    public void push(int id, float val) {
+        heap.push(id, val);
+    }
+
+    @Override
+    public int peekId() {
+        return heap.peekId();
+    }
+
+    @Override
+    public float peekVal() {
+        return (float) heap.peekValue();
+    }
+
+    @Override
+    public void update(int id, float val) {
+        heap.update(id, val);
+    }
+
+    @Override
+    public int poll() {
+        return heap.poll();
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+    }
+
+    @Test
+    public void outOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new MinDoubleHeapWithUpdate(4).push(4, 1.2));
+        assertThrows(IllegalArgumentException.class, () -> new MinDoubleHeapWithUpdate(4).push(-1, 1.2));
+    }
+
+    @Test
+    public void ensureCapacity() {
+        create(3);
+        push(1, 0.3f);
+        push(2, 0.1f);
+        assertThrows(IllegalArgumentException.class, () -> heap.push(5, 0.2));
+        heap.ensureCapacity(6);
+        assertEquals(6, heap.getCapacity());
+        assertFalse(heap.contains(5));
+        heap.push(5, 0.2);
+        assertEquals(3, size());
+        assertEquals(2, poll());
+        assertEquals(5, poll());
+        assertEquals(1, poll());
+        assertTrue(isEmpty());
+    }
+
+    @Test
+    public void doublePrecision() {
+        create(3);
+        // these values are equal when using floats
+        heap.push(0, 100_000.004);
+        heap.push(1, 100_000.001);
+        heap.push(2, 100_000.003);
+        assertEquals(1, poll());
+        assertEquals(2, poll());
+        assertEquals(0, poll());
+    }
+}
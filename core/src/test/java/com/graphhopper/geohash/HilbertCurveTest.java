@@ -0,0 +1,72 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.geohash;
+
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HilbertCurveTest {
+    @Test
+    public void testOneBit() {
+        HilbertCurve curve = new HilbertCurve(1, new BBox(-180, 180, -90, 90));
+        assertEquals(0, curve.encode(0, 0));
+        assertEquals(1, curve.encode(0, 1));
+        assertEquals(2, curve.encode(1, 1));
+        assertEquals(3, curve.encode(1, 0));
+    }
+
+    @Test
+    public void testConsecutiveCellsAreNeighbours() {
+        int bits = 5;
+        int parts = 1 << bits;
+        HilbertCurve curve = new HilbertCurve(bits, new BBox(-180, 180, -90, 90));
+        int[] xs = new int[parts * parts];
+        int[] ys = new int[parts * parts];
+        Set<Long> indices = new HashSet<>();
+        for (int x = 0; x < parts; x++) {
+            for (int y = 0; y < parts; y++) {
+                int index = (int) curve.encode(x, y);
+                assertTrue(indices.add((long) index));
+                xs[index] = x;
+                ys[index] = y;
+            }
+        }
+        assertEquals(parts * parts, indices.size());
+        for (int i = 1; i < parts * parts; i++) {
+            assertEquals(1, Math.abs(xs[i] - xs[i - 1]) + Math.abs(ys[i] - ys[i - 1]), "index " + i);
+        }
+    }
+
+    @Test
+    public void testEncodeLatLon() {
+        HilbertCurve curve = new HilbertCurve(1, new BBox(0, 2, 0, 2));
+        assertEquals(0, curve.encodeLatLon(0.5, 0.5));
+        assertEquals(1, curve.encodeLatLon(1.5, 0.5));
+        assertEquals(2, curve.encodeLatLon(1.5, 1.5));
+        assertEquals(3, curve.encodeLatLon(0.5, 1.5));
+        // points on or outside of the bounds end up in the border cells
+        assertEquals(2, curve.encodeLatLon(2, 2));
+        assertEquals(0, curve.encodeLatLon(-1, -1));
+    }
+}
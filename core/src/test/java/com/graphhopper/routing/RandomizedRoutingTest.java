@@ -30,6 +30,7 @@ import com.graphhopper.routing.lm.PrepareLandmarks;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.*;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndexTree;
@@ -102,7 +103,9 @@ public class RandomizedRoutingTest {
                 {Algo.CH_DIJKSTRA, true, false, EDGE_BASED},
                 {Algo.LM_UNIDIR, false, true, EDGE_BASED},
                 {Algo.LM_BIDIR, false, true, EDGE_BASED},
-                {Algo.PERFECT_ASTAR, false, false, NODE_BASED}
+                {Algo.PERFECT_ASTAR, false, false, NODE_BASED},
+                {Algo.PRIMITIVE_ASTAR, false, false, NODE_BASED},
+                {Algo.PRIMITIVE_ASTAR, false, false, EDGE_BASED}
         });
     }
 
@@ -114,7 +117,8 @@ public class RandomizedRoutingTest {
         CH_DIJKSTRA,
         LM_BIDIR,
         LM_UNIDIR,
-        PERFECT_ASTAR
+        PERFECT_ASTAR,
+        PRIMITIVE_ASTAR
     }
 
     public RandomizedRoutingTest(Algo algo, boolean prepareCH, boolean prepareLM, TraversalMode traversalMode) {
@@ -171,6 +175,9 @@ public class RandomizedRoutingTest {
                 return new AStar(graph, graph.wrapWeighting(weighting), traversalMode);
             case ASTAR_BIDIR:
                 return new AStarBidirection(graph, graph.wrapWeighting(weighting), traversalMode);
+            case PRIMITIVE_ASTAR:
+                return new PrimitiveAStar(graph, graph.wrapWeighting(weighting), traversalMode)
+                        .setApproximation(new BeelineWeightApproximator(graph.getNodeAccess(), weighting));
             case CH_DIJKSTRA: {
                 CHRoutingAlgorithmFactory algoFactory = graph instanceof QueryGraph
                         ? new CHRoutingAlgorithmFactory(new QueryRoutingCHGraph(routingCHGraph, (QueryGraph) graph))
@@ -0,0 +1,147 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class RoutingWorkspaceTest {
+
+    @Test
+    public void reuseCollections() {
+        RoutingWorkspace workspace = RoutingWorkspace.borrow();
+        GHIntObjectHashMap<SPTEntry> map = workspace.getBestWeightMap(false, 10);
+        PriorityQueue<SPTEntry> queue = workspace.getQueue(true, 10);
+        assertNotSame(map, workspace.getBestWeightMap(true, 10));
+        map.put(3, new SPTEntry(3, 1));
+        queue.add(new SPTEntry(4, 2));
+        PrimitiveSPT spt = workspace.getPrimitiveSPT();
+        spt.addEntry(5, 1, 5, 2.5, PrimitiveSPT.ROOT);
+        workspace.giveBack();
+
+        RoutingWorkspace other = RoutingWorkspace.borrow();
+        assertSame(workspace, other);
+        assertSame(map, other.getBestWeightMap(false, 10));
+        assertTrue(map.isEmpty());
+        assertSame(queue, other.getQueue(true, 10));
+        assertTrue(queue.isEmpty());
+        assertSame(spt, other.getPrimitiveSPT());
+        assertEquals(PrimitiveSPT.NOT_FOUND, spt.getEntry(5));
+        assertEquals(0, spt.size());
+
+        // while the first workspace is borrowed a different one is used
+        RoutingWorkspace nested = RoutingWorkspace.borrow();
+        assertNotSame(other, nested);
+        nested.giveBack();
+        other.giveBack();
+    }
+
+    @Test
+    public void giveBackTwice() {
+        RoutingWorkspace workspace = RoutingWorkspace.borrow();
+        workspace.giveBack();
+        assertThrows(IllegalStateException.class, workspace::giveBack);
+        assertThrows(IllegalStateException.class, () -> workspace.getQueue(false, 10));
+    }
+
+    @Test
+    public void doNotRetainLargeCollections() {
+        RoutingWorkspace workspace = RoutingWorkspace.borrow();
+        GHIntObjectHashMap<SPTEntry> map = workspace.getBestWeightMap(false, 10);
+        PriorityQueue<SPTEntry> queue = workspace.getQueue(false, 10);
+        for (int i = 0; i <= RoutingWorkspace.MAX_RETAINED_SIZE; i++) {
+            map.put(i, new SPTEntry(i, i));
+        }
+        workspace.giveBack();
+        workspace = RoutingWorkspace.borrow();
+        assertNotSame(map, workspace.getBestWeightMap(false, 10));
+        assertNotSame(queue, workspace.getQueue(false, 10));
+        workspace.giveBack();
+
+        // the shortest path tree only grows with the number of entries, so it is kept for searches on large graphs
+        workspace = RoutingWorkspace.borrow();
+        PrimitiveSPT spt = workspace.getPrimitiveSPT();
+        spt.addEntry(Integer.MAX_VALUE - 1, 1, 2, 3, PrimitiveSPT.ROOT);
+        workspace.giveBack();
+        workspace = RoutingWorkspace.borrow();
+        assertSame(spt, workspace.getPrimitiveSPT());
+        for (int i = 0; i <= RoutingWorkspace.MAX_RETAINED_SIZE; i++) {
+            spt.addEntry(i, i, i, i, PrimitiveSPT.ROOT);
+        }
+        workspace.giveBack();
+        workspace = RoutingWorkspace.borrow();
+        assertNotSame(spt, workspace.getPrimitiveSPT());
+        workspace.giveBack();
+    }
+
+    @Test
+    public void allocationsPerSearch() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 10_000, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        Weighting weighting = new FastestWeighting(encoder);
+        int to = graph.getNodes() - 1;
+        Supplier<RoutingAlgorithm> primitive = () -> new PrimitiveAStar(graph, weighting, TraversalMode.NODE_BASED);
+        Supplier<RoutingAlgorithm> dijkstra = () -> new Dijkstra(graph, weighting, TraversalMode.NODE_BASED);
+        long primitiveBytes = measureAllocatedBytes(bean, primitive, to);
+        long dijkstraBytes = measureAllocatedBytes(bean, dijkstra, to);
+        RoutingAlgorithm algo = primitive.get();
+        algo.calcPath(0, to);
+        int visitedNodes = algo.getVisitedNodes();
+        assertTrue(visitedNodes > 1000, "visited nodes: " + visitedNodes);
+        // once the workspace is warmed up only the algorithm, the path and its edge list are allocated
+        assertTrue(primitiveBytes < 2 * visitedNodes, "allocated bytes: " + primitiveBytes + ", visited nodes: " + visitedNodes);
+        // while Dijkstra allocates at least one SPTEntry per visited node
+        assertTrue(dijkstraBytes > 32 * visitedNodes, "allocated bytes: " + dijkstraBytes + ", visited nodes: " + visitedNodes);
+    }
+
+    /**
+     * @return the minimum number of bytes allocated by the current thread for a search from 0 to the given node
+     */
+    private static long measureAllocatedBytes(com.sun.management.ThreadMXBean bean, Supplier<RoutingAlgorithm> algoSupplier, int to) {
+        long minBytes = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long bytes = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            algoSupplier.get().calcPath(0, to);
+            minBytes = Math.min(minBytes, bean.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytes);
+        }
+        return minBytes;
+    }
+}
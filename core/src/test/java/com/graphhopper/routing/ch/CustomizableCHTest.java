@@ -0,0 +1,164 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.TurnCostProvider;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.json.Statement.If;
+import static com.graphhopper.json.Statement.Op.MULTIPLY;
+import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CustomizableCHTest {
+    private CarFlagEncoder encoder;
+    private EncodingManager em;
+    private GraphHopperStorage graph;
+
+    @BeforeEach
+    public void setUp() {
+        encoder = new CarFlagEncoder();
+        em = EncodingManager.create(encoder);
+        graph = new GraphBuilder(em).create();
+    }
+
+    @Test
+    public void simpleGraph() {
+        // 0-1-2-3
+        //   |   |
+        //   4---5
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(100));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(2, 3).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 4).setDistance(50));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(4, 5).setDistance(50));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(5, 3).setDistance(50));
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph);
+        Weighting weighting = new ShortestWeighting(encoder);
+        RoutingCHGraph chGraph = cch.createRoutingCHGraph(cch.customize(weighting), weighting);
+        assertEquals(graph.getNodes(), chGraph.getNodes());
+
+        Path path = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(0, 3);
+        assertEquals(Arrays.asList(0, 1, 4, 5, 3).toString(), path.calcNodes().toString());
+        assertEquals(250, path.getDistance(), 1.e-6);
+        path = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(3, 0);
+        assertEquals(Arrays.asList(3, 5, 4, 1, 0).toString(), path.calcNodes().toString());
+    }
+
+    @Test
+    public void turnCostsAreNotSupported() {
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph);
+        Weighting weighting = new FastestWeighting(encoder, new PMap(), new TurnCostProvider() {
+            @Override
+            public double calcTurnWeight(int inEdge, int viaNode, int outEdge) {
+                return 0;
+            }
+
+            @Override
+            public long calcTurnMillis(int inEdge, int viaNode, int outEdge) {
+                return 0;
+            }
+        });
+        assertThrows(IllegalArgumentException.class, () -> cch.customize(weighting));
+    }
+
+    @Test
+    public void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.0);
+        graph.freeze();
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        CustomizableCH cch = new CustomizableCH(graph);
+
+        CustomModel customModel = new CustomModel();
+        customModel.addToPriority(If("road_class == PRIMARY", MULTIPLY, 0.2));
+        customModel.setDistanceInfluence(30);
+        List<Weighting> weightings = Arrays.asList(new ShortestWeighting(encoder), new FastestWeighting(encoder),
+                CustomModelParser.createWeighting(encoder, em, NO_TURN_COST_PROVIDER, customModel));
+        for (Weighting weighting : weightings) {
+            RoutingCHGraph chGraph = cch.createRoutingCHGraph(cch.customize(weighting), weighting);
+            for (int i = 0; i < 5; i++) {
+                List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 10, false, EdgeFilter.ALL_EDGES);
+                QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+                QueryRoutingCHGraph queryCHGraph = new QueryRoutingCHGraph(chGraph, queryGraph);
+                for (int j = 0; j < 50; j++) {
+                    int from = rnd.nextInt(queryGraph.getNodes());
+                    int to = rnd.nextInt(queryGraph.getNodes());
+                    RoutingAlgorithm refAlgo = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED);
+                    Path refPath = refAlgo.calcPath(from, to);
+                    Path path = new CHRoutingAlgorithmFactory(queryCHGraph).createAlgo(new PMap().putObject("stall_on_demand", true))
+                            .calcPath(from, to);
+                    String msg = "seed: " + seed + ", " + weighting + ", " + from + "->" + to;
+                    assertEquals(refPath.isFound(), path.isFound(), msg);
+                    if (!path.isFound())
+                        continue;
+                    assertEquals(refPath.getWeight(), path.getWeight(), 1.e-2, msg);
+                    assertEquals(refPath.getDistance(), path.getDistance(), 1.e-1, msg);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void metricCache() {
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(100));
+        graph.freeze();
+        CustomizedMetricCache cache = new CustomizedMetricCache(new CustomizableCH(graph), 2);
+        cache.getRoutingCHGraph("a", new ShortestWeighting(encoder));
+        cache.getRoutingCHGraph("b", new FastestWeighting(encoder));
+        cache.getRoutingCHGraph("a", new ShortestWeighting(encoder));
+        cache.getRoutingCHGraph("c", new FastestWeighting(encoder));
+        assertEquals(2, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new CustomizedMetricCache(new CustomizableCH(graph), 0));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManyToManyCHTest {
+
+    @ParameterizedTest
+    @EnumSource(value = TraversalMode.class, names = {"NODE_BASED", "EDGE_BASED"})
+    public void randomGraph(TraversalMode traversalMode) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 10);
+        EncodingManager em = EncodingManager.create(encoder);
+        GraphHopperStorage graph = new GraphBuilder(em)
+                .setCHConfigStrings("p|car|fastest|" + (traversalMode.isEdgeBased() ? "edge|40" : "node"))
+                .create();
+        CHConfig chConfig = graph.getCHGraph().getCHConfig();
+        GHUtility.buildRandomGraph(graph, rnd, 50, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0);
+        if (traversalMode.isEdgeBased())
+            GHUtility.addRandomTurnCosts(graph, seed, em, encoder, 10, graph.getTurnCostStorage());
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+
+        List<Snap> snaps = GHUtility.createRandomSnaps(graph.getBounds(), locationIndex, rnd, 10, false, EdgeFilter.ALL_EDGES);
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        RoutingCHGraph chGraph = new QueryRoutingCHGraph(graph.getRoutingCHGraph(chConfig.getName()), queryGraph);
+        Weighting weighting = queryGraph.wrapWeighting(chConfig.getWeighting());
+
+        int[] sources = new int[15];
+        int[] targets = new int[12];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = rnd.nextInt(queryGraph.getNodes());
+        for (int i = 0; i < targets.length; i++)
+            targets[i] = rnd.nextInt(queryGraph.getNodes());
+
+        ManyToManyCH.Result result = new ManyToManyCH(chGraph).calcMatrix(sources, targets, true);
+        int found = 0;
+        for (int s = 0; s < sources.length; s++) {
+            for (int t = 0; t < targets.length; t++) {
+                Path refPath = new Dijkstra(queryGraph, weighting, traversalMode).calcPath(sources[s], targets[t]);
+                String msg = "seed: " + seed + ", " + sources[s] + "->" + targets[t];
+                assertEquals(refPath.isFound(), result.isConnected(s, t), msg);
+                if (!refPath.isFound())
+                    continue;
+                found++;
+                assertEquals(refPath.getWeight(), result.weights[s][t], 1.e-2, msg);
+                assertEquals(refPath.getDistance(), result.distances[s][t], 1.e-1, msg);
+            }
+        }
+        assertTrue(found > 0);
+    }
+
+    @Test
+    public void invalidPointsAndWeightsOnly() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        GraphHopperStorage graph = new GraphBuilder(em).setCHConfigStrings("p|car|fastest|node").create();
+        // 0-1-2-3, 4 is disconnected
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(200));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(2, 3).setDistance(300));
+        graph.getNodeAccess().setNode(4, 0, 0);
+        graph.freeze();
+        CHConfig chConfig = graph.getCHGraph().getCHConfig();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+
+        ManyToManyCH.Result result = new ManyToManyCH(chGraph).calcMatrix(new int[]{0, -1, 3}, new int[]{3, 4, 0}, false);
+        assertNull(result.times);
+        assertNull(result.distances);
+        double weight03 = new Dijkstra(graph, chConfig.getWeighting(), TraversalMode.NODE_BASED).calcPath(0, 3).getWeight();
+        assertEquals(weight03, result.weights[0][0], 1.e-6);
+        assertFalse(result.isConnected(0, 1));
+        assertEquals(0, result.weights[0][2]);
+        // invalid source
+        for (int t = 0; t < 3; t++)
+            assertFalse(result.isConnected(1, t));
+        // one-way edge 2->3
+        assertFalse(result.isConnected(2, 2));
+        assertEquals(0, result.weights[2][0]);
+    }
+}
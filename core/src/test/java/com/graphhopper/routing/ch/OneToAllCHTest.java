@@ -0,0 +1,172 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OneToAllCHTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void randomGraph(boolean reverseFlow) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 0);
+        EncodingManager em = EncodingManager.create(encoder);
+        GraphHopperStorage graph = new GraphBuilder(em).setCHConfigStrings("p|car|fastest|node").create();
+        CHConfig chConfig = graph.getCHGraph().getCHConfig();
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        OneToAllCH.SweepOrder sweepOrder = new OneToAllCH.SweepOrder(graph.getRoutingCHGraph(chConfig.getName()));
+
+        for (int run = 0; run < 5; run++) {
+            List<Snap> snaps = GHUtility.createRandomSnaps(graph.getBounds(), locationIndex, rnd, 1, false, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            RoutingCHGraph chGraph = new QueryRoutingCHGraph(graph.getRoutingCHGraph(chConfig.getName()), queryGraph);
+            Weighting weighting = queryGraph.wrapWeighting(chConfig.getWeighting());
+            int source = snaps.get(0).getClosestNode();
+            String msg = "seed: " + seed + ", source: " + source + ", reverse: " + reverseFlow;
+
+            OneToAllCH.Result all = new OneToAllCH(chGraph, reverseFlow).calcAll(source);
+            assertEquals(source, all.nodes[0], msg);
+            assertEquals(0, all.weights[0], msg);
+            IntHashSet reached = new IntHashSet();
+            for (int i = 0; i < all.size(); i++)
+                reached.add(all.nodes[i]);
+            for (int node = 0; node < queryGraph.getNodes(); node++) {
+                Path refPath = calcRefPath(queryGraph, weighting, source, node, reverseFlow);
+                assertEquals(refPath.isFound(), reached.contains(node), msg + ", node: " + node);
+            }
+            assertSameAsDijkstra(all, queryGraph, weighting, source, reverseFlow, msg);
+
+            IntArrayList targets = new IntArrayList();
+            for (int node = 0; node < graph.getNodes(); node++)
+                if (rnd.nextInt(3) == 0)
+                    targets.add(node);
+            OneToAllCH.Result someTargets = new OneToAllCH(chGraph, reverseFlow).calcTargets(source, targets);
+            IntHashSet reachedTargets = new IntHashSet();
+            for (int i = 0; i < someTargets.size(); i++)
+                reachedTargets.add(someTargets.nodes[i]);
+            for (int i = 0; i < targets.size(); i++)
+                assertEquals(reached.contains(targets.get(i)), reachedTargets.contains(targets.get(i)), msg + ", target: " + targets.get(i));
+            assertSameAsDijkstra(someTargets, queryGraph, weighting, source, reverseFlow, msg);
+
+            // the shared sweep order yields the same results
+            OneToAllCH.Result withSweepOrder = new OneToAllCH(chGraph, sweepOrder, reverseFlow).calcTargets(source, targets);
+            assertArrayEquals(someTargets.nodes, withSweepOrder.nodes, msg);
+            assertArrayEquals(someTargets.weights, withSweepOrder.weights, msg);
+            withSweepOrder = new OneToAllCH(chGraph, sweepOrder, reverseFlow).calcAll(source);
+            assertArrayEquals(all.nodes, withSweepOrder.nodes, msg);
+            assertArrayEquals(all.weights, withSweepOrder.weights, msg);
+        }
+    }
+
+    private static void assertSameAsDijkstra(OneToAllCH.Result result, QueryGraph queryGraph, Weighting weighting,
+                                             int source, boolean reverseFlow, String msg) {
+        for (int i = 0; i < result.size(); i++) {
+            int node = result.nodes[i];
+            Path refPath = calcRefPath(queryGraph, weighting, source, node, reverseFlow);
+            assertTrue(refPath.isFound(), msg + ", node: " + node);
+            assertEquals(refPath.getWeight(), result.weights[i], 1.e-2, msg + ", node: " + node);
+            assertEquals(refPath.getDistance(), result.distances[i], 1.e-1, msg + ", node: " + node);
+            if (node == source) {
+                assertEquals(EdgeIterator.NO_EDGE, result.edges[i]);
+                assertEquals(-1, result.parents[i]);
+            } else {
+                assertEquals(result.parents[i], queryGraph.getOtherNode(result.edges[i], node), msg + ", node: " + node);
+            }
+        }
+    }
+
+    private static Path calcRefPath(QueryGraph queryGraph, Weighting weighting, int source, int node, boolean reverseFlow) {
+        Dijkstra dijkstra = new Dijkstra(queryGraph, weighting, TraversalMode.NODE_BASED);
+        return reverseFlow ? dijkstra.calcPath(node, source) : dijkstra.calcPath(source, node);
+    }
+
+    @Test
+    public void timesEdgesAndParents() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        GraphHopperStorage graph = new GraphBuilder(em).setCHConfigStrings("p|car|fastest|node").create();
+        // 0-1-2-3-4, 5 is disconnected
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(200));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(2, 3).setDistance(300));
+        GHUtility.setSpeed(30, true, true, encoder, graph.edge(3, 4).setDistance(400));
+        graph.getNodeAccess().setNode(5, 0, 0);
+        graph.freeze();
+        CHConfig chConfig = graph.getCHGraph().getCHConfig();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+
+        OneToAllCH.Result result = new OneToAllCH(chGraph, false).calcAll(0);
+        assertEquals(5, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            Path refPath = new Dijkstra(graph, chConfig.getWeighting(), TraversalMode.NODE_BASED).calcPath(0, result.nodes[i]);
+            assertEquals(refPath.getTime(), result.times[i], result.nodes[i] + "");
+            assertEquals(refPath.getDistance(), result.distances[i], 1.e-6);
+            if (result.nodes[i] == 4) {
+                assertEquals(3, result.edges[i]);
+                assertEquals(3, result.parents[i]);
+            }
+        }
+
+        // one-way edge 2->3
+        result = new OneToAllCH(chGraph, true).calcAll(0);
+        assertEquals(3, result.size());
+        result = new OneToAllCH(chGraph, false).calcTargets(4, IntArrayList.from(0, 2));
+        assertEquals(4, result.nodes[0]);
+        IntHashSet nodes = new IntHashSet();
+        nodes.addAll(result.nodes);
+        assertFalse(nodes.contains(0));
+        assertFalse(nodes.contains(2));
+        result = new OneToAllCH(chGraph, true).calcTargets(4, IntArrayList.from(0, 2, 5));
+        nodes = new IntHashSet();
+        nodes.addAll(result.nodes);
+        assertTrue(nodes.contains(0));
+        assertTrue(nodes.contains(2));
+        assertFalse(nodes.contains(5));
+    }
+}
@@ -566,6 +566,57 @@ public class PrepareContractionHierarchiesTest {
         assertTrue("reusing node ordering should speed up ch contraction", timeMotorCycle < 0.5 * timeCar);
     }
 
+    @Test
+    public void testParallelContraction() {
+        CHConfig c1 = CHConfig.nodeBased("c1", new FastestWeighting(carEncoder));
+        CHConfig c2 = CHConfig.nodeBased("c2", new FastestWeighting(carEncoder));
+        CHConfig c3 = CHConfig.nodeBased("c3", new FastestWeighting(carEncoder));
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHConfigs(c1, c2, c3).create();
+        int numNodes = 3_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true,
+                carEncoder.getAccessEnc(), carEncoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0.8);
+        ghStorage.freeze();
+
+        PrepareContractionHierarchies pch1 = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, c1)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 4).putObject(CHParameters.RANDOM_SEED, 42));
+        pch1.doWork();
+        PrepareContractionHierarchies pch2 = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, c2)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 2).putObject(CHParameters.RANDOM_SEED, 42));
+        pch2.doWork();
+        PrepareContractionHierarchies pch3 = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, c3)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 2).putObject(CHParameters.RANDOM_SEED, 43));
+        pch3.doWork();
+
+        // for the same seed the result does not depend on the number of threads
+        assertEquals("seed: " + seed, pch1.getShortcuts(), pch2.getShortcuts());
+        CHGraph chGraph1 = ghStorage.getCHGraph(c1.getName());
+        CHGraph chGraph2 = ghStorage.getCHGraph(c2.getName());
+        for (int node = 0; node < numNodes; node++)
+            assertEquals("seed: " + seed + ", node: " + node, chGraph1.getLevel(node), chGraph2.getLevel(node));
+
+        for (CHConfig c : Arrays.asList(c1, c3)) {
+            RoutingCHGraph routingCHGraph = ghStorage.getRoutingCHGraph(c.getName());
+            for (int i = 0; i < 100; ++i) {
+                Dijkstra dijkstra = new Dijkstra(ghStorage, c.getWeighting(), TraversalMode.NODE_BASED);
+                RoutingAlgorithm chAlgo = new CHRoutingAlgorithmFactory(routingCHGraph).createAlgo(new PMap());
+                int from = rnd.nextInt(numNodes);
+                int to = rnd.nextInt(numNodes);
+                Path dijkstraPath = dijkstra.calcPath(from, to);
+                Path chPath = chAlgo.calcPath(from, to);
+                assertEquals("seed: " + seed + ", " + from + "->" + to, dijkstraPath.isFound(), chPath.isFound());
+                assertEquals("seed: " + seed + ", " + from + "->" + to, dijkstraPath.getWeight(), chPath.getWeight(), 1.e-1);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidContractionThreads() {
+        createPrepareContractionHierarchies(createGHStorage())
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 0));
+    }
+
     private void checkPath(GraphHopperStorage g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         RoutingCHGraph lg = g.getRoutingCHGraph(c.getName());
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
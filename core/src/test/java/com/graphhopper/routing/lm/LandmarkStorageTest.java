@@ -41,6 +41,7 @@ import org.locationtech.jts.geom.Polygon;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -169,6 +170,29 @@ public class LandmarkStorageTest {
         assertEquals("[4, 0]", Arrays.toString(storage.getLandmarks(1)));
     }
 
+    @Test
+    public void testParallelLandmarkWeights() {
+        GHUtility.buildRandomGraph(graph, new Random(123), 500, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), 60d, 0.8, 0.8, 0.8);
+        LMConfig lmConfig = new LMConfig("c", new FastestWeighting(encoder));
+        LandmarkStorage sequential = new LandmarkStorage(graph, new RAMDirectory(), lmConfig, 8);
+        sequential.setMinimumNodes(2);
+        sequential.createLandmarks();
+        LandmarkStorage parallel = new LandmarkStorage(graph, new RAMDirectory(), lmConfig, 8).setLandmarkThreads(4);
+        parallel.setMinimumNodes(2);
+        parallel.createLandmarks();
+
+        assertEquals(sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks());
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++)
+            assertArrayEquals(sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork));
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                assertEquals(sequential.getFromWeight(lmIdx, node), parallel.getFromWeight(lmIdx, node));
+                assertEquals(sequential.getToWeight(lmIdx, node), parallel.getToWeight(lmIdx, node));
+            }
+        }
+    }
+
     @Test
     public void testWeightingConsistence() {
         // create an indifferent problem: shortest weighting can pass the speed==0 edge but fastest cannot (?)
@@ -821,6 +821,35 @@ public class QueryGraphTest {
         assertEquals(directDist, virtualEdgeDistanceSum, 1.e-3);
     }
 
+    @Test
+    public void testVirtualEdgeGeometry() {
+        initGraph(g);
+        LocationIndexTree index = new LocationIndexTree(g, new RAMDirectory());
+        index.prepareIndex();
+        // two snaps on the same segment, one on a pillar node and one on another segment
+        List<Snap> snaps = Arrays.asList(
+                index.findClosest(1.2, 0.5, EdgeFilter.ALL_EDGES),
+                index.findClosest(1.3, 0.7, EdgeFilter.ALL_EDGES),
+                index.findClosest(1.5, 1.5, EdgeFilter.ALL_EDGES),
+                index.findClosest(1.3, 2.0, EdgeFilter.ALL_EDGES));
+        QueryGraph queryGraph = lookup(snaps);
+        assertEquals(g.getNodes() + 4, queryGraph.getNodes());
+        EdgeExplorer explorer = queryGraph.createEdgeExplorer();
+        for (int node = g.getNodes(); node < queryGraph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                PointList geometry = iter.fetchWayGeometry(FetchMode.ALL);
+                assertTrue(geometry.size() >= 2);
+                assertEquals(iter.getBaseNode(), node);
+                assertEquals(queryGraph.getNodeAccess().getLat(node), geometry.getLat(0), 1.e-6);
+                assertEquals(queryGraph.getNodeAccess().getLon(node), geometry.getLon(0), 1.e-6);
+                assertEquals(DistancePlaneProjection.DIST_PLANE.calcDistance(geometry), iter.getDistance(), 1.e-6);
+                assertEquals(geometry.clone(true), queryGraph.getEdgeIteratorState(iter.getEdge(), iter.getBaseNode()).fetchWayGeometry(FetchMode.ALL));
+                assertEquals(geometry.size() - 2, iter.fetchWayGeometry(FetchMode.PILLAR_ONLY).size());
+            }
+        }
+    }
+
     @Test
     public void testVirtualEdgeIds() {
         // virtual nodes:     2
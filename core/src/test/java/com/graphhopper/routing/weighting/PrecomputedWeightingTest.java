@@ -0,0 +1,148 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.config.Profile;
+import com.graphhopper.routing.DefaultWeightingFactory;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.PrecomputedWeightingFactory;
+import com.graphhopper.routing.WeightingFactory;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrecomputedWeightingTest {
+    private CarFlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private EdgeWeightTable table;
+
+    @BeforeEach
+    public void setUp() {
+        encoder = new CarFlagEncoder();
+        graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (table != null)
+            table.close();
+    }
+
+    @Test
+    public void sameWeightsInBothDirections() {
+        GHUtility.buildRandomGraph(graph, new Random(123), 100, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        graph.freeze();
+        Weighting weighting = new FastestWeighting(encoder);
+        table = EdgeWeightTable.create(graph, graph.getDirectory(), "car", weighting);
+        assertEquals(graph.getEdges(), table.getEdges());
+        Weighting precomputed = new PrecomputedWeighting(weighting, table);
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                assertEquals(weighting.calcEdgeWeight(iter, false), precomputed.calcEdgeWeight(iter, false), 1.e-4);
+                assertEquals(weighting.calcEdgeWeight(iter, true), precomputed.calcEdgeWeight(iter, true), 1.e-4);
+            }
+        }
+    }
+
+    @Test
+    public void sameRoutesWithVirtualEdges() {
+        Random rnd = new Random(456);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.0);
+        graph.freeze();
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        Weighting weighting = new ShortestWeighting(encoder);
+        table = EdgeWeightTable.create(graph, graph.getDirectory(), "car", weighting);
+        Weighting precomputed = new PrecomputedWeighting(weighting, table);
+        List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 10, false, EdgeFilter.ALL_EDGES);
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(queryGraph.getNodes());
+            int to = rnd.nextInt(queryGraph.getNodes());
+            Path refPath = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED).calcPath(from, to);
+            Path path = new Dijkstra(queryGraph, queryGraph.wrapWeighting(precomputed), TraversalMode.NODE_BASED).calcPath(from, to);
+            assertEquals(refPath.isFound(), path.isFound());
+            assertEquals(refPath.getWeight(), path.getWeight(), 1.e-2, from + "->" + to);
+            assertEquals(refPath.getDistance(), path.getDistance(), 1.e-2, from + "->" + to);
+        }
+    }
+
+    @Test
+    public void factoryIgnoresTableIfWeightingIsChanged() {
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        graph.freeze();
+        EncodingManager em = graph.getEncodingManager();
+        Profile profile = new Profile("car").setVehicle("car").setWeighting("fastest");
+        DefaultWeightingFactory defaultFactory = new DefaultWeightingFactory(graph, em);
+        table = EdgeWeightTable.create(graph, graph.getDirectory(), "car", defaultFactory.createWeighting(profile, new PMap(), true));
+        WeightingFactory factory = new PrecomputedWeightingFactory(defaultFactory, Collections.singletonMap("car", table));
+        assertTrue(factory.createWeighting(profile, new PMap(), false) instanceof PrecomputedWeighting);
+        assertTrue(factory.createWeighting(profile, new PMap().putObject(Parameters.Routing.INSTRUCTIONS, false), false) instanceof PrecomputedWeighting);
+        assertFalse(factory.createWeighting(profile, new PMap().putObject("road_access_private_factor", 2), false) instanceof PrecomputedWeighting);
+        assertFalse(factory.createWeighting(profile, new PMap().putObject(CustomModel.KEY, new CustomModel()), false) instanceof PrecomputedWeighting);
+        // hints that are not read by the weighting do not matter
+        assertTrue(factory.createWeighting(profile, new PMap().putObject("some_new_factor", 2), false) instanceof PrecomputedWeighting);
+        assertTrue(factory.createWeighting(profile, new PMap().putObject(Parameters.CH.DISABLE, true)
+                .putObject("alternative_route.max_paths", 3), false) instanceof PrecomputedWeighting);
+        Profile other = new Profile("other").setVehicle("car").setWeighting("shortest");
+        assertFalse(factory.createWeighting(other, new PMap(), false) instanceof PrecomputedWeighting);
+    }
+
+    @Test
+    public void factoryUsesTableForIsochroneRequests() {
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        graph.freeze();
+        EncodingManager em = graph.getEncodingManager();
+        Profile profile = new Profile("car").setVehicle("car").setWeighting("fastest");
+        DefaultWeightingFactory defaultFactory = new DefaultWeightingFactory(graph, em);
+        table = EdgeWeightTable.create(graph, graph.getDirectory(), "car", defaultFactory.createWeighting(profile, new PMap(), true));
+        WeightingFactory factory = new PrecomputedWeightingFactory(defaultFactory, Collections.singletonMap("car", table));
+        // the isochrone and spt endpoints pass all their query parameters as hints
+        PMap hints = new PMap().putObject("profile", "car").putObject("point", "42.5,1.5").
+                putObject("time_limit", 600).putObject("distance_limit", -1).putObject("weight_limit", -1).
+                putObject("buckets", 2).putObject("reverse_flow", true).putObject("tolerance", 10).
+                putObject("full_geometry", false).putObject("columns", "longitude,latitude,time").
+                putObject(Parameters.CH.DISABLE, true).putObject(Parameters.Landmark.DISABLE, true);
+        assertTrue(factory.createWeighting(profile, hints, false) instanceof PrecomputedWeighting);
+        hints.putObject("road_access_destination_factor", 2);
+        assertFalse(factory.createWeighting(profile, hints, false) instanceof PrecomputedWeighting);
+    }
+}
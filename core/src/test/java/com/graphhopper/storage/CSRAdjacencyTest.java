@@ -0,0 +1,128 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.DijkstraBidirectionCH;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CSRAdjacencyTest {
+    private static final String DIR = "./target/csr-adjacency-test";
+    private final CarFlagEncoder encoder = new CarFlagEncoder();
+    private final EncodingManager em = EncodingManager.create(encoder);
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void sameEdgesAsLinkedLists() {
+        long seed = System.nanoTime();
+        GraphHopperStorage graph = new GraphBuilder(em).create().setCSRAdjacency(true);
+        GHUtility.buildRandomGraph(graph, new Random(seed), 100, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        assertNull(((BaseGraph) graph.getBaseGraph()).getCSRAdjacency());
+        graph.freeze();
+        assertNotNull(((BaseGraph) graph.getBaseGraph()).getCSRAdjacency());
+        assertSameEdges((BaseGraph) graph.getBaseGraph(), "seed: " + seed);
+    }
+
+    @Test
+    public void loadExisting() {
+        GraphHopperStorage graph = new GraphBuilder(em).setRAM(DIR, true).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 50, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        graph.freeze();
+        assertNull(((BaseGraph) graph.getBaseGraph()).getCSRAdjacency());
+        graph.flush();
+        graph.close();
+
+        graph = new GraphBuilder(em).setRAM(DIR, true).build().setCSRAdjacency(true);
+        assertTrue(graph.loadExisting());
+        assertNotNull(((BaseGraph) graph.getBaseGraph()).getCSRAdjacency());
+        assertSameEdges((BaseGraph) graph.getBaseGraph(), "");
+
+        graph.setCSRAdjacency(false);
+        assertNull(((BaseGraph) graph.getBaseGraph()).getCSRAdjacency());
+        graph.setCSRAdjacency(true);
+        assertNotNull(((BaseGraph) graph.getBaseGraph()).getCSRAdjacency());
+        graph.close();
+    }
+
+    @Test
+    public void routingWithCH() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GraphHopperStorage graph = new GraphBuilder(em).setCHConfigStrings("p|car|fastest|node").create().setCSRAdjacency(true);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        graph.freeze();
+        CHConfig chConfig = graph.getCHConfigs().get(0);
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path refPath = new Dijkstra(graph, chConfig.getWeighting(), TraversalMode.NODE_BASED).calcPath(from, to);
+            Path path = new DijkstraBidirectionCH(chGraph).calcPath(from, to);
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            assertEquals(refPath.isFound(), path.isFound(), msg);
+            assertEquals(refPath.getWeight(), path.getWeight(), 1.e-2, msg);
+            assertEquals(refPath.calcNodes(), path.calcNodes(), msg);
+        }
+    }
+
+    private void assertSameEdges(BaseGraph baseGraph, String msg) {
+        EdgeExplorer csrExplorer = baseGraph.createEdgeExplorer();
+        EdgeExplorer listExplorer = new BaseGraph.EdgeIteratorImpl(baseGraph, EdgeFilter.ALL_EDGES, false);
+        for (int node = 0; node < baseGraph.getNodes(); node++) {
+            EdgeIterator csrIter = csrExplorer.setBaseNode(node);
+            EdgeIterator listIter = listExplorer.setBaseNode(node);
+            while (listIter.next()) {
+                assertTrue(csrIter.next(), msg);
+                assertEquals(listIter.getEdge(), csrIter.getEdge(), msg);
+                assertEquals(listIter.getEdgeKey(), csrIter.getEdgeKey(), msg);
+                assertEquals(listIter.getBaseNode(), csrIter.getBaseNode(), msg);
+                assertEquals(listIter.getAdjNode(), csrIter.getAdjNode(), msg);
+                assertEquals(listIter.get(encoder.getAccessEnc()), csrIter.get(encoder.getAccessEnc()), msg);
+                assertEquals(listIter.getReverse(encoder.getAccessEnc()), csrIter.getReverse(encoder.getAccessEnc()), msg);
+                assertEquals(listIter.fetchWayGeometry(FetchMode.ALL), csrIter.fetchWayGeometry(FetchMode.ALL), msg);
+                assertEquals(listIter.detach(true).getAdjNode(), csrIter.detach(true).getAdjNode(), msg);
+            }
+            assertFalse(csrIter.next(), msg);
+        }
+    }
+}
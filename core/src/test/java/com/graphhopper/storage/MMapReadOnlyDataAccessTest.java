@@ -0,0 +1,140 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MMapReadOnlyDataAccessTest {
+    private final String directory = "./target/tmp/mmap-ro/";
+    private final String name = "dataaccess";
+
+    @BeforeEach
+    public void setUp() {
+        Helper.removeDir(new File(directory));
+        new File(directory).mkdirs();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(directory));
+    }
+
+    @Test
+    public void readFromRAM() {
+        checkSameContent(new RAMDataAccess(name, directory, true, ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @Test
+    public void readFromMMap() {
+        checkSameContent(new MMapDataAccess(name, directory, ByteOrder.LITTLE_ENDIAN, true));
+    }
+
+    private void checkSameContent(DataAccess writeDA) {
+        writeDA.setSegmentSize(128).create(1000);
+        writeDA.setHeader(8, 42);
+        Random rnd = new Random(123);
+        for (long pos = 0; pos < 1000; pos += 4)
+            writeDA.setInt(pos, rnd.nextInt());
+        // a short distributed over two segments
+        writeDA.setShort(127, (short) -12345);
+        byte[] bytes = new byte[200];
+        rnd.nextBytes(bytes);
+        writeDA.setBytes(500, bytes, 100);
+        writeDA.setBytes(600, bytes, 100);
+        writeDA.flush();
+
+        DataAccess readDA = new MMapReadOnlyDataAccess(name, directory, ByteOrder.LITTLE_ENDIAN);
+        assertTrue(readDA.loadExisting());
+        assertEquals(128, readDA.getSegmentSize());
+        assertEquals(writeDA.getCapacity(), readDA.getCapacity());
+        assertEquals(writeDA.getSegments(), readDA.getSegments());
+        assertEquals(42, readDA.getHeader(8));
+        for (long pos = 0; pos < writeDA.getCapacity(); pos += 4)
+            assertEquals(writeDA.getInt(pos), readDA.getInt(pos), "pos: " + pos);
+        for (long pos = 0; pos < writeDA.getCapacity() - 1; pos++) {
+            assertEquals(writeDA.getShort(pos), readDA.getShort(pos), "pos: " + pos);
+            assertEquals(writeDA.getByte(pos), readDA.getByte(pos), "pos: " + pos);
+        }
+        assertEquals(-12345, readDA.getShort(127));
+        byte[] read = new byte[200];
+        readDA.getBytes(500, read, 200);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(bytes[i], read[i]);
+            assertEquals(bytes[i], read[100 + i]);
+        }
+
+        assertThrows(IllegalStateException.class, () -> readDA.setInt(0, 1));
+        assertThrows(IllegalStateException.class, () -> readDA.ensureCapacity(2000));
+        assertFalse(readDA.ensureCapacity(100));
+        readDA.close();
+        writeDA.close();
+    }
+
+    @Test
+    public void loadGraph() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        GraphHopperStorage graph = new GraphBuilder(em).setMMap(directory).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 100, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        graph.edge(3, 7).setDistance(123).setName("abc");
+        graph.flush();
+
+        GraphHopperStorage readGraph = new GraphBuilder(em).setDir(new GHDirectory(directory, DAType.MMAP_RO)).build();
+        assertTrue(readGraph.loadExisting());
+        assertEquals(graph.getNodes(), readGraph.getNodes());
+        assertEquals(graph.getEdges(), readGraph.getEdges());
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            EdgeIteratorState edge = readGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode());
+            assertEquals(iter.getBaseNode(), edge.getBaseNode());
+            assertEquals(iter.getDistance(), edge.getDistance());
+            assertEquals(iter.getName(), edge.getName());
+            assertEquals(iter.getFlags(), edge.getFlags());
+            assertEquals(iter.fetchWayGeometry(FetchMode.ALL), edge.fetchWayGeometry(FetchMode.ALL));
+        }
+        assertEquals(graph.getNodeAccess().getLat(5), readGraph.getNodeAccess().getLat(5));
+        assertThrows(IllegalStateException.class, () -> readGraph.edge(1, 2));
+        readGraph.close();
+        graph.close();
+    }
+
+    @Test
+    public void viaDirectory() {
+        GHDirectory dir = new GHDirectory(directory, DAType.MMAP_RO);
+        DataAccess da = dir.find(name);
+        assertTrue(da instanceof MMapReadOnlyDataAccess);
+        assertFalse(da.loadExisting());
+        dir.close();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapDataAccessTest extends DataAccessTest {
+    @Override
+    public DataAccess createDataAccess(String name) {
+        return new OffHeapDataAccess(name, directory, true, defaultOrder).setSegmentSize(128);
+    }
+
+    @Test
+    public void testSameFileFormatAsRAM() {
+        DataAccess da = createDataAccess(name);
+        da.create(300);
+        da.setHeader(4, 12);
+        da.setInt(8, 123);
+        da.setShort(127, (short) -2);
+        da.setBytes(250, new byte[]{1, 2, 3}, 3);
+        da.flush();
+        da.close();
+
+        DataAccess ramDA = new RAMDataAccess(name, directory, true, defaultOrder);
+        assertTrue(ramDA.loadExisting());
+        assertEquals(128, ramDA.getSegmentSize());
+        assertEquals(12, ramDA.getHeader(4));
+        assertEquals(123, ramDA.getInt(8));
+        assertEquals(-2, ramDA.getShort(127));
+        byte[] bytes = new byte[3];
+        ramDA.getBytes(250, bytes, 3);
+        assertEquals(3, bytes[2]);
+        ramDA.setInt(8, 321);
+        ramDA.flush();
+        ramDA.close();
+
+        da = createDataAccess(name);
+        assertTrue(da.loadExisting());
+        assertEquals(321, da.getInt(8));
+        assertEquals(-2, da.getShort(127));
+        da.close();
+    }
+}
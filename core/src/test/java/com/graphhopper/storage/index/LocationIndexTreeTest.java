@@ -523,6 +523,42 @@ public class LocationIndexTreeTest {
         Helper.close((Closeable) g);
     }
 
+    @Test
+    public void testFindClosestBatch() {
+        Graph g = createSampleGraph(EncodingManager.create("car"));
+        LocationIndexTree idx = (LocationIndexTree) createIndexNoPrepare(g, 50000).prepareIndex();
+        Random rand = new Random(42);
+        List<GHPoint> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            points.add(new GHPoint(rand.nextDouble() * 5.5 - 0.2, rand.nextDouble() * 5.5 - 0.2));
+        }
+        // some duplicates
+        points.add(points.get(3));
+        points.add(points.get(7));
+
+        EdgeFilter filter = edgeState -> edgeState.getEdge() % 3 != 0;
+        for (EdgeFilter edgeFilter : Arrays.asList(EdgeFilter.ALL_EDGES, filter)) {
+            for (int threads : new int[]{1, 4}) {
+                List<Snap> snaps = idx.findClosestBatch(points, edgeFilter, threads);
+                assertEquals(points.size(), snaps.size());
+                for (int i = 0; i < points.size(); i++) {
+                    GHPoint p = points.get(i);
+                    Snap expected = idx.findClosest(p.lat, p.lon, edgeFilter);
+                    Snap snap = snaps.get(i);
+                    assertEquals(expected.isValid(), snap.isValid());
+                    assertEquals(p, snap.getQueryPoint());
+                    assertEquals(expected.getClosestNode(), snap.getClosestNode());
+                    assertEquals(expected.getClosestEdge().getEdge(), snap.getClosestEdge().getEdge());
+                    assertEquals(expected.getSnappedPosition(), snap.getSnappedPosition());
+                    assertEquals(expected.getQueryDistance(), snap.getQueryDistance(), 1.e-6);
+                    assertEquals(expected.getSnappedPoint(), snap.getSnappedPoint());
+                }
+            }
+        }
+        assertEquals(points.size(), ((LocationIndex) idx).findClosestBatch(points, filter).size());
+        Helper.close((Closeable) g);
+    }
+
     public Graph createSampleGraph(EncodingManager encodingManager) {
         Graph graph = new GraphHopperStorage(new RAMDirectory(), encodingManager, false).create(100);
         // length does not matter here but lat,lon and outgoing edges do!
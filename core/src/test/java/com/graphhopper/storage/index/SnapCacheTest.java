@@ -0,0 +1,116 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapCacheTest {
+    private CarFlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private LocationIndexTree index;
+
+    @BeforeEach
+    public void setUp() {
+        encoder = new CarFlagEncoder();
+        graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 200, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        graph.freeze();
+        index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+    }
+
+    @Test
+    public void sameSnapsAsLocationIndex() {
+        SnapCache cache = new SnapCache(graph, index, 1000, 0.01);
+        Random rnd = new Random(456);
+        BBox bounds = graph.getBounds();
+        for (int i = 0; i < 100; i++) {
+            double lat = bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat);
+            double lon = bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon);
+            Snap expected = index.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            for (int j = 0; j < 2; j++) {
+                Snap snap = cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "all");
+                assertEquals(expected.isValid(), snap.isValid());
+                assertEquals(expected.getClosestNode(), snap.getClosestNode());
+                assertEquals(expected.getClosestEdge().getEdge(), snap.getClosestEdge().getEdge());
+                assertEquals(expected.getClosestEdge().getBaseNode(), snap.getClosestEdge().getBaseNode());
+                assertEquals(expected.getWayIndex(), snap.getWayIndex());
+                assertEquals(expected.getSnappedPosition(), snap.getSnappedPosition());
+                assertEquals(expected.getSnappedPoint().lat, snap.getSnappedPoint().lat, 1.e-8);
+                assertEquals(expected.getSnappedPoint().lon, snap.getSnappedPoint().lon, 1.e-8);
+                assertEquals(expected.getQueryDistance(), snap.getQueryDistance(), 1.e-3);
+            }
+        }
+        assertEquals(100, cache.getHits());
+        assertEquals(100, cache.getMisses());
+    }
+
+    @Test
+    public void newSnapForEveryHit() {
+        SnapCache cache = new SnapCache(graph, index, 10, 10);
+        BBox bounds = graph.getBounds();
+        double lat = (bounds.minLat + bounds.maxLat) / 2, lon = (bounds.minLon + bounds.maxLon) / 2;
+        Snap first = cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "all");
+        Snap second = cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "all");
+        assertNotSame(first, second);
+        // a QueryGraph changes the closest node of the snaps, this must not affect the cache
+        first.setClosestNode(-5);
+        assertEquals(second.getClosestNode(), cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "all").getClosestNode());
+        // a different filter key is a cache miss
+        cache.findClosest(lat, lon, DefaultEdgeFilter.allEdges(encoder), "car");
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        SnapCache cache = new SnapCache(graph, index, 2, 10);
+        BBox bounds = graph.getBounds();
+        double lat = (bounds.minLat + bounds.maxLat) / 2, lon = (bounds.minLon + bounds.maxLon) / 2;
+        cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "a");
+        cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "b");
+        cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "a");
+        cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "c");
+        assertEquals(2, cache.size());
+        // b was evicted, a is still there
+        cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "a");
+        assertEquals(2, cache.getHits());
+        cache.findClosest(lat, lon, EdgeFilter.ALL_EDGES, "b");
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+
+        assertThrows(IllegalArgumentException.class, () -> new SnapCache(graph, index, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SnapCache(graph, index, 10, 0));
+    }
+}
@@ -18,6 +18,7 @@
 package com.graphhopper.util;
 
 import com.graphhopper.coll.GHIntLongHashMap;
+import com.graphhopper.geohash.HilbertCurve;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.CarFlagEncoder;
@@ -27,6 +28,9 @@ import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.storage.*;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.junit.Assert.*;
 
 /**
@@ -110,6 +114,76 @@ public class GHUtilityTest {
         assertEquals(1, newG.getEdgeIteratorState(2, Integer.MIN_VALUE).getBaseNode());
     }
 
+    @Test
+    public void testSortDFSInPlace() {
+        GraphHopperStorage g = (GraphHopperStorage) initUnsorted(createGraph(), carEncoder);
+        GHUtility.setSpeed(60, true, true, carEncoder, g.edge(6, 5).setDistance(11)).setWayGeometry(Helper.createPointList(12, 10, -1, 3));
+        GHUtility.setSpeed(60, true, false, carEncoder, g.edge(4, 4).setDistance(1));
+        GHUtility.setSpeed(60, true, true, carEncoder, g.edge(3, 6).setDistance(2)).setWayGeometry(Helper.createPointList(2.5, 1.5));
+        Graph copied = GHUtility.sortDFS(g, createGraph());
+        GHUtility.sortDFS(g);
+        assertEquals(copied.getNodes(), g.getNodes());
+        assertEquals(copied.getEdges(), g.getEdges());
+        for (int node = 0; node < g.getNodes(); node++) {
+            assertEquals(copied.getNodeAccess().getLat(node), g.getNodeAccess().getLat(node), 1e-6);
+            assertEquals(copied.getNodeAccess().getLon(node), g.getNodeAccess().getLon(node), 1e-6);
+            assertEquals(getEdgeIds(copied, node), getEdgeIds(g, node));
+        }
+        for (int edge = 0; edge < g.getEdges(); edge++) {
+            EdgeIteratorState expected = copied.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            EdgeIteratorState given = g.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(expected.getBaseNode(), given.getBaseNode());
+            assertEquals(expected.getAdjNode(), given.getAdjNode());
+            assertEquals(expected.getDistance(), given.getDistance(), 1e-6);
+            assertEquals(expected.get(accessEnc), given.get(accessEnc));
+            assertEquals(expected.getReverse(accessEnc), given.getReverse(accessEnc));
+            assertEquals(expected.fetchWayGeometry(FetchMode.ALL), given.fetchWayGeometry(FetchMode.ALL));
+        }
+    }
+
+    private static Set<Integer> getEdgeIds(Graph graph, int node) {
+        Set<Integer> edges = new HashSet<>();
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(node);
+        while (iter.next()) {
+            edges.add(iter.getEdge());
+        }
+        return edges;
+    }
+
+    @Test
+    public void testSortHilbert() {
+        GraphHopperStorage newG = (GraphHopperStorage) initUnsorted(createGraph(), carEncoder);
+        GHUtility.setSpeed(60, true, true, carEncoder, newG.edge(0, 3).setDistance(3.2)).setWayGeometry(Helper.createPointList(1, 0.5, 2, 0.5));
+        GHUtility.setSpeed(60, true, true, carEncoder, newG.edge(4, 6).setDistance(0.7)).setWayGeometry(Helper.createPointList(2.5, 2.5));
+        Graph g = GHUtility.copyTo(newG, createGraph());
+        GHUtility.sortHilbert(newG);
+        assertEquals(g.getNodes(), newG.getNodes());
+        assertEquals(g.getEdges(), newG.getEdges());
+        assertEquals(getLengthOfAllEdges(g), getLengthOfAllEdges(newG), 1e-4);
+
+        HilbertCurve curve = new HilbertCurve(16, newG.getBounds());
+        NodeAccess na = newG.getNodeAccess();
+        for (int node = 1; node < newG.getNodes(); node++) {
+            assertTrue(curve.encodeLatLon(na.getLat(node - 1), na.getLon(node - 1)) < curve.encodeLatLon(na.getLat(node), na.getLon(node)));
+        }
+
+        int prevMinNode = -1;
+        int oneWayEdges = 0;
+        AllEdgesIterator iter = newG.getAllEdges();
+        while (iter.next()) {
+            int minNode = Math.min(iter.getBaseNode(), iter.getAdjNode());
+            assertTrue(minNode >= prevMinNode);
+            prevMinNode = minNode;
+            if (!iter.getReverse(accessEnc)) {
+                oneWayEdges++;
+                // the one-way edge 7->3
+                assertEquals(5, na.getLat(iter.getBaseNode()), 1e-4);
+                assertEquals(3, na.getLat(iter.getAdjNode()), 1e-4);
+            }
+        }
+        assertEquals(1, oneWayEdges);
+    }
+
     @Test
     public void testSortDirected() {
         Graph g = createGraph();
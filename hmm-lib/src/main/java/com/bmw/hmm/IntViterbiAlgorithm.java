@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2015-2016, BMW Car IT GmbH and BMW AG
+ * Author: Stefan Holder (stefan.holder@bmw.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bmw.hmm;
+
+import java.util.Arrays;
+
+/**
+ * Index-based variant of {@link ViterbiAlgorithm}. The state candidates of each time step are
+ * identified by their index 0, ..., n-1, the probabilities are passed as double arrays and the
+ * back pointers are stored in a single int array. This avoids boxing the probabilities and
+ * creating maps and objects for every candidate and transition. The caller keeps the states and
+ * transition descriptors and looks them up with the indices of the most likely sequence.
+ *
+ * <p>For the same probabilities this class computes the same most likely sequence as
+ * {@link ViterbiAlgorithm} if the candidates are passed in the same order, including the choice
+ * between sequences with equal probability.
+ *
+ * <p>In contrast to {@link ViterbiAlgorithm} the back pointers of all time steps are kept, i.e.
+ * one int per candidate and time step. To keep only the transition descriptors of the most likely
+ * sequence the caller can store the transition descriptor of {@link #getBackPointer(int)} for each
+ * candidate after each time step.
+ *
+ * <p>Generally expects logarithmic probabilities as input to prevent arithmetic underflows for
+ * small probability values.
+ */
+public class IntViterbiAlgorithm {
+
+    /**
+     * The back pointer of candidates without a previous state, i.e. of the first time step and of
+     * candidates with zero probability.
+     */
+    public static final int NO_BACK_POINTER = -1;
+
+    /**
+     * The back pointers of all time steps. The back pointer of candidate i of time step t is
+     * stored at stepOffsets[t] + i.
+     */
+    private int[] backPointers = new int[64];
+
+    /**
+     * The offsets of the time steps in backPointers, stepOffsets[timeSteps] is the number of used
+     * back pointers.
+     */
+    private int[] stepOffsets = new int[16];
+
+    private int timeSteps;
+
+    /**
+     * The log probability of the most likely sequence ending in candidate i of the current time
+     * step, see ViterbiAlgorithm#message.
+     */
+    private double[] message = new double[16];
+
+    private double[] newMessage = new double[16];
+
+    private int candidates;
+
+    private boolean isBroken = false;
+
+    /**
+     * Need to construct a new instance for each sequence of observations.
+     */
+    public IntViterbiAlgorithm() {
+    }
+
+    /**
+     * Lets the HMM computation start at the first observation. The candidates of the first
+     * observation are 0, ..., emissionLogProbabilities.length-1.
+     *
+     * @param emissionLogProbabilities emission log probabilities of the first state candidates
+     * @throws IllegalStateException if this method is called more than once
+     */
+    public void startWithInitialObservation(double[] emissionLogProbabilities) {
+        if (timeSteps > 0 || isBroken) {
+            throw new IllegalStateException("Initial probabilities have already been set.");
+        }
+
+        isBroken = hmmBreak(emissionLogProbabilities, emissionLogProbabilities.length);
+        if (isBroken) return;
+
+        candidates = emissionLogProbabilities.length;
+        message = ensureCapacity(message, candidates);
+        System.arraycopy(emissionLogProbabilities, 0, message, 0, candidates);
+        addTimeStep(true);
+    }
+
+    /**
+     * Processes the next time step. Must not be called if the HMM is broken.
+     *
+     * @param emissionLogProbabilities emission log probabilities of the state candidates
+     * 0, ..., emissionLogProbabilities.length-1 of this time step
+     * @param transitionLogProbabilities the log probability of the transition from candidate i of
+     * the previous time step to candidate j of this time step is stored at index
+     * i * emissionLogProbabilities.length + j. Use Double.NEGATIVE_INFINITY for transitions with
+     * zero probability. The array can be larger than needed, so it can be reused.
+     * @throws IllegalStateException if {@link #startWithInitialObservation(double[])} has not been
+     * called before or if this method is called after an HMM break has occurred
+     * @throws IllegalArgumentException if the transition array is too small
+     */
+    public void nextStep(double[] emissionLogProbabilities, double[] transitionLogProbabilities) {
+        if (timeSteps == 0) {
+            throw new IllegalStateException(
+                    "startWithInitialObservation() must be called first.");
+        }
+        if (isBroken) {
+            throw new IllegalStateException("Method must not be called after an HMM break.");
+        }
+        final int curCandidates = emissionLogProbabilities.length;
+        if (transitionLogProbabilities.length < candidates * curCandidates) {
+            throw new IllegalArgumentException("Expected " + candidates * curCandidates
+                    + " transition probabilities but got " + transitionLogProbabilities.length);
+        }
+
+        // Forward step
+        newMessage = ensureCapacity(newMessage, curCandidates);
+        final int offset = stepOffsets[timeSteps];
+        backPointers = ensureCapacity(backPointers, offset + curCandidates);
+        for (int cur = 0; cur < curCandidates; cur++) {
+            double maxLogProbability = Double.NEGATIVE_INFINITY;
+            int maxPrev = NO_BACK_POINTER;
+            for (int prev = 0; prev < candidates; prev++) {
+                final double logProbability = message[prev]
+                        + transitionLogProbabilities[prev * curCandidates + cur];
+                if (logProbability > maxLogProbability) {
+                    maxLogProbability = logProbability;
+                    maxPrev = prev;
+                }
+            }
+            newMessage[cur] = maxLogProbability + emissionLogProbabilities[cur];
+            backPointers[offset + cur] = maxPrev;
+        }
+
+        isBroken = hmmBreak(newMessage, curCandidates);
+        if (isBroken) return;
+
+        final double[] tmp = message;
+        message = newMessage;
+        newMessage = tmp;
+        candidates = curCandidates;
+        addTimeStep(false);
+    }
+
+    /**
+     * Returns the candidate index of the most likely sequence for each time step. If an HMM break
+     * occurred in the last time step t, then the most likely sequence up to t-1 is returned.
+     * Returns an empty array if there are no time steps or if the initial observation caused an
+     * HMM break.
+     */
+    public int[] computeMostLikelySequence() {
+        final int[] result = new int[timeSteps];
+        if (timeSteps == 0) {
+            return result;
+        }
+        int candidate = mostLikelyCandidate();
+        for (int t = timeSteps - 1; t >= 0; t--) {
+            result[t] = candidate;
+            candidate = backPointers[stepOffsets[t] + candidate];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the candidate of the previous time step that precedes the given candidate of the
+     * current time step in its most likely sequence or {@link #NO_BACK_POINTER} if there is none.
+     * If an HMM break occurred in the last time step, the current time step is the one before.
+     */
+    public int getBackPointer(int candidate) {
+        if (candidate < 0 || candidate >= candidates) {
+            throw new IndexOutOfBoundsException("Candidate " + candidate + " does not exist, "
+                    + candidates + " candidates");
+        }
+        return backPointers[stepOffsets[timeSteps - 1] + candidate];
+    }
+
+    /**
+     * Returns the log probability of the most likely sequence ending in the given candidate of
+     * the current time step.
+     */
+    public double getLogProbability(int candidate) {
+        if (candidate < 0 || candidate >= candidates) {
+            throw new IndexOutOfBoundsException("Candidate " + candidate + " does not exist, "
+                    + candidates + " candidates");
+        }
+        return message[candidate];
+    }
+
+    /**
+     * Returns the number of time steps, not counting a time step that caused an HMM break.
+     */
+    public int getTimeSteps() {
+        return timeSteps;
+    }
+
+    /**
+     * Returns whether an HMM occurred in the last time step.
+     *
+     * An HMM break means that the probability of all states equals zero.
+     */
+    public boolean isBroken() {
+        return isBroken;
+    }
+
+    /**
+     * Adds the current candidates as new time step. Except for the initial time step the back
+     * pointers must already be stored at the offset of the new time step.
+     */
+    private void addTimeStep(boolean initial) {
+        final int offset = stepOffsets[timeSteps];
+        if (initial) {
+            backPointers = ensureCapacity(backPointers, offset + candidates);
+            Arrays.fill(backPointers, offset, offset + candidates, NO_BACK_POINTER);
+        }
+        stepOffsets = ensureCapacity(stepOffsets, timeSteps + 2);
+        timeSteps++;
+        stepOffsets[timeSteps] = offset + candidates;
+    }
+
+    /**
+     * Retrieves the first candidate of the current forward message with maximum probability.
+     */
+    private int mostLikelyCandidate() {
+        int result = NO_BACK_POINTER;
+        double maxLogProbability = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < candidates; i++) {
+            if (message[i] > maxLogProbability) {
+                result = i;
+                maxLogProbability = message[i];
+            }
+        }
+
+        assert result != NO_BACK_POINTER; // Otherwise an HMM break would have occurred.
+        return result;
+    }
+
+    /**
+     * Returns whether the specified message is either empty or only contains state candidates
+     * with zero probability and thus causes the HMM to break.
+     */
+    private static boolean hmmBreak(double[] message, int length) {
+        for (int i = 0; i < length; i++) {
+            if (message[i] != Double.NEGATIVE_INFINITY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double[] ensureCapacity(double[] array, int capacity) {
+        if (array.length >= capacity) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(capacity, array.length + (array.length >> 1)));
+    }
+
+    private static int[] ensureCapacity(int[] array, int capacity) {
+        if (array.length >= capacity) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(capacity, array.length + (array.length >> 1)));
+    }
+}
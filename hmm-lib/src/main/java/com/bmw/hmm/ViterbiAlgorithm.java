@@ -51,6 +51,12 @@ import java.util.Map;
  * constant number of time steps, only O(t) back pointers and transition descriptors need to be
  * stored in memory.
  *
+ * <p>For online processing, {@link #pollConvergedSequence(int)} returns the part of the most likely
+ * sequence that cannot change anymore, because the back pointers of all candidates converged,
+ * and releases it. If the back pointers do not converge within a given number of time steps,
+ * the decision is forced for the oldest time step. Then the memory for a sequence of arbitrary
+ * length is bounded by this lag.
+ *
  * @param <S> the state type
  * @param <O> the observation type
  * @param <D> the transition descriptor type. Pass {@link Object} if transition descriptors are not
@@ -74,14 +80,16 @@ public class ViterbiAlgorithm<S, O, D> {
 
         O observation;
         D transitionDescriptor;
+        int timeStep;
 
         ExtendedState(S state,
                 ExtendedState<S, O, D> backPointer,
-                O observation, D transitionDescriptor) {
+                O observation, D transitionDescriptor, int timeStep) {
             this.state = state;
             this.backPointer = backPointer;
             this.observation = observation;
             this.transitionDescriptor = transitionDescriptor;
+            this.timeStep = timeStep;
         }
     }
 
@@ -107,6 +115,17 @@ public class ViterbiAlgorithm<S, O, D> {
 
     private Collection<S> prevCandidates;
 
+    /**
+     * The time step of the current message, starting with 0 for the initial states.
+     */
+    private int timeStep;
+
+    /**
+     * The newest state returned by {@link #pollConvergedSequence(int)} or null. All back pointer
+     * chains end at this state.
+     */
+    private ExtendedState<S, O, D> polledState;
+
     /**
      * For each state s_t of the current time step t, message.get(s_t) contains the log
      * probability of the most likely sequence ending in state s_t with given observations
@@ -222,6 +241,7 @@ public class ViterbiAlgorithm<S, O, D> {
         }
         message = forwardStepResult.newMessage;
         lastExtendedStates = forwardStepResult.newExtendedStates;
+        timeStep++;
 
         prevCandidates = new ArrayList<>(candidates); // Defensive copy.
     }
@@ -240,6 +260,7 @@ public class ViterbiAlgorithm<S, O, D> {
      * Returns the most likely sequence of states for all time steps. This includes the initial
      * states / initial observation time step. If an HMM break occurred in the last time step t,
      * then the most likely sequence up to t-1 is returned. See also {@link #isBroken()}.
+     * States that were already returned by {@link #pollConvergedSequence(int)} are not included.
      *
      * <p>Formally, the most likely sequence is argmax p([s_0,] s_1, ..., s_T | o_1, ..., o_T)
      * with respect to s_1, ..., s_T, where s_t is a state candidate at time step t,
@@ -255,6 +276,116 @@ public class ViterbiAlgorithm<S, O, D> {
         }
     }
 
+    /**
+     * Returns the states of the most likely sequence that will not change anymore and that were
+     * not returned before. This is the sequence up to the newest state that is contained in the
+     * most likely sequences of all candidates of the current time step. The returned states are
+     * released, so the memory stays bounded for sequences of arbitrary length. If an HMM break
+     * occurred in the last time step, the time steps up to t-1 are considered.
+     *
+     * @param maxLag If the states of the time step t-maxLag (t is the current time step) are
+     * still ambiguous, the state of the currently most likely sequence is chosen for this time
+     * step and all candidates whose most likely sequence contains another state get zero
+     * probability. Use Integer.MAX_VALUE to only return converged states.
+     *
+     * @throws IllegalArgumentException if maxLag is negative
+     */
+    public List<SequenceState<S, O, D>> pollConvergedSequence(int maxLag) {
+        if (maxLag < 0) {
+            throw new IllegalArgumentException("maxLag must not be negative but was " + maxLag);
+        }
+        final List<SequenceState<S, O, D>> result = new ArrayList<>();
+        if (message == null) {
+            return result;
+        }
+
+        ExtendedState<S, O, D> converged = convergedState();
+        final int decisionTimeStep = timeStep - maxLag;
+        if (decisionTimeStep >= 0 && (converged == null || converged.timeStep < decisionTimeStep)) {
+            converged = forceDecision(decisionTimeStep);
+        }
+        if (converged == null) {
+            return result;
+        }
+
+        ExtendedState<S, O, D> es = converged;
+        while (es != null && es != polledState) {
+            result.add(new SequenceState<>(es.state, es.observation, es.transitionDescriptor));
+            es = es.backPointer;
+        }
+        Collections.reverse(result);
+        polledState = converged;
+        // makes the polled states unreachable
+        converged.backPointer = null;
+        return result;
+    }
+
+    /**
+     * Returns the newest state that is contained in the most likely sequences of all candidates
+     * with non-zero probability or null if there is no such state.
+     */
+    private ExtendedState<S, O, D> convergedState() {
+        final List<ExtendedState<S, O, D>> chains = new ArrayList<>();
+        for (Map.Entry<S, Double> entry : message.entrySet()) {
+            if (entry.getValue() != Double.NEGATIVE_INFINITY) {
+                chains.add(lastExtendedStates.get(entry.getKey()));
+            }
+        }
+        assert !chains.isEmpty(); // Otherwise an HMM break would have occurred.
+
+        // Every chain contains exactly one state per time step, so we step back the chains with
+        // the newest states until all chains point to the same state.
+        while (true) {
+            final ExtendedState<S, O, D> first = chains.get(0);
+            boolean converged = true;
+            int newestTimeStep = first.timeStep;
+            for (ExtendedState<S, O, D> es : chains) {
+                converged &= es == first;
+                newestTimeStep = Math.max(newestTimeStep, es.timeStep);
+            }
+            if (converged) {
+                return first;
+            }
+            for (int i = 0; i < chains.size(); i++) {
+                final ExtendedState<S, O, D> es = chains.get(i);
+                if (es.timeStep == newestTimeStep) {
+                    if (es.backPointer == null) {
+                        return null;
+                    }
+                    chains.set(i, es.backPointer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Chooses the state of the current most likely sequence at the given time step and sets
+     * the probability of all candidates that do not contain this state to zero.
+     */
+    private ExtendedState<S, O, D> forceDecision(int decisionTimeStep) {
+        final ExtendedState<S, O, D> decision =
+                stateAt(lastExtendedStates.get(mostLikelyState()), decisionTimeStep);
+        // Do not modify the message of the message history.
+        message = new LinkedHashMap<>(message);
+        for (Map.Entry<S, Double> entry : message.entrySet()) {
+            if (entry.getValue() == Double.NEGATIVE_INFINITY) {
+                continue;
+            }
+            if (stateAt(lastExtendedStates.get(entry.getKey()), decisionTimeStep) != decision) {
+                entry.setValue(Double.NEGATIVE_INFINITY);
+                lastExtendedStates.remove(entry.getKey());
+            }
+        }
+        return decision;
+    }
+
+    private ExtendedState<S, O, D> stateAt(ExtendedState<S, O, D> es, int timeStep) {
+        while (es.timeStep > timeStep) {
+            es = es.backPointer;
+        }
+        return es;
+    }
+
     /**
      * Returns whether an HMM occurred in the last time step.
      *
@@ -333,10 +464,11 @@ public class ViterbiAlgorithm<S, O, D> {
             messageHistory.add(message);
         }
 
+        timeStep = 0;
         lastExtendedStates = new LinkedHashMap<>();
         for (S candidate : candidates) {
             lastExtendedStates.put(candidate,
-                    new ExtendedState<S, O, D>(candidate, null, observation, null));
+                    new ExtendedState<S, O, D>(candidate, null, observation, null, timeStep));
         }
 
         prevCandidates = new ArrayList<>(candidates); // Defensive copy.
@@ -377,7 +509,7 @@ public class ViterbiAlgorithm<S, O, D> {
                 final Transition<S> transition = new Transition<>(maxPrevState, curState);
                 final ExtendedState<S, O, D> extendedState = new ExtendedState<>(curState,
                         lastExtendedStates.get(maxPrevState), observation,
-                        transitionDescriptors.get(transition));
+                        transitionDescriptors.get(transition), timeStep + 1);
                 result.newExtendedStates.put(curState, extendedState);
             }
         }
@@ -427,7 +559,7 @@ public class ViterbiAlgorithm<S, O, D> {
         // Retrieve most likely state sequence in reverse order
         final List<SequenceState<S, O, D>> result = new ArrayList<>();
         ExtendedState<S, O, D> es = lastExtendedStates.get(lastState);
-        while(es != null) {
+        while(es != null && es != polledState) {
             final SequenceState<S, O, D> ss = new SequenceState<>(es.state, es.observation,
                     es.transitionDescriptor);
             result.add(ss);
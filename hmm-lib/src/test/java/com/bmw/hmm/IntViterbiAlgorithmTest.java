@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2015-2016, BMW Car IT GmbH and BMW AG
+ * Author: Stefan Holder (stefan.holder@bmw.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bmw.hmm;
+
+import static java.lang.Math.log;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntViterbiAlgorithmTest {
+
+    private static final int RAIN = 0;
+    private static final int SUN = 1;
+
+    private static final double[] UMBRELLA = {log(0.9), log(0.2)};
+    private static final double[] NO_UMBRELLA = {log(0.1), log(0.8)};
+    private static final double[] TRANSITIONS = {log(0.7), log(0.3), log(0.3), log(0.7)};
+
+    @Test
+    public void testComputeMostLikelySequence() {
+        final IntViterbiAlgorithm viterbi = new IntViterbiAlgorithm();
+        viterbi.startWithInitialObservation(UMBRELLA);
+        assertEquals(IntViterbiAlgorithm.NO_BACK_POINTER, viterbi.getBackPointer(RAIN));
+        viterbi.nextStep(UMBRELLA, TRANSITIONS);
+        assertEquals(RAIN, viterbi.getBackPointer(RAIN));
+        assertEquals(RAIN, viterbi.getBackPointer(SUN));
+        viterbi.nextStep(NO_UMBRELLA, TRANSITIONS);
+        viterbi.nextStep(UMBRELLA, TRANSITIONS);
+
+        assertArrayEquals(new int[]{RAIN, RAIN, SUN, RAIN}, viterbi.computeMostLikelySequence());
+        assertFalse(viterbi.isBroken());
+        assertEquals(4, viterbi.getTimeSteps());
+        // see the message history of ViterbiAlgorithmTest
+        assertEquals(log(0.9) + log(0.7) + log(0.9) + log(0.3) + log(0.8) + log(0.3) + log(0.9),
+                viterbi.getLogProbability(RAIN), 1e-12);
+    }
+
+    @Test
+    public void testEmptySequence() {
+        final IntViterbiAlgorithm viterbi = new IntViterbiAlgorithm();
+        assertEquals(0, viterbi.computeMostLikelySequence().length);
+        assertFalse(viterbi.isBroken());
+    }
+
+    @Test
+    public void testBreakAtInitialMessage() {
+        final IntViterbiAlgorithm viterbi = new IntViterbiAlgorithm();
+        viterbi.startWithInitialObservation(
+                new double[]{Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY});
+        assertTrue(viterbi.isBroken());
+        assertEquals(0, viterbi.computeMostLikelySequence().length);
+
+        final IntViterbiAlgorithm empty = new IntViterbiAlgorithm();
+        empty.startWithInitialObservation(new double[0]);
+        assertTrue(empty.isBroken());
+    }
+
+    @Test
+    public void testBreakAtSecondTransition() {
+        final IntViterbiAlgorithm viterbi = new IntViterbiAlgorithm();
+        viterbi.startWithInitialObservation(UMBRELLA);
+        viterbi.nextStep(UMBRELLA, TRANSITIONS);
+        // only one candidate without a transition
+        viterbi.nextStep(new double[]{log(0.5)},
+                new double[]{Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY});
+        assertTrue(viterbi.isBroken());
+        assertArrayEquals(new int[]{RAIN, RAIN}, viterbi.computeMostLikelySequence());
+        assertEquals(2, viterbi.getTimeSteps());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooFewTransitions() {
+        final IntViterbiAlgorithm viterbi = new IntViterbiAlgorithm();
+        viterbi.startWithInitialObservation(UMBRELLA);
+        viterbi.nextStep(UMBRELLA, new double[3]);
+    }
+
+    /**
+     * Checks if the first candidate is returned if multiple candidates are equally likely.
+     */
+    @Test
+    public void testDeterministicCandidateOrder() {
+        final IntViterbiAlgorithm viterbi = new IntViterbiAlgorithm();
+        viterbi.startWithInitialObservation(new double[]{log(0.5), log(0.5), log(0.5)});
+        viterbi.nextStep(new double[]{log(0.5), log(0.5)},
+                new double[]{log(0.5), log(0.5), log(0.5), log(0.5), log(0.5), log(0.5)});
+        assertArrayEquals(new int[]{0, 0}, viterbi.computeMostLikelySequence());
+    }
+
+    /**
+     * Compares the results with the ones of {@link ViterbiAlgorithm} for random HMMs with varying
+     * numbers of candidates, zero probabilities and ties.
+     */
+    @Test
+    public void testSameResultAsViterbiAlgorithm() {
+        final Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            final IntViterbiAlgorithm intViterbi = new IntViterbiAlgorithm();
+            final ViterbiAlgorithm<Integer, Integer, String> viterbi = new ViterbiAlgorithm<>();
+            // the states of the time steps must differ for ViterbiAlgorithm
+            final List<List<Integer>> states = new ArrayList<>();
+            final int timeSteps = 1 + random.nextInt(20);
+            for (int t = 0; t < timeSteps && !viterbi.isBroken(); t++) {
+                final List<Integer> candidates = new ArrayList<>();
+                final int candidateCount = 1 + random.nextInt(6);
+                for (int i = 0; i < candidateCount; i++) {
+                    candidates.add(t * 100 + i);
+                }
+                final double[] emissions = new double[candidates.size()];
+                final Map<Integer, Double> emissionMap = new LinkedHashMap<>();
+                for (int i = 0; i < emissions.length; i++) {
+                    emissions[i] = randomLogProbability(random);
+                    emissionMap.put(candidates.get(i), emissions[i]);
+                }
+                if (t == 0) {
+                    intViterbi.startWithInitialObservation(emissions);
+                    viterbi.startWithInitialObservation(t, candidates, emissionMap);
+                } else {
+                    final List<Integer> prevCandidates = states.get(t - 1);
+                    final double[] transitions = new double[prevCandidates.size() * candidates.size()];
+                    final Map<Transition<Integer>, Double> transitionMap = new LinkedHashMap<>();
+                    final Map<Transition<Integer>, String> descriptors = new LinkedHashMap<>();
+                    for (int i = 0; i < prevCandidates.size(); i++) {
+                        for (int j = 0; j < candidates.size(); j++) {
+                            final double p = randomLogProbability(random);
+                            transitions[i * candidates.size() + j] = p;
+                            if (p != Double.NEGATIVE_INFINITY) {
+                                final Transition<Integer> transition =
+                                        new Transition<>(prevCandidates.get(i), candidates.get(j));
+                                transitionMap.put(transition, p);
+                                descriptors.put(transition, i + "->" + j);
+                            }
+                        }
+                    }
+                    intViterbi.nextStep(emissions, transitions);
+                    viterbi.nextStep(t, candidates, emissionMap, transitionMap, descriptors);
+                    assertEquals(viterbi.isBroken(), intViterbi.isBroken());
+                }
+                states.add(candidates);
+            }
+
+            final List<SequenceState<Integer, Integer, String>> expected =
+                    viterbi.computeMostLikelySequence();
+            final int[] result = intViterbi.computeMostLikelySequence();
+            assertEquals(expected.size(), result.length);
+            for (int t = 0; t < result.length; t++) {
+                assertEquals(expected.get(t).state, states.get(t).get(result[t]));
+                if (t > 0) {
+                    assertEquals(expected.get(t).transitionDescriptor,
+                            result[t - 1] + "->" + result[t]);
+                }
+            }
+        }
+    }
+
+    private static double randomLogProbability(Random random) {
+        final int r = random.nextInt(10);
+        if (r == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        // a few fixed values to create ties
+        if (r < 3) {
+            return log(0.5);
+        }
+        return log(random.nextDouble());
+    }
+}
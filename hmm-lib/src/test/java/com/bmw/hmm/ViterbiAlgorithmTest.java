@@ -97,6 +97,14 @@ public class ViterbiAlgorithmTest {
         return result;
     }
 
+    private List<Umbrella> observations(List<SequenceState<Rain, Umbrella, Descriptor>> sequenceStates) {
+        final List<Umbrella> result = new ArrayList<>();
+        for (SequenceState<Rain, Umbrella, Descriptor> ss : sequenceStates) {
+            result.add(ss.observation);
+        }
+        return result;
+    }
+
     /**
      * Tests the Viterbi algorithms with the umbrella example taken from Russell, Norvig: Aritifical
      * Intelligence - A Modern Approach, 3rd edition, chapter 15.2.3. Note that the probabilities in
@@ -203,6 +211,98 @@ public class ViterbiAlgorithmTest {
         }
     }
 
+    /**
+     * Polling the converged states after every time step must result in the same sequence as
+     * computing the most likely sequence at the end. In the umbrella example the back pointers
+     * converge after every time step, so forcing the decision does not change the result.
+     */
+    @Test
+    public void testPollConvergedSequence() {
+        final List<Rain> candidates = new ArrayList<>();
+        candidates.add(Rain.T);
+        candidates.add(Rain.F);
+
+        final Map<Rain, Double> emissionLogProbabilitiesForUmbrella = new LinkedHashMap<>();
+        emissionLogProbabilitiesForUmbrella.put(Rain.T, log(0.9));
+        emissionLogProbabilitiesForUmbrella.put(Rain.F, log(0.2));
+
+        final Map<Rain, Double> emissionLogProbabilitiesForNoUmbrella = new LinkedHashMap<>();
+        emissionLogProbabilitiesForNoUmbrella.put(Rain.T, log(0.1));
+        emissionLogProbabilitiesForNoUmbrella.put(Rain.F, log(0.8));
+
+        final Map<Transition<Rain>, Double> transitionLogProbabilities = new LinkedHashMap<>();
+        transitionLogProbabilities.put(new Transition<Rain>(Rain.T, Rain.T), log(0.7));
+        transitionLogProbabilities.put(new Transition<Rain>(Rain.T, Rain.F), log(0.3));
+        transitionLogProbabilities.put(new Transition<Rain>(Rain.F, Rain.T), log(0.3));
+        transitionLogProbabilities.put(new Transition<Rain>(Rain.F, Rain.F), log(0.7));
+
+        final List<Umbrella> observations = Arrays.asList(Umbrella.T, Umbrella.F, Umbrella.T);
+        for (int maxLag : new int[]{Integer.MAX_VALUE, 1, 0}) {
+            final ViterbiAlgorithm<Rain, Umbrella, Descriptor> viterbi = new ViterbiAlgorithm<>();
+            viterbi.startWithInitialObservation(Umbrella.T, candidates,
+                    emissionLogProbabilitiesForUmbrella);
+            final List<SequenceState<Rain, Umbrella, Descriptor>> result = new ArrayList<>();
+            // the initial states only converge if the decision is forced
+            result.addAll(viterbi.pollConvergedSequence(maxLag));
+            assertEquals(maxLag == 0 ? 1 : 0, result.size());
+
+            for (Umbrella observation : observations) {
+                viterbi.nextStep(observation, candidates, observation == Umbrella.T
+                                ? emissionLogProbabilitiesForUmbrella
+                                : emissionLogProbabilitiesForNoUmbrella,
+                        transitionLogProbabilities);
+                final List<SequenceState<Rain, Umbrella, Descriptor>> polled =
+                        viterbi.pollConvergedSequence(maxLag);
+                assertEquals(1, polled.size());
+                result.addAll(polled);
+            }
+            // only the states that were not polled are returned
+            final List<SequenceState<Rain, Umbrella, Descriptor>> rest =
+                    viterbi.computeMostLikelySequence();
+            assertEquals(maxLag == 0 ? 0 : 1, rest.size());
+            result.addAll(rest);
+            assertEquals(Arrays.asList(Rain.T, Rain.T, Rain.F, Rain.T), states(result));
+            assertEquals(Arrays.asList(Umbrella.T, Umbrella.T, Umbrella.F, Umbrella.T),
+                    observations(result));
+        }
+    }
+
+    /**
+     * If the back pointers do not converge, the decision has to be forced after maxLag time steps.
+     */
+    @Test
+    public void testPollConvergedSequenceWithMaxLag() {
+        final List<Rain> candidates = new ArrayList<>();
+        candidates.add(Rain.T);
+        candidates.add(Rain.F);
+
+        final Map<Rain, Double> emissionLogProbabilities = new LinkedHashMap<>();
+        emissionLogProbabilities.put(Rain.T, log(0.6));
+        emissionLogProbabilities.put(Rain.F, log(0.4));
+
+        // the weather never changes, so the sequences of both candidates never converge
+        final Map<Transition<Rain>, Double> transitionLogProbabilities = new LinkedHashMap<>();
+        transitionLogProbabilities.put(new Transition<Rain>(Rain.T, Rain.T), log(1.0));
+        transitionLogProbabilities.put(new Transition<Rain>(Rain.F, Rain.F), log(1.0));
+
+        final ViterbiAlgorithm<Rain, Umbrella, Descriptor> viterbi = new ViterbiAlgorithm<>();
+        viterbi.startWithInitialObservation(Umbrella.T, candidates, emissionLogProbabilities);
+        for (int i = 0; i < 3; i++) {
+            viterbi.nextStep(Umbrella.T, candidates, emissionLogProbabilities,
+                    transitionLogProbabilities);
+            assertTrue(viterbi.pollConvergedSequence(Integer.MAX_VALUE).isEmpty());
+        }
+        // the decision is forced for the time step 3-2=1
+        final List<SequenceState<Rain, Umbrella, Descriptor>> result =
+                viterbi.pollConvergedSequence(2);
+        assertEquals(Arrays.asList(Rain.T, Rain.T), states(result));
+        // Sun has zero probability now, so the remaining states converged
+        assertEquals(Arrays.asList(Rain.T, Rain.T),
+                states(viterbi.pollConvergedSequence(Integer.MAX_VALUE)));
+        assertTrue(viterbi.computeMostLikelySequence().isEmpty());
+        assertFalse(viterbi.isBroken());
+    }
+
     @Test
     public void testEmptySequence() {
         final ViterbiAlgorithm<Rain, Umbrella, Descriptor> viterbi = new ViterbiAlgorithm<>();
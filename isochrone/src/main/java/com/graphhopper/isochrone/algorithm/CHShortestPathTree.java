@@ -0,0 +1,169 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType;
+import com.graphhopper.isochrone.algorithm.ShortestPathTree.IsoLabel;
+import com.graphhopper.routing.ch.OneToAllCH;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.shapes.BBox;
+
+import java.util.function.Consumer;
+
+import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.*;
+
+/**
+ * Computes the same node-based shortest path tree as {@link ShortestPathTree}, but with {@link OneToAllCH} on a CH
+ * graph instead of a Dijkstra on the base graph. For time and distance limits only the nodes within the beeline
+ * distance that can be covered within the limit (at the maximum speed of the vehicle) are swept. For weight limits
+ * there is no such bound and all nodes of the graph are swept, so {@link ShortestPathTree} is usually faster for them.
+ * <p>
+ * The labels are visited in the order of their weight. The parent of a label is the label of the node before the last
+ * edge of its shortest path. For nodes at the border of the swept region the parent can be missing, because the
+ * shortest path to the parent might not have been calculated.
+ */
+public class CHShortestPathTree implements ReachabilitySearch {
+
+    private final RoutingCHGraph chGraph;
+    private final OneToAllCH.SweepOrder sweepOrder;
+    private final LocationIndex locationIndex;
+    private final boolean reverseFlow;
+    private double limit = -1;
+    private ExploreType exploreType = TIME;
+    private int visitedNodes;
+    private boolean alreadyRun;
+
+    /**
+     * @param chGraph       the CH graph of a node-based CH preparation, the start node must be the only virtual node
+     * @param sweepOrder    the sweep order of the CH graph, only used if all nodes are swept. If this is null it is
+     *                      created when needed.
+     * @param locationIndex the location index of the base graph, used to find the nodes around the start node. If this
+     *                      is null all nodes of the graph are swept.
+     */
+    public CHShortestPathTree(RoutingCHGraph chGraph, OneToAllCH.SweepOrder sweepOrder, LocationIndex locationIndex,
+                              boolean reverseFlow) {
+        this.chGraph = chGraph;
+        this.sweepOrder = sweepOrder;
+        this.locationIndex = locationIndex;
+        this.reverseFlow = reverseFlow;
+    }
+
+    @Override
+    public void setTimeLimit(double limit) {
+        exploreType = TIME;
+        this.limit = limit;
+    }
+
+    @Override
+    public void setDistanceLimit(double limit) {
+        exploreType = DISTANCE;
+        this.limit = limit;
+    }
+
+    @Override
+    public void setWeightLimit(double limit) {
+        exploreType = WEIGHT;
+        this.limit = limit;
+    }
+
+    @Override
+    public void search(int from, final Consumer<IsoLabel> consumer) {
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per call");
+        alreadyRun = true;
+        OneToAllCH oneToAll = new OneToAllCH(chGraph, sweepOrder, reverseFlow);
+        OneToAllCH.Result result = locationIndex == null || exploreType == WEIGHT
+                ? oneToAll.calcAll(from)
+                : oneToAll.calcTargets(from, findNodesAround(from, getMaxBeelineDistance()));
+        visitedNodes = result.visitedNodes;
+
+        // the start node always comes first
+        IsoLabel[] labels = new IsoLabel[result.size()];
+        IntObjectMap<IsoLabel> labelsByNode = new GHIntObjectHashMap<>(result.size());
+        int count = 0;
+        for (int i = 0; i < result.size(); i++) {
+            if (i > 0 && getExploreValue(result, i) > limit)
+                continue;
+            IsoLabel label = new IsoLabel(result.nodes[i], result.edges[i], result.weights[i], result.times[i], result.distances[i], null);
+            labels[count++] = label;
+            labelsByNode.put(label.node, label);
+        }
+        for (int i = 0; i < result.size(); i++) {
+            IsoLabel label = labelsByNode.get(result.nodes[i]);
+            if (label != null && result.parents[i] >= 0)
+                label.parent = labelsByNode.get(result.parents[i]);
+        }
+        final IsoLabel[] finalLabels = labels;
+        int[] order = IndirectSort.mergesort(0, count, (a, b) -> Double.compare(finalLabels[a].weight, finalLabels[b].weight));
+        for (int index : order) {
+            consumer.accept(labels[index]);
+        }
+    }
+
+    private double getMaxBeelineDistance() {
+        if (exploreType == DISTANCE)
+            return limit;
+        // the time limit is in milliseconds and the speed in km/h
+        return limit / 3600.0 * chGraph.getWeighting().getFlagEncoder().getMaxSpeed();
+    }
+
+    private IntHashSet findNodesAround(int from, final double radius) {
+        final Graph graph = chGraph.getBaseGraph();
+        final NodeAccess na = graph.getNodeAccess();
+        final double lat = na.getLat(from);
+        final double lon = na.getLon(from);
+        final IntHashSet nodes = new IntHashSet();
+        BBox bbox = DistanceCalcEarth.DIST_EARTH.createBBox(lat, lon, radius);
+        locationIndex.query(bbox, new LocationIndex.Visitor() {
+            @Override
+            public void onEdge(int edgeId) {
+                EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+                addIfWithinRadius(edge.getBaseNode());
+                addIfWithinRadius(edge.getAdjNode());
+            }
+
+            private void addIfWithinRadius(int node) {
+                if (DistanceCalcEarth.DIST_EARTH.calcDist(lat, lon, na.getLat(node), na.getLon(node)) <= radius)
+                    nodes.add(node);
+            }
+        });
+        return nodes;
+    }
+
+    private double getExploreValue(OneToAllCH.Result result, int index) {
+        if (exploreType == TIME)
+            return result.times[index];
+        if (exploreType == WEIGHT)
+            return result.weights[index];
+        return result.distances[index];
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.coll.MinDoubleHeapWithUpdate;
+import com.graphhopper.routing.AbstractRoutingAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import java.util.Arrays;
+
+import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.*;
+
+/**
+ * Computes the same shortest path tree as {@link ShortestPathTree}, but stores the labels in primitive arrays instead
+ * of IsoLabel objects. The labels are numbered in the order they are created and the visitor only receives this number,
+ * the properties of a label can be read via the getters of this class. This avoids any allocation per label and is
+ * useful for large trees that are written to a stream. The arrays grow with the number of labels, not with the size of
+ * the graph.
+ */
+public class PrimitiveShortestPathTree extends AbstractRoutingAlgorithm {
+
+    /**
+     * The parent of the label of the start node
+     */
+    public static final int NO_PARENT = -1;
+
+    @FunctionalInterface
+    public interface LabelVisitor {
+        /**
+         * Called when the shortest path to the given label was found. The labels are visited in the order of their
+         * weight. The label and its parents can be accessed via the getters until the search is finished.
+         */
+        void visit(int label);
+    }
+
+    private final IntIntHashMap labelsByTraversalId = new IntIntHashMap(1000);
+    private final MinDoubleHeapWithUpdate heap = new MinDoubleHeapWithUpdate(1000);
+    private int[] nodes = new int[1000];
+    private int[] edges = new int[1000];
+    private int[] parents = new int[1000];
+    private double[] weights = new double[1000];
+    private long[] times = new long[1000];
+    private double[] distances = new double[1000];
+    private int labels;
+    private int visitedNodes;
+    private double limit = -1;
+    private ShortestPathTree.ExploreType exploreType = TIME;
+    private final boolean reverseFlow;
+
+    public PrimitiveShortestPathTree(Graph g, Weighting weighting, boolean reverseFlow, TraversalMode traversalMode) {
+        super(g, weighting, traversalMode);
+        this.reverseFlow = reverseFlow;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        throw new IllegalStateException("call search instead");
+    }
+
+    /**
+     * Time limit in milliseconds
+     */
+    public void setTimeLimit(double limit) {
+        exploreType = TIME;
+        this.limit = limit;
+    }
+
+    /**
+     * Distance limit in meter
+     */
+    public void setDistanceLimit(double limit) {
+        exploreType = DISTANCE;
+        this.limit = limit;
+    }
+
+    public void setWeightLimit(double limit) {
+        exploreType = WEIGHT;
+        this.limit = limit;
+    }
+
+    public void search(int from, final LabelVisitor visitor) {
+        checkAlreadyRun();
+        int startLabel = addLabel(from, EdgeIterator.NO_EDGE, 0, 0, 0, NO_PARENT);
+        heap.push(startLabel, 0);
+        if (traversalMode == TraversalMode.NODE_BASED) {
+            labelsByTraversalId.put(from, startLabel);
+        }
+        EdgeFilter filter = reverseFlow ? inEdgeFilter : outEdgeFilter;
+        while (!finished()) {
+            int currentLabel = heap.poll();
+            // the label might have been updated after it was pushed and then exceed the limit, see below
+            if (getExploreValue(currentLabel) > limit)
+                continue;
+            visitor.visit(currentLabel);
+            visitedNodes++;
+
+            int currentEdge = edges[currentLabel];
+            double currentWeight = weights[currentLabel];
+            EdgeIterator iter = edgeExplorer.setBaseNode(nodes[currentLabel]);
+            while (iter.next()) {
+                if (!accept(iter, currentEdge)) {
+                    continue;
+                }
+
+                // todo: for #1835 move the access check into weighting
+                double nextWeight = !filter.accept(iter)
+                        ? Double.POSITIVE_INFINITY
+                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, currentEdge) + currentWeight);
+                if (Double.isInfinite(nextWeight))
+                    continue;
+
+                double nextDistance = iter.getDistance() + distances[currentLabel];
+                long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currentEdge) + times[currentLabel];
+                int nextTraversalId = traversalMode.createTraversalId(iter, reverseFlow);
+                int index = labelsByTraversalId.indexOf(nextTraversalId);
+                if (!labelsByTraversalId.indexExists(index)) {
+                    int label = addLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
+                    labelsByTraversalId.indexInsert(index, nextTraversalId, label);
+                    if (getExploreValue(label) <= limit)
+                        heap.push(label, nextWeight);
+                } else {
+                    int label = labelsByTraversalId.indexGet(index);
+                    if (weights[label] > nextWeight) {
+                        // the label cannot be visited yet, so we can overwrite it instead of creating a new one
+                        setLabel(label, iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
+                        if (heap.contains(label))
+                            heap.update(label, nextWeight);
+                        else if (getExploreValue(label) <= limit)
+                            heap.push(label, nextWeight);
+                    }
+                }
+            }
+        }
+    }
+
+    private int addLabel(int node, int edge, double weight, long time, double distance, int parent) {
+        if (labels == nodes.length) {
+            int newCapacity = labels + (labels >> 1);
+            nodes = Arrays.copyOf(nodes, newCapacity);
+            edges = Arrays.copyOf(edges, newCapacity);
+            parents = Arrays.copyOf(parents, newCapacity);
+            weights = Arrays.copyOf(weights, newCapacity);
+            times = Arrays.copyOf(times, newCapacity);
+            distances = Arrays.copyOf(distances, newCapacity);
+            heap.ensureCapacity(newCapacity);
+        }
+        setLabel(labels, node, edge, weight, time, distance, parent);
+        return labels++;
+    }
+
+    private void setLabel(int label, int node, int edge, double weight, long time, double distance, int parent) {
+        nodes[label] = node;
+        edges[label] = edge;
+        weights[label] = weight;
+        times[label] = time;
+        distances[label] = distance;
+        parents[label] = parent;
+    }
+
+    private double getExploreValue(int label) {
+        if (exploreType == TIME)
+            return times[label];
+        if (exploreType == WEIGHT)
+            return weights[label];
+        return distances[label];
+    }
+
+    public int getNode(int label) {
+        return nodes[label];
+    }
+
+    /**
+     * @return the edge that leads to the node of this label or {@link EdgeIterator#NO_EDGE} for the start label
+     */
+    public int getEdge(int label) {
+        return edges[label];
+    }
+
+    /**
+     * @return the parent label or {@link #NO_PARENT} for the start label
+     */
+    public int getParent(int label) {
+        return parents[label];
+    }
+
+    public double getWeight(int label) {
+        return weights[label];
+    }
+
+    /**
+     * @return the time in milliseconds
+     */
+    public long getTime(int label) {
+        return times[label];
+    }
+
+    /**
+     * @return the distance in meter
+     */
+    public double getDistance(int label) {
+        return distances[label];
+    }
+
+    @Override
+    protected boolean finished() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    protected Path extractPath() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getName() {
+        return "reachability";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
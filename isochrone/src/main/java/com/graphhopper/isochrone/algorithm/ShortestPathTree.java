@@ -52,7 +52,7 @@ import static java.util.Comparator.comparingDouble;
  * @author Peter Karich
  * @author Michael Zilske
  */
-public class ShortestPathTree extends AbstractRoutingAlgorithm {
+public class ShortestPathTree extends AbstractRoutingAlgorithm implements ReachabilitySearch {
 
     enum ExploreType {TIME, DISTANCE, WEIGHT}
 
@@ -109,6 +109,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     /**
      * Time limit in milliseconds
      */
+    @Override
     public void setTimeLimit(double limit) {
         exploreType = TIME;
         this.limit = limit;
@@ -117,16 +118,19 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     /**
      * Distance limit in meter
      */
+    @Override
     public void setDistanceLimit(double limit) {
         exploreType = DISTANCE;
         this.limit = limit;
     }
 
+    @Override
     public void setWeightLimit(double limit) {
         exploreType = WEIGHT;
         this.limit = limit;
     }
 
+    @Override
     public void search(int from, final Consumer<IsoLabel> consumer) {
         checkAlreadyRun();
         IsoLabel currentLabel = new IsoLabel(from, -1, 0, 0, 0, null);
@@ -18,6 +18,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -326,4 +327,41 @@ public class ShortestPathTreeTest {
         );
     }
 
+    @Test
+    public void testPrimitiveTreeIsEqual() {
+        FastestWeighting weighting = new FastestWeighting(carEncoder, new PMap());
+        assertEqualTrees(weighting, TraversalMode.NODE_BASED, 0, ShortestPathTree.ExploreType.TIME, 26_000);
+        assertEqualTrees(weighting, TraversalMode.NODE_BASED, 0, ShortestPathTree.ExploreType.TIME, Double.MAX_VALUE);
+        assertEqualTrees(weighting, TraversalMode.NODE_BASED, 5, ShortestPathTree.ExploreType.DISTANCE, 110);
+        assertEqualTrees(weighting, TraversalMode.EDGE_BASED, 0, ShortestPathTree.ExploreType.TIME, Double.MAX_VALUE);
+        assertEqualTrees(new FastestWeighting(carEncoder, new PMap(), FORBIDDEN_UTURNS), TraversalMode.EDGE_BASED, 0, ShortestPathTree.ExploreType.TIME, Double.MAX_VALUE);
+        assertEqualTrees(new FastestWeighting(carEncoder, new PMap(), new TimeBasedUTurnCost(20000)), TraversalMode.EDGE_BASED, 0, ShortestPathTree.ExploreType.TIME, 90_000);
+    }
+
+    private void assertEqualTrees(FastestWeighting weighting, TraversalMode traversalMode, int from, ShortestPathTree.ExploreType exploreType, double limit) {
+        ShortestPathTree tree = new ShortestPathTree(graph, weighting, false, traversalMode);
+        PrimitiveShortestPathTree primitiveTree = new PrimitiveShortestPathTree(graph, weighting, false, traversalMode);
+        if (exploreType == ShortestPathTree.ExploreType.TIME) {
+            tree.setTimeLimit(limit);
+            primitiveTree.setTimeLimit(limit);
+        } else {
+            tree.setDistanceLimit(limit);
+            primitiveTree.setDistanceLimit(limit);
+        }
+        List<String> expected = new ArrayList<>();
+        tree.search(from, l -> expected.add(l.node + "," + l.edge + "," + l.time + "," + l.distance + ","
+                + (l.parent == null ? -1 : l.parent.node)));
+        List<String> result = new ArrayList<>();
+        primitiveTree.search(from, l -> {
+            int parent = primitiveTree.getParent(l);
+            result.add(primitiveTree.getNode(l) + "," + primitiveTree.getEdge(l) + "," + primitiveTree.getTime(l) + ","
+                    + primitiveTree.getDistance(l) + "," + (parent == PrimitiveShortestPathTree.NO_PARENT ? -1 : primitiveTree.getNode(parent)));
+        });
+        // labels with equal weight might be visited in a different order
+        Collections.sort(expected);
+        Collections.sort(result);
+        assertEquals(expected, result);
+        assertEquals(tree.getVisitedNodes(), primitiveTree.getVisitedNodes());
+    }
+
 }
@@ -0,0 +1,119 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.bmw.hmm.SequenceState;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Creates a list of directed edges (EdgeIteratorState instances turned the right way), each associated with 0 or more
+ * of the observations, from the most likely sequence. These directed edges are edges of the real street graph, where
+ * nodes are intersections. So in _this_ representation, the path that you get when you just look at the edges goes
+ * from an intersection to an intersection.
+ * <p>
+ * The sequence can be added in several parts. An edge match is only returned when the next edge is known, so the
+ * last edge match is returned by {@link #finish()}. The virtual edges are resolved without the query graph, so the
+ * parts can come from different query graphs.
+ */
+class EdgeMatchBuilder {
+    private final Graph graph;
+    private EdgeIteratorState currentDirectedRealEdge;
+    private List<State> states = new ArrayList<>();
+
+    /**
+     * @param graph the base graph of the query graphs
+     */
+    EdgeMatchBuilder(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @return the edge matches that are complete after adding the given part of the sequence
+     */
+    List<EdgeMatch> add(List<SequenceState<State, Observation, Path>> seq) {
+        // Implementation note: We have to look at both states _and_ transitions, since we can have e.g. just one state,
+        // or two states with a transition that is an empty path (observations snapped to the same node in the query graph),
+        // but these states still happen on an edge, and for this representation, we want to have that edge.
+        // (Whereas in the ResponsePath representation, we would just see an empty path.)
+
+        // Note that the result can be empty, even when the input is not. Observations can be on nodes as well as on
+        // edges, and when all observations are on the same node, we get no edge at all.
+        // But apart from that corner case, all observations that go in here are also in the result.
+
+        // (Consider totally forbidding candidate states to be snapped to a point, and make them all be on directed
+        // edges, then that corner case goes away.)
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (SequenceState<State, Observation, Path> transitionAndState : seq) {
+            // transition (except before the first state)
+            if (transitionAndState.transitionDescriptor != null) {
+                for (EdgeIteratorState edge : transitionAndState.transitionDescriptor.calcEdges()) {
+                    nextEdge(resolveToRealEdge(edge), edgeMatches);
+                }
+            }
+            // state
+            if (transitionAndState.state.isOnDirectedEdge()) { // as opposed to on a node
+                nextEdge(resolveToRealEdge(transitionAndState.state.getOutgoingVirtualEdge()), edgeMatches);
+            }
+            states.add(transitionAndState.state);
+        }
+        return edgeMatches;
+    }
+
+    /**
+     * @return the last edge match or an empty list if the sequence did not contain any edge. Afterwards the builder
+     * can be used for a new sequence.
+     */
+    List<EdgeMatch> finish() {
+        List<EdgeMatch> edgeMatches = currentDirectedRealEdge == null
+                ? Collections.<EdgeMatch>emptyList()
+                : Collections.singletonList(new EdgeMatch(currentDirectedRealEdge, states));
+        currentDirectedRealEdge = null;
+        states = new ArrayList<>();
+        return edgeMatches;
+    }
+
+    private void nextEdge(EdgeIteratorState newDirectedRealEdge, List<EdgeMatch> edgeMatches) {
+        if (currentDirectedRealEdge != null && !equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
+            edgeMatches.add(new EdgeMatch(currentDirectedRealEdge, states));
+            states = new ArrayList<>();
+        }
+        currentDirectedRealEdge = newDirectedRealEdge;
+    }
+
+    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
+        return edge1.getEdge() == edge2.getEdge()
+                && edge1.getBaseNode() == edge2.getBaseNode()
+                && edge1.getAdjNode() == edge2.getAdjNode();
+    }
+
+    private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
+        // virtual edges are exactly the edges that are adjacent to a virtual node
+        if (edgeIteratorState instanceof VirtualEdgeIteratorState) {
+            return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
+        } else {
+            return edgeIteratorState;
+        }
+    }
+}
@@ -17,25 +17,16 @@
  */
 package com.graphhopper.matching;
 
+import com.bmw.hmm.IntViterbiAlgorithm;
 import com.bmw.hmm.SequenceState;
-import com.bmw.hmm.Transition;
-import com.bmw.hmm.ViterbiAlgorithm;
 import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.GraphHopper;
-import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
-import com.graphhopper.routing.AStarBidirection;
-import com.graphhopper.routing.BidirRoutingAlgorithm;
-import com.graphhopper.routing.DijkstraBidirectionRef;
 import com.graphhopper.routing.Path;
-import com.graphhopper.routing.lm.LMApproximator;
-import com.graphhopper.routing.lm.LandmarkStorage;
-import com.graphhopper.routing.lm.PrepareLandmarks;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
 import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EdgeFilter;
-import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.index.LocationIndex;
@@ -75,10 +66,10 @@ public class MapMatching {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final Graph graph;
-    private final PrepareLandmarks landmarks;
     private final LocationIndexTree locationIndex;
     private double measurementErrorSigma = 50.0;
     private double transitionProbabilityBeta = 2.0;
+    private double transitionDistanceFactor = 5.0;
     private final int maxVisitedNodes;
     private final DistanceCalc distanceCalc = new DistancePlaneProjection();
     private final Weighting weighting;
@@ -109,34 +100,6 @@ public class MapMatching {
             throw new IllegalArgumentException("Could not find profile '" + profileStr + "', choose one of: " + profileNames);
         }
 
-        boolean disableLM = hints.getBool(Parameters.Landmark.DISABLE, false);
-        boolean disableCH = hints.getBool(Parameters.CH.DISABLE, false);
-
-        // see map-matching/#177: both ch.disable and lm.disable can be used to force Dijkstra which is the better
-        // (=faster) choice when the observations are close to each other
-        boolean useDijkstra = disableLM || disableCH;
-
-        if (graphHopper.getLMPreparationHandler().isEnabled() && !useDijkstra) {
-            // using LM because u-turn prevention does not work properly with (node-based) CH
-            List<String> lmProfileNames = new ArrayList<>();
-            PrepareLandmarks lmPreparation = null;
-            for (LMProfile lmProfile : graphHopper.getLMPreparationHandler().getLMProfiles()) {
-                lmProfileNames.add(lmProfile.getProfile());
-                if (lmProfile.getProfile().equals(profile.getName())) {
-                    lmPreparation = graphHopper.getLMPreparationHandler().getPreparation(
-                            lmProfile.usesOtherPreparation() ? lmProfile.getPreparationProfile() : lmProfile.getProfile()
-                    );
-                }
-            }
-            if (lmPreparation == null) {
-                throw new IllegalArgumentException("Cannot find LM preparation for the requested profile: '" + profile.getName() + "'" +
-                        "\nYou can try disabling LM using " + Parameters.Landmark.DISABLE + "=true" +
-                        "\navailable LM profiles: " + lmProfileNames);
-            }
-            landmarks = lmPreparation;
-        } else {
-            landmarks = null;
-        }
         graph = graphHopper.getGraphHopperStorage();
         weighting = graphHopper.createWeighting(profile, hints);
         this.maxVisitedNodes = hints.getInt(Parameters.Routing.MAX_VISITED_NODES, Integer.MAX_VALUE);
@@ -150,6 +113,16 @@ public class MapMatching {
         this.transitionProbabilityBeta = transitionProbabilityBeta;
     }
 
+    /**
+     * Limits the routes between the candidates of two observations to this
+     * multiple of their linear distance plus the measurement error. Longer
+     * routes are not searched, which makes the transition search faster.
+     * Use Double.POSITIVE_INFINITY to search until max_visited_nodes.
+     */
+    public void setTransitionDistanceFactor(double transitionDistanceFactor) {
+        this.transitionDistanceFactor = transitionDistanceFactor;
+    }
+
     /**
      * Standard deviation of the normal distribution [m] used for modeling the
      * GPS error.
@@ -186,6 +159,10 @@ public class MapMatching {
         result.setGPXEntriesLength(gpxLength(observations));
         result.setGraph(queryGraph);
         result.setWeighting(weighting);
+        result.setTimeSteps(timeSteps.size());
+        result.setCandidates(timeSteps.stream().mapToInt(t -> t.candidates.size()).sum());
+        // one search for every candidate except the ones of the last time step
+        result.setTransitionSearches(timeSteps.isEmpty() ? 0 : result.getCandidates() - timeSteps.get(timeSteps.size() - 1).candidates.size());
         return result;
     }
 
@@ -199,9 +176,7 @@ public class MapMatching {
         int last = observations.size() - 1;
         for (int i = 0; i <= last; i++) {
             Observation observation = observations.get(i);
-            if (i == 0 || i == last || distanceCalc.calcDist(
-                    prevEntry.getPoint().getLat(), prevEntry.getPoint().getLon(),
-                    observation.getPoint().getLat(), observation.getPoint().getLon()) > 2 * measurementErrorSigma) {
+            if (i == 0 || i == last || isFarEnough(prevEntry, observation)) {
                 filtered.add(observation);
                 prevEntry = observation;
             } else {
@@ -273,82 +248,87 @@ public class MapMatching {
 
         final List<ObservationWithCandidateStates> timeSteps = new ArrayList<>();
         for (int i = 0; i < filteredObservations.size(); i++) {
-            Observation observation = filteredObservations.get(i);
-            Collection<Snap> splits = splitsPerObservation.get(i);
-            List<State> candidates = new ArrayList<>();
-            for (Snap split : splits) {
-                if (queryGraph.isVirtualNode(split.getClosestNode())) {
-                    List<VirtualEdgeIteratorState> virtualEdges = new ArrayList<>();
-                    EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(split.getClosestNode());
-                    while (iter.next()) {
-                        if (!queryGraph.isVirtualEdge(iter.getEdge())) {
-                            throw new RuntimeException("Virtual nodes must only have virtual edges "
-                                    + "to adjacent nodes.");
-                        }
-                        virtualEdges.add((VirtualEdgeIteratorState) queryGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()));
-                    }
-                    if (virtualEdges.size() != 2) {
-                        throw new RuntimeException("Each virtual node must have exactly 2 "
-                                + "virtual edges (reverse virtual edges are not returned by the "
-                                + "EdgeIterator");
-                    }
+            timeSteps.add(createTimeStep(queryGraph, filteredObservations.get(i), splitsPerObservation.get(i)));
+        }
+        return timeSteps;
+    }
 
-                    // Create a directed candidate for each of the two possible directions through
-                    // the virtual node. We need to add candidates for both directions because
-                    // we don't know yet which is the correct one. This will be figured
-                    // out by the Viterbi algorithm.
-                    candidates.add(new State(observation, split, virtualEdges.get(0), virtualEdges.get(1)));
-                    candidates.add(new State(observation, split, virtualEdges.get(1), virtualEdges.get(0)));
-                } else {
-                    // Create an undirected candidate for the real node.
-                    candidates.add(new State(observation, split));
+    /**
+     * Creates the candidates of one observation. The snaps must be part of the given query graph.
+     */
+    ObservationWithCandidateStates createTimeStep(QueryGraph queryGraph, Observation observation, Collection<Snap> splits) {
+        List<State> candidates = new ArrayList<>();
+        for (Snap split : splits) {
+            if (queryGraph.isVirtualNode(split.getClosestNode())) {
+                List<VirtualEdgeIteratorState> virtualEdges = new ArrayList<>();
+                EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(split.getClosestNode());
+                while (iter.next()) {
+                    if (!queryGraph.isVirtualEdge(iter.getEdge())) {
+                        throw new RuntimeException("Virtual nodes must only have virtual edges "
+                                + "to adjacent nodes.");
+                    }
+                    virtualEdges.add((VirtualEdgeIteratorState) queryGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()));
+                }
+                if (virtualEdges.size() != 2) {
+                    throw new RuntimeException("Each virtual node must have exactly 2 "
+                            + "virtual edges (reverse virtual edges are not returned by the "
+                            + "EdgeIterator");
                 }
-            }
 
-            timeSteps.add(new ObservationWithCandidateStates(observation, candidates));
+                // Create a directed candidate for each of the two possible directions through
+                // the virtual node. We need to add candidates for both directions because
+                // we don't know yet which is the correct one. This will be figured
+                // out by the Viterbi algorithm.
+                candidates.add(new State(observation, split, virtualEdges.get(0), virtualEdges.get(1)));
+                candidates.add(new State(observation, split, virtualEdges.get(1), virtualEdges.get(0)));
+            } else {
+                // Create an undirected candidate for the real node.
+                candidates.add(new State(observation, split));
+            }
         }
-        return timeSteps;
+        return new ObservationWithCandidateStates(observation, candidates);
     }
 
     /**
      * Computes the most likely state sequence for the observations.
      */
     private List<SequenceState<State, Observation, Path>> computeViterbiSequence(List<ObservationWithCandidateStates> timeSteps) {
-        final HmmProbabilities probabilities = new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
-        final ViterbiAlgorithm<State, Observation, Path> viterbi = new ViterbiAlgorithm<>();
-
+        final HmmProbabilities probabilities = createHmmProbabilities();
+        final IntViterbiAlgorithm viterbi = new IntViterbiAlgorithm();
+
+        // one search per candidate of the previous time step finds the paths to all candidates of the current one.
+        // The search reuses its arrays for all time steps.
+        final TransitionSearch transitionSearch = createTransitionSearch(queryGraph);
+
+        // the candidates are identified by their index in the time step. We only keep the path from the most likely
+        // previous candidate (the back pointer) to every candidate, as only these can be part of the result.
+        final List<Path[]> backPointerPaths = new ArrayList<>(timeSteps.size());
+        double[] transitionLogProbabilities = new double[0];
+        Path[] roadPaths = new Path[0];
         int timeStepCounter = 0;
         ObservationWithCandidateStates prevTimeStep = null;
         for (ObservationWithCandidateStates timeStep : timeSteps) {
-            final Map<State, Double> emissionLogProbabilities = new HashMap<>();
-            Map<Transition<State>, Double> transitionLogProbabilities = new HashMap<>();
-            Map<Transition<State>, Path> roadPaths = new HashMap<>();
-            for (State candidate : timeStep.candidates) {
-                // distance from observation to road in meters
-                final double distance = candidate.getSnap().getQueryDistance();
-                emissionLogProbabilities.put(candidate, probabilities.emissionLogProbability(distance));
-            }
-
+            final double[] emissionLogProbabilities = calcEmissionLogProbabilities(probabilities, timeStep);
             if (prevTimeStep == null) {
-                viterbi.startWithInitialObservation(timeStep.observation, timeStep.candidates, emissionLogProbabilities);
+                viterbi.startWithInitialObservation(emissionLogProbabilities);
+                backPointerPaths.add(new Path[timeStep.candidates.size()]);
             } else {
-                final double linearDistance = distanceCalc.calcDist(prevTimeStep.observation.getPoint().lat,
-                        prevTimeStep.observation.getPoint().lon, timeStep.observation.getPoint().lat, timeStep.observation.getPoint().lon);
-
-                for (State from : prevTimeStep.candidates) {
-                    for (State to : timeStep.candidates) {
-                        final Path path = createRouter().calcPath(from.getSnap().getClosestNode(), to.getSnap().getClosestNode(), from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE, to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE);
-                        if (path.isFound()) {
-                            double transitionLogProbability = probabilities.transitionLogProbability(path.getDistance(), linearDistance);
-                            Transition<State> transition = new Transition<>(from, to);
-                            roadPaths.put(transition, path);
-                            transitionLogProbabilities.put(transition, transitionLogProbability);
-                        }
+                int transitions = prevTimeStep.candidates.size() * timeStep.candidates.size();
+                if (transitionLogProbabilities.length < transitions) {
+                    transitionLogProbabilities = new double[transitions];
+                    roadPaths = new Path[transitions];
+                }
+                calcTransitions(transitionSearch, probabilities, prevTimeStep, timeStep, transitionLogProbabilities, roadPaths);
+                viterbi.nextStep(emissionLogProbabilities, transitionLogProbabilities);
+                if (!viterbi.isBroken()) {
+                    Path[] paths = new Path[timeStep.candidates.size()];
+                    for (int i = 0; i < paths.length; i++) {
+                        int backPointer = viterbi.getBackPointer(i);
+                        if (backPointer != IntViterbiAlgorithm.NO_BACK_POINTER)
+                            paths[i] = roadPaths[backPointer * paths.length + i];
                     }
+                    backPointerPaths.add(paths);
                 }
-                viterbi.nextStep(timeStep.observation, timeStep.candidates,
-                        emissionLogProbabilities, transitionLogProbabilities,
-                        roadPaths);
             }
             if (viterbi.isBroken()) {
                 fail(timeStepCounter, prevTimeStep, timeStep);
@@ -358,7 +338,88 @@ public class MapMatching {
             prevTimeStep = timeStep;
         }
 
-        return viterbi.computeMostLikelySequence();
+        final int[] mostLikelySequence = viterbi.computeMostLikelySequence();
+        final List<SequenceState<State, Observation, Path>> seq = new ArrayList<>(mostLikelySequence.length);
+        for (int t = 0; t < mostLikelySequence.length; t++) {
+            ObservationWithCandidateStates timeStep = timeSteps.get(t);
+            State state = timeStep.candidates.get(mostLikelySequence[t]);
+            seq.add(new SequenceState<>(state, timeStep.observation, backPointerPaths.get(t)[mostLikelySequence[t]]));
+        }
+        return seq;
+    }
+
+    HmmProbabilities createHmmProbabilities() {
+        return new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
+    }
+
+    TransitionSearch createTransitionSearch(QueryGraph queryGraph) {
+        return new TransitionSearch(queryGraph, weighting, maxVisitedNodes);
+    }
+
+    /**
+     * @return the emission log probabilities in the order of the candidates
+     */
+    double[] calcEmissionLogProbabilities(HmmProbabilities probabilities, ObservationWithCandidateStates timeStep) {
+        final double[] emissionLogProbabilities = new double[timeStep.candidates.size()];
+        for (int i = 0; i < emissionLogProbabilities.length; i++) {
+            // distance from observation to road in meters
+            final double distance = timeStep.candidates.get(i).getSnap().getQueryDistance();
+            emissionLogProbabilities[i] = probabilities.emissionLogProbability(distance);
+        }
+        return emissionLogProbabilities;
+    }
+
+    /**
+     * Calculates the paths and transition probabilities from the candidates of the previous time step to the
+     * candidates of the given time step. Both time steps must be part of the query graph of the transition search.
+     * The transition from the i-th previous candidate to the j-th candidate is stored at index
+     * i * timeStep.candidates.size() + j, transitions that were not found get a log probability of -infinity and
+     * a null path.
+     */
+    void calcTransitions(TransitionSearch transitionSearch, HmmProbabilities probabilities,
+                         ObservationWithCandidateStates prevTimeStep, ObservationWithCandidateStates timeStep,
+                         double[] transitionLogProbabilities, Path[] roadPaths) {
+        final double linearDistance = distanceCalc.calcDist(prevTimeStep.observation.getPoint().lat,
+                prevTimeStep.observation.getPoint().lon, timeStep.observation.getPoint().lat, timeStep.observation.getPoint().lon);
+
+        final List<State> targets = timeStep.candidates;
+        double maxTargetDistance = 0;
+        for (State to : targets) {
+            maxTargetDistance = Math.max(maxTargetDistance, to.getSnap().getQueryDistance());
+        }
+        for (int i = 0; i < prevTimeStep.candidates.size(); i++) {
+            final State from = prevTimeStep.candidates.get(i);
+            // the candidates cannot be further apart than this (as the crow flies). The measurement error
+            // avoids a too small limit for observations that are close to each other.
+            double maxDistance = transitionDistanceFactor * (linearDistance + from.getSnap().getQueryDistance()
+                    + maxTargetDistance + 2 * measurementErrorSigma);
+            List<Path> paths = transitionSearch.calcPaths(from, targets, maxDistance);
+            for (int j = 0; j < targets.size(); j++) {
+                final Path path = paths.get(j);
+                final int index = i * targets.size() + j;
+                if (path.isFound()) {
+                    transitionLogProbabilities[index] = probabilities.transitionLogProbability(path.getDistance(), linearDistance);
+                    roadPaths[index] = path;
+                } else {
+                    transitionLogProbabilities[index] = Double.NEGATIVE_INFINITY;
+                    roadPaths[index] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the observation is used for map matching after the given previous observation, i.e. if it is
+     * further away than 2 * measurementErrorSigma
+     */
+    boolean isFarEnough(Observation prevObservation, Observation observation) {
+        return distanceCalc.calcDist(
+                prevObservation.getPoint().getLat(), prevObservation.getPoint().getLon(),
+                observation.getPoint().getLat(), observation.getPoint().getLon()) > 2 * measurementErrorSigma;
+    }
+
+    Graph getGraph() {
+        return graph;
     }
 
     private void fail(int timeStepCounter, ObservationWithCandidateStates prevTimeStep, ObservationWithCandidateStates timeStep) {
@@ -379,86 +440,10 @@ public class MapMatching {
                 + ". If a match is expected consider increasing max_visited_nodes.");
     }
 
-    private BidirRoutingAlgorithm createRouter() {
-        BidirRoutingAlgorithm router;
-        if (landmarks != null) {
-            AStarBidirection algo = new AStarBidirection(queryGraph, weighting, TraversalMode.EDGE_BASED) {
-                @Override
-                protected void initCollections(int size) {
-                    super.initCollections(50);
-                }
-            };
-            LandmarkStorage lms = landmarks.getLandmarkStorage();
-            int activeLM = Math.min(8, lms.getLandmarkCount());
-            algo.setApproximation(LMApproximator.forLandmarks(queryGraph, lms, activeLM));
-            algo.setMaxVisitedNodes(maxVisitedNodes);
-            router = algo;
-        } else {
-            router = new DijkstraBidirectionRef(queryGraph, weighting, TraversalMode.EDGE_BASED) {
-                @Override
-                protected void initCollections(int size) {
-                    super.initCollections(50);
-                }
-            };
-            router.setMaxVisitedNodes(maxVisitedNodes);
-        }
-        return router;
-    }
-
     private List<EdgeMatch> prepareEdgeMatches(List<SequenceState<State, Observation, Path>> seq) {
-        // This creates a list of directed edges (EdgeIteratorState instances turned the right way),
-        // each associated with 0 or more of the observations.
-        // These directed edges are edges of the real street graph, where nodes are intersections.
-        // So in _this_ representation, the path that you get when you just look at the edges goes from
-        // an intersection to an intersection.
-
-        // Implementation note: We have to look at both states _and_ transitions, since we can have e.g. just one state,
-        // or two states with a transition that is an empty path (observations snapped to the same node in the query graph),
-        // but these states still happen on an edge, and for this representation, we want to have that edge.
-        // (Whereas in the ResponsePath representation, we would just see an empty path.)
-
-        // Note that the result can be empty, even when the input is not. Observations can be on nodes as well as on
-        // edges, and when all observations are on the same node, we get no edge at all.
-        // But apart from that corner case, all observations that go in here are also in the result.
-
-        // (Consider totally forbidding candidate states to be snapped to a point, and make them all be on directed
-        // edges, then that corner case goes away.)
-        List<EdgeMatch> edgeMatches = new ArrayList<>();
-        List<State> states = new ArrayList<>();
-        EdgeIteratorState currentDirectedRealEdge = null;
-        for (SequenceState<State, Observation, Path> transitionAndState : seq) {
-            // transition (except before the first state)
-            if (transitionAndState.transitionDescriptor != null) {
-                for (EdgeIteratorState edge : transitionAndState.transitionDescriptor.calcEdges()) {
-                    EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(edge);
-                    if (currentDirectedRealEdge != null) {
-                        if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
-                            EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-                            edgeMatches.add(edgeMatch);
-                            states = new ArrayList<>();
-                        }
-                    }
-                    currentDirectedRealEdge = newDirectedRealEdge;
-                }
-            }
-            // state
-            if (transitionAndState.state.isOnDirectedEdge()) { // as opposed to on a node
-                EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(transitionAndState.state.getOutgoingVirtualEdge());
-                if (currentDirectedRealEdge != null) {
-                    if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
-                        EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-                        edgeMatches.add(edgeMatch);
-                        states = new ArrayList<>();
-                    }
-                }
-                currentDirectedRealEdge = newDirectedRealEdge;
-            }
-            states.add(transitionAndState.state);
-        }
-        if (currentDirectedRealEdge != null) {
-            EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-            edgeMatches.add(edgeMatch);
-        }
+        EdgeMatchBuilder builder = new EdgeMatchBuilder(graph);
+        List<EdgeMatch> edgeMatches = builder.add(seq);
+        edgeMatches.addAll(builder.finish());
         return edgeMatches;
     }
 
@@ -477,20 +462,6 @@ public class MapMatching {
         }
     }
 
-    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
-        return edge1.getEdge() == edge2.getEdge()
-                && edge1.getBaseNode() == edge2.getBaseNode()
-                && edge1.getAdjNode() == edge2.getAdjNode();
-    }
-
-    private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
-        if (queryGraph.isVirtualNode(edgeIteratorState.getBaseNode()) || queryGraph.isVirtualNode(edgeIteratorState.getAdjNode())) {
-            return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
-        } else {
-            return edgeIteratorState;
-        }
-    }
-
     private String getSnappedCandidates(Collection<State> candidates) {
         String str = "";
         for (State gpxe : candidates) {
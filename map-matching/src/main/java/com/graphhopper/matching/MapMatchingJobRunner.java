@@ -0,0 +1,207 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Matches many traces in parallel. The traces are distributed on a work-stealing pool and every thread uses its own
+ * {@link MapMatching} instance, because it is not thread-safe. The traces are read by the worker threads and only a
+ * few of them are in progress at the same time, so the input can be an arbitrarily long stream.
+ * <p>
+ * The results are written in the order they are finished, one line per trace with tab separated columns:
+ * <pre>
+ * id  OK     observations  match length [m]  match time [ms]  edge keys separated by commas
+ * id  ERROR  message
+ * </pre>
+ * The edge keys contain the direction of the matched edges, see {@link com.graphhopper.storage.Graph#getEdgeIteratorStateForKey}.
+ */
+public class MapMatchingJobRunner {
+
+    public interface Trace {
+        /**
+         * @return the identifier of this trace in the output, must not contain tabs or line breaks
+         */
+        String getId();
+
+        /**
+         * Reads the observations of this trace. This is called by the worker threads.
+         */
+        List<Observation> readObservations() throws Exception;
+    }
+
+    private final ThreadLocal<MapMatching> mapMatchings;
+    private final int threads;
+
+    /**
+     * @param mapMatchingFactory creates the MapMatching instance of a thread, it is called once per thread
+     */
+    public MapMatchingJobRunner(Supplier<MapMatching> mapMatchingFactory, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive but was " + threads);
+        this.mapMatchings = ThreadLocal.withInitial(mapMatchingFactory);
+        this.threads = threads;
+    }
+
+    /**
+     * Matches all traces and writes the results to the given writer. The writer is flushed but not closed.
+     */
+    public Statistics run(Iterator<? extends Trace> traces, Writer writer) throws IOException {
+        final Statistics statistics = new Statistics();
+        final AtomicReference<IOException> writeException = new AtomicReference<>();
+        // limits the number of traces that are in progress or waiting, so we do not read the whole input at once
+        final Semaphore inProgress = new Semaphore(4 * threads);
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            while (traces.hasNext() && writeException.get() == null) {
+                inProgress.acquireUninterruptibly();
+                final Trace trace = traces.next();
+                pool.execute(() -> {
+                    try {
+                        String line = match(trace, statistics);
+                        synchronized (writer) {
+                            writer.write(line);
+                        }
+                    } catch (IOException ex) {
+                        writeException.compareAndSet(null, ex);
+                    } finally {
+                        inProgress.release();
+                    }
+                });
+            }
+        } finally {
+            // the traces in progress are finished and written even if reading the input failed
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the traces", ex);
+            }
+        }
+        if (writeException.get() != null)
+            throw writeException.get();
+        writer.flush();
+        statistics.nanos = System.nanoTime() - start;
+        return statistics;
+    }
+
+    private String match(Trace trace, Statistics statistics) {
+        StringBuilder line = new StringBuilder(trace.getId()).append('\t');
+        try {
+            List<Observation> observations = trace.readObservations();
+            MatchResult result = mapMatchings.get().match(observations);
+            statistics.traces.increment();
+            statistics.observations.add(observations.size());
+            statistics.timeSteps.add(result.getTimeSteps());
+            statistics.candidates.add(result.getCandidates());
+            statistics.transitionSearches.add(result.getTransitionSearches());
+
+            line.append("OK\t").append(observations.size())
+                    .append('\t').append(String.format(Locale.ROOT, "%.1f", result.getMatchLength()))
+                    .append('\t').append(result.getMatchMillis())
+                    .append('\t');
+            List<EdgeMatch> edgeMatches = result.getEdgeMatches();
+            for (int i = 0; i < edgeMatches.size(); i++) {
+                if (i > 0)
+                    line.append(',');
+                line.append(edgeMatches.get(i).getEdgeState().getEdgeKey());
+            }
+        } catch (Exception ex) {
+            statistics.failedTraces.increment();
+            line.append("ERROR\t").append(String.valueOf(ex.getMessage()).replaceAll("\\s+", " "));
+        }
+        return line.append('\n').toString();
+    }
+
+    /**
+     * The throughput of a run. The counts include only the traces that were matched successfully.
+     */
+    public static class Statistics {
+        private final LongAdder traces = new LongAdder();
+        private final LongAdder failedTraces = new LongAdder();
+        private final LongAdder observations = new LongAdder();
+        private final LongAdder timeSteps = new LongAdder();
+        private final LongAdder candidates = new LongAdder();
+        private final LongAdder transitionSearches = new LongAdder();
+        private long nanos;
+
+        public long getTraces() {
+            return traces.sum();
+        }
+
+        public long getFailedTraces() {
+            return failedTraces.sum();
+        }
+
+        /**
+         * @return the number of observations before filtering
+         */
+        public long getObservations() {
+            return observations.sum();
+        }
+
+        public long getTimeSteps() {
+            return timeSteps.sum();
+        }
+
+        public long getCandidates() {
+            return candidates.sum();
+        }
+
+        public long getTransitionSearches() {
+            return transitionSearches.sum();
+        }
+
+        public double getSeconds() {
+            return nanos / 1e9;
+        }
+
+        public double getObservationsPerSecond() {
+            return nanos == 0 ? 0 : getObservations() / getSeconds();
+        }
+
+        public double getCandidatesPerTimeStep() {
+            return getTimeSteps() == 0 ? 0 : (double) getCandidates() / getTimeSteps();
+        }
+
+        public double getTransitionSearchesPerTimeStep() {
+            return getTimeSteps() == 0 ? 0 : (double) getTransitionSearches() / getTimeSteps();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "traces: %d, failed: %d, observations: %d, time steps: %d, took: %.1fs, "
+                            + "observations/s: %.1f, candidates/time step: %.2f, searches/time step: %.2f",
+                    getTraces(), getFailedTraces(), getObservations(), getTimeSteps(), getSeconds(),
+                    getObservationsPerSecond(), getCandidatesPerTimeStep(), getTransitionSearchesPerTimeStep());
+        }
+    }
+}
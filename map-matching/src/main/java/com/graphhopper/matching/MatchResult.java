@@ -37,6 +37,9 @@ public class MatchResult {
     private long matchMillis;
     private double gpxEntriesLength;
     private long gpxEntriesMillis;
+    private int timeSteps;
+    private int candidates;
+    private int transitionSearches;
 
     public MatchResult(List<EdgeMatch> edgeMatches) {
         setEdgeMatches(edgeMatches);
@@ -99,6 +102,39 @@ public class MatchResult {
         return matchMillis;
     }
 
+    /**
+     * Number of observations that were used for the matching, i.e. without the observations that were filtered out
+     */
+    public int getTimeSteps() {
+        return timeSteps;
+    }
+
+    public void setTimeSteps(int timeSteps) {
+        this.timeSteps = timeSteps;
+    }
+
+    /**
+     * Number of candidates of all time steps
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(int candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Number of searches that were necessary to calculate the transitions between the candidates
+     */
+    public int getTransitionSearches() {
+        return transitionSearches;
+    }
+
+    public void setTransitionSearches(int transitionSearches) {
+        this.transitionSearches = transitionSearches;
+    }
+
     public Path getMergedPath() {
         return mergedPath;
     }
@@ -16,7 +16,9 @@
  */
 package com.graphhopper.matching;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class ObservationWithCandidateStates {
 
@@ -26,16 +28,16 @@ public class ObservationWithCandidateStates {
     public final Observation observation;
 
     /**
-     * State candidates at this time step.
+     * State candidates at this time step. The Viterbi algorithm identifies them by their index.
      */
-    public final Collection<State> candidates;
+    public final List<State> candidates;
 
     public ObservationWithCandidateStates(Observation observation, Collection<State> candidates) {
         if (observation == null || candidates == null) {
             throw new NullPointerException("observation and candidates must not be null.");
         }
         this.observation = observation;
-        this.candidates = candidates;
+        this.candidates = candidates instanceof List ? (List<State>) candidates : new ArrayList<>(candidates);
     }
 
 }
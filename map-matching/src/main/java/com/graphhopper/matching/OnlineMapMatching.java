@@ -0,0 +1,173 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.bmw.hmm.Transition;
+import com.bmw.hmm.ViterbiAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.storage.index.Snap;
+
+import java.util.*;
+
+/**
+ * Matches a stream of observations of one vehicle. In contrast to {@link MapMatching#match(List)} the observations
+ * are added one at a time and the edge matches are returned as soon as they are final, i.e. when all candidates of
+ * the latest observation lead back to the same candidate, or at the latest when the observation is maxLag time steps
+ * old. In the latter case the most likely candidate at that time is chosen, so the result can differ from the one of
+ * {@link MapMatching#match(List)}. Only the candidates since the last final one are kept, so the memory does not grow
+ * with the length of the track.
+ * <p>
+ * Every time step uses a small query graph with the candidates of the previous and the current observation only. If
+ * no candidate of the current observation is reachable the sequence is finished and a new one is started with this
+ * observation instead of failing like {@link MapMatching#match(List)}.
+ * <p>
+ * This class is not thread-safe, use one instance per vehicle. The MapMatching instance can be shared as long as its
+ * parameters are not changed.
+ */
+public class OnlineMapMatching {
+    private final MapMatching mapMatching;
+    private final int maxLag;
+    private final HmmProbabilities probabilities;
+    private final EdgeMatchBuilder edgeMatchBuilder;
+    private ViterbiAlgorithm<State, Observation, Path> viterbi;
+    private ObservationWithCandidateStates prevTimeStep;
+    // the latest observation if it was skipped because it is too close to the previous one
+    private Observation pendingObservation;
+
+    /**
+     * @param maxLag the number of observations after which a candidate is chosen even if the most likely sequence
+     *               did not converge yet. Use Integer.MAX_VALUE to only return converged edge matches.
+     */
+    public OnlineMapMatching(MapMatching mapMatching, int maxLag) {
+        if (maxLag < 0)
+            throw new IllegalArgumentException("maxLag must not be negative but was " + maxLag);
+        this.mapMatching = mapMatching;
+        this.maxLag = maxLag;
+        this.probabilities = mapMatching.createHmmProbabilities();
+        this.edgeMatchBuilder = new EdgeMatchBuilder(mapMatching.getGraph());
+    }
+
+    /**
+     * Adds the next observation of the track.
+     *
+     * @return the edge matches that became final with this observation, possibly empty
+     */
+    public List<EdgeMatch> add(Observation observation) {
+        if (prevTimeStep != null && !mapMatching.isFarEnough(prevTimeStep.observation, observation)) {
+            // like MapMatching#match we skip close observations but keep the last one
+            pendingObservation = observation;
+            return Collections.emptyList();
+        }
+        pendingObservation = null;
+        return addTimeStep(observation);
+    }
+
+    /**
+     * Finishes the track and returns the remaining edge matches. Afterwards a new track can be added.
+     */
+    public List<EdgeMatch> finish() {
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        if (pendingObservation != null) {
+            edgeMatches.addAll(addTimeStep(pendingObservation));
+            pendingObservation = null;
+        }
+        if (viterbi != null)
+            edgeMatches.addAll(edgeMatchBuilder.add(viterbi.computeMostLikelySequence()));
+        edgeMatches.addAll(edgeMatchBuilder.finish());
+        viterbi = null;
+        prevTimeStep = null;
+        return edgeMatches;
+    }
+
+    private List<EdgeMatch> addTimeStep(Observation observation) {
+        List<Snap> snaps = findCandidateSnaps(observation);
+        if (snaps.isEmpty())
+            return Collections.emptyList();
+
+        if (prevTimeStep == null) {
+            QueryGraph queryGraph = QueryGraph.create(mapMatching.getGraph(), snaps);
+            start(mapMatching.createTimeStep(queryGraph, observation, snaps));
+            return edgeMatchBuilder.add(viterbi.pollConvergedSequence(maxLag));
+        }
+
+        // The query graph of the previous time step does not contain the new snaps, so we create a new one for both
+        // observations. The candidate search is deterministic and so the previous candidates are created in the same
+        // order as before. The Viterbi algorithm knows the previous candidates, so the transitions have to start there.
+        List<Snap> prevSnaps = findCandidateSnaps(prevTimeStep.observation);
+        List<Snap> allSnaps = new ArrayList<>(prevSnaps);
+        allSnaps.addAll(snaps);
+        QueryGraph queryGraph = QueryGraph.create(mapMatching.getGraph(), allSnaps);
+        ObservationWithCandidateStates prevTimeStepAgain = mapMatching.createTimeStep(queryGraph, prevTimeStep.observation, prevSnaps);
+        ObservationWithCandidateStates timeStep = mapMatching.createTimeStep(queryGraph, observation, snaps);
+        if (prevTimeStepAgain.candidates.size() != prevTimeStep.candidates.size())
+            throw new IllegalStateException("Candidates of " + prevTimeStep.observation + " changed: "
+                    + prevTimeStep.candidates.size() + " vs. " + prevTimeStepAgain.candidates.size());
+
+        double[] transitionLogProbabilities = new double[prevTimeStep.candidates.size() * timeStep.candidates.size()];
+        Path[] roadPaths = new Path[transitionLogProbabilities.length];
+        mapMatching.calcTransitions(mapMatching.createTransitionSearch(queryGraph), probabilities,
+                prevTimeStepAgain, timeStep, transitionLogProbabilities, roadPaths);
+
+        Map<Transition<State>, Double> viterbiTransitionLogProbabilities = new HashMap<>();
+        Map<Transition<State>, Path> viterbiRoadPaths = new HashMap<>();
+        for (int i = 0; i < prevTimeStep.candidates.size(); i++) {
+            for (int j = 0; j < timeStep.candidates.size(); j++) {
+                int index = i * timeStep.candidates.size() + j;
+                if (roadPaths[index] == null)
+                    continue;
+                Transition<State> transition = new Transition<>(prevTimeStep.candidates.get(i), timeStep.candidates.get(j));
+                viterbiRoadPaths.put(transition, roadPaths[index]);
+                viterbiTransitionLogProbabilities.put(transition, transitionLogProbabilities[index]);
+            }
+        }
+
+        viterbi.nextStep(observation, timeStep.candidates, emissionLogProbabilities(timeStep),
+                viterbiTransitionLogProbabilities, viterbiRoadPaths);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        if (viterbi.isBroken()) {
+            // the sequence up to the previous observation is final, start a new one with the current observation
+            edgeMatches.addAll(edgeMatchBuilder.add(viterbi.computeMostLikelySequence()));
+            edgeMatches.addAll(edgeMatchBuilder.finish());
+            start(timeStep);
+        } else {
+            prevTimeStep = timeStep;
+        }
+        edgeMatches.addAll(edgeMatchBuilder.add(viterbi.pollConvergedSequence(maxLag)));
+        return edgeMatches;
+    }
+
+    private void start(ObservationWithCandidateStates timeStep) {
+        viterbi = new ViterbiAlgorithm<>();
+        viterbi.startWithInitialObservation(timeStep.observation, timeStep.candidates, emissionLogProbabilities(timeStep));
+        prevTimeStep = timeStep;
+    }
+
+    private Map<State, Double> emissionLogProbabilities(ObservationWithCandidateStates timeStep) {
+        double[] emissionLogProbabilities = mapMatching.calcEmissionLogProbabilities(probabilities, timeStep);
+        Map<State, Double> result = new HashMap<>();
+        for (int i = 0; i < emissionLogProbabilities.length; i++) {
+            result.put(timeStep.candidates.get(i), emissionLogProbabilities[i]);
+        }
+        return result;
+    }
+
+    private List<Snap> findCandidateSnaps(Observation observation) {
+        return mapMatching.findCandidateSnaps(observation.getPoint().lat, observation.getPoint().lon);
+    }
+}
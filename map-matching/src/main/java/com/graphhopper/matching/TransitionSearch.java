@@ -0,0 +1,219 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.coll.MinDoubleHeapWithUpdate;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Calculates the paths from one candidate to all candidates of the next time step with a single edge-based Dijkstra
+ * instead of one bidirectional search per pair of candidates. The paths are the same as the ones of an edge-based
+ * point-to-point search with the start edge restricted to the outgoing edge of a directed source candidate and the
+ * end edge restricted to the incoming edge of a directed target candidate.
+ * <p>
+ * The search stops when all targets are found or when maxVisitedNodes is exceeded. Edges that would make the path
+ * longer than the given distance limit are not explored, such paths are very unlikely transitions anyway. The labels
+ * are stored in primitive arrays that grow with the number of explored edges and are reused for every search, so one
+ * instance should be used for all time steps of a track. This class is not thread-safe.
+ */
+public class TransitionSearch {
+    private static final int NO_PARENT = -1;
+    private final Graph graph;
+    private final Weighting weighting;
+    private final EdgeExplorer edgeExplorer;
+    private final EdgeFilter outEdgeFilter;
+    private final int maxVisitedNodes;
+    private final IntIntHashMap labelsByEdgeKey = new IntIntHashMap(100);
+    private final MinDoubleHeapWithUpdate heap = new MinDoubleHeapWithUpdate(100);
+    private final IntHashSet targetNodes = new IntHashSet();
+    private int[] nodes = new int[100];
+    private int[] edges = new int[100];
+    private int[] parents = new int[100];
+    private double[] weights = new double[100];
+    private double[] distances = new double[100];
+    private int labels;
+    private int visitedNodes;
+
+    public TransitionSearch(Graph graph, Weighting weighting, int maxVisitedNodes) {
+        this.graph = graph;
+        this.weighting = weighting;
+        this.maxVisitedNodes = maxVisitedNodes;
+        this.outEdgeFilter = DefaultEdgeFilter.outEdges(weighting.getFlagEncoder().getAccessEnc());
+        this.edgeExplorer = graph.createEdgeExplorer();
+    }
+
+    /**
+     * @param maxDistance the paths to the targets must not be longer than this distance in meter
+     * @return the paths from the given source to every target in the order of the targets, paths that were not found
+     * are not {@link Path#isFound() found}
+     */
+    public List<Path> calcPaths(State from, List<State> targets, double maxDistance) {
+        labels = 0;
+        visitedNodes = 0;
+        labelsByEdgeKey.clear();
+        heap.clear();
+        targetNodes.clear();
+        for (State target : targets) {
+            targetNodes.add(target.getSnap().getClosestNode());
+        }
+        int[] targetLabels = new int[targets.size()];
+        Arrays.fill(targetLabels, NO_PARENT);
+        int remainingTargets = targets.size();
+
+        int fromNode = from.getSnap().getClosestNode();
+        int fromOutEdge = from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
+        int root = addLabel(fromNode, EdgeIterator.NO_EDGE, 0, 0, NO_PARENT);
+        // if the start edge is restricted the path has to leave via this edge even if a target is at the start node
+        if (fromOutEdge == EdgeIterator.ANY_EDGE)
+            remainingTargets -= settleTargets(root, targets, targetLabels);
+        expand(root, fromOutEdge, maxDistance);
+        while (remainingTargets > 0 && !heap.isEmpty() && visitedNodes <= maxVisitedNodes) {
+            int label = heap.poll();
+            visitedNodes++;
+            remainingTargets -= settleTargets(label, targets, targetLabels);
+            expand(label, EdgeIterator.ANY_EDGE, maxDistance);
+        }
+
+        List<Path> paths = new ArrayList<>(targets.size());
+        for (int targetLabel : targetLabels) {
+            paths.add(targetLabel == NO_PARENT ? new Path(graph) : extractPath(targetLabel));
+        }
+        return paths;
+    }
+
+    /**
+     * @return the number of targets whose shortest path ends with the given label
+     */
+    private int settleTargets(int label, List<State> targets, int[] targetLabels) {
+        int node = nodes[label];
+        if (!targetNodes.contains(node))
+            return 0;
+        int settled = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            if (targetLabels[i] != NO_PARENT)
+                continue;
+            State target = targets.get(i);
+            if (target.getSnap().getClosestNode() != node)
+                continue;
+            // the labels are polled in the order of their weight, so the first matching label is the best one
+            if (!target.isOnDirectedEdge() || target.getIncomingVirtualEdge().getEdge() == edges[label]) {
+                targetLabels[i] = label;
+                settled++;
+            }
+        }
+        return settled;
+    }
+
+    private void expand(int label, int restrictedEdge, double maxDistance) {
+        int currEdge = edges[label];
+        double currWeight = weights[label];
+        double currDistance = distances[label];
+        EdgeIterator iter = edgeExplorer.setBaseNode(nodes[label]);
+        while (iter.next()) {
+            if (restrictedEdge != EdgeIterator.ANY_EDGE && iter.getEdge() != restrictedEdge)
+                continue;
+            // todo: for #1835 move the access check into weighting
+            if (!outEdgeFilter.accept(iter))
+                continue;
+            double nextDistance = currDistance + iter.getDistance();
+            if (nextDistance > maxDistance)
+                continue;
+            double nextWeight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge) + currWeight;
+            if (Double.isInfinite(nextWeight))
+                continue;
+
+            int edgeKey = TraversalMode.EDGE_BASED.createTraversalId(iter, false);
+            int index = labelsByEdgeKey.indexOf(edgeKey);
+            if (!labelsByEdgeKey.indexExists(index)) {
+                int nextLabel = addLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextDistance, label);
+                labelsByEdgeKey.indexInsert(index, edgeKey, nextLabel);
+                heap.push(nextLabel, nextWeight);
+            } else {
+                int nextLabel = labelsByEdgeKey.indexGet(index);
+                // labels that were already polled cannot be improved
+                if (weights[nextLabel] > nextWeight) {
+                    setLabel(nextLabel, iter.getAdjNode(), iter.getEdge(), nextWeight, nextDistance, label);
+                    heap.update(nextLabel, nextWeight);
+                }
+            }
+        }
+    }
+
+    private Path extractPath(int label) {
+        Path path = new Path(graph);
+        int endNode = nodes[label];
+        int fromNode = endNode;
+        int curr = label;
+        while (parents[curr] != NO_PARENT) {
+            int parent = parents[curr];
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edges[curr], nodes[curr]);
+            path.addDistance(edgeState.getDistance());
+            path.addTime(GHUtility.calcMillisWithTurnMillis(weighting, edgeState, false, edges[parent]));
+            path.addEdge(edges[curr]);
+            fromNode = nodes[parent];
+            curr = parent;
+        }
+        ArrayUtil.reverse(path.getEdges());
+        path.setFromNode(fromNode);
+        path.setEndNode(endNode);
+        path.setWeight(weights[label]);
+        path.setFound(true);
+        return path;
+    }
+
+    private int addLabel(int node, int edge, double weight, double distance, int parent) {
+        if (labels == nodes.length) {
+            int newCapacity = labels + (labels >> 1);
+            nodes = Arrays.copyOf(nodes, newCapacity);
+            edges = Arrays.copyOf(edges, newCapacity);
+            parents = Arrays.copyOf(parents, newCapacity);
+            weights = Arrays.copyOf(weights, newCapacity);
+            distances = Arrays.copyOf(distances, newCapacity);
+            heap.ensureCapacity(newCapacity);
+        }
+        setLabel(labels, node, edge, weight, distance, parent);
+        return labels++;
+    }
+
+    private void setLabel(int label, int node, int edge, double weight, double distance, int parent) {
+        nodes[label] = node;
+        edges[label] = edge;
+        weights[label] = weight;
+        distances[label] = distance;
+        parents[label] = parent;
+    }
+
+    /**
+     * @return the number of polled labels of the last search
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
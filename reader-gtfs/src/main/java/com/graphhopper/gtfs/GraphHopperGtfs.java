@@ -88,6 +88,11 @@ public class GraphHopperGtfs extends GraphHopperOSM {
                     return this;
                 }
 
+                @Override
+                public DataReader setWayThreads(int wayThreads) {
+                    return this;
+                }
+
                 @Override
                 public DataReader setWayPointMaxDistance(double wayPointMaxDistance) {
                     return this;
@@ -20,6 +20,7 @@ package com.graphhopper;
 import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
+import com.graphhopper.json.Statement;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.reader.dem.SRTMProvider;
@@ -32,6 +33,7 @@ import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.parsers.OSMMaxSpeedParser;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.storage.IntsRef;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.CH;
@@ -49,6 +51,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 
 import java.io.File;
 import java.util.*;
@@ -230,6 +236,10 @@ public class GraphHopperTest {
     }
 
     private void testImportCloseAndLoad(boolean ch, boolean lm, boolean sort) {
+        testImportCloseAndLoad(ch, lm, sort, "dfs");
+    }
+
+    private void testImportCloseAndLoad(boolean ch, boolean lm, boolean sort, String sortOrder) {
         final String profile = "profile";
         final String vehicle = "foot";
         final String weighting = "shortest";
@@ -237,7 +247,8 @@ public class GraphHopperTest {
                 setOSMFile(MONACO).
                 setProfiles(Collections.singletonList(new Profile(profile).setVehicle(vehicle).setWeighting(weighting))).
                 setStoreOnFlush(true).
-                setSortGraph(sort);
+                setSortGraph(sort).
+                setSortOrder(sortOrder);
         if (ch) {
             hopper.getCHPreparationHandler()
                     .setCHProfiles(new CHProfile(profile));
@@ -332,11 +343,168 @@ public class GraphHopperTest {
         testImportCloseAndLoad(true, true, true);
     }
 
+    @Test
+    public void testImportThenLoadCHAndSortHilbert() {
+        testImportCloseAndLoad(true, false, true, "hilbert");
+    }
+
     @Test
     public void testImportThenLoadFlexible() {
         testImportCloseAndLoad(false, false, false);
     }
 
+    @Test
+    public void testCustomizableCH() {
+        final String profile = "profile";
+        GraphHopper hopper = createGraphHopper("car").
+                setOSMFile(MONACO).
+                setProfiles(new CustomProfile(profile).setCustomModel(new CustomModel()).setVehicle("car")).
+                setStoreOnFlush(true).
+                setCCHEnabled(true);
+        hopper.importOrLoad();
+
+        CustomModel queryModel = new CustomModel();
+        queryModel.addToPriority(Statement.If("road_class == PRIMARY", Statement.Op.MULTIPLY, 0.1));
+        queryModel.setDistanceInfluence(70);
+        List<GHPoint> points = asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.730729, 7.42135), new GHPoint(43.739213, 7.427806));
+        for (CustomModel model : asList(null, queryModel)) {
+            for (GHPoint from : points) {
+                for (GHPoint to : points) {
+                    GHRequest req = new GHRequest(from, to).setProfile(profile);
+                    if (model != null)
+                        req.putHint(CustomModel.KEY, model);
+                    GHResponse cchRsp = hopper.route(req);
+                    assertFalse(cchRsp.hasErrors(), cchRsp.getErrors().toString());
+                    req.putHint(Parameters.CCH.DISABLE, true);
+                    GHResponse rsp = hopper.route(req);
+                    assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+                    assertEquals(rsp.getBest().getRouteWeight(), cchRsp.getBest().getRouteWeight(), 1.e-3);
+                    assertEquals(rsp.getBest().getDistance(), cchRsp.getBest().getDistance(), 1.e-1);
+                }
+            }
+        }
+        GHResponse rsp = hopper.route(new GHRequest(points.get(0), points.get(1)).setProfile(profile).putHint(CustomModel.KEY, queryModel));
+        GHResponse rspNoCCH = hopper.route(new GHRequest(points.get(0), points.get(1)).setProfile(profile)
+                .putHint(CustomModel.KEY, queryModel).putHint(Parameters.CCH.DISABLE, true));
+        assertTrue(rsp.getHints().getLong("visited_nodes.sum", 0) < rspNoCCH.getHints().getLong("visited_nodes.sum", 0));
+    }
+
+    @Test
+    public void testCustomizableCHAreasWithSameId() {
+        final String profile = "profile";
+        GraphHopper hopper = createGraphHopper("car").
+                setOSMFile(MONACO).
+                setProfiles(new CustomProfile(profile).setCustomModel(new CustomModel()).setVehicle("car")).
+                setStoreOnFlush(true).
+                setCCHEnabled(true);
+        hopper.importOrLoad();
+
+        GHPoint from = new GHPoint(43.727687, 7.418737);
+        GHPoint to = new GHPoint(43.74958, 7.436566);
+        GHResponse rsp = hopper.route(new GHRequest(from, to).setProfile(profile));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        PointList points = rsp.getBest().getPoints();
+        GHPoint middle = points.get(points.size() / 2);
+
+        // both areas have the same id, but only the first one blocks the fastest route
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Geometry onRoute = geometryFactory.toGeometry(new Envelope(middle.lon - 0.0005, middle.lon + 0.0005, middle.lat - 0.0005, middle.lat + 0.0005));
+        Geometry offRoute = geometryFactory.toGeometry(new Envelope(7.40, 7.401, 43.70, 43.701));
+        double blockedDistance = 0;
+        for (Geometry geometry : asList(onRoute, offRoute)) {
+            CustomModel queryModel = new CustomModel();
+            queryModel.addToPriority(Statement.If("in_area_blocked", Statement.Op.MULTIPLY, 0));
+            queryModel.getAreas().put("blocked", new JsonFeature("blocked", "Feature", null, geometry, new HashMap<>()));
+            GHRequest req = new GHRequest(from, to).setProfile(profile).putHint(CustomModel.KEY, queryModel);
+            GHResponse cchRsp = hopper.route(req);
+            assertFalse(cchRsp.hasErrors(), cchRsp.getErrors().toString());
+            req.putHint(Parameters.CCH.DISABLE, true);
+            GHResponse flexRsp = hopper.route(req);
+            assertFalse(flexRsp.hasErrors(), flexRsp.getErrors().toString());
+            assertEquals(flexRsp.getBest().getRouteWeight(), cchRsp.getBest().getRouteWeight(), 1.e-3);
+            assertEquals(flexRsp.getBest().getDistance(), cchRsp.getBest().getDistance(), 1.e-1);
+            if (geometry == onRoute)
+                blockedDistance = cchRsp.getBest().getDistance();
+            else
+                assertEquals(rsp.getBest().getDistance(), cchRsp.getBest().getDistance(), 1.e-1);
+        }
+        assertNotEquals(rsp.getBest().getDistance(), blockedDistance, 1.e-1);
+    }
+
+    @Test
+    public void testSnapCacheAreasWithSameId() {
+        final String profile = "profile";
+        GraphHopper hopper = createGraphHopper("car").
+                setOSMFile(MONACO).
+                setProfiles(new CustomProfile(profile).setCustomModel(new CustomModel()).setVehicle("car")).
+                setStoreOnFlush(true).
+                setSnapCache(100, 10);
+        hopper.importOrLoad();
+
+        GHPoint from = new GHPoint(43.727687, 7.418737);
+        GHPoint to = new GHPoint(43.74958, 7.436566);
+        GHResponse rsp = hopper.route(new GHRequest(from, to).setProfile(profile));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        GHPoint snapped = rsp.getBest().getWaypoints().get(0);
+
+        // both areas have the same id, but only the first one excludes the edge the start point snaps to
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Geometry aroundSnap = geometryFactory.toGeometry(new Envelope(snapped.lon - 0.00005, snapped.lon + 0.00005, snapped.lat - 0.00005, snapped.lat + 0.00005));
+        Geometry elsewhere = geometryFactory.toGeometry(new Envelope(7.40, 7.401, 43.70, 43.701));
+        for (Geometry geometry : asList(aroundSnap, elsewhere)) {
+            CustomModel queryModel = new CustomModel();
+            queryModel.addToPriority(Statement.If("in_area_blocked", Statement.Op.MULTIPLY, 0));
+            queryModel.getAreas().put("blocked", new JsonFeature("blocked", "Feature", null, geometry, new HashMap<>()));
+            GHResponse areaRsp = hopper.route(new GHRequest(from, to).setProfile(profile).putHint(CustomModel.KEY, queryModel));
+            assertFalse(areaRsp.hasErrors(), areaRsp.getErrors().toString());
+            GHPoint areaSnapped = areaRsp.getBest().getWaypoints().get(0);
+            if (geometry == aroundSnap)
+                assertFalse(aroundSnap.contains(geometryFactory.createPoint(new Coordinate(areaSnapped.lon, areaSnapped.lat))));
+            else
+                assertEquals(snapped, areaSnapped);
+        }
+    }
+
+    @Test
+    public void testPrecomputedEdgeWeights() {
+        final String profile = "profile";
+        List<GHRequest> requests = new ArrayList<>();
+        for (GHPoint[] points : new GHPoint[][]{
+                {new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566)},
+                {new GHPoint(43.730729, 7.42135), new GHPoint(43.739213, 7.427806)},
+                {new GHPoint(43.74958, 7.436566), new GHPoint(43.730729, 7.42135)}}) {
+            requests.add(new GHRequest(points[0], points[1]).setProfile(profile));
+        }
+        GraphHopper hopper = createGraphHopper("car").
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.importOrLoad();
+        List<ResponsePath> expected = new ArrayList<>();
+        for (GHRequest req : requests) {
+            GHResponse rsp = hopper.route(req);
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            expected.add(rsp.getBest());
+        }
+        hopper.close();
+
+        hopper = createGraphHopper("car").
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setEdgeWeightProfiles(Collections.singletonList(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        assertTrue(hopper.load(GH_LOCATION));
+        for (int i = 0; i < requests.size(); i++) {
+            GHResponse rsp = hopper.route(requests.get(i));
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertEquals(expected.get(i).getRouteWeight(), rsp.getBest().getRouteWeight(), 1.e-2);
+            assertEquals(expected.get(i).getDistance(), rsp.getBest().getDistance(), 1.e-1);
+            assertEquals(expected.get(i).getTime(), rsp.getBest().getTime());
+        }
+        hopper.close();
+    }
+
     @Test
     public void testAlternativeRoutes() {
         final String profile = "profile";
@@ -21,6 +21,7 @@ import com.carrotsearch.hppc.LongIndexedContainer;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.GraphHopperTest;
 import com.graphhopper.config.Profile;
 import com.graphhopper.reader.DataReader;
@@ -342,6 +343,37 @@ public class OSMReaderTest {
         assertEquals(88643, iter.getDistance(), 1);
     }
 
+    @Test
+    public void testParallelWayProcessing() {
+        GraphHopperStorage sequential = importAndorra(dir + "/sequential", 1).getGraphHopperStorage();
+        GraphHopperStorage parallel = importAndorra(dir + "/parallel", 3).getGraphHopperStorage();
+        assertEquals(sequential.getNodes(), parallel.getNodes());
+        assertEquals(sequential.getEdges(), parallel.getEdges());
+        for (int node = 0; node < sequential.getNodes(); node++) {
+            assertEquals(sequential.getNodeAccess().getLat(node), parallel.getNodeAccess().getLat(node), "node " + node);
+            assertEquals(sequential.getNodeAccess().getLon(node), parallel.getNodeAccess().getLon(node), "node " + node);
+        }
+        AllEdgesIterator iter = sequential.getAllEdges();
+        while (iter.next()) {
+            EdgeIteratorState edge = parallel.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode());
+            assertEquals(iter.getBaseNode(), edge.getBaseNode(), "edge " + iter.getEdge());
+            assertEquals(iter.getDistance(), edge.getDistance(), "edge " + iter.getEdge());
+            assertEquals(iter.getName(), edge.getName(), "edge " + iter.getEdge());
+            assertEquals(iter.getFlags(), edge.getFlags(), "edge " + iter.getEdge());
+            assertEquals(iter.fetchWayGeometry(FetchMode.ALL), edge.fetchWayGeometry(FetchMode.ALL), "edge " + iter.getEdge());
+        }
+    }
+
+    private GraphHopper importAndorra(String location, int wayThreads) {
+        GraphHopper hopper = new GraphHopperOSM().setStoreOnFlush(false);
+        hopper.init(new GraphHopperConfig().
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", location).
+                putObject("graph.flag_encoders", "car,bike,foot").
+                putObject("datareader.way_threads", wayThreads));
+        return hopper.importOrLoad();
+    }
+
     @Test
     public void testBarriers() {
         GraphHopper hopper = new GraphHopperFacade(fileBarriers).
@@ -614,6 +614,7 @@ public class Measurement {
         final EdgeExplorer edgeExplorer = g.createEdgeExplorer(edgeFilter);
         final AtomicLong visitedNodesSum = new AtomicLong(0);
         final AtomicLong maxVisitedNodes = new AtomicLong(0);
+        final AtomicLong allocatedBytesSum = new AtomicLong(0);
 //        final AtomicLong extractTimeSum = new AtomicLong(0);
 //        final AtomicLong calcPointsTimeSum = new AtomicLong(0);
 //        final AtomicLong calcDistTimeSum = new AtomicLong(0);
@@ -677,8 +678,10 @@ public class Measurement {
                 req.getHints().putObject(Parameters.Routing.WAY_POINT_MAX_DISTANCE, 0);
 
             GHResponse rsp;
+            long allocatedBytes = getAllocatedBytes();
             try {
                 rsp = hopper.route(req);
+                allocatedBytes = getAllocatedBytes() - allocatedBytes;
             } catch (Exception ex) {
                 // 'not found' can happen if import creates more than one subnetwork
                 throw new RuntimeException("Error while calculating route! nodes: " + nodes + ", request:" + req, ex);
@@ -703,6 +706,7 @@ public class Measurement {
             if (!warmup) {
                 long visitedNodes = rsp.getHints().getLong("visited_nodes.sum", 0);
                 visitedNodesSum.addAndGet(visitedNodes);
+                allocatedBytesSum.addAndGet(allocatedBytes);
                 if (visitedNodes > maxVisitedNodes.get()) {
                     maxVisitedNodes.set(visitedNodes);
                 }
@@ -748,9 +752,21 @@ public class Measurement {
         put(prefix + ".visited_nodes_mean", (float) visitedNodesSum.get() / count);
         put(prefix + ".visited_nodes_max", (float) maxVisitedNodes.get());
         put(prefix + ".alternative_rate", (float) altCount.get() / count);
+        // the bytes allocated by the routing thread per request, -1 if the JVM cannot measure them
+        put(prefix + ".allocated_bytes_mean", getAllocatedBytes() < 0 ? -1 : (float) allocatedBytesSum.get() / count);
         print(prefix, miniPerf);
     }
 
+    /**
+     * @return the number of bytes allocated by the current thread so far or -1 if this is not supported
+     */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
     void print(String prefix, MiniPerfTest perf) {
         logger.info(prefix + ": " + perf.getReport());
         put(prefix + ".sum", perf.getSum());
@@ -0,0 +1,315 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jackson;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import static com.graphhopper.jackson.ResponsePathProtobufSerializer.*;
+
+/**
+ * Reads the binary response written by {@link ResponsePathProtobufSerializer} and creates the same objects as
+ * {@link ResponsePathDeserializer} does for the JSON response.
+ */
+public class ResponsePathProtobufDeserializer {
+
+    public static GHResponse read(InputStream inputStream, boolean turnDescription) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(inputStream);
+        // avoid the 64MB default limit for responses with many or very long paths
+        in.setSizeLimit(Integer.MAX_VALUE);
+        GHResponse response = new GHResponse();
+        boolean hasElevation = false;
+        while (true) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 0:
+                    return response;
+                case RESPONSE_ELEVATION:
+                    hasElevation = in.readBool();
+                    break;
+                case RESPONSE_PATHS:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    response.add(readPath(in, hasElevation, turnDescription));
+                    in.popLimit(limit);
+                    break;
+                case RESPONSE_TOOK:
+                    response.getHints().putObject("took", in.readInt64());
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private static ResponsePath readPath(CodedInputStream in, boolean hasElevation, boolean turnDescription) throws IOException {
+        ResponsePath responsePath = new ResponsePath();
+        List<String> description = new ArrayList<>();
+        List<RawInstruction> rawInstructions = new ArrayList<>();
+        Map<String, List<PathDetail>> pathDetails = new HashMap<>();
+        PointList points = PointList.EMPTY;
+        while (true) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 0:
+                    if (!description.isEmpty())
+                        responsePath.setDescription(description);
+                    if (!rawInstructions.isEmpty())
+                        responsePath.setInstructions(createInstructions(rawInstructions, points, hasElevation, turnDescription));
+                    if (!pathDetails.isEmpty())
+                        responsePath.addPathDetails(pathDetails);
+                    List<Integer> pointsOrder = new ArrayList<>(responsePath.getWaypoints().size());
+                    for (int i = 0; i < responsePath.getWaypoints().size(); i++) {
+                        pointsOrder.add(i);
+                    }
+                    responsePath.setPointsOrder(pointsOrder);
+                    return responsePath;
+                case PATH_DISTANCE:
+                    responsePath.setDistance(in.readDouble());
+                    break;
+                case PATH_WEIGHT:
+                    responsePath.setRouteWeight(in.readDouble());
+                    break;
+                case PATH_TIME:
+                    responsePath.setTime(in.readInt64());
+                    break;
+                case PATH_TRANSFERS:
+                    responsePath.setNumChanges(in.readInt32());
+                    break;
+                case PATH_POINTS:
+                    points = readPoints(in, hasElevation);
+                    responsePath.setPoints(points);
+                    break;
+                case PATH_SNAPPED_WAYPOINTS:
+                    responsePath.setWaypoints(readPoints(in, hasElevation));
+                    break;
+                case PATH_INSTRUCTIONS:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    rawInstructions.add(readInstruction(in));
+                    in.popLimit(limit);
+                    break;
+                case PATH_DETAILS:
+                    limit = in.pushLimit(in.readRawVarint32());
+                    readDetail(in, pathDetails);
+                    in.popLimit(limit);
+                    break;
+                case PATH_ASCEND:
+                    responsePath.setAscend(in.readDouble());
+                    break;
+                case PATH_DESCEND:
+                    responsePath.setDescend(in.readDouble());
+                    break;
+                case PATH_DESCRIPTION:
+                    description.add(in.readString());
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private static PointList readPoints(CodedInputStream in, boolean hasElevation) throws IOException {
+        int length = in.readRawVarint32();
+        int limit = in.pushLimit(length);
+        // every coordinate needs at least one byte
+        PointList points = new PointList(Math.max(10, length / (hasElevation ? 3 : 2)), hasElevation);
+        int lat = 0, lon = 0, ele = 0;
+        while (in.getBytesUntilLimit() > 0) {
+            lat += in.readSInt32();
+            lon += in.readSInt32();
+            if (hasElevation) {
+                ele += in.readSInt32();
+                points.add(lat / COORDINATE_FACTOR, lon / COORDINATE_FACTOR, ele / ELEVATION_FACTOR);
+            } else {
+                points.add(lat / COORDINATE_FACTOR, lon / COORDINATE_FACTOR);
+            }
+        }
+        in.popLimit(limit);
+        return points;
+    }
+
+    private static RawInstruction readInstruction(CodedInputStream in) throws IOException {
+        RawInstruction instruction = new RawInstruction();
+        while (true) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 0:
+                    return instruction;
+                case INSTRUCTION_SIGN:
+                    instruction.sign = in.readSInt32();
+                    break;
+                case INSTRUCTION_TEXT:
+                    instruction.text = in.readString();
+                    break;
+                case INSTRUCTION_STREET_NAME:
+                    instruction.streetName = in.readString();
+                    break;
+                case INSTRUCTION_DISTANCE:
+                    instruction.distance = in.readDouble();
+                    break;
+                case INSTRUCTION_TIME:
+                    instruction.time = in.readInt64();
+                    break;
+                case INSTRUCTION_FIRST:
+                    instruction.first = in.readInt32();
+                    break;
+                case INSTRUCTION_LAST:
+                    instruction.last = in.readInt32();
+                    break;
+                case INSTRUCTION_EXIT_NUMBER:
+                    instruction.exitNumber = in.readInt32();
+                    break;
+                case INSTRUCTION_EXITED:
+                    instruction.exited = in.readBool();
+                    break;
+                case INSTRUCTION_TURN_ANGLE:
+                    instruction.turnAngle = in.readDouble();
+                    break;
+                case INSTRUCTION_HEADING:
+                    instruction.heading = in.readDouble();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private static InstructionList createInstructions(List<RawInstruction> rawInstructions, PointList points,
+                                                      boolean hasElevation, boolean turnDescription) {
+        InstructionList il = new InstructionList(rawInstructions.size(), null);
+        int viaCount = 1;
+        for (RawInstruction raw : rawInstructions) {
+            String text = turnDescription ? raw.text : raw.streetName;
+            PointList instPL = new PointList(raw.last - raw.first, hasElevation);
+            for (int j = raw.first; j <= raw.last && j < points.size(); j++) {
+                instPL.add(points, j);
+            }
+
+            Instruction instr;
+            if (raw.sign == Instruction.USE_ROUNDABOUT || raw.sign == Instruction.LEAVE_ROUNDABOUT) {
+                RoundaboutInstruction ri = new RoundaboutInstruction(raw.sign, text, instPL);
+                if (raw.exitNumber >= 0)
+                    ri.setExitNumber(raw.exitNumber);
+                if (raw.exited)
+                    ri.setExited();
+                if (!Double.isNaN(raw.turnAngle)) {
+                    ri.setDirOfRotation(raw.turnAngle);
+                    ri.setRadian((raw.turnAngle < 0 ? -Math.PI : Math.PI) - raw.turnAngle);
+                }
+                instr = ri;
+            } else if (raw.sign == Instruction.REACHED_VIA) {
+                ViaInstruction tmpInstr = new ViaInstruction(text, instPL);
+                tmpInstr.setViaCount(viaCount);
+                viaCount++;
+                instr = tmpInstr;
+            } else if (raw.sign == Instruction.FINISH) {
+                instr = new FinishInstruction(text, instPL, 0);
+            } else {
+                instr = new Instruction(raw.sign, text, instPL);
+                if (raw.sign == Instruction.CONTINUE_ON_STREET && !Double.isNaN(raw.heading))
+                    instr.setExtraInfo("heading", raw.heading);
+            }
+
+            // see ResponsePathDeserializer: the server already created the turn description
+            if (turnDescription)
+                instr.setUseRawName();
+
+            instr.setDistance(raw.distance).setTime(raw.time);
+            il.add(instr);
+        }
+        return il;
+    }
+
+    private static void readDetail(CodedInputStream in, Map<String, List<PathDetail>> pathDetails) throws IOException {
+        String name = "";
+        List<PathDetail> list = new ArrayList<>();
+        while (true) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 0:
+                    pathDetails.put(name, list);
+                    return;
+                case DETAIL_NAME:
+                    name = in.readString();
+                    break;
+                case DETAIL_INTERVALS:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    list.add(readInterval(in));
+                    in.popLimit(limit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private static PathDetail readInterval(CodedInputStream in) throws IOException {
+        int first = 0, last = 0;
+        Object value = null;
+        while (true) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 0:
+                    PathDetail pd = new PathDetail(value);
+                    pd.setFirst(first);
+                    pd.setLast(last);
+                    return pd;
+                case INTERVAL_FIRST:
+                    first = in.readInt32();
+                    break;
+                case INTERVAL_LAST:
+                    last = in.readInt32();
+                    break;
+                case INTERVAL_LONG:
+                    value = in.readSInt64();
+                    break;
+                case INTERVAL_DOUBLE:
+                    value = in.readDouble();
+                    break;
+                case INTERVAL_STRING:
+                    value = in.readString();
+                    break;
+                case INTERVAL_BOOLEAN:
+                    value = in.readBool();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private static class RawInstruction {
+        int sign;
+        String text = "";
+        String streetName = "";
+        double distance;
+        long time;
+        int first, last;
+        int exitNumber = -1;
+        boolean exited;
+        double turnAngle = Double.NaN;
+        double heading = Double.NaN;
+    }
+}
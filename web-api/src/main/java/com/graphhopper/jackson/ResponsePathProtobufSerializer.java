@@ -0,0 +1,314 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jackson;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Instruction;
+import com.graphhopper.util.InstructionList;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.protobuf.CodedOutputStream.*;
+
+/**
+ * Writes the routing response in the protocol buffer wire format, see docs/web/route-response.proto for the message
+ * definitions. This is an alternative to the JSON response of {@link ResponsePathSerializer} for clients that
+ * fetch many routes. No intermediate tree is built: the sizes of the nested messages of every path are calculated
+ * once up front and everything is written directly to the output stream.
+ */
+public class ResponsePathProtobufSerializer {
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+    static final double COORDINATE_FACTOR = 1e6;
+    static final double ELEVATION_FACTOR = 100;
+
+    // field numbers of RouteResponse
+    static final int RESPONSE_PATHS = 1, RESPONSE_TOOK = 2, RESPONSE_COPYRIGHTS = 3, RESPONSE_ELEVATION = 4;
+    // field numbers of Path
+    static final int PATH_DISTANCE = 1, PATH_WEIGHT = 2, PATH_TIME = 3, PATH_TRANSFERS = 4, PATH_POINTS = 5,
+            PATH_SNAPPED_WAYPOINTS = 6, PATH_INSTRUCTIONS = 7, PATH_DETAILS = 8, PATH_ASCEND = 9, PATH_DESCEND = 10,
+            PATH_DESCRIPTION = 11;
+    // field numbers of Instruction
+    static final int INSTRUCTION_SIGN = 1, INSTRUCTION_TEXT = 2, INSTRUCTION_STREET_NAME = 3, INSTRUCTION_DISTANCE = 4,
+            INSTRUCTION_TIME = 5, INSTRUCTION_FIRST = 6, INSTRUCTION_LAST = 7, INSTRUCTION_EXIT_NUMBER = 8,
+            INSTRUCTION_EXITED = 9, INSTRUCTION_TURN_ANGLE = 10, INSTRUCTION_HEADING = 11, INSTRUCTION_LAST_HEADING = 12;
+    // field numbers of Detail and Interval
+    static final int DETAIL_NAME = 1, DETAIL_INTERVALS = 2;
+    static final int INTERVAL_FIRST = 1, INTERVAL_LAST = 2, INTERVAL_LONG = 3, INTERVAL_DOUBLE = 4, INTERVAL_STRING = 5,
+            INTERVAL_BOOLEAN = 6;
+
+    public static void write(GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation,
+                             long took, OutputStream outputStream) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+        out.writeBool(RESPONSE_ELEVATION, enableElevation);
+        for (ResponsePath path : ghRsp.getAll()) {
+            PathSizes sizes = new PathSizes(path, enableInstructions, calcPoints, enableElevation);
+            out.writeTag(RESPONSE_PATHS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(sizes.path);
+            writePath(out, path, sizes, enableElevation);
+        }
+        out.writeInt64(RESPONSE_TOOK, took);
+        for (String copyright : ResponsePathSerializer.COPYRIGHTS) {
+            out.writeString(RESPONSE_COPYRIGHTS, copyright);
+        }
+        out.flush();
+    }
+
+    /**
+     * The sizes of the nested messages of a path and the instruction texts. They are calculated once before the path
+     * is written, because the size of every message has to be written before its content.
+     */
+    private static class PathSizes {
+        final int waypoints;
+        // -1 if the points, instructions or details are not written
+        final int points;
+        final String[] instructionTexts;
+        final int[] instructions;
+        final int[] details;
+        final int[][] intervals;
+        final int path;
+
+        PathSizes(ResponsePath path, boolean enableInstructions, boolean calcPoints, boolean enableElevation) {
+            waypoints = calcPointsSize(path.getWaypoints(), enableElevation);
+            int size = computeDoubleSize(PATH_DISTANCE, path.getDistance())
+                    + computeDoubleSize(PATH_WEIGHT, path.getRouteWeight())
+                    + computeInt64Size(PATH_TIME, path.getTime())
+                    + computeInt32Size(PATH_TRANSFERS, path.getNumChanges())
+                    + calcPointsFieldSize(PATH_SNAPPED_WAYPOINTS, path.getWaypoints(), waypoints);
+            for (String description : path.getDescription()) {
+                size += computeStringSize(PATH_DESCRIPTION, description);
+            }
+            if (!calcPoints) {
+                points = -1;
+                instructionTexts = null;
+                instructions = null;
+                details = null;
+                intervals = null;
+                this.path = size;
+                return;
+            }
+
+            points = calcPointsSize(path.getPoints(), enableElevation);
+            size += calcPointsFieldSize(PATH_POINTS, path.getPoints(), points)
+                    + computeDoubleSize(PATH_ASCEND, path.getAscend())
+                    + computeDoubleSize(PATH_DESCEND, path.getDescend());
+            if (enableInstructions) {
+                InstructionList instructionList = path.getInstructions();
+                instructionTexts = new String[instructionList.size()];
+                instructions = new int[instructionList.size()];
+                int first = 0;
+                for (int i = 0; i < instructionList.size(); i++) {
+                    Instruction instruction = instructionList.get(i);
+                    instructionTexts[i] = Helper.firstBig(instruction.getTurnDescription(instructionList.getTr()));
+                    instructions[i] = calcInstructionSize(instruction, instructionTexts[i], first);
+                    size += computeTagSize(PATH_INSTRUCTIONS) + computeUInt32SizeNoTag(instructions[i]) + instructions[i];
+                    first += instruction.getLength();
+                }
+            } else {
+                instructionTexts = null;
+                instructions = null;
+            }
+            Map<String, List<PathDetail>> pathDetails = path.getPathDetails();
+            details = new int[pathDetails.size()];
+            intervals = new int[pathDetails.size()][];
+            int index = 0;
+            for (Map.Entry<String, List<PathDetail>> entry : pathDetails.entrySet()) {
+                List<PathDetail> detailList = entry.getValue();
+                intervals[index] = new int[detailList.size()];
+                int detailSize = computeStringSize(DETAIL_NAME, entry.getKey());
+                for (int i = 0; i < detailList.size(); i++) {
+                    intervals[index][i] = calcIntervalSize(detailList.get(i));
+                    detailSize += computeTagSize(DETAIL_INTERVALS) + computeUInt32SizeNoTag(intervals[index][i]) + intervals[index][i];
+                }
+                details[index++] = detailSize;
+                size += computeTagSize(PATH_DETAILS) + computeUInt32SizeNoTag(detailSize) + detailSize;
+            }
+            this.path = size;
+        }
+    }
+
+    private static void writePath(CodedOutputStream out, ResponsePath path, PathSizes sizes, boolean enableElevation) throws IOException {
+        out.writeDouble(PATH_DISTANCE, path.getDistance());
+        out.writeDouble(PATH_WEIGHT, path.getRouteWeight());
+        out.writeInt64(PATH_TIME, path.getTime());
+        out.writeInt32(PATH_TRANSFERS, path.getNumChanges());
+        writePoints(out, PATH_SNAPPED_WAYPOINTS, path.getWaypoints(), sizes.waypoints, enableElevation);
+        for (String description : path.getDescription()) {
+            out.writeString(PATH_DESCRIPTION, description);
+        }
+        if (sizes.points < 0)
+            return;
+        writePoints(out, PATH_POINTS, path.getPoints(), sizes.points, enableElevation);
+        out.writeDouble(PATH_ASCEND, path.getAscend());
+        out.writeDouble(PATH_DESCEND, path.getDescend());
+        if (sizes.instructions != null) {
+            InstructionList instructions = path.getInstructions();
+            int first = 0;
+            for (int i = 0; i < instructions.size(); i++) {
+                Instruction instruction = instructions.get(i);
+                out.writeTag(PATH_INSTRUCTIONS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                out.writeUInt32NoTag(sizes.instructions[i]);
+                writeInstruction(out, instruction, sizes.instructionTexts[i], first);
+                first += instruction.getLength();
+            }
+        }
+        int index = 0;
+        for (Map.Entry<String, List<PathDetail>> entry : path.getPathDetails().entrySet()) {
+            out.writeTag(PATH_DETAILS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(sizes.details[index]);
+            writeDetail(out, entry.getKey(), entry.getValue(), sizes.intervals[index]);
+            index++;
+        }
+    }
+
+    private static int calcPointsFieldSize(int field, PointList points, int size) {
+        if (points.isEmpty())
+            return 0;
+        return computeTagSize(field) + computeUInt32SizeNoTag(size) + size;
+    }
+
+    private static int calcPointsSize(PointList points, boolean enableElevation) {
+        int size = 0;
+        int prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < points.size(); i++) {
+            int lat = toInt(points.getLat(i), COORDINATE_FACTOR);
+            int lon = toInt(points.getLon(i), COORDINATE_FACTOR);
+            size += computeSInt32SizeNoTag(lat - prevLat) + computeSInt32SizeNoTag(lon - prevLon);
+            prevLat = lat;
+            prevLon = lon;
+            if (enableElevation) {
+                int ele = toInt(points.getEle(i), ELEVATION_FACTOR);
+                size += computeSInt32SizeNoTag(ele - prevEle);
+                prevEle = ele;
+            }
+        }
+        return size;
+    }
+
+    private static void writePoints(CodedOutputStream out, int field, PointList points, int size, boolean enableElevation) throws IOException {
+        if (points.isEmpty())
+            return;
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(size);
+        int prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < points.size(); i++) {
+            int lat = toInt(points.getLat(i), COORDINATE_FACTOR);
+            int lon = toInt(points.getLon(i), COORDINATE_FACTOR);
+            out.writeSInt32NoTag(lat - prevLat);
+            out.writeSInt32NoTag(lon - prevLon);
+            prevLat = lat;
+            prevLon = lon;
+            if (enableElevation) {
+                int ele = toInt(points.getEle(i), ELEVATION_FACTOR);
+                out.writeSInt32NoTag(ele - prevEle);
+                prevEle = ele;
+            }
+        }
+    }
+
+    private static int toInt(double value, double factor) {
+        return Double.isNaN(value) ? 0 : (int) Math.round(value * factor);
+    }
+
+    private static int calcInstructionSize(Instruction instruction, String text, int first) {
+        int size = computeSInt32Size(INSTRUCTION_SIGN, instruction.getSign())
+                + computeStringSize(INSTRUCTION_TEXT, text)
+                + computeStringSize(INSTRUCTION_STREET_NAME, instruction.getName())
+                + computeDoubleSize(INSTRUCTION_DISTANCE, instruction.getDistance())
+                + computeInt64Size(INSTRUCTION_TIME, instruction.getTime())
+                + computeInt32Size(INSTRUCTION_FIRST, first)
+                + computeInt32Size(INSTRUCTION_LAST, first + instruction.getLength());
+        Map<String, Object> extraInfo = instruction.getExtraInfoJSON();
+        if (extraInfo.get("exit_number") instanceof Number)
+            size += computeInt32Size(INSTRUCTION_EXIT_NUMBER, ((Number) extraInfo.get("exit_number")).intValue());
+        if (extraInfo.get("exited") instanceof Boolean)
+            size += computeBoolSize(INSTRUCTION_EXITED, (Boolean) extraInfo.get("exited"));
+        if (extraInfo.get("turn_angle") instanceof Number)
+            size += computeDoubleSize(INSTRUCTION_TURN_ANGLE, ((Number) extraInfo.get("turn_angle")).doubleValue());
+        if (extraInfo.get("heading") instanceof Number)
+            size += computeDoubleSize(INSTRUCTION_HEADING, ((Number) extraInfo.get("heading")).doubleValue());
+        if (extraInfo.get("last_heading") instanceof Number)
+            size += computeDoubleSize(INSTRUCTION_LAST_HEADING, ((Number) extraInfo.get("last_heading")).doubleValue());
+        return size;
+    }
+
+    private static void writeInstruction(CodedOutputStream out, Instruction instruction, String text, int first) throws IOException {
+        out.writeSInt32(INSTRUCTION_SIGN, instruction.getSign());
+        out.writeString(INSTRUCTION_TEXT, text);
+        out.writeString(INSTRUCTION_STREET_NAME, instruction.getName());
+        out.writeDouble(INSTRUCTION_DISTANCE, instruction.getDistance());
+        out.writeInt64(INSTRUCTION_TIME, instruction.getTime());
+        out.writeInt32(INSTRUCTION_FIRST, first);
+        out.writeInt32(INSTRUCTION_LAST, first + instruction.getLength());
+        Map<String, Object> extraInfo = instruction.getExtraInfoJSON();
+        if (extraInfo.get("exit_number") instanceof Number)
+            out.writeInt32(INSTRUCTION_EXIT_NUMBER, ((Number) extraInfo.get("exit_number")).intValue());
+        if (extraInfo.get("exited") instanceof Boolean)
+            out.writeBool(INSTRUCTION_EXITED, (Boolean) extraInfo.get("exited"));
+        if (extraInfo.get("turn_angle") instanceof Number)
+            out.writeDouble(INSTRUCTION_TURN_ANGLE, ((Number) extraInfo.get("turn_angle")).doubleValue());
+        if (extraInfo.get("heading") instanceof Number)
+            out.writeDouble(INSTRUCTION_HEADING, ((Number) extraInfo.get("heading")).doubleValue());
+        if (extraInfo.get("last_heading") instanceof Number)
+            out.writeDouble(INSTRUCTION_LAST_HEADING, ((Number) extraInfo.get("last_heading")).doubleValue());
+    }
+
+    private static void writeDetail(CodedOutputStream out, String name, List<PathDetail> pathDetails, int[] intervalSizes) throws IOException {
+        out.writeString(DETAIL_NAME, name);
+        for (int i = 0; i < pathDetails.size(); i++) {
+            PathDetail pathDetail = pathDetails.get(i);
+            out.writeTag(DETAIL_INTERVALS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(intervalSizes[i]);
+            out.writeInt32(INTERVAL_FIRST, pathDetail.getFirst());
+            out.writeInt32(INTERVAL_LAST, pathDetail.getLast());
+            Object value = pathDetail.getValue();
+            if (value instanceof Double || value instanceof Float)
+                out.writeDouble(INTERVAL_DOUBLE, ((Number) value).doubleValue());
+            else if (value instanceof Number)
+                out.writeSInt64(INTERVAL_LONG, ((Number) value).longValue());
+            else if (value instanceof Boolean)
+                out.writeBool(INTERVAL_BOOLEAN, (Boolean) value);
+            else if (value instanceof String)
+                out.writeString(INTERVAL_STRING, (String) value);
+        }
+    }
+
+    private static int calcIntervalSize(PathDetail pathDetail) {
+        int size = computeInt32Size(INTERVAL_FIRST, pathDetail.getFirst()) + computeInt32Size(INTERVAL_LAST, pathDetail.getLast());
+        Object value = pathDetail.getValue();
+        if (value instanceof Double || value instanceof Float)
+            size += computeDoubleSize(INTERVAL_DOUBLE, ((Number) value).doubleValue());
+        else if (value instanceof Number)
+            size += computeSInt64Size(INTERVAL_LONG, ((Number) value).longValue());
+        else if (value instanceof Boolean)
+            size += computeBoolSize(INTERVAL_BOOLEAN, (Boolean) value);
+        else if (value instanceof String)
+            size += computeStringSize(INTERVAL_STRING, (String) value);
+        else if (value != null)
+            throw new IllegalArgumentException("Unsupported type for PathDetail.value " + value.getClass());
+        return size;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jackson;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponsePathProtobufTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        PointList points = Helper.createPointList3D(42.5093, 1.5274, 1030.5, 42.5101, 1.5312, 1045, 42.5126, 1.541, 1047.25);
+        InstructionList instructions = new InstructionList(null);
+        Instruction start = new Instruction(Instruction.CONTINUE_ON_STREET, "Continue onto A", Helper.createPointList3D(42.5093, 1.5274, 1030.5));
+        start.setUseRawName();
+        start.setExtraInfo("heading", 12.5);
+        start.setDistance(120.5).setTime(9000);
+        instructions.add(start);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "At roundabout, take exit 2",
+                Helper.createPointList3D(42.5101, 1.5312, 1045));
+        roundabout.setUseRawName();
+        roundabout.setExitNumber(2).setExited().setDirOfRotation(-1).setRadian(-2);
+        roundabout.setDistance(300).setTime(20000);
+        instructions.add(roundabout);
+        FinishInstruction finish = new FinishInstruction(42.5126, 1.541, 1047.25);
+        finish.setUseRawName();
+        finish.setName("Arrive at destination");
+        instructions.add(finish);
+
+        ResponsePath path = new ResponsePath();
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(42.5093, 1.5274, 1030.5, 42.5126, 1.541, 1047.25));
+        path.setInstructions(instructions);
+        path.setDistance(420.5).setTime(29000).setRouteWeight(35.25);
+        path.setAscend(16.75);
+        path.setDescend(0);
+        path.setDescription(Collections.singletonList("A"));
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("street_name", Arrays.asList(detail("A", 0, 1), detail(null, 1, 2)));
+        details.put("max_speed", Collections.singletonList(detail(50.0, 0, 2)));
+        details.put("edge_id", Arrays.asList(detail(17L, 0, 1), detail(-3, 1, 2)));
+        details.put("toll", Collections.singletonList(detail(true, 0, 2)));
+        path.addPathDetails(details);
+        GHResponse response = new GHResponse();
+        response.add(path);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponsePathProtobufSerializer.write(response, true, true, true, 14, out);
+        GHResponse result = ResponsePathProtobufDeserializer.read(new ByteArrayInputStream(out.toByteArray()), true);
+
+        assertEquals(14, result.getHints().getLong("took", -1));
+        assertEquals(1, result.getAll().size());
+        ResponsePath resultPath = result.getBest();
+        assertEquals(points, resultPath.getPoints());
+        assertEquals(path.getWaypoints(), resultPath.getWaypoints());
+        assertEquals(Arrays.asList(0, 1), resultPath.getPointsOrder());
+        assertEquals(420.5, resultPath.getDistance());
+        assertEquals(29000, resultPath.getTime());
+        assertEquals(35.25, resultPath.getRouteWeight());
+        assertEquals(16.75, resultPath.getAscend());
+        assertEquals(Collections.singletonList("A"), resultPath.getDescription());
+
+        InstructionList resultInstructions = resultPath.getInstructions();
+        assertEquals(3, resultInstructions.size());
+        assertEquals("Continue onto A", resultInstructions.get(0).getTurnDescription(null));
+        assertEquals(12.5, resultInstructions.get(0).getExtraInfoJSON().get("heading"));
+        assertEquals(120.5, resultInstructions.get(0).getDistance());
+        assertEquals(9000, resultInstructions.get(0).getTime());
+        assertEquals(2, resultInstructions.get(0).getPoints().size());
+        RoundaboutInstruction resultRoundabout = (RoundaboutInstruction) resultInstructions.get(1);
+        assertEquals(roundabout.getExtraInfoJSON(), resultRoundabout.getExtraInfoJSON());
+        assertEquals("At roundabout, take exit 2", resultRoundabout.getTurnDescription(null));
+        assertTrue(resultInstructions.get(2) instanceof FinishInstruction);
+        assertEquals("Arrive at destination", resultInstructions.get(2).getTurnDescription(null));
+
+        Map<String, List<PathDetail>> resultDetails = resultPath.getPathDetails();
+        assertEquals(details.keySet(), resultDetails.keySet());
+        for (Map.Entry<String, List<PathDetail>> entry : details.entrySet()) {
+            assertEquals(entry.getValue().toString(), resultDetails.get(entry.getKey()).toString());
+        }
+        assertEquals(17L, resultDetails.get("edge_id").get(0).getValue());
+        assertNull(resultDetails.get("street_name").get(1).getValue());
+    }
+
+    @Test
+    public void testWithoutPointsAndElevation() throws Exception {
+        ResponsePath path = new ResponsePath();
+        path.setPoints(Helper.createPointList(42.5093, 1.5274, 42.5126, 1.541));
+        path.setWaypoints(Helper.createPointList(42.5093, 1.5274, 42.5126, 1.541));
+        path.setDistance(1234.5).setTime(60000).setRouteWeight(80);
+        GHResponse response = new GHResponse();
+        response.add(path);
+        response.add(new ResponsePath().setDistance(1500).setTime(70000));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponsePathProtobufSerializer.write(response, false, false, false, 3, out);
+        GHResponse result = ResponsePathProtobufDeserializer.read(new ByteArrayInputStream(out.toByteArray()), true);
+        assertEquals(2, result.getAll().size());
+        ResponsePath resultPath = result.getBest();
+        assertTrue(resultPath.getPoints().isEmpty());
+        assertFalse(resultPath.getWaypoints().is3D());
+        assertEquals(path.getWaypoints(), resultPath.getWaypoints());
+        assertEquals(1234.5, resultPath.getDistance());
+        assertEquals(60000, resultPath.getTime());
+        assertEquals(1500, result.getAll().get(1).getDistance());
+        assertTrue(result.getAll().get(1).getWaypoints().isEmpty());
+    }
+
+    private static PathDetail detail(Object value, int first, int last) {
+        PathDetail pd = new PathDetail(value);
+        pd.setFirst(first);
+        pd.setLast(last);
+        return pd;
+    }
+}
@@ -33,6 +33,8 @@ import com.graphhopper.isochrone.algorithm.JTSTriangulator;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.GraphHopperConfigModule;
 import com.graphhopper.jackson.Jackson;
+import com.graphhopper.mvt.MVTTileCache;
+import com.graphhopper.mvt.MVTTileRenderer;
 import com.graphhopper.resources.*;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.util.EncodingManager;
@@ -47,6 +49,8 @@ import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
@@ -235,12 +239,20 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), environment.getObjectMapper());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        // the requests of /route/batch are calculated by a fixed number of threads shared by all batches
+        final int routeBatchThreads = configuration.getGraphHopperConfiguration().getInt("routing.batch.threads",
+                Runtime.getRuntime().availableProcessors());
+        final ExecutorService routeBatchExecutor = environment.lifecycle().executorService("route-batch-%d").
+                minThreads(routeBatchThreads).maxThreads(routeBatchThreads).build();
+        final MVTTileCache mvtTileCache = createMVTTileCache(configuration.getGraphHopperConfiguration(), graphHopper);
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
                 bind(graphHopper).to(GraphHopperAPI.class);
+                bind(routeBatchExecutor).to(ExecutorService.class).named("routeBatchExecutor");
+                bind(mvtTileCache).to(MVTTileCache.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
                 bindFactory(PathDetailsBuilderFactoryFactory.class).to(PathDetailsBuilderFactory.class);
@@ -257,8 +269,10 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(RouteBatchResource.class);
         environment.jersey().register(CustomWeightingRouteResource.class);
         environment.jersey().register(IsochroneResource.class);
+        environment.jersey().register(MatrixResource.class);
         environment.jersey().register(MapMatchingResource.class);
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
             // These are pt-specific implementations of /route and /isochrone, but the same API.
@@ -281,4 +295,14 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(environment.healthChecks());
         environment.jersey().register(HealthcheckResource.class);
     }
+
+    /**
+     * The vector tiles can be cached in memory (mvt.cache_size tiles) and on disk (mvt.cache_dir) because the graph
+     * does not change after it was loaded.
+     */
+    public static MVTTileCache createMVTTileCache(GraphHopperConfig config, GraphHopper graphHopper) {
+        String cacheDir = config.getString("mvt.cache_dir", "");
+        return new MVTTileCache(new MVTTileRenderer(graphHopper), config.getInt("mvt.cache_size", 0),
+                cacheDir.isEmpty() ? null : new File(cacheDir));
+    }
 }
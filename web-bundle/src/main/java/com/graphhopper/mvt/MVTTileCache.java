@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.mvt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the vector tiles created by {@link MVTTileRenderer}. This is possible because the graph does not change
+ * after it was loaded. The tiles are kept in a bounded in-memory cache that evicts the least recently used tiles and
+ * optionally read from a directory with the layout z/x/y.mvt. The directory is only written by {@link #prerender}
+ * (see the prerender-mvt command) and not on request, so its size is bounded by the prerendered area and zoom levels.
+ * The directory must be cleared when the graph changes.
+ * <p>
+ * The key of a tile is its z/x/y number and the list of requested details. This class is thread-safe. Concurrent
+ * requests for the same missing tile might render it more than once.
+ */
+public class MVTTileCache {
+    private final MVTTileRenderer renderer;
+    private final Map<String, byte[]> memoryCache;
+    private final File cacheDir;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param size     the maximum number of tiles kept in memory, 0 disables the in-memory cache
+     * @param cacheDir the directory for the on-disk cache or null to disable it
+     */
+    public MVTTileCache(MVTTileRenderer renderer, final int size, File cacheDir) {
+        if (size < 0)
+            throw new IllegalArgumentException("tile cache size must not be negative but was " + size);
+        this.renderer = renderer;
+        this.cacheDir = cacheDir;
+        this.memoryCache = size == 0 ? null : Collections.synchronizedMap(new LinkedHashMap<String, byte[]>(Math.min(size, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > size;
+            }
+        });
+    }
+
+    public MVTTileRenderer getRenderer() {
+        return renderer;
+    }
+
+    public boolean isDiskCacheEnabled() {
+        return cacheDir != null;
+    }
+
+    /**
+     * @return the encoded tile, which must not be modified
+     */
+    public byte[] getTile(int z, int x, int y, List<String> pathDetails) {
+        List<String> details = renderer.normalizeDetails(pathDetails);
+        String key = createKey(z, x, y, details);
+        byte[] bytes = memoryCache == null ? null : memoryCache.get(key);
+        if (bytes != null) {
+            hits.incrementAndGet();
+            return bytes;
+        }
+
+        File file = cacheDir == null ? null : new File(cacheDir, key);
+        if (file != null && file.exists()) {
+            hits.incrementAndGet();
+            bytes = read(file);
+        } else {
+            misses.incrementAndGet();
+            bytes = renderer.render(z, x, y, details);
+        }
+        if (memoryCache != null)
+            memoryCache.put(key, bytes);
+        return bytes;
+    }
+
+    /**
+     * Renders the tile and stores it in the directory of the on-disk cache if it does not exist there yet.
+     *
+     * @return true if the tile was rendered
+     */
+    public boolean prerender(int z, int x, int y, List<String> pathDetails) {
+        if (cacheDir == null)
+            throw new IllegalStateException("The disk cache is not enabled");
+        List<String> details = renderer.normalizeDetails(pathDetails);
+        File file = new File(cacheDir, createKey(z, x, y, details));
+        if (file.exists())
+            return false;
+        write(file, renderer.render(z, x, y, details));
+        return true;
+    }
+
+    /**
+     * The key is also the relative path of the tile in the cache directory. The details are normalized and the
+     * names of encoded values are safe to use in file names.
+     */
+    private static String createKey(int z, int x, int y, List<String> details) {
+        String key = z + "/" + x + "/" + y;
+        if (!details.isEmpty())
+            key += "-" + String.join("-", details);
+        return key + ".mvt";
+    }
+
+    private static byte[] read(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read tile " + file, ex);
+        }
+    }
+
+    private static void write(File file, byte[] bytes) {
+        File tmpFile = null;
+        try {
+            file.getParentFile().mkdirs();
+            // write to a temporary file first to avoid that a concurrent request reads a partially written tile
+            tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            Files.write(tmpFile.toPath(), bytes);
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            if (tmpFile != null)
+                tmpFile.delete();
+            throw new UncheckedIOException("Cannot write tile " + file, ex);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public void clear() {
+        if (memoryCache != null)
+            memoryCache.clear();
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.graphhopper.util.Helper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes rows in a simple binary column layout. The rows are buffered in primitive arrays and written in batches, so
+ * that arbitrarily many rows can be streamed without creating an object per row. All numbers are little-endian:
+ * <pre>
+ * header:  "GHCL" (4 bytes ASCII), int32 version (1), int32 column count,
+ *          for every column: int32 byte length of the name, the name in UTF-8, int8 type
+ * batches: int32 row count n (larger than 0), then for every column its n values:
+ *          int32 (type 1), int64 (type 2), float64 (type 3), int8 0 or 1 (type 4) or
+ *          for strings (type 5) int32 byte length followed by the UTF-8 bytes for every value
+ * end:     int32 0
+ * </pre>
+ * Use {@link #setInt} etc. to set the values of the current row and {@link #endRow} to finish it. Values that are not
+ * set in a row are 0, NaN, false or the empty string.
+ */
+class ColumnarWriter {
+    static final byte INT32 = 1, INT64 = 2, FLOAT64 = 3, BOOLEAN = 4, STRING = 5;
+    private static final int VERSION = 1;
+
+    private final OutputStream outputStream;
+    private final int batchSize;
+    private final List<String> names = new ArrayList<>();
+    private final List<Byte> types = new ArrayList<>();
+    private int[][] ints;
+    private long[][] longs;
+    private double[][] doubles;
+    private boolean[][] booleans;
+    private String[][] strings;
+    private ByteBuffer buffer;
+    private int row;
+    private boolean started;
+
+    ColumnarWriter(OutputStream outputStream, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batch size must be positive but was " + batchSize);
+        this.outputStream = outputStream;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the index of the new column
+     */
+    int addColumn(String name, byte type) {
+        if (started)
+            throw new IllegalStateException("Columns have to be added before the first row");
+        if (type < INT32 || type > STRING)
+            throw new IllegalArgumentException("Unknown column type " + type);
+        names.add(name);
+        types.add(type);
+        return names.size() - 1;
+    }
+
+    void setInt(int column, int value) {
+        start();
+        ints[column][row] = value;
+    }
+
+    void setLong(int column, long value) {
+        start();
+        longs[column][row] = value;
+    }
+
+    void setDouble(int column, double value) {
+        start();
+        doubles[column][row] = value;
+    }
+
+    void setBoolean(int column, boolean value) {
+        start();
+        booleans[column][row] = value;
+    }
+
+    void setString(int column, String value) {
+        start();
+        strings[column][row] = value;
+    }
+
+    void endRow() throws IOException {
+        start();
+        row++;
+        if (row == batchSize)
+            writeBatch();
+        clearRow();
+    }
+
+    /**
+     * Writes the remaining rows and the end marker. The output stream is flushed but not closed.
+     */
+    void finish() throws IOException {
+        start();
+        if (row > 0)
+            writeBatch();
+        ensureRemaining(4);
+        buffer.putInt(0);
+        flushBuffer();
+        outputStream.flush();
+    }
+
+    private void start() {
+        if (started)
+            return;
+        started = true;
+        int columns = names.size();
+        ints = new int[columns][];
+        longs = new long[columns][];
+        doubles = new double[columns][];
+        booleans = new boolean[columns][];
+        strings = new String[columns][];
+        for (int c = 0; c < columns; c++) {
+            switch (types.get(c)) {
+                case INT32:
+                    ints[c] = new int[batchSize];
+                    break;
+                case INT64:
+                    longs[c] = new long[batchSize];
+                    break;
+                case FLOAT64:
+                    doubles[c] = new double[batchSize];
+                    break;
+                case BOOLEAN:
+                    booleans[c] = new boolean[batchSize];
+                    break;
+                default:
+                    strings[c] = new String[batchSize];
+            }
+        }
+        clearRow();
+        // large enough for one column of a batch except for strings
+        buffer = ByteBuffer.allocate(Math.max(8 * batchSize, 4096)).order(ByteOrder.LITTLE_ENDIAN);
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        buffer.put(new byte[]{'G', 'H', 'C', 'L'});
+        buffer.putInt(VERSION);
+        buffer.putInt(names.size());
+        for (int c = 0; c < names.size(); c++) {
+            byte[] name = names.get(c).getBytes(Helper.UTF_CS);
+            ensureRemainingNoFlush(4 + name.length + 1);
+            buffer.putInt(name.length);
+            buffer.put(name);
+            buffer.put(types.get(c));
+        }
+    }
+
+    private void clearRow() {
+        for (int c = 0; c < names.size(); c++) {
+            switch (types.get(c)) {
+                case INT32:
+                    ints[c][row % batchSize] = 0;
+                    break;
+                case INT64:
+                    longs[c][row % batchSize] = 0;
+                    break;
+                case FLOAT64:
+                    doubles[c][row % batchSize] = Double.NaN;
+                    break;
+                case BOOLEAN:
+                    booleans[c][row % batchSize] = false;
+                    break;
+                default:
+                    strings[c][row % batchSize] = "";
+            }
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        ensureRemaining(4);
+        buffer.putInt(row);
+        for (int c = 0; c < names.size(); c++) {
+            switch (types.get(c)) {
+                case INT32:
+                    ensureRemaining(4 * row);
+                    buffer.asIntBuffer().put(ints[c], 0, row);
+                    buffer.position(buffer.position() + 4 * row);
+                    break;
+                case INT64:
+                    ensureRemaining(8 * row);
+                    buffer.asLongBuffer().put(longs[c], 0, row);
+                    buffer.position(buffer.position() + 8 * row);
+                    break;
+                case FLOAT64:
+                    ensureRemaining(8 * row);
+                    buffer.asDoubleBuffer().put(doubles[c], 0, row);
+                    buffer.position(buffer.position() + 8 * row);
+                    break;
+                case BOOLEAN:
+                    ensureRemaining(row);
+                    for (int r = 0; r < row; r++) {
+                        buffer.put(booleans[c][r] ? (byte) 1 : (byte) 0);
+                    }
+                    break;
+                default:
+                    for (int r = 0; r < row; r++) {
+                        byte[] bytes = strings[c][r].getBytes(Helper.UTF_CS);
+                        ensureRemaining(4);
+                        buffer.putInt(bytes.length);
+                        if (bytes.length > buffer.remaining()) {
+                            flushBuffer();
+                            outputStream.write(bytes);
+                        } else {
+                            buffer.put(bytes);
+                        }
+                    }
+            }
+        }
+        flushBuffer();
+        outputStream.flush();
+        row = 0;
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flushBuffer();
+    }
+
+    private void ensureRemainingNoFlush(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer newBuffer = ByteBuffer.allocate(buffer.capacity() + bytes).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            newBuffer.put(buffer);
+            buffer = newBuffer;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        outputStream.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
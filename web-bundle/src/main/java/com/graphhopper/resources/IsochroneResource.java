@@ -3,20 +3,25 @@ package com.graphhopper.resources;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
+import com.graphhopper.isochrone.algorithm.CHShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.ReachabilitySearch;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.util.JsonFeature;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -83,6 +88,7 @@ public class IsochroneResource {
 
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        boolean disableCH = hintsMap.getBool(Parameters.CH.DISABLE, false);
         hintsMap.putObject(Parameters.CH.DISABLE, true);
         hintsMap.putObject(Parameters.Landmark.DISABLE, true);
         if (Helper.isEmpty(profileName)) {
@@ -110,7 +116,17 @@ public class IsochroneResource {
             weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
                     Collections.singletonList(point.get()), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
+        ReachabilitySearch shortestPathTree;
+        // with a weight limit CH would have to sweep all nodes, because the limit cannot be bounded by a beeline distance
+        if (!disableCH && weightLimit.get() <= 0 && traversalMode == NODE_BASED && !hintsMap.has(Parameters.Routing.BLOCK_AREA)
+                && hasCHPreparation(profileName)) {
+            // the weighting is the one of the CH preparation here, request hints that would change it are ignored
+            String chGraphName = graphHopper.getCHPreparationHandler().getPreparation(profileName).getCHConfig().getName();
+            RoutingCHGraph chGraph = new QueryRoutingCHGraph(graphHopper.getGraphHopperStorage().getRoutingCHGraph(chGraphName), queryGraph);
+            shortestPathTree = new CHShortestPathTree(chGraph, graphHopper.getCHSweepOrder(chGraphName), locationIndex, reverseFlow);
+        } else {
+            shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
+        }
 
         double limit;
         if (weightLimit.get() > 0) {
@@ -187,6 +203,14 @@ public class IsochroneResource {
                 build();
     }
 
+    private boolean hasCHPreparation(String profileName) {
+        for (CHProfile chProfile : graphHopper.getCHPreparationHandler().getCHProfiles()) {
+            if (chProfile.getProfile().equals(profileName))
+                return true;
+        }
+        return false;
+    }
+
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
         int maxPoints = 0;
         Polygon maxPolygon = null;
@@ -0,0 +1,298 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.Profile;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.ProfileResolver;
+import com.graphhopper.routing.ch.ManyToManyCH;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.ev.RoadEnvironment;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.*;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.*;
+
+import static com.graphhopper.resources.RouteResource.errorIfLegacyParameters;
+import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
+
+/**
+ * Calculates the weights, times and/or distances between many points at once. The request and response format is
+ * the same as the one used by the GraphHopperMatrixWeb client, i.e. the points are specified as [longitude,latitude]
+ * arrays either via 'points' (a symmetric matrix) or via 'from_points' and 'to_points'. This currently only works
+ * for profiles with a CH preparation, see {@link ManyToManyCH}. The number of matrix entries, i.e. the number of
+ * from_points times the number of to_points, is limited by routing.matrix.max_size, because the buckets of the
+ * calculation and the result arrays grow with it.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+    private final EncodingManager encodingManager;
+    private final long maxSize;
+
+    @Inject
+    public MatrixResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver,
+                          EncodingManager encodingManager) {
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+        this.encodingManager = encodingManager;
+        this.maxSize = config.getLong("routing.matrix.max_size", 10_000);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull ObjectNode request, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        boolean symmetric = request.has("points");
+        List<GHPoint> fromPoints = readPoints(request, symmetric ? "points" : "from_points");
+        List<GHPoint> toPoints = symmetric ? fromPoints : readPoints(request, "to_points");
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("You have to specify 'points' or both 'from_points' and 'to_points'");
+        if ((long) fromPoints.size() * toPoints.size() > maxSize)
+            throw new IllegalArgumentException("Too many points: " + fromPoints.size() + "x" + toPoints.size()
+                    + ", the maximum number of matrix entries is " + maxSize);
+        List<String> fromPointHints = readStrings(request, symmetric ? "point_hints" : "from_point_hints");
+        List<String> toPointHints = symmetric ? fromPointHints : readStrings(request, "to_point_hints");
+        if (!fromPointHints.isEmpty() && fromPointHints.size() != fromPoints.size()
+                || !toPointHints.isEmpty() && toPointHints.size() != toPoints.size())
+            throw new IllegalArgumentException("If you pass point hints, you need to pass exactly one hint for every point, empty hints will be ignored");
+        if (!readStrings(request, "curbsides").isEmpty() || !readStrings(request, "from_curbsides").isEmpty()
+                || !readStrings(request, "to_curbsides").isEmpty())
+            throw new IllegalArgumentException("The " + Parameters.Routing.CURBSIDE + " parameter is not yet supported for the matrix calculation");
+        List<String> snapPreventions = readStrings(request, "snap_preventions");
+        List<String> outArrays = readStrings(request, "out_arrays");
+        if (outArrays.isEmpty())
+            outArrays = Collections.singletonList("weights");
+        boolean failFast = request.path("fail_fast").asBoolean(true);
+
+        PMap hints = new PMap();
+        for (String key : Arrays.asList("vehicle", "weighting", "turn_costs", "edge_based")) {
+            if (request.hasNonNull(key) && !request.get(key).asText().isEmpty())
+                hints.putObject(key, Helper.toObject(request.get(key).asText()));
+        }
+        String profileName = request.path("profile").asText("");
+        if (Helper.isEmpty(profileName)) {
+            profileName = profileResolver.resolveProfile(hints).getName();
+            removeLegacyParameters(hints);
+        }
+        errorIfLegacyParameters(hints);
+        Profile profile = graphHopper.getProfile(profileName);
+        if (profile == null)
+            throw new IllegalArgumentException("The requested profile '" + profileName + "' does not exist");
+        if (!graphHopper.getCHPreparationHandler().isEnabled())
+            throw new IllegalArgumentException("The matrix calculation requires a CH preparation, but CH is not enabled");
+        PrepareContractionHierarchies chPreparation = graphHopper.getCHPreparationHandler().getPreparation(profileName);
+
+        GraphHopperStorage ghStorage = graphHopper.getGraphHopperStorage();
+        FlagEncoder encoder = encodingManager.getEncoder(profile.getVehicle());
+        EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(encoder);
+        List<Snap> snaps = new ArrayList<>();
+        int[] fromIndices = lookup(fromPoints, fromPointHints, snapPreventions, edgeFilter, snaps);
+        int[] toIndices = symmetric ? fromIndices : lookup(toPoints, toPointHints, snapPreventions, edgeFilter, snaps);
+        List<Integer> invalidFromPoints = getInvalidPoints(fromIndices);
+        List<Integer> invalidToPoints = getInvalidPoints(toIndices);
+        if (failFast && (!invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty())) {
+            List<Throwable> errors = new ArrayList<>();
+            for (int i : invalidFromPoints)
+                errors.add(new PointNotFoundException("Cannot find from_points: " + i, i));
+            for (int i : invalidToPoints)
+                errors.add(new PointNotFoundException("Cannot find to_points: " + i, i));
+            throw new MultiException(errors);
+        }
+
+        QueryGraph queryGraph = QueryGraph.create(ghStorage, snaps);
+        int[] sources = toNodes(fromIndices, snaps);
+        int[] targets = toNodes(toIndices, snaps);
+        ManyToManyCH manyToMany = new ManyToManyCH(new QueryRoutingCHGraph(
+                new RoutingCHGraphImpl(ghStorage.getCHGraph(chPreparation.getCHConfig().getName())), queryGraph));
+        boolean calcTimeDistances = outArrays.contains("times") || outArrays.contains("distances");
+        ManyToManyCH.Result result = manyToMany.calcMatrix(sources, targets, calcTimeDistances);
+
+        List<int[]> disconnected = new ArrayList<>();
+        for (int s = 0; s < sources.length; s++) {
+            for (int t = 0; t < targets.length; t++) {
+                if (sources[s] >= 0 && targets[t] >= 0 && !result.isConnected(s, t))
+                    disconnected.add(new int[]{s, t});
+            }
+        }
+        if (failFast && !disconnected.isEmpty()) {
+            List<Throwable> errors = new ArrayList<>();
+            for (int[] pair : disconnected) {
+                Map<String, Object> details = new HashMap<>(2);
+                details.put("from", pair[0]);
+                details.put("to", pair[1]);
+                errors.add(new ConnectionNotFoundException("Connection between locations not found", details));
+            }
+            throw new MultiException(errors);
+        }
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (outArrays.contains("weights"))
+            putMatrix(json.putArray("weights"), result, (s, t) -> Helper.round(result.weights[s][t], 2));
+        if (outArrays.contains("times"))
+            putMatrix(json.putArray("times"), result, (s, t) -> Math.round(result.times[s][t] / 1000.0));
+        if (outArrays.contains("distances"))
+            putMatrix(json.putArray("distances"), result, (s, t) -> Math.round(result.distances[s][t]));
+        if (!failFast && (!disconnected.isEmpty() || !invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty())) {
+            ArrayNode hintsJson = json.putArray("hints");
+            if (!disconnected.isEmpty()) {
+                ObjectNode hint = hintsJson.addObject();
+                hint.put("message", "Connection between locations not found");
+                ArrayNode pointPairs = hint.putArray("point_pairs");
+                for (int[] pair : disconnected)
+                    pointPairs.addArray().add(pair[0]).add(pair[1]);
+            }
+            if (!invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty()) {
+                ObjectNode hint = hintsJson.addObject();
+                hint.put("message", "Cannot find point");
+                invalidFromPoints.forEach(hint.putArray("invalid_from_points")::add);
+                invalidToPoints.forEach(hint.putArray("invalid_to_points")::add);
+            }
+        }
+        long took = sw.stop().getNanos() / 1_000_000;
+        ObjectNode info = json.putObject("info");
+        info.putPOJO("copyrights", ResponsePathSerializer.COPYRIGHTS);
+        info.put("took", took);
+
+        logger.info(httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")
+                + " " + fromPoints.size() + "x" + toPoints.size() + ", took: " + took + "ms, profile: " + profileName
+                + ", out_arrays: " + outArrays + ", visited_nodes: " + result.visitedNodes);
+        return Response.ok(json).header("X-GH-Took", "" + took).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Snaps the given points and adds the valid snaps to the given list.
+     *
+     * @return the indices of the snaps within the given list for each point, or -1 if a point could not be found
+     */
+    private int[] lookup(List<GHPoint> points, List<String> pointHints, List<String> snapPreventions,
+                         EdgeFilter edgeFilter, List<Snap> snaps) {
+        LocationIndex locationIndex = graphHopper.getLocationIndex();
+        EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
+                ? edgeFilter
+                : new SnapPreventionEdgeFilter(edgeFilter, encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class),
+                encodingManager.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class), snapPreventions);
+        // without point specific filters all points can be snapped at once
+        List<Snap> batchSnaps = pointHints.isEmpty() && snapPreventions.isEmpty()
+                ? locationIndex.findClosestBatch(points, edgeFilter)
+                : null;
+        int[] indices = new int[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            GHPoint point = points.get(i);
+            Snap snap = null;
+            if (!pointHints.isEmpty() && !Helper.isEmpty(pointHints.get(i)))
+                snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
+                        pointHints.get(i), point, 100));
+            else if (!snapPreventions.isEmpty())
+                snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
+            if (batchSnaps != null)
+                snap = batchSnaps.get(i);
+            else if (snap == null || !snap.isValid())
+                snap = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            if (snap.isValid()) {
+                indices[i] = snaps.size();
+                snaps.add(snap);
+            } else {
+                indices[i] = -1;
+            }
+        }
+        return indices;
+    }
+
+    private static int[] toNodes(int[] snapIndices, List<Snap> snaps) {
+        int[] nodes = new int[snapIndices.length];
+        for (int i = 0; i < snapIndices.length; i++)
+            nodes[i] = snapIndices[i] < 0 ? -1 : snaps.get(snapIndices[i]).getClosestNode();
+        return nodes;
+    }
+
+    private static List<Integer> getInvalidPoints(int[] snapIndices) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < snapIndices.length; i++)
+            if (snapIndices[i] < 0)
+                result.add(i);
+        return result;
+    }
+
+    private interface MatrixValue {
+        Number get(int source, int target);
+    }
+
+    private static void putMatrix(ArrayNode matrixJson, ManyToManyCH.Result result, MatrixValue value) {
+        for (int s = 0; s < result.weights.length; s++) {
+            ArrayNode row = matrixJson.addArray();
+            for (int t = 0; t < result.weights[s].length; t++) {
+                if (!result.isConnected(s, t))
+                    row.addNull();
+                else
+                    row.addPOJO(value.get(s, t));
+            }
+        }
+    }
+
+    private static List<GHPoint> readPoints(JsonNode request, String key) {
+        List<GHPoint> points = new ArrayList<>();
+        for (JsonNode point : request.path(key)) {
+            if (!point.isArray() || point.size() < 2)
+                throw new IllegalArgumentException("Points in '" + key + "' have to be specified as [longitude,latitude] arrays, but was: " + point);
+            points.add(new GHPoint(point.get(1).asDouble(), point.get(0).asDouble()));
+        }
+        return points;
+    }
+
+    private static List<String> readStrings(JsonNode request, String key) {
+        List<String> strings = new ArrayList<>();
+        for (JsonNode str : request.path(key))
+            strings.add(str.asText());
+        return strings;
+    }
+}
@@ -19,9 +19,11 @@ package com.graphhopper.resources;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.graphhopper.GraphHopper;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
+import com.graphhopper.storage.index.SnapCache;
 import com.graphhopper.util.DistanceCalc;
 import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.shapes.GHPoint;
@@ -42,11 +44,13 @@ public class NearestResource {
 
     private final DistanceCalc calc = DistanceCalcEarth.DIST_EARTH;
     private final LocationIndex index;
+    private final SnapCache snapCache;
     private final boolean hasElevation;
 
     @Inject
-    NearestResource(LocationIndex index, @Named("hasElevation") Boolean hasElevation) {
+    NearestResource(GraphHopper graphHopper, LocationIndex index, @Named("hasElevation") Boolean hasElevation) {
         this.index = index;
+        this.snapCache = graphHopper.getSnapCache();
         this.hasElevation = hasElevation;
     }
 
@@ -64,7 +68,9 @@ public class NearestResource {
 
     @GET
     public Response doGet(@QueryParam("point") GHPoint point, @QueryParam("elevation") @DefaultValue("false") boolean elevation) {
-        Snap snap = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
+        Snap snap = snapCache == null
+                ? index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES)
+                : snapCache.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES, "nearest");
         if (snap.isValid()) {
             GHPoint3D snappedPoint = snap.getSnappedPoint();
             double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
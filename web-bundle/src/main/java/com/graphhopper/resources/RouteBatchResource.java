@@ -0,0 +1,145 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopperAPI;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.ProfileResolver;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.graphhopper.util.Parameters.Routing.CALC_POINTS;
+import static com.graphhopper.util.Parameters.Routing.INSTRUCTIONS;
+
+/**
+ * Calculates many independent routes with one HTTP request. The body is a JSON array of requests in the format of
+ * the POST /route endpoint. The requests are calculated concurrently by a fixed number of threads (see
+ * routing.batch.threads) and every result is written as soon as it is available. The response is newline delimited
+ * JSON: every line is either the normal /route response or its error response, with an additional 'index' field that
+ * refers to the position of the request in the array. The lines are therefore not necessarily in request order.
+ */
+@Path("route/batch")
+public class RouteBatchResource {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+    private static final Logger logger = LoggerFactory.getLogger(RouteBatchResource.class);
+    private static final ObjectMapper objectMapper = Jackson.newObjectMapper();
+
+    private final GraphHopperAPI graphHopper;
+    private final ProfileResolver profileResolver;
+    private final ExecutorService executor;
+    private final int maxRequests;
+
+    @Inject
+    public RouteBatchResource(GraphHopperConfig config, GraphHopperAPI graphHopper, ProfileResolver profileResolver,
+                              @Named("routeBatchExecutor") ExecutorService executor) {
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+        this.executor = executor;
+        this.maxRequests = config.getInt("routing.batch.max_requests", 1000);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MEDIA_TYPE, MediaType.APPLICATION_JSON})
+    public Response doPost(@NotNull List<GHRequest> requests, @Context HttpServletRequest httpReq) {
+        if (requests.isEmpty())
+            throw new IllegalArgumentException("At least one request is required");
+        if (requests.size() > maxRequests)
+            throw new IllegalArgumentException("Too many requests: " + requests.size() + ", the maximum is " + maxRequests);
+
+        // submit before streaming starts, so the calculation does not wait until the client reads the response
+        CompletionService<ObjectNode> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<ObjectNode>> futures = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final int index = i;
+            final GHRequest request = requests.get(i);
+            futures.add(completionService.submit(() -> calcRoute(index, request)));
+        }
+
+        StopWatch sw = new StopWatch().start();
+        String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
+        StreamingOutput output = out -> {
+            try {
+                for (int i = 0; i < requests.size(); i++) {
+                    out.write(objectMapper.writeValueAsBytes(completionService.take().get()));
+                    out.write('\n');
+                    out.flush();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new WebApplicationException(ex);
+            } catch (ExecutionException ex) {
+                throw new WebApplicationException(ex.getCause());
+            } finally {
+                // e.g. if the client closed the connection there is no need to calculate the remaining routes
+                for (Future<ObjectNode> future : futures) {
+                    future.cancel(true);
+                }
+                logger.info(infoStr + " batch of " + requests.size() + " requests, took: "
+                        + sw.stop().getMillis() + " ms");
+            }
+        };
+        return Response.ok(output, MEDIA_TYPE).build();
+    }
+
+    private ObjectNode calcRoute(int index, GHRequest request) {
+        StopWatch sw = new StopWatch().start();
+        ObjectNode json;
+        try {
+            RouteResource.resolveProfile(request, profileResolver);
+            GHResponse ghResponse = graphHopper.route(request);
+            if (ghResponse.hasErrors()) {
+                json = objectMapper.valueToTree(new MultiException(ghResponse.getErrors()));
+            } else {
+                boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
+                boolean enableElevation = request.getHints().getBool("elevation", false);
+                boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
+                boolean pointsEncoded = request.getHints().getBool("points_encoded", true);
+                long took = sw.stop().getNanos() / 1_000_000;
+                json = ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took);
+            }
+        } catch (Exception ex) {
+            // a single invalid request must not fail the other requests of the batch
+            json = objectMapper.valueToTree(new MultiException(ex));
+        }
+        json.put("index", index);
+        return json;
+    }
+}
@@ -22,6 +22,7 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.jackson.MultiException;
 import com.graphhopper.http.GHPointParam;
+import com.graphhopper.jackson.ResponsePathProtobufSerializer;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.util.*;
@@ -68,7 +69,7 @@ public class RouteResource {
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", ResponsePathProtobufSerializer.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
@@ -144,36 +145,35 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().getSize()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return writeGPX ?
-                    gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
-                            header("X-GH-Took", "" + Math.round(took)).
-                            build()
-                    :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
-                            header("X-GH-Took", "" + Math.round(took)).
-                            type(MediaType.APPLICATION_JSON).
-                            build();
+            if (writeGPX)
+                return gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
+                        header("X-GH-Took", "" + Math.round(took)).
+                        build();
+            if ("protobuf".equalsIgnoreCase(type))
+                return protobufSuccessResponseBuilder(ghResponse, instructions, calcPoints, enableElevation, took).
+                        header("X-GH-Took", "" + Math.round(took)).
+                        build();
+            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    header("X-GH-Took", "" + Math.round(took)).
+                    type(MediaType.APPLICATION_JSON).
+                    build();
         }
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, ResponsePathProtobufSerializer.MEDIA_TYPE})
     public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq) {
         StopWatch sw = new StopWatch().start();
         String weightingVehicleLogStr = "weighting: " + request.getHints().getString("weighting", "")
                 + ", vehicle: " + request.getHints().getString("vehicle", "");
-        if (Helper.isEmpty(request.getProfile())) {
-            enableEdgeBasedIfThereAreCurbsides(request.getCurbsides(), request);
-            request.setProfile(profileResolver.resolveProfile(request.getHints()).getName());
-            removeLegacyParameters(request.getHints());
-        }
-        errorIfLegacyParameters(request.getHints());
+        resolveProfile(request, profileResolver);
         GHResponse ghResponse = graphHopper.route(request);
         boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
         boolean enableElevation = request.getHints().getBool("elevation", false);
         boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
         boolean pointsEncoded = request.getHints().getBool("points_encoded", true);
+        String type = request.getHints().getString("type", "json");
 
         long took = sw.stop().getNanos() / 1_000_000;
         String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
@@ -192,6 +192,10 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().getSize()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
+            if ("protobuf".equalsIgnoreCase(type))
+                return protobufSuccessResponseBuilder(ghResponse, instructions, calcPoints, enableElevation, took).
+                        header("X-GH-Took", "" + Math.round(took)).
+                        build();
             return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
                     header("X-GH-Took", "" + Math.round(took)).
                     type(MediaType.APPLICATION_JSON).
@@ -199,7 +203,19 @@ public class RouteResource {
         }
     }
 
-    private void enableEdgeBasedIfThereAreCurbsides(List<String> curbsides, GHRequest request) {
+    /**
+     * Sets the profile of a POST request that uses the legacy parameters like vehicle and weighting instead.
+     */
+    static void resolveProfile(GHRequest request, ProfileResolver profileResolver) {
+        if (Helper.isEmpty(request.getProfile())) {
+            enableEdgeBasedIfThereAreCurbsides(request.getCurbsides(), request);
+            request.setProfile(profileResolver.resolveProfile(request.getHints()).getName());
+            removeLegacyParameters(request.getHints());
+        }
+        errorIfLegacyParameters(request.getHints());
+    }
+
+    private static void enableEdgeBasedIfThereAreCurbsides(List<String> curbsides, GHRequest request) {
         if (!curbsides.isEmpty()) {
             if (!request.getHints().getBool(TURN_COSTS, true))
                 throw new IllegalArgumentException("Disabling '" + TURN_COSTS + "' when using '" + CURBSIDE + "' is not allowed");
@@ -244,6 +260,15 @@ public class RouteResource {
                 header("Content-Disposition", "attachment;filename=" + "GraphHopper.gpx");
     }
 
+    /**
+     * The binary response is streamed directly from the ResponsePaths, see docs/web/route-response.proto
+     */
+    private static Response.ResponseBuilder protobufSuccessResponseBuilder(GHResponse ghRsp, boolean instructions,
+                                                                           boolean calcPoints, boolean enableElevation, long took) {
+        StreamingOutput output = out -> ResponsePathProtobufSerializer.write(ghRsp, instructions, calcPoints, enableElevation, took, out);
+        return Response.ok(output, ResponsePathProtobufSerializer.MEDIA_TYPE);
+    }
+
     static void initHints(PMap m, MultivaluedMap<String, String> parameterMap) {
         for (Map.Entry<String, List<String>> e : parameterMap.entrySet()) {
             if (e.getValue().size() == 1) {
@@ -3,6 +3,7 @@ package com.graphhopper.resources;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
+import com.graphhopper.isochrone.algorithm.PrimitiveShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.ev.*;
@@ -28,10 +29,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.io.*;
 import java.util.*;
 
 import static com.graphhopper.resources.RouteResource.errorIfLegacyParameters;
@@ -45,6 +43,15 @@ import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
 public class SPTResource {
 
     private static final Logger logger = LoggerFactory.getLogger(SPTResource.class);
+    private static final String BINARY = "application/octet-stream";
+    private static final List<String> BINARY_COLUMNS = Arrays.asList("node_id", "prev_node_id", "edge_id", "prev_edge_id",
+            "distance", "prev_distance", "time", "prev_time", "longitude", "prev_longitude", "latitude", "prev_latitude");
+    private static final byte[] BINARY_COLUMN_TYPES = {ColumnarWriter.INT32, ColumnarWriter.INT32, ColumnarWriter.INT32,
+            ColumnarWriter.INT32, ColumnarWriter.FLOAT64, ColumnarWriter.FLOAT64, ColumnarWriter.INT64, ColumnarWriter.INT64,
+            ColumnarWriter.FLOAT64, ColumnarWriter.FLOAT64, ColumnarWriter.FLOAT64, ColumnarWriter.FLOAT64};
+    private static final int NODE_ID = 0, PREV_NODE_ID = 1, EDGE_ID = 2, PREV_EDGE_ID = 3, DISTANCE = 4, PREV_DISTANCE = 5,
+            TIME = 6, PREV_TIME = 7, LONGITUDE = 8, PREV_LONGITUDE = 9, LATITUDE = 10, PREV_LATITUDE = 11,
+            STREET_NAME = 12, ENCODED_VALUE = 13;
 
     public static class IsoLabelWithCoordinates {
         public int nodeId = -1;
@@ -68,13 +75,14 @@ public class SPTResource {
     // Annotating this as application/json because errors come out as json, and
     // IllegalArgumentExceptions are not mapped to a fixed mediatype, because in RouteRessource, it could be GPX.
     @GET
-    @Produces({"text/csv", "application/json"})
+    @Produces({"text/csv", BINARY, "application/json"})
     public Response doGet(
             @Context UriInfo uriInfo,
             @QueryParam("profile") String profileName,
             @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
             @QueryParam("point") @NotNull GHPointParam point,
             @QueryParam("columns") String columnsParam,
+            @QueryParam("type") @DefaultValue("csv") String type,
             @QueryParam("time_limit") @DefaultValue("600") LongParam timeLimitInSeconds,
             @QueryParam("distance_limit") @DefaultValue("-1") LongParam distanceInMeter) {
         StopWatch sw = new StopWatch().start();
@@ -108,14 +116,6 @@ public class SPTResource {
             weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
                     Collections.singletonList(point.get()), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
-
-        if (distanceInMeter.get() > 0) {
-            shortestPathTree.setDistanceLimit(distanceInMeter.get());
-        } else {
-            double limit = timeLimitInSeconds.get() * 1000;
-            shortestPathTree.setTimeLimit(limit);
-        }
 
         final String COL_SEP = ",", LINE_SEP = "\n";
         List<String> columns;
@@ -133,6 +133,32 @@ public class SPTResource {
                 pathDetails.put(col, encodingManager.getEncodedValue(col, EncodedValue.class));
         }
 
+        if ("binary".equalsIgnoreCase(type)) {
+            // fail before the response is started, with CSV an unknown column is only noticed while writing
+            for (String col : columns) {
+                if (!BINARY_COLUMNS.contains(col) && !col.equals(Parameters.Details.STREET_NAME) && !pathDetails.containsKey(col))
+                    throw new IllegalArgumentException("Unknown property " + col);
+            }
+            PrimitiveShortestPathTree tree = new PrimitiveShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
+            if (distanceInMeter.get() > 0)
+                tree.setDistanceLimit(distanceInMeter.get());
+            else
+                tree.setTimeLimit(timeLimitInSeconds.get() * 1000);
+            StreamingOutput out = output -> {
+                writeBinary(output, tree, snap.getClosestNode(), queryGraph, columns, pathDetails, reverseFlow);
+                logger.info("took: " + sw.stop().getSeconds() + ", visited nodes:" + tree.getVisitedNodes() + ", " + uriInfo.getQueryParameters());
+            };
+            return Response.ok(out).type(BINARY).build();
+        }
+
+        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
+        if (distanceInMeter.get() > 0) {
+            shortestPathTree.setDistanceLimit(distanceInMeter.get());
+        } else {
+            double limit = timeLimitInSeconds.get() * 1000;
+            shortestPathTree.setTimeLimit(limit);
+        }
+
         StreamingOutput out = output -> {
             try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS))) {
                 StringBuilder sb = new StringBuilder();
@@ -236,6 +262,118 @@ public class SPTResource {
         return Response.ok(out).type("text/csv").build();
     }
 
+    /**
+     * Writes the shortest path tree in the column layout of {@link ColumnarWriter} with the same columns as the CSV
+     * output. Unlike the CSV output the coordinates and distances are not rounded and the previous coordinates are NaN
+     * for the start. Apart from the edge that is needed for street names and encoded values no objects are created per row.
+     */
+    private void writeBinary(OutputStream output, PrimitiveShortestPathTree tree, int from, QueryGraph queryGraph,
+                             List<String> columns, Map<String, EncodedValue> pathDetails, boolean reverseFlow) throws IOException {
+        ColumnarWriter writer = new ColumnarWriter(output, 4096);
+        // for the columns of the tree the kind is the index in BINARY_COLUMNS, otherwise it is STREET_NAME or ENCODED_VALUE
+        int[] kinds = new int[columns.size()];
+        EncodedValue[] encodedValues = new EncodedValue[columns.size()];
+        boolean needsEdge = false;
+        for (int c = 0; c < columns.size(); c++) {
+            String col = columns.get(c);
+            int kind = BINARY_COLUMNS.indexOf(col);
+            if (kind >= 0) {
+                kinds[c] = kind;
+                writer.addColumn(col, BINARY_COLUMN_TYPES[kind]);
+                continue;
+            }
+            needsEdge = true;
+            if (col.equals(Parameters.Details.STREET_NAME)) {
+                kinds[c] = STREET_NAME;
+                writer.addColumn(col, ColumnarWriter.STRING);
+                continue;
+            }
+            EncodedValue ev = pathDetails.get(col);
+            kinds[c] = ENCODED_VALUE;
+            encodedValues[c] = ev;
+            if (ev instanceof DecimalEncodedValue)
+                writer.addColumn(col, ColumnarWriter.FLOAT64);
+            else if (ev instanceof EnumEncodedValue)
+                writer.addColumn(col, ColumnarWriter.STRING);
+            else if (ev instanceof BooleanEncodedValue)
+                writer.addColumn(col, ColumnarWriter.BOOLEAN);
+            else
+                writer.addColumn(col, ColumnarWriter.INT32);
+        }
+
+        final boolean fetchEdge = needsEdge;
+        NodeAccess na = queryGraph.getNodeAccess();
+        tree.search(from, label -> {
+            int node = tree.getNode(label);
+            int edgeId = tree.getEdge(label);
+            int parent = tree.getParent(label);
+            boolean hasParent = parent != PrimitiveShortestPathTree.NO_PARENT;
+            EdgeIteratorState edge = fetchEdge && EdgeIterator.Edge.isValid(edgeId) ? queryGraph.getEdgeIteratorState(edgeId, node) : null;
+            for (int c = 0; c < kinds.length; c++) {
+                switch (kinds[c]) {
+                    case NODE_ID:
+                        writer.setInt(c, node);
+                        break;
+                    case PREV_NODE_ID:
+                        writer.setInt(c, hasParent ? tree.getNode(parent) : -1);
+                        break;
+                    case EDGE_ID:
+                        writer.setInt(c, edgeId);
+                        break;
+                    case PREV_EDGE_ID:
+                        writer.setInt(c, hasParent ? tree.getEdge(parent) : 0);
+                        break;
+                    case DISTANCE:
+                        writer.setDouble(c, tree.getDistance(label));
+                        break;
+                    case PREV_DISTANCE:
+                        writer.setDouble(c, hasParent ? tree.getDistance(parent) : 0);
+                        break;
+                    case TIME:
+                        writer.setLong(c, tree.getTime(label));
+                        break;
+                    case PREV_TIME:
+                        writer.setLong(c, hasParent ? tree.getTime(parent) : 0);
+                        break;
+                    case LONGITUDE:
+                        writer.setDouble(c, na.getLon(node));
+                        break;
+                    case PREV_LONGITUDE:
+                        writer.setDouble(c, hasParent ? na.getLon(tree.getNode(parent)) : Double.NaN);
+                        break;
+                    case LATITUDE:
+                        writer.setDouble(c, na.getLat(node));
+                        break;
+                    case PREV_LATITUDE:
+                        writer.setDouble(c, hasParent ? na.getLat(tree.getNode(parent)) : Double.NaN);
+                        break;
+                    case STREET_NAME:
+                        if (edge != null)
+                            writer.setString(c, edge.getName());
+                        break;
+                    default:
+                        if (edge == null)
+                            break;
+                        EncodedValue ev = encodedValues[c];
+                        if (ev instanceof DecimalEncodedValue)
+                            writer.setDouble(c, reverseFlow ? edge.getReverse((DecimalEncodedValue) ev) : edge.get((DecimalEncodedValue) ev));
+                        else if (ev instanceof EnumEncodedValue)
+                            writer.setString(c, (reverseFlow ? edge.getReverse((EnumEncodedValue) ev) : edge.get((EnumEncodedValue) ev)).toString());
+                        else if (ev instanceof BooleanEncodedValue)
+                            writer.setBoolean(c, reverseFlow ? edge.getReverse((BooleanEncodedValue) ev) : edge.get((BooleanEncodedValue) ev));
+                        else
+                            writer.setInt(c, reverseFlow ? edge.getReverse((IntEncodedValue) ev) : edge.get((IntEncodedValue) ev));
+                }
+            }
+            try {
+                writer.endRow();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        writer.finish();
+    }
+
     private IsoLabelWithCoordinates isoLabelWithCoordinates(NodeAccess na, ShortestPathTree.IsoLabel label) {
         double lat = na.getLat(label.node);
         double lon = na.getLon(label.node);
@@ -18,7 +18,9 @@
 package com.graphhopper.http;
 
 import com.graphhopper.http.cli.ImportCommand;
+import com.graphhopper.http.cli.MatchBatchCommand;
 import com.graphhopper.http.cli.MatchCommand;
+import com.graphhopper.http.cli.PrerenderMVTCommand;
 import com.graphhopper.http.resources.RootResource;
 import com.graphhopper.navigation.NavigateResource;
 import io.dropwizard.Application;
@@ -43,6 +45,8 @@ public final class GraphHopperApplication extends Application<GraphHopperServerC
         bootstrap.addBundle(new RealtimeBundle());
         bootstrap.addCommand(new ImportCommand());
         bootstrap.addCommand(new MatchCommand());
+        bootstrap.addCommand(new MatchBatchCommand());
+        bootstrap.addCommand(new PrerenderMVTCommand());
 
         Map<String, String> resourceToURIMappings = new HashMap<>();
         resourceToURIMappings.put("/assets/", "/maps/");
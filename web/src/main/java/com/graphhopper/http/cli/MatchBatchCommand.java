@@ -0,0 +1,234 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http.cli;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.matching.MapMatching;
+import com.graphhopper.matching.MapMatchingJobRunner;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Argument;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Map-matches many traces in parallel and writes the results in the compact format of {@link MapMatchingJobRunner}.
+ * The input are GPX files, directories containing GPX files or CSV files with the columns trace id, latitude and
+ * longitude. The rows of a trace have to be consecutive in the CSV file. Use - to read CSV from standard input.
+ */
+public class MatchBatchCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public MatchBatchCommand() {
+        super("match-batch", "map-match many traces in parallel");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        subparser.addArgument("input")
+                .type(String.class)
+                .required(true)
+                .nargs("+")
+                .help("GPX file, directory with GPX files, CSV file (id,lat,lon) or - for CSV from standard input");
+        subparser.addArgument("--file")
+                .required(true)
+                .help("application configuration file");
+        subparser.addArgument("--profile")
+                .type(String.class)
+                .required(true)
+                .help("profile to use for map-matching (must be configured in configuration file)");
+        subparser.addArgument("--output")
+                .type(String.class)
+                .required(false)
+                .setDefault("-")
+                .help("result file or - for standard output");
+        subparser.addArgument("--threads")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(Runtime.getRuntime().availableProcessors());
+        subparser.addArgument("--gps_accuracy")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(40);
+        subparser.addArgument("--transition_probability_beta")
+                .type(Double.class)
+                .required(false)
+                .setDefault(2.0);
+    }
+
+    @Override
+    protected Argument addFileArgument(Subparser subparser) {
+        // Never called, see MatchCommand: the configuration file is a named argument because the positional
+        // arguments are the input files.
+        throw new RuntimeException();
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace args, GraphHopperServerConfiguration configuration) throws Exception {
+        GraphHopper hopper = new GraphHopperOSM().init(configuration.getGraphHopperConfiguration());
+        hopper.importOrLoad();
+        try {
+            PMap hints = new PMap();
+            hints.putObject("profile", args.get("profile"));
+            double beta = args.getDouble("transition_probability_beta");
+            int gpsAccuracy = args.getInt("gps_accuracy");
+            MapMatchingJobRunner runner = new MapMatchingJobRunner(() -> {
+                MapMatching mapMatching = new MapMatching(hopper, hints);
+                mapMatching.setTransitionProbabilityBeta(beta);
+                mapMatching.setMeasurementErrorSigma(gpsAccuracy);
+                return mapMatching;
+            }, args.getInt("threads"));
+
+            String output = args.getString("output");
+            try (Writer writer = new BufferedWriter(output.equals("-")
+                    ? new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), Helper.UTF_CS)
+                    : new OutputStreamWriter(new FileOutputStream(output), Helper.UTF_CS))) {
+                List<String> inputs = args.getList("input");
+                for (String input : inputs) {
+                    MapMatchingJobRunner.Statistics statistics;
+                    if (input.equals("-") || input.endsWith(".csv")) {
+                        try (BufferedReader reader = new BufferedReader(input.equals("-")
+                                ? new InputStreamReader(System.in, Helper.UTF_CS)
+                                : new InputStreamReader(new FileInputStream(input), Helper.UTF_CS))) {
+                            statistics = runner.run(new CSVTraces(reader), writer);
+                        }
+                    } else {
+                        statistics = runner.run(gpxTraces(new File(input)).iterator(), writer);
+                    }
+                    // the results might be written to standard output
+                    System.err.println(input + ": " + statistics);
+                }
+            }
+        } finally {
+            hopper.close();
+        }
+    }
+
+    private static List<MapMatchingJobRunner.Trace> gpxTraces(File file) {
+        File[] files = file.isDirectory() ? file.listFiles((dir, name) -> name.endsWith(".gpx")) : new File[]{file};
+        if (files == null)
+            throw new IllegalArgumentException("Cannot read " + file);
+        Arrays.sort(files);
+        XmlMapper xmlMapper = new XmlMapper();
+        List<MapMatchingJobRunner.Trace> traces = new ArrayList<>(files.length);
+        for (File gpxFile : files) {
+            traces.add(new MapMatchingJobRunner.Trace() {
+                @Override
+                public String getId() {
+                    return gpxFile.getPath();
+                }
+
+                @Override
+                public List<Observation> readObservations() throws IOException {
+                    Gpx gpx = xmlMapper.readValue(gpxFile, Gpx.class);
+                    if (gpx.trk == null)
+                        throw new IllegalArgumentException("No tracks found in GPX document. Are you using waypoints or routes instead?");
+                    if (gpx.trk.size() > 1)
+                        throw new IllegalArgumentException("GPX documents with multiple tracks not supported yet.");
+                    return GpxConversions.getEntries(gpx.trk.get(0));
+                }
+            });
+        }
+        return traces;
+    }
+
+    /**
+     * Reads the traces from CSV rows with the columns id, latitude and longitude. Lines starting with # are ignored.
+     * The rows are only parsed by {@link MapMatchingJobRunner.Trace#readObservations}, so a malformed row fails its
+     * trace and not the whole batch.
+     */
+    static class CSVTraces implements Iterator<MapMatchingJobRunner.Trace> {
+        private final BufferedReader reader;
+        private String nextLine;
+
+        CSVTraces(BufferedReader reader) {
+            this.reader = reader;
+            this.nextLine = readLine();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLine != null;
+        }
+
+        @Override
+        public MapMatchingJobRunner.Trace next() {
+            if (nextLine == null)
+                throw new NoSuchElementException();
+            final String id = getId(nextLine);
+            final List<String> lines = new ArrayList<>();
+            while (nextLine != null && getId(nextLine).equals(id)) {
+                lines.add(nextLine);
+                nextLine = readLine();
+            }
+            return new MapMatchingJobRunner.Trace() {
+                @Override
+                public String getId() {
+                    return id;
+                }
+
+                @Override
+                public List<Observation> readObservations() {
+                    List<Observation> observations = new ArrayList<>(lines.size());
+                    for (String line : lines) {
+                        String[] row = line.split(",");
+                        if (row.length < 3)
+                            throw new IllegalArgumentException("Expected the columns id,lat,lon but got: " + line);
+                        try {
+                            observations.add(new Observation(new GHPoint(Double.parseDouble(row[1]), Double.parseDouble(row[2]))));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("Cannot parse the coordinates of: " + line, ex);
+                        }
+                    }
+                    return observations;
+                }
+            };
+        }
+
+        private static String getId(String line) {
+            int index = line.indexOf(',');
+            return index < 0 ? line : line.substring(0, index);
+        }
+
+        private String readLine() {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#"))
+                        return line;
+                }
+                return null;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
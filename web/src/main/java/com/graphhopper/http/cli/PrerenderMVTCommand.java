@@ -0,0 +1,127 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.cli;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.GraphHopperBundle;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.mvt.MVTTileCache;
+import com.graphhopper.mvt.MVTTileRenderer;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.BBox;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders the vector tiles of /mvt for a range of zoom levels into the directory of the tile cache (mvt.cache_dir),
+ * so that the server does not need to create them on request. Tiles that already exist are skipped.
+ */
+public class PrerenderMVTCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public PrerenderMVTCommand() {
+        super("prerender-mvt", "renders the vector tiles of the given zoom levels into mvt.cache_dir");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--min_zoom")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(MVTTileRenderer.MAX_EMPTY_ZOOM + 1);
+        subparser.addArgument("--max_zoom")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(14);
+        subparser.addArgument("--threads")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(Runtime.getRuntime().availableProcessors());
+        subparser.addArgument("--details")
+                .type(String.class)
+                .required(false)
+                .nargs("*")
+                .setDefault(new ArrayList<String>())
+                .help("the encoded values to include in the tiles, the same as the details parameter of /mvt");
+        subparser.addArgument("--bbox")
+                .type(String.class)
+                .required(false)
+                .setDefault("")
+                .help("the area in the format minLon,maxLon,minLat,maxLat, the default are the bounds of the graph");
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace args, GraphHopperServerConfiguration configuration) throws Exception {
+        final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), bootstrap.getObjectMapper());
+        graphHopperManaged.start();
+        try {
+            GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+            MVTTileCache tileCache = GraphHopperBundle.createMVTTileCache(configuration.getGraphHopperConfiguration(), graphHopper);
+            if (!tileCache.isDiskCacheEnabled())
+                throw new IllegalArgumentException("You need to specify mvt.cache_dir to prerender the vector tiles");
+
+            int minZoom = Math.max(args.getInt("min_zoom"), MVTTileRenderer.MAX_EMPTY_ZOOM + 1);
+            int maxZoom = Math.min(args.getInt("max_zoom"), MVTTileRenderer.MAX_ZOOM);
+            List<String> details = args.getList("details");
+            String bboxString = args.getString("bbox");
+            BBox bbox = bboxString.isEmpty() ? graphHopper.getGraphHopperStorage().getBounds() : BBox.parseBBoxString(bboxString);
+
+            ExecutorService executor = Executors.newFixedThreadPool(args.getInt("threads"));
+            try {
+                for (int z = minZoom; z <= maxZoom; z++) {
+                    StopWatch sw = new StopWatch().start();
+                    final int zoom = z;
+                    int minX = MVTTileRenderer.lon2x(bbox.minLon, z), maxX = MVTTileRenderer.lon2x(bbox.maxLon, z);
+                    // the y numbers go from north to south
+                    int minY = MVTTileRenderer.lat2y(bbox.maxLat, z), maxY = MVTTileRenderer.lat2y(bbox.minLat, z);
+                    AtomicInteger rendered = new AtomicInteger();
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int x = minX; x <= maxX; x++) {
+                        final int tileX = x;
+                        // one task per column to avoid creating too many tasks for high zoom levels
+                        futures.add(executor.submit(() -> {
+                            for (int y = minY; y <= maxY; y++) {
+                                if (tileCache.prerender(zoom, tileX, y, details))
+                                    rendered.incrementAndGet();
+                            }
+                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                    System.out.println("zoom " + z + ": rendered " + rendered.get() + " of "
+                            + (long) (maxX - minX + 1) * (maxY - minY + 1) + " tiles, took: " + sw.stop().getSeconds() + "s");
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            graphHopperManaged.stop();
+        }
+    }
+}
@@ -25,12 +25,24 @@ import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
 import com.graphhopper.matching.EdgeMatch;
 import com.graphhopper.matching.MapMatching;
+import com.graphhopper.matching.MapMatchingJobRunner;
 import com.graphhopper.matching.MatchResult;
 import com.graphhopper.matching.Observation;
+import com.graphhopper.matching.OnlineMapMatching;
+import com.graphhopper.matching.State;
+import com.graphhopper.matching.TransitionSearch;
 import com.graphhopper.jackson.Gpx;
 import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.DijkstraBidirectionRef;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
 import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.gpx.GpxConversions;
 import com.graphhopper.util.shapes.GHPoint;
@@ -42,6 +54,7 @@ import org.junit.runners.Parameterized;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -301,6 +314,167 @@ public class MapMatchingTest {
         return list;
     }
 
+    /**
+     * The one-to-many transition search has to find the same paths as a bidirectional search per pair of candidates
+     */
+    @Test
+    public void testTransitionSearch() {
+        List<GHPoint> points = Arrays.asList(new GHPoint(51.358735, 12.360574), new GHPoint(51.358594, 12.360032),
+                new GHPoint(51.342422, 12.3613358), new GHPoint(51.33099, 12.380267), new GHPoint(51.330531, 12.380396));
+        List<Snap> snaps = new ArrayList<>();
+        for (GHPoint point : points) {
+            Snap snap = graphHopper.getLocationIndex().findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
+            assertTrue(snap.isValid());
+            snaps.add(snap);
+        }
+        QueryGraph queryGraph = QueryGraph.create(graphHopper.getGraphHopperStorage(), snaps);
+        Weighting weighting = graphHopper.createWeighting(graphHopper.getProfile("my_profile"), new PMap());
+        List<State> states = new ArrayList<>();
+        for (Snap snap : snaps) {
+            Observation observation = new Observation(snap.getQueryPoint());
+            if (queryGraph.isVirtualNode(snap.getClosestNode())) {
+                List<VirtualEdgeIteratorState> virtualEdges = new ArrayList<>();
+                EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(snap.getClosestNode());
+                while (iter.next()) {
+                    virtualEdges.add((VirtualEdgeIteratorState) queryGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()));
+                }
+                states.add(new State(observation, snap, virtualEdges.get(0), virtualEdges.get(1)));
+                states.add(new State(observation, snap, virtualEdges.get(1), virtualEdges.get(0)));
+            } else {
+                states.add(new State(observation, snap));
+            }
+        }
+
+        TransitionSearch transitionSearch = new TransitionSearch(queryGraph, weighting, Integer.MAX_VALUE);
+        for (State from : states) {
+            List<Path> paths = transitionSearch.calcPaths(from, states, Double.POSITIVE_INFINITY);
+            for (int i = 0; i < states.size(); i++) {
+                State to = states.get(i);
+                Path expected = new DijkstraBidirectionRef(queryGraph, weighting, TraversalMode.EDGE_BASED).calcPath(
+                        from.getSnap().getClosestNode(), to.getSnap().getClosestNode(),
+                        from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE,
+                        to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE);
+                Path path = paths.get(i);
+                assertEquals(from + " -> " + to, expected.isFound(), path.isFound());
+                if (expected.isFound()) {
+                    assertEquals(from + " -> " + to, expected.getWeight(), path.getWeight(), 1.e-6);
+                    assertEquals(from + " -> " + to, expected.getDistance(), path.getDistance(), 1.e-3);
+                }
+            }
+        }
+
+        // the paths to candidates that are further away than the limit are not found
+        State from = states.get(0);
+        List<Path> paths = transitionSearch.calcPaths(from, states, 100);
+        for (int i = 0; i < states.size(); i++) {
+            if (paths.get(i).isFound())
+                assertTrue(paths.get(i).getDistance() <= 100);
+        }
+        assertFalse(paths.get(paths.size() - 1).isFound());
+    }
+
+    @Test
+    public void testOnline() {
+        ResponsePath route = graphHopper.route(new GHRequest(
+                new GHPoint(51.377781, 12.338333),
+                new GHPoint(51.323317, 12.387085))
+                .setProfile("my_profile")).getBest();
+        List<Observation> inputGPXEntries = createRandomGPXEntriesAlongRoute(route);
+        MapMatching mapMatching = new MapMatching(graphHopper, hints);
+        mapMatching.setMeasurementErrorSigma(20);
+        List<EdgeMatch> expected = mapMatching.match(inputGPXEntries).getEdgeMatches();
+
+        // without a lag limit only converged matches are returned, so the result is the same as the one of the whole track
+        List<EdgeMatch> edgeMatches = matchOnline(new OnlineMapMatching(mapMatching, Integer.MAX_VALUE), inputGPXEntries);
+        assertEquals(edgeIds(expected), edgeIds(edgeMatches));
+
+        // with a small lag candidates are chosen earlier, but the edges still form a path of about the same length
+        edgeMatches = matchOnline(new OnlineMapMatching(mapMatching, 1), inputGPXEntries);
+        for (int i = 1; i < edgeMatches.size(); i++) {
+            assertEquals(edgeMatches.get(i - 1).getEdgeState().getAdjNode(), edgeMatches.get(i).getEdgeState().getBaseNode());
+        }
+        assertEquals(edgeLength(expected), edgeLength(edgeMatches), 0.05 * edgeLength(expected));
+
+        // the instance can be reused for the next track
+        OnlineMapMatching onlineMapMatching = new OnlineMapMatching(mapMatching, 3);
+        List<EdgeMatch> first = matchOnline(onlineMapMatching, inputGPXEntries);
+        assertEquals(edgeIds(first), edgeIds(matchOnline(onlineMapMatching, inputGPXEntries)));
+    }
+
+    @Test
+    public void testJobRunner() throws IOException {
+        List<MapMatchingJobRunner.Trace> traces = new ArrayList<>();
+        Map<String, List<Integer>> expected = new HashMap<>();
+        MapMatching mapMatching = new MapMatching(graphHopper, hints);
+        for (GHPoint[] points : Arrays.asList(
+                new GHPoint[]{new GHPoint(51.358735, 12.360574), new GHPoint(51.358594, 12.360032)},
+                new GHPoint[]{new GHPoint(51.33099, 12.380267), new GHPoint(51.330531, 12.380396)},
+                new GHPoint[]{new GHPoint(51.377781, 12.338333), new GHPoint(51.323317, 12.387085)})) {
+            ResponsePath route = graphHopper.route(new GHRequest(points[0], points[1]).setProfile("my_profile")).getBest();
+            List<Observation> observations = createRandomGPXEntriesAlongRoute(route);
+            String id = "trace" + traces.size();
+            traces.add(trace(id, observations));
+            expected.put(id, mapMatching.match(observations).getEdgeMatches().stream()
+                    .map(em -> em.getEdgeState().getEdgeKey()).collect(Collectors.toList()));
+        }
+        // far outside of the map
+        traces.add(trace("broken", Arrays.asList(new Observation(new GHPoint(50, 10)), new Observation(new GHPoint(50.1, 10.1)))));
+
+        StringWriter writer = new StringWriter();
+        MapMatchingJobRunner.Statistics statistics = new MapMatchingJobRunner(() -> new MapMatching(graphHopper, hints), 2)
+                .run(traces.iterator(), writer);
+        assertEquals(3, statistics.getTraces());
+        assertEquals(1, statistics.getFailedTraces());
+        assertTrue(statistics.getCandidatesPerTimeStep() > 0);
+        assertTrue(statistics.getTransitionSearchesPerTimeStep() > 0);
+
+        String[] lines = writer.toString().split("\n");
+        assertEquals(4, lines.length);
+        for (String line : lines) {
+            String[] columns = line.split("\t");
+            if (columns[0].equals("broken")) {
+                assertEquals("ERROR", columns[1]);
+                continue;
+            }
+            assertEquals("OK", columns[1]);
+            List<Integer> edgeKeys = Arrays.stream(columns[5].split(",")).map(Integer::parseInt).collect(Collectors.toList());
+            assertEquals(expected.get(columns[0]), edgeKeys);
+        }
+    }
+
+    private MapMatchingJobRunner.Trace trace(String id, List<Observation> observations) {
+        return new MapMatchingJobRunner.Trace() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public List<Observation> readObservations() {
+                return observations;
+            }
+        };
+    }
+
+    private List<EdgeMatch> matchOnline(OnlineMapMatching onlineMapMatching, List<Observation> observations) {
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (Observation observation : observations) {
+            edgeMatches.addAll(onlineMapMatching.add(observation));
+        }
+        // the matches are returned while the track is still running
+        assertFalse(edgeMatches.isEmpty());
+        edgeMatches.addAll(onlineMapMatching.finish());
+        return edgeMatches;
+    }
+
+    private List<Integer> edgeIds(List<EdgeMatch> edgeMatches) {
+        return edgeMatches.stream().map(em -> em.getEdgeState().getEdge()).collect(Collectors.toList());
+    }
+
+    private double edgeLength(List<EdgeMatch> edgeMatches) {
+        return edgeMatches.stream().mapToDouble(em -> em.getEdgeState().getDistance()).sum();
+    }
+
     /**
      * This method does not in fact create random observations. It creates observations at nodes on a route.
      * This method _should_ be replaced by one that creates random observations along a route,
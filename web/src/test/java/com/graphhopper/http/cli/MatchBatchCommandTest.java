@@ -0,0 +1,83 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.cli;
+
+import com.graphhopper.matching.MapMatchingJobRunner;
+import com.graphhopper.matching.Observation;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchBatchCommandTest {
+
+    private static final String CSV = "# id,lat,lon\n" +
+            "a,51.1,12.1\n" +
+            "a,51.2,12.2\n" +
+            "b,51.1,abc\n" +
+            "b,51.2,12.2\n" +
+            "c,51.1\n" +
+            "\n" +
+            "d,51.3,12.3\n";
+
+    @Test
+    public void testCSVTraces() throws Exception {
+        Map<String, MapMatchingJobRunner.Trace> traces = new LinkedHashMap<>();
+        MatchBatchCommand.CSVTraces iter = new MatchBatchCommand.CSVTraces(new BufferedReader(new StringReader(CSV)));
+        while (iter.hasNext()) {
+            MapMatchingJobRunner.Trace trace = iter.next();
+            traces.put(trace.getId(), trace);
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "d"), new ArrayList<>(traces.keySet()));
+
+        List<Observation> observations = traces.get("a").readObservations();
+        assertEquals(2, observations.size());
+        assertEquals(51.2, observations.get(1).getPoint().getLat(), 1e-6);
+        assertEquals(1, traces.get("d").readObservations().size());
+
+        // malformed rows only fail their own trace
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> traces.get("b").readObservations());
+        assertTrue(ex.getMessage().contains("b,51.1,abc"), ex.getMessage());
+        ex = assertThrows(IllegalArgumentException.class, () -> traces.get("c").readObservations());
+        assertTrue(ex.getMessage().contains("id,lat,lon"), ex.getMessage());
+    }
+
+    @Test
+    public void testMalformedRowsDoNotAbortTheBatch() throws Exception {
+        String csv = "b,51.1,abc\nc,51.1\ne,x,y\n";
+        StringWriter writer = new StringWriter();
+        // the traces fail before a MapMatching instance is needed
+        MapMatchingJobRunner.Statistics statistics = new MapMatchingJobRunner(() -> {
+            throw new IllegalStateException("no map-matching expected");
+        }, 2).run(new MatchBatchCommand.CSVTraces(new BufferedReader(new StringReader(csv))), writer);
+        assertEquals(0, statistics.getTraces());
+        assertEquals(3, statistics.getFailedTraces());
+
+        Set<String> ids = new HashSet<>();
+        for (String line : writer.toString().split("\n")) {
+            String[] columns = line.split("\t");
+            assertEquals("ERROR", columns[1], line);
+            ids.add(columns[0]);
+        }
+        assertEquals(new HashSet<>(Arrays.asList("b", "c", "e")), ids);
+    }
+}
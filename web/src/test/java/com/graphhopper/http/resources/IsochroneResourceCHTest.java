@@ -0,0 +1,93 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http.resources;
+
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.JsonFeatureCollection;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import javax.ws.rs.client.WebTarget;
+import java.io.File;
+import java.util.Collections;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the isochrones calculated with CH to the ones calculated without.
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class IsochroneResourceCHTest {
+    private static final String DIR = "./target/andorra-gh-ch/";
+    public static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                setProfiles(Collections.singletonList(new Profile("fast_car").setVehicle("car").setWeighting("fastest"))).
+                setCHProfiles(Collections.singletonList(new CHProfile("fast_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    @ParameterizedTest
+    @CsvSource({"time_limit,300,false", "time_limit,300,true", "distance_limit,3000,false", "weight_limit,400,false"})
+    public void sameAsWithoutCH(String limitParam, int limit, boolean reverseFlow) {
+        WebTarget target = clientTarget(app, "/isochrone")
+                .queryParam("profile", "fast_car")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam(limitParam, limit)
+                .queryParam("reverse_flow", reverseFlow)
+                .queryParam("type", "geojson");
+        Geometry chPolygon = target.request().get(JsonFeatureCollection.class).getFeatures().get(0).getGeometry();
+        Geometry polygon = target.queryParam("ch.disable", true).request().get(JsonFeatureCollection.class).getFeatures().get(0).getGeometry();
+
+        // the shortest path trees can differ slightly for paths with equal weights
+        assertEquals(polygon.getArea(), chPolygon.getArea(), polygon.getArea() * 0.01);
+        assertTrue(polygon.symDifference(chPolygon).getArea() < polygon.getArea() * 0.02);
+        if (limitParam.equals("time_limit") && !reverseFlow) {
+            assertTrue(chPolygon.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+            assertFalse(chPolygon.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
+        }
+    }
+}
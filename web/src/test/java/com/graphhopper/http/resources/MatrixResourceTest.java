@@ -0,0 +1,154 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GraphHopperMatrixWeb;
+import com.graphhopper.api.GraphHopperWeb;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.http.util.TestUtils;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-matrix-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("routing.matrix.max_size", 16)
+                .setProfiles(Collections.singletonList(new Profile("my_car").setVehicle("car").setWeighting("fastest")))
+                .setCHProfiles(Collections.singletonList(new CHProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testMatrixEqualsRoutes() {
+        List<GHPoint> points = Arrays.asList(new GHPoint(42.5093, 1.5274), new GHPoint(42.5126, 1.5410),
+                new GHPoint(42.556, 1.532), new GHPoint(42.505, 1.494));
+        GHMRequest request = new GHMRequest();
+        request.addAllPoints(points);
+        request.setProfile("my_car");
+        request.addOutArray("weights").addOutArray("times").addOutArray("distances");
+        MatrixResponse rsp = new GraphHopperMatrixWeb(TestUtils.clientUrl(app, "/matrix")).route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+
+        GraphHopperWeb gh = new GraphHopperWeb(TestUtils.clientUrl(app, "/route"));
+        for (int from = 0; from < points.size(); from++) {
+            for (int to = 0; to < points.size(); to++) {
+                GHResponse routeRsp = gh.route(new GHRequest(points.get(from), points.get(to)).setProfile("my_car").
+                        putHint("instructions", false).putHint("calc_points", false));
+                assertFalse(routeRsp.hasErrors(), routeRsp.getErrors().toString());
+                ResponsePath path = routeRsp.getBest();
+                assertTrue(rsp.isConnected(from, to));
+                assertEquals(path.getRouteWeight(), rsp.getWeight(from, to), 0.1, from + "->" + to);
+                assertEquals(path.getDistance(), rsp.getDistance(from, to), 1, from + "->" + to);
+                assertEquals(path.getTime(), rsp.getTime(from, to), 1000, from + "->" + to);
+            }
+        }
+    }
+
+    @Test
+    public void testFromAndToPoints() {
+        GHMRequest request = new GHMRequest();
+        request.addFromPoint(new GHPoint(42.5093, 1.5274));
+        request.addToPoint(new GHPoint(42.5126, 1.5410));
+        request.addToPoint(new GHPoint(42.5093, 1.5274));
+        request.putHint("vehicle", "car");
+        MatrixResponse rsp = new GraphHopperMatrixWeb(TestUtils.clientUrl(app, "/matrix")).route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertTrue(rsp.getWeight(0, 0) > 0);
+        assertEquals(0, rsp.getWeight(0, 1), 1.e-6);
+    }
+
+    @Test
+    public void testPointOutOfArea() {
+        GHMRequest request = new GHMRequest();
+        request.addFromPoint(new GHPoint(42.5093, 1.5274));
+        request.addToPoint(new GHPoint(43.5126, 5.5410));
+        request.setProfile("my_car");
+        MatrixResponse rsp = new GraphHopperMatrixWeb(TestUtils.clientUrl(app, "/matrix")).route(request);
+        assertTrue(rsp.hasErrors());
+
+        request = new GHMRequest();
+        request.addFromPoint(new GHPoint(42.5093, 1.5274));
+        request.addToPoint(new GHPoint(43.5126, 5.5410));
+        request.addToPoint(new GHPoint(42.5126, 1.5410));
+        request.setProfile("my_car");
+        request.setFailFast(false);
+        rsp = new GraphHopperMatrixWeb(TestUtils.clientUrl(app, "/matrix")).route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(Collections.singletonList(0), rsp.getInvalidToPoints());
+        assertFalse(rsp.isConnected(0, 0));
+        assertTrue(rsp.isConnected(0, 1));
+    }
+
+    @Test
+    public void testTooManyPoints() {
+        GHMRequest request = new GHMRequest();
+        for (int i = 0; i < 5; i++)
+            request.addFromPoint(new GHPoint(42.5093, 1.5274));
+        for (int i = 0; i < 4; i++)
+            request.addToPoint(new GHPoint(42.5126, 1.5410));
+        request.setProfile("my_car");
+        MatrixResponse rsp = new GraphHopperMatrixWeb(TestUtils.clientUrl(app, "/matrix")).route(request);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().toString().contains("Too many points: 5x4"), rsp.getErrors().toString());
+
+        // the maximum itself is allowed
+        request = new GHMRequest();
+        for (int i = 0; i < 4; i++)
+            request.addPoint(new GHPoint(42.5093, 1.5274));
+        request.setProfile("my_car");
+        rsp = new GraphHopperMatrixWeb(TestUtils.clientUrl(app, "/matrix")).route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+    }
+}
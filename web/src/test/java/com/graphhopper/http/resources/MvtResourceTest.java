@@ -45,7 +45,9 @@ import java.util.List;
 import java.util.Map;
 
 import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -54,6 +56,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 @ExtendWith(DropwizardExtensionsSupport.class)
 public class MvtResourceTest {
     private static final String DIR = "./target/andorra-gh/";
+    private static final String MVT_CACHE_DIR = "./target/andorra-mvt/";
     private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
 
     private static GraphHopperServerConfiguration createConfig() {
@@ -64,6 +67,8 @@ public class MvtResourceTest {
                 putObject("prepare.min_network_size", 0).
                 putObject("datareader.file", "../core/files/andorra.osm.pbf").
                 putObject("graph.location", DIR).
+                putObject("mvt.cache_size", 10).
+                putObject("mvt.cache_dir", MVT_CACHE_DIR).
                 setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
         return config;
     }
@@ -72,6 +77,7 @@ public class MvtResourceTest {
     @AfterAll
     public static void cleanUp() {
         Helper.removeDir(new File(DIR));
+        Helper.removeDir(new File(MVT_CACHE_DIR));
     }
 
     @Test
@@ -108,6 +114,27 @@ public class MvtResourceTest {
         assertEquals("primary", attributes(geometry).get("road_class"));
     }
 
+    @Test
+    public void testCache() {
+        String path = "/mvt/15/16523/12102.mvt?details=road_class&details=max_speed&details=road_class&details=unknown";
+        byte[] first = clientTarget(app, path).request().get(byte[].class);
+        // only the prerender-mvt command writes to the cache directory
+        assertFalse(new File(MVT_CACHE_DIR, "15/16523/12102-max_speed-road_class.mvt").exists());
+        // the details are normalized for the key of the tile
+        byte[] second = clientTarget(app, "/mvt/15/16523/12102.mvt?details=max_speed&details=road_class").request().get(byte[].class);
+        assertArrayEquals(first, second);
+
+        byte[] withoutDetails = clientTarget(app, "/mvt/15/16523/12102.mvt").request().get(byte[].class);
+        assertTrue(withoutDetails.length < first.length);
+    }
+
+    @Test
+    public void testInvalidTile() {
+        assertEquals(400, clientTarget(app, "/mvt/15/32768/12102.mvt").request().get().getStatus());
+        assertEquals(400, clientTarget(app, "/mvt/15/16523/-1.mvt").request().get().getStatus());
+        assertEquals(400, clientTarget(app, "/mvt/23/0/0.mvt").request().get().getStatus());
+    }
+
     private Map<String, Object> attributes(Geometry g) {
         return (Map<String, Object>) g.getUserData();
     }
@@ -52,6 +52,7 @@ public class NearestResourceTest {
                 putObject("graph.flag_encoders", "car").
                 putObject("datareader.file", "../core/files/andorra.osm.pbf").
                 putObject("graph.location", dir).
+                putObject("index.snap_cache.size", 100).
                 setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
         return config;
     }
@@ -69,4 +70,18 @@ public class NearestResourceTest {
         NearestResource.Response json = response.readEntity(NearestResource.Response.class);
         assertArrayEquals(new double[]{1.5363742288086868, 42.55483907636756}, json.coordinates, "nearest point");
     }
+
+    @Test
+    public void testRepeatedNearestQuery() {
+        // the second query is answered by the snap cache
+        double[] coordinates = null;
+        for (int i = 0; i < 2; i++) {
+            final Response response = clientTarget(app, "/nearest?point=42.53,1.55").request().buildGet().invoke();
+            assertEquals(200, response.getStatus(), "HTTP status");
+            NearestResource.Response json = response.readEntity(NearestResource.Response.class);
+            if (coordinates != null)
+                assertArrayEquals(coordinates, json.coordinates, 1.e-8, "nearest point");
+            coordinates = json.coordinates;
+        }
+    }
 }
@@ -39,6 +39,7 @@ import io.dropwizard.testing.junit5.DropwizardAppExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
@@ -77,21 +78,26 @@ public class RouteResourceClientHCTest {
     // dropwizard extension does not work with @RunWith(Parameterized.class), but we can use an @EnumSource or similar
     // and on each test method. see https://github.com/graphhopper/graphhopper/pull/2003
     private enum TestParam {
-        GET(false, -1),
-        POST_MAX_UNZIPPED_0(true, 0),
-        POST_MAX_UNZIPPED_1000(true, 1000);
+        GET(false, -1, false),
+        POST_MAX_UNZIPPED_0(true, 0, false),
+        POST_MAX_UNZIPPED_1000(true, 1000, false),
+        GET_PROTOBUF(false, -1, true),
+        POST_PROTOBUF(true, 1000, true);
 
         public boolean usePost;
         public int maxUnzippedLength;
+        public boolean protobuf;
 
-        TestParam(boolean usePost, int maxUnzippedLength) {
+        TestParam(boolean usePost, int maxUnzippedLength, boolean protobuf) {
             this.usePost = usePost;
             this.maxUnzippedLength = maxUnzippedLength;
+            this.protobuf = protobuf;
         }
     }
 
     private GraphHopperWeb createGH(TestParam p) {
-        return new GraphHopperWeb(TestUtils.clientUrl(app, "/route")).setPostRequest(p.usePost).setMaxUnzippedLength(p.maxUnzippedLength);
+        return new GraphHopperWeb(TestUtils.clientUrl(app, "/route")).setPostRequest(p.usePost).
+                setMaxUnzippedLength(p.maxUnzippedLength).setProtobufResponse(p.protobuf);
     }
 
     @BeforeAll
@@ -329,4 +335,29 @@ public class RouteResourceClientHCTest {
         response = gh.route(req);
         isBetween(520, 550, response.getBest().getDistance());
     }
+
+    @Test
+    public void testBatch() {
+        GraphHopperWeb gh = new GraphHopperWeb(TestUtils.clientUrl(app, "/route"));
+        List<GHRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(new GHRequest(42.5093, 1.5274, 42.5126, 1.5410).setProfile(i % 2 == 0 ? "my_car" : "my_bike"));
+        }
+        requests.add(new GHRequest(42.5093, 1.5274, 43.5126, 1.5410).setProfile("my_car"));
+        requests.add(new GHRequest(42.5093, 1.5274, 42.5126, 1.5410).setProfile("unknown"));
+
+        List<GHResponse> responses = gh.routeBatch(requests);
+        assertEquals(requests.size(), responses.size());
+        for (int i = 0; i < 20; i++) {
+            GHResponse rsp = responses.get(i);
+            assertFalse(rsp.hasErrors(), "errors:" + rsp.getErrors().toString());
+            if (i % 2 == 0)
+                isBetween(2900, 3000, rsp.getBest().getDistance());
+            else
+                isBetween(2500, 2600, rsp.getBest().getDistance());
+        }
+        // a failing request does not fail the others
+        assertTrue(responses.get(20).getErrors().get(0) instanceof PointOutOfBoundsException, responses.get(20).getErrors().toString());
+        assertTrue(responses.get(21).hasErrors());
+    }
 }
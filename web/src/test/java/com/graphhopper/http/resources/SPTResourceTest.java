@@ -33,6 +33,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import javax.ws.rs.core.Response;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -101,6 +104,84 @@ public class SPTResourceTest {
         assertEquals("1944,2272,263,13496,262", lines[3]);
     }
 
+    @Test
+    public void requestBinary() {
+        String query = "/spt?profile=car_with_turncosts&point=42.531073,1.573792&time_limit=300&columns=prev_node_id,edge_id,node_id,time,distance,road_class";
+        int csvLines = clientTarget(app, query).request().get(String.class).split("\n").length;
+        Response rsp = clientTarget(app, query + "&type=binary").request().buildGet().invoke();
+        assertEquals(200, rsp.getStatus());
+        assertEquals("application/octet-stream", rsp.getMediaType().toString());
+        ByteBuffer buffer = ByteBuffer.wrap(rsp.readEntity(byte[].class)).order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] magic = new byte[4];
+        buffer.get(magic);
+        assertEquals("GHCL", new String(magic, Helper.UTF_CS));
+        assertEquals(1, buffer.getInt());
+        assertEquals(6, buffer.getInt());
+        List<String> names = new ArrayList<>();
+        List<Byte> types = new ArrayList<>();
+        for (int c = 0; c < 6; c++) {
+            byte[] name = new byte[buffer.getInt()];
+            buffer.get(name);
+            names.add(new String(name, Helper.UTF_CS));
+            types.add(buffer.get());
+        }
+        assertEquals("[prev_node_id, edge_id, node_id, time, distance, road_class]", names.toString());
+        assertEquals("[1, 1, 1, 2, 3, 5]", types.toString());
+
+        // the first batch contains the start and its neighbours
+        int rows = buffer.getInt();
+        assertTrue(rows > 2);
+        int totalRows = rows;
+        int[] prevNodes = new int[rows], edges = new int[rows], nodes = new int[rows];
+        long[] times = new long[rows];
+        double[] distances = new double[rows];
+        String[] roadClasses = new String[rows];
+        for (int r = 0; r < rows; r++) prevNodes[r] = buffer.getInt();
+        for (int r = 0; r < rows; r++) edges[r] = buffer.getInt();
+        for (int r = 0; r < rows; r++) nodes[r] = buffer.getInt();
+        for (int r = 0; r < rows; r++) times[r] = buffer.getLong();
+        for (int r = 0; r < rows; r++) distances[r] = buffer.getDouble();
+        for (int r = 0; r < rows; r++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            roadClasses[r] = new String(bytes, Helper.UTF_CS);
+        }
+        assertEquals(-1, prevNodes[0]);
+        assertEquals(-1, edges[0]);
+        assertEquals(1944, nodes[0]);
+        assertEquals(0, times[0]);
+        assertEquals(0, distances[0]);
+        assertEquals("", roadClasses[0]);
+        assertEquals(1944, prevNodes[1]);
+        assertEquals(2273, edges[1]);
+        assertEquals(1324, nodes[1]);
+        assertEquals(3817, times[1]);
+        assertEquals(74, distances[1], 1);
+        assertFalse(roadClasses[1].isEmpty());
+
+        // skip the remaining batches
+        while ((rows = buffer.getInt()) > 0) {
+            totalRows += rows;
+            buffer.position(buffer.position() + rows * (3 * 4 + 8 + 8));
+            for (int r = 0; r < rows; r++) {
+                int length = buffer.getInt();
+                buffer.position(buffer.position() + length);
+            }
+        }
+        assertFalse(buffer.hasRemaining());
+        // the CSV contains a header line
+        assertEquals(csvLines - 1, totalRows);
+    }
+
+    @Test
+    public void requestBinaryUnknownColumn() {
+        Response rsp = clientTarget(app, "/spt?profile=car_without_turncosts&point=42.531073,1.573792&columns=time,xyz&type=binary").request().buildGet().invoke();
+        assertEquals(400, rsp.getStatus());
+        JsonNode json = rsp.readEntity(JsonNode.class);
+        assertTrue(json.get("message").toString().contains("Unknown property xyz"), json.toString());
+    }
+
     @Test
     public void requestDetails() {
         Response rsp = clientTarget(app, "/spt?profile=car_without_turncosts&point=42.531073,1.573792&time_limit=300&columns=street_name,road_class,max_speed").request().buildGet().invoke();